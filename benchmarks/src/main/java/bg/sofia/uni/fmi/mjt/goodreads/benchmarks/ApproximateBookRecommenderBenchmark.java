@@ -0,0 +1,129 @@
+package bg.sofia.uni.fmi.mjt.goodreads.benchmarks;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.ApproximateBookRecommender;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.BookRecommender;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.BookRecommenderAPI;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates.CandidateGenerator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates.MinHashGenresCandidateGenerator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates.SimHashDescriptionCandidateGenerator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.TFIDFSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.genres.GenresOverlapSimilarityCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recommends books for origins of the corpus exactly and through the MinHash candidates of the
+ * genres and the SimHash candidates of the descriptions, each against the calculator it
+ * approximates. The recall@maxN of each generator and the fraction of the corpus it scores are
+ * measured once per trial, over the first {@value #RECALL_QUERIES} origins, and printed before
+ * the latencies are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ApproximateBookRecommenderBenchmark {
+
+    private static final int RECALL_QUERIES = 100;
+    private static final int MIN_HASH_BANDS = 20;
+    private static final int MIN_HASH_ROWS_PER_BAND = 2;
+    private static final int SIM_HASH_BANDS = 24;
+    private static final int SIM_HASH_BITS_PER_BAND = 6;
+    private static final long SEED = 7L;
+
+    @Param({"10"})
+    public int maxN;
+
+    private BookRecommender exactGenres;
+    private BookRecommender exactDescriptions;
+    private ApproximateBookRecommender minHashGenres;
+    private ApproximateBookRecommender simHashDescriptions;
+    private Book[] origins;
+
+    @Setup(Level.Trial)
+    public void build(CorpusState corpus) {
+        SimilarityCalculator genres = new GenresOverlapSimilarityCalculator(corpus.books);
+        TFIDFSimilarityCalculator descriptions = new TFIDFSimilarityCalculator(corpus.books, corpus.tokenizer);
+        CandidateGenerator minHash =
+            new MinHashGenresCandidateGenerator(corpus.books, MIN_HASH_BANDS, MIN_HASH_ROWS_PER_BAND, SEED);
+        CandidateGenerator simHash = new SimHashDescriptionCandidateGenerator(corpus.books, descriptions,
+            SIM_HASH_BANDS, SIM_HASH_BITS_PER_BAND, SEED);
+
+        exactGenres = new BookRecommender(corpus.books, genres);
+        exactDescriptions = new BookRecommender(corpus.books, descriptions);
+        minHashGenres = new ApproximateBookRecommender(corpus.books, genres, minHash);
+        simHashDescriptions = new ApproximateBookRecommender(corpus.books, descriptions, simHash);
+        origins = corpus.sample(CorpusState.INPUTS, 5);
+
+        System.out.println("MinHash genres: " + measure(exactGenres, minHashGenres, genres, minHash, corpus));
+        System.out.println("SimHash descriptions: "
+            + measure(exactDescriptions, simHashDescriptions, descriptions, simHash, corpus));
+    }
+
+    @Benchmark
+    public SortedMap<Book, Double> exactGenres(Cursor cursor) {
+        return exactGenres.recommendBooks(origins[cursor.next()], maxN);
+    }
+
+    @Benchmark
+    public SortedMap<Book, Double> minHashGenres(Cursor cursor) {
+        return minHashGenres.recommendBooks(origins[cursor.next()], maxN);
+    }
+
+    @Benchmark
+    public SortedMap<Book, Double> exactDescriptions(Cursor cursor) {
+        return exactDescriptions.recommendBooks(origins[cursor.next()], maxN);
+    }
+
+    @Benchmark
+    public SortedMap<Book, Double> simHashDescriptions(Cursor cursor) {
+        return simHashDescriptions.recommendBooks(origins[cursor.next()], maxN);
+    }
+
+    /**
+     * Recall@maxN counts an approximate recommendation as relevant when its exact score is at
+     * least the maxN-th best exact score, so that books tied with it are not counted as misses.
+     */
+    private String measure(BookRecommenderAPI exact, BookRecommenderAPI approximate, SimilarityCalculator calculator,
+                           CandidateGenerator generator, CorpusState corpus) {
+        long relevant = 0;
+        long expected = 0;
+        long scored = 0;
+        for (int i = 0; i < RECALL_QUERIES; i++) {
+            Book origin = origins[i];
+            SortedMap<Book, Double> exactBooks = exact.recommendBooks(origin, maxN);
+            if (exactBooks.isEmpty()) {
+                continue;
+            }
+            double threshold = new ArrayList<>(exactBooks.values()).get(exactBooks.size() - 1);
+
+            for (Book book : approximate.recommendBooks(origin, maxN).keySet()) {
+                if (calculator.calculateSimilarity(origin, book) >= threshold) {
+                    relevant++;
+                }
+            }
+            expected += exactBooks.size();
+            scored += generator.candidates(origin).size();
+        }
+        return String.format("recall@%d=%.3f scored=%.3f of the corpus", maxN, (double) relevant / expected,
+            (double) scored / ((long) RECALL_QUERIES * corpus.books.size()));
+    }
+}
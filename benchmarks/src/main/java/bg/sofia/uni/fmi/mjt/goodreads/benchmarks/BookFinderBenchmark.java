@@ -0,0 +1,92 @@
+package bg.sofia.uni.fmi.mjt.goodreads.benchmarks;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.BookFinder;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.MatchOption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every search of a {@link BookFinder} with queries taken from books of the corpus, so that
+ * the queries match books like real ones do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BookFinderBenchmark {
+
+    private static final int KEYWORDS_PER_QUERY = 2;
+    private static final int GENRES_PER_QUERY = 2;
+
+    private BookFinder finder;
+    private String[] authors;
+    private Set<String>[] genres;
+    private Set<String>[] keywords;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void index(CorpusState corpus) {
+        finder = new BookFinder(corpus.books, corpus.tokenizer);
+
+        Book[] sample = corpus.sample(CorpusState.INPUTS, 1);
+        authors = new String[sample.length];
+        genres = new Set[sample.length];
+        keywords = new Set[sample.length];
+        for (int i = 0; i < sample.length; i++) {
+            authors[i] = sample[i].author();
+            List<String> bookGenres = sample[i].genres();
+            genres[i] = Set.copyOf(bookGenres.subList(0, Math.min(GENRES_PER_QUERY, bookGenres.size())));
+
+            List<String> tokens = corpus.tokenizer.tokenize(sample[i].description());
+            keywords[i] = Set.copyOf(tokens.subList(0, Math.min(KEYWORDS_PER_QUERY, tokens.size())));
+        }
+
+        finder.searchByKeywords(keywords[0], MatchOption.MATCH_ANY); // builds the keyword index before measuring
+    }
+
+    @Benchmark
+    public List<Book> searchByAuthor(Cursor cursor) {
+        return finder.searchByAuthor(authors[cursor.next()]);
+    }
+
+    @Benchmark
+    public Set<String> allGenres() {
+        return finder.allGenres();
+    }
+
+    @Benchmark
+    public List<Book> searchByGenresMatchAll(Cursor cursor) {
+        return finder.searchByGenres(genres[cursor.next()], MatchOption.MATCH_ALL);
+    }
+
+    @Benchmark
+    public List<Book> searchByGenresMatchAny(Cursor cursor) {
+        return finder.searchByGenres(genres[cursor.next()], MatchOption.MATCH_ANY);
+    }
+
+    @Benchmark
+    public List<Book> searchByKeywordsMatchAll(Cursor cursor) {
+        return finder.searchByKeywords(keywords[cursor.next()], MatchOption.MATCH_ALL);
+    }
+
+    @Benchmark
+    public List<Book> searchByKeywordsMatchAny(Cursor cursor) {
+        return finder.searchByKeywords(keywords[cursor.next()], MatchOption.MATCH_ANY);
+    }
+}
@@ -0,0 +1,55 @@
+package bg.sofia.uni.fmi.mjt.goodreads.benchmarks;
+
+import bg.sofia.uni.fmi.mjt.goodreads.BookLoader;
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads whole datasets through a reader and by memory-mapping the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BookLoaderBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        file = SyntheticCorpus.ensure(size);
+    }
+
+    @Benchmark
+    public Set<Book> loadFromReader() throws IOException {
+        return BookLoader.load(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Set<Book> loadFromPath() {
+        return BookLoader.load(file);
+    }
+}
@@ -0,0 +1,59 @@
+package bg.sofia.uni.fmi.mjt.goodreads.benchmarks;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.BookRecommender;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SortedMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recommends books for origins of the corpus by scoring the whole corpus with the composite
+ * calculator, on the calling thread and on the common pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BookRecommenderBenchmark {
+
+    @Param({"10"})
+    public int maxN;
+
+    private BookRecommender sequential;
+    private BookRecommender parallel;
+    private Book[] origins;
+
+    @Setup(Level.Trial)
+    public void build(CorpusState corpus) {
+        SimilarityCalculator calculator = SimilarityCalculatorBenchmark.composite(corpus);
+        sequential = new BookRecommender(corpus.books, calculator);
+        parallel = new BookRecommender(corpus.books, calculator, ForkJoinPool.commonPool());
+        origins = corpus.sample(CorpusState.INPUTS, 4);
+    }
+
+    @Benchmark
+    public SortedMap<Book, Double> recommendBooks(Cursor cursor) {
+        return sequential.recommendBooks(origins[cursor.next()], maxN);
+    }
+
+    @Benchmark
+    public SortedMap<Book, Double> recommendBooksInParallel(Cursor cursor) {
+        return parallel.recommendBooks(origins[cursor.next()], maxN);
+    }
+}
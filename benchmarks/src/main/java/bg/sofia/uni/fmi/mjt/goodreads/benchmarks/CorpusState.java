@@ -0,0 +1,60 @@
+package bg.sofia.uni.fmi.mjt.goodreads.benchmarks;
+
+import bg.sofia.uni.fmi.mjt.goodreads.BookLoader;
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A synthetic corpus loaded once per trial, shared by the benchmarks which work on a whole corpus.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+    /**
+     * The number of inputs a benchmark cycles through, so that a single input is not optimized for.
+     */
+    static final int INPUTS = 1024;
+
+    private static final long SEED = 7L;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    Path file;
+    Set<Book> books;
+    List<Book> bookList;
+    TextTokenizer tokenizer;
+
+    @Setup(Level.Trial)
+    public void load() {
+        file = SyntheticCorpus.ensure(size);
+        books = BookLoader.load(file);
+        bookList = books.stream()
+            .sorted(Comparator.comparing(Book::ID))
+            .toList();
+        tokenizer = SyntheticCorpus.tokenizer();
+    }
+
+    /**
+     * @return books drawn from the corpus with a fixed seed
+     */
+    Book[] sample(int count, long salt) {
+        Random random = new Random(SEED + salt);
+        Book[] sample = new Book[count];
+        for (int i = 0; i < count; i++) {
+            sample[i] = bookList.get(random.nextInt(bookList.size()));
+        }
+        return sample;
+    }
+}
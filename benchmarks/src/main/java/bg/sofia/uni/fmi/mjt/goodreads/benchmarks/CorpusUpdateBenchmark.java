@@ -0,0 +1,106 @@
+package bg.sofia.uni.fmi.mjt.goodreads.benchmarks;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.BookFinder;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.MatchOption;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.BookRecommender;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.TFIDFSimilarityCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes a book of the corpus and adds it back, so that the corpus keeps its size while the
+ * incremental updates of the finder, the TF-IDF calculator and the recommender are measured.
+ * Every update publishes a new immutable version, so its time grows with the parts which are
+ * copied: the chunks of the keyword postings, document frequencies and tombstone bitsets which
+ * the book touches and the recommender's array of books sorted by ID. The updates with a new
+ * term also add a term to the dictionary, which the new version appends to instead of copying.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CorpusUpdateBenchmark {
+
+    private BookFinder finder;
+    private TFIDFSimilarityCalculator tfidf;
+    private BookRecommender recommender;
+    private Book[] sample;
+    private Book finderBook;
+    private Book tfidfBook;
+    private int newTerms;
+
+    @Setup(Level.Trial)
+    public void build(CorpusState corpus) {
+        finder = new BookFinder(corpus.books, corpus.tokenizer);
+        finder.searchByKeywords(Set.of("a"), MatchOption.MATCH_ANY); // builds the keyword index before measuring
+        tfidf = new TFIDFSimilarityCalculator(corpus.books, corpus.tokenizer);
+        recommender = new BookRecommender(corpus.books, SimilarityCalculatorBenchmark.composite(corpus));
+        sample = corpus.sample(CorpusState.INPUTS, 4);
+        finderBook = withNewTerm(sample[0]);
+        tfidfBook = withNewTerm(sample[0]);
+        finder.addBook(finderBook);
+        tfidf.addBook(tfidfBook);
+    }
+
+    @Benchmark
+    public boolean finder(Cursor cursor) {
+        Book book = sample[cursor.next()];
+        return finder.removeBook(book) && finder.addBook(book);
+    }
+
+    @Benchmark
+    public boolean tfidf(Cursor cursor) {
+        Book book = sample[cursor.next()];
+        return tfidf.removeBook(book) && tfidf.addBook(book);
+    }
+
+    /**
+     * Replaces a book whose description has a word which is not a term yet with another one, so
+     * that every update adds a term to the vocabulary.
+     */
+    @Benchmark
+    public boolean finderWithNewTerm(Cursor cursor) {
+        Book book = withNewTerm(sample[cursor.next()]);
+        boolean replaced = finder.removeBook(finderBook) && finder.addBook(book);
+        finderBook = book;
+        return replaced;
+    }
+
+    @Benchmark
+    public boolean tfidfWithNewTerm(Cursor cursor) {
+        Book book = withNewTerm(sample[cursor.next()]);
+        boolean replaced = tfidf.removeBook(tfidfBook) && tfidf.addBook(book);
+        tfidfBook = book;
+        return replaced;
+    }
+
+    @Benchmark
+    public boolean recommender(Cursor cursor) {
+        Book book = sample[cursor.next()];
+        return recommender.removeBook(book) && recommender.addBook(book);
+    }
+
+    private Book withNewTerm(Book book) {
+        StringBuilder term = new StringBuilder("zz");
+        for (int n = ++newTerms; n > 0; n /= 26) {
+            term.append((char) ('a' + n % 26));
+        }
+        return new Book("new-" + newTerms, book.title(), book.author(), book.description() + " " + term,
+            book.genres(), book.rating(), book.ratingCount(), book.URL());
+    }
+}
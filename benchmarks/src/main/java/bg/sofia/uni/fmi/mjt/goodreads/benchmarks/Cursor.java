@@ -0,0 +1,18 @@
+package bg.sofia.uni.fmi.mjt.goodreads.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Walks through the inputs of a benchmark, one per invocation, separately in every thread.
+ */
+@State(Scope.Thread)
+public class Cursor {
+
+    private int position;
+
+    int next() {
+        position = (position + 1) & (CorpusState.INPUTS - 1);
+        return position;
+    }
+}
@@ -0,0 +1,127 @@
+package bg.sofia.uni.fmi.mjt.goodreads.benchmarks;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.BookFinder;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.BookFinderAPI;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.InstrumentedBookFinder;
+import bg.sofia.uni.fmi.mjt.goodreads.metrics.MetricsRegistry;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.BookRecommender;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.BookRecommenderAPI;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.InstrumentedBookRecommender;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.InstrumentedSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.composite.CompositeSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.TFIDFSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.genres.GenresOverlapSimilarityCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of the metrics on the hot paths: the same similarities, recommendations and
+ * author searches with and without instrumented components.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class InstrumentationBenchmark {
+
+    private static final int MAX_N = 10;
+    private static final int SAMPLE_INTERVAL = 64;
+
+    private SimilarityCalculator composite;
+    private SimilarityCalculator instrumentedComposite;
+    private BookRecommenderAPI recommender;
+    private BookRecommenderAPI instrumentedRecommender;
+    private BookRecommenderAPI recommenderWithInstrumentedCalculators;
+    private BookFinderAPI finder;
+    private BookFinderAPI instrumentedFinder;
+
+    private Book[] origins;
+    private Book[] others;
+    private String[] authors;
+
+    @Setup(Level.Trial)
+    public void build(CorpusState corpus) {
+        MetricsRegistry registry = new MetricsRegistry();
+        GenresOverlapSimilarityCalculator genres = new GenresOverlapSimilarityCalculator(corpus.books);
+        TFIDFSimilarityCalculator tfidf = new TFIDFSimilarityCalculator(corpus.books, corpus.tokenizer);
+
+        composite = new CompositeSimilarityCalculator(Map.of(
+            genres, SimilarityCalculatorBenchmark.GENRES_WEIGHT,
+            tfidf, SimilarityCalculatorBenchmark.DESCRIPTIONS_WEIGHT));
+        recommender = new BookRecommender(corpus.books, composite);
+        instrumentedComposite = new CompositeSimilarityCalculator(Map.of(
+            InstrumentedSimilarityCalculator.of(genres, "genres", registry, SAMPLE_INTERVAL),
+            SimilarityCalculatorBenchmark.GENRES_WEIGHT,
+            InstrumentedSimilarityCalculator.of(tfidf, "tfidf", registry, SAMPLE_INTERVAL),
+            SimilarityCalculatorBenchmark.DESCRIPTIONS_WEIGHT));
+        instrumentedRecommender = new InstrumentedBookRecommender(recommender, registry);
+        recommenderWithInstrumentedCalculators = new InstrumentedBookRecommender(
+            new BookRecommender(corpus.books, instrumentedComposite), registry);
+
+        finder = new BookFinder(corpus.books, corpus.tokenizer);
+        instrumentedFinder = new InstrumentedBookFinder(finder, registry);
+
+        origins = corpus.sample(CorpusState.INPUTS, 4);
+        others = corpus.sample(CorpusState.INPUTS, 5);
+        authors = new String[CorpusState.INPUTS];
+        Book[] sample = corpus.sample(CorpusState.INPUTS, 1);
+        for (int i = 0; i < sample.length; i++) {
+            authors[i] = sample[i].author();
+        }
+    }
+
+    @Benchmark
+    public double calculateSimilarity(Cursor cursor) {
+        int i = cursor.next();
+        return composite.calculateSimilarity(origins[i], others[i]);
+    }
+
+    @Benchmark
+    public double calculateSimilarityInstrumented(Cursor cursor) {
+        int i = cursor.next();
+        return instrumentedComposite.calculateSimilarity(origins[i], others[i]);
+    }
+
+    @Benchmark
+    public SortedMap<Book, Double> recommendBooks(Cursor cursor) {
+        return recommender.recommendBooks(origins[cursor.next()], MAX_N);
+    }
+
+    @Benchmark
+    public SortedMap<Book, Double> recommendBooksInstrumented(Cursor cursor) {
+        return instrumentedRecommender.recommendBooks(origins[cursor.next()], MAX_N);
+    }
+
+    @Benchmark
+    public SortedMap<Book, Double> recommendBooksWithInstrumentedCalculators(Cursor cursor) {
+        return recommenderWithInstrumentedCalculators.recommendBooks(origins[cursor.next()], MAX_N);
+    }
+
+    @Benchmark
+    public List<Book> searchByAuthor(Cursor cursor) {
+        return finder.searchByAuthor(authors[cursor.next()]);
+    }
+
+    @Benchmark
+    public List<Book> searchByAuthorInstrumented(Cursor cursor) {
+        return instrumentedFinder.searchByAuthor(authors[cursor.next()]);
+    }
+}
@@ -0,0 +1,88 @@
+package bg.sofia.uni.fmi.mjt.goodreads.benchmarks;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.composite.CompositeSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.TFIDFSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.genres.GenresOverlapSimilarityCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores random pairs of books of the corpus with every calculator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SimilarityCalculatorBenchmark {
+
+    static final double GENRES_WEIGHT = 0.4;
+    static final double DESCRIPTIONS_WEIGHT = 0.6;
+
+    private SimilarityCalculator genresOverlap;
+    private SimilarityCalculator genresOverlapBitsets;
+    private SimilarityCalculator tfidf;
+    private SimilarityCalculator composite;
+
+    private Book[] firstBooks;
+    private Book[] secondBooks;
+
+    @Setup(Level.Trial)
+    public void build(CorpusState corpus) {
+        genresOverlap = new GenresOverlapSimilarityCalculator();
+        genresOverlapBitsets = new GenresOverlapSimilarityCalculator(corpus.books);
+        tfidf = new TFIDFSimilarityCalculator(corpus.books, corpus.tokenizer);
+        composite = composite(corpus);
+
+        firstBooks = corpus.sample(CorpusState.INPUTS, 2);
+        secondBooks = corpus.sample(CorpusState.INPUTS, 3);
+    }
+
+    /**
+     * @return the calculator the recommender benchmarks use: genres and descriptions of the corpus
+     */
+    static SimilarityCalculator composite(CorpusState corpus) {
+        return new CompositeSimilarityCalculator(Map.of(
+            new GenresOverlapSimilarityCalculator(corpus.books), GENRES_WEIGHT,
+            new TFIDFSimilarityCalculator(corpus.books, corpus.tokenizer), DESCRIPTIONS_WEIGHT));
+    }
+
+    @Benchmark
+    public double genresOverlap(Cursor cursor) {
+        int i = cursor.next();
+        return genresOverlap.calculateSimilarity(firstBooks[i], secondBooks[i]);
+    }
+
+    @Benchmark
+    public double genresOverlapBitsets(Cursor cursor) {
+        int i = cursor.next();
+        return genresOverlapBitsets.calculateSimilarity(firstBooks[i], secondBooks[i]);
+    }
+
+    @Benchmark
+    public double tfidf(Cursor cursor) {
+        int i = cursor.next();
+        return tfidf.calculateSimilarity(firstBooks[i], secondBooks[i]);
+    }
+
+    @Benchmark
+    public double composite(Cursor cursor) {
+        int i = cursor.next();
+        return composite.calculateSimilarity(firstBooks[i], secondBooks[i]);
+    }
+}
@@ -0,0 +1,220 @@
+package bg.sofia.uni.fmi.mjt.goodreads.benchmarks;
+
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates datasets in the format of the Goodreads CSV file with a fixed seed, so that every run
+ * of the benchmarks sees the same books. Words, genres and authors follow Zipf distributions like
+ * in real descriptions, and a part of the description words are stopwords.
+ *
+ * <p>The datasets are written once, before any benchmark runs, to the directory in the
+ * {@code goodreads.corpus.dir} system property or {@code benchmarks/data}:
+ * <pre>java -cp benchmarks.jar bg.sofia.uni.fmi.mjt.goodreads.benchmarks.SyntheticCorpus [size...]</pre>
+ */
+public final class SyntheticCorpus {
+
+    public static final int[] SIZES = {1_000, 10_000, 100_000, 1_000_000};
+
+    private static final String DIRECTORY_PROPERTY = "goodreads.corpus.dir";
+    private static final String DEFAULT_DIRECTORY = "benchmarks/data";
+    private static final String HEADER = "N,Book,Author,Description,Genres,Avg_Rating,Num_Ratings,URL";
+
+    private static final long SEED = 20_241_118L;
+    private static final int VOCABULARY_SIZE = 30_000;
+    private static final int GENRE_COUNT = 80;
+    private static final int BOOKS_PER_AUTHOR = 8;
+    private static final double STOPWORD_RATIO = 0.35;
+
+    private static final List<String> STOPWORDS = List.of("a", "about", "after", "all", "an", "and", "are",
+        "as", "at", "be", "been", "but", "by", "for", "from", "had", "has", "have", "he", "her", "his", "in",
+        "into", "is", "it", "its", "of", "on", "one", "or", "she", "that", "the", "their", "they", "this",
+        "to", "was", "when", "which", "who", "will", "with");
+
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ra", "ten", "vor", "sil", "an", "de", "qui",
+        "bel", "or", "fa", "neth", "ul", "cas", "po", "rin", "the", "ga", "mor", "el", "dru", "shi"};
+
+    private SyntheticCorpus() {
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? SIZES : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        for (int size : sizes) {
+            Path file = ensure(size);
+            System.out.println("Corpus of " + size + " books: " + file.toAbsolutePath());
+        }
+    }
+
+    /**
+     * @return the dataset file of the given size, which is generated if it does not exist yet
+     */
+    public static Path ensure(int size) {
+        Path file = file(size);
+        if (Files.notExists(file)) {
+            write(file, size);
+        }
+        return file;
+    }
+
+    public static Path file(int size) {
+        return Path.of(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY)).resolve("books-" + size + ".csv");
+    }
+
+    /**
+     * @return a tokenizer whose stopwords are the ones mixed into the generated descriptions
+     */
+    public static TextTokenizer tokenizer() {
+        return new TextTokenizer(new StringReader(String.join("\n", STOPWORDS)));
+    }
+
+    /**
+     * @return the descriptions of a generated corpus of count books, without writing the corpus
+     */
+    public static String[] descriptions(int count) {
+        Generator generator = new Generator(count);
+        String[] descriptions = new String[count];
+        for (int i = 0; i < count; i++) {
+            descriptions[i] = generator.row(i)[3];
+        }
+        return descriptions;
+    }
+
+    private static void write(Path file, int size) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (Writer writer = new BufferedWriter(Files.newBufferedWriter(temporary, StandardCharsets.UTF_8))) {
+                writer.write(HEADER);
+                writer.write('\n');
+
+                Generator generator = new Generator(size);
+                for (int i = 0; i < size; i++) {
+                    writeRow(writer, generator.row(i));
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write synthetic corpus", ex);
+        }
+    }
+
+    private static void writeRow(Writer writer, String[] columns) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write('"');
+            writer.write(columns[i].replace("\"", "\"\""));
+            writer.write('"');
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Produces the columns of the rows of one corpus in order.
+     */
+    private static final class Generator {
+
+        private final Random random = new Random(SEED);
+        private final String[] words = new String[VOCABULARY_SIZE];
+        private final double[] wordWeights = zipfWeights(VOCABULARY_SIZE);
+        private final String[] genres = new String[GENRE_COUNT];
+        private final double[] genreWeights = zipfWeights(GENRE_COUNT);
+        private final int authorCount;
+
+        private Generator(int size) {
+            for (int i = 0; i < words.length; i++) {
+                words[i] = word(i);
+            }
+            for (int i = 0; i < genres.length; i++) {
+                String name = word(VOCABULARY_SIZE + i);
+                genres[i] = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            }
+            this.authorCount = Math.max(1, size / BOOKS_PER_AUTHOR);
+        }
+
+        private String[] row(int index) {
+            String title = capitalize(words(1 + random.nextInt(4), false));
+            String author = "Author " + capitalize(word(random.nextInt(authorCount)));
+            String description = capitalize(words(20 + random.nextInt(60), true)) + ".";
+
+            Set<String> bookGenres = new LinkedHashSet<>();
+            int genreCount = 1 + random.nextInt(6);
+            while (bookGenres.size() < genreCount) {
+                bookGenres.add(genres[sample(genreWeights)]);
+            }
+
+            String rating = String.format(Locale.ROOT, "%.2f", 1 + 4 * random.nextDouble());
+            String ratingCount = String.format(Locale.ROOT, "%,d", random.nextInt(3_000_000));
+            String url = "https://www.goodreads.com/book/show/" + index;
+
+            return new String[] {String.valueOf(index), title, author, description,
+                "[" + String.join(", ", bookGenres) + "]", rating, ratingCount, url};
+        }
+
+        private String words(int count, boolean withStopwords) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    text.append(random.nextInt(12) == 0 ? ", " : " ");
+                }
+                text.append(withStopwords && random.nextDouble() < STOPWORD_RATIO
+                    ? STOPWORDS.get(random.nextInt(STOPWORDS.size()))
+                    : words[sample(wordWeights)]);
+            }
+            return text.toString();
+        }
+
+        /**
+         * @return an index drawn with probability proportional to the cumulative weights
+         */
+        private int sample(double[] cumulativeWeights) {
+            double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+            int index = Arrays.binarySearch(cumulativeWeights, target);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        private static double[] zipfWeights(int count) {
+            double[] cumulative = new double[count];
+            double sum = 0;
+            for (int rank = 0; rank < count; rank++) {
+                sum += 1.0 / (rank + 1);
+                cumulative[rank] = sum;
+            }
+            return cumulative;
+        }
+
+        /**
+         * @return a distinct pronounceable word for every number
+         */
+        private static String word(int number) {
+            StringBuilder word = new StringBuilder();
+            int rest = number;
+            do {
+                word.append(SYLLABLES[rest % SYLLABLES.length]);
+                rest /= SYLLABLES.length;
+            } while (rest > 0);
+            return word.toString();
+        }
+
+        private static String capitalize(String text) {
+            return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package bg.sofia.uni.fmi.mjt.goodreads.benchmarks;
+
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizes single descriptions. Tokenizing does not depend on the size of the corpus, so the
+ * descriptions are generated in memory instead of being loaded from a dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextTokenizerBenchmark {
+
+    private TextTokenizer tokenizer;
+    private String[] descriptions;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        tokenizer = SyntheticCorpus.tokenizer();
+        descriptions = SyntheticCorpus.descriptions(CorpusState.INPUTS);
+    }
+
+    @Benchmark
+    public List<String> tokenize(Cursor cursor) {
+        return tokenizer.tokenize(descriptions[cursor.next()]);
+    }
+
+    @Benchmark
+    public void tokenizeToSink(Cursor cursor, Blackhole blackhole) {
+        tokenizer.tokenize(descriptions[cursor.next()], blackhole::consume);
+    }
+}
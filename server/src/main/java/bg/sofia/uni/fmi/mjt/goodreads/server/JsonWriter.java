@@ -0,0 +1,115 @@
+package bg.sofia.uni.fmi.mjt.goodreads.server;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes the results of the library as JSON. Only what the endpoints return is supported, which
+ * keeps the server free of a JSON dependency.
+ */
+final class JsonWriter {
+
+    private JsonWriter() {
+    }
+
+    /**
+     * @return an array of the books, in iteration order
+     */
+    static String books(Collection<Book> books) {
+        StringBuilder json = new StringBuilder(256 * books.size() + 2).append('[');
+        for (Book book : books) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            book(json, book);
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * @return an array of objects with a book and its similarity, in iteration order
+     */
+    static String recommendations(Map<Book, Double> recommendations) {
+        StringBuilder json = new StringBuilder(280 * recommendations.size() + 2).append('[');
+        for (Map.Entry<Book, Double> recommendation : recommendations.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"book\":");
+            book(json, recommendation.getKey());
+            json.append(",\"similarity\":");
+            number(json, recommendation.getValue());
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * @return an object with the error message
+     */
+    static String error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        string(json, message);
+        return json.append('}').toString();
+    }
+
+    private static void book(StringBuilder json, Book book) {
+        json.append("{\"id\":");
+        string(json, book.ID());
+        json.append(",\"title\":");
+        string(json, book.title());
+        json.append(",\"author\":");
+        string(json, book.author());
+        json.append(",\"description\":");
+        string(json, book.description());
+        json.append(",\"genres\":[");
+        for (int i = 0; i < book.genres().size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            string(json, book.genres().get(i));
+        }
+        json.append("],\"rating\":");
+        number(json, book.rating());
+        json.append(",\"ratingCount\":").append(book.ratingCount());
+        json.append(",\"url\":");
+        string(json, book.URL());
+        json.append('}');
+    }
+
+    private static void number(StringBuilder json, double value) {
+        if (Double.isFinite(value)) {
+            json.append(value);
+        } else {
+            json.append("null"); // JSON has no NaN or infinity
+        }
+    }
+
+    private static void string(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,106 @@
+package bg.sofia.uni.fmi.mjt.goodreads.server;
+
+import bg.sofia.uni.fmi.mjt.goodreads.finder.MatchOption;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The decoded parameters of a query string such as {@code genre=fantasy&genre=magic&match=any}.
+ * A parameter may be repeated; the accessors for single values reject repeated ones.
+ */
+final class QueryParameters {
+
+    private final Map<String, List<String>> values;
+
+    private QueryParameters(Map<String, List<String>> values) {
+        this.values = values;
+    }
+
+    /**
+     * @param rawQuery the query string of a request URI, still percent-encoded, or null if there is none
+     * @throws IllegalArgumentException if a name or a value is not correctly percent-encoded
+     */
+    static QueryParameters parse(String rawQuery) {
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return new QueryParameters(values);
+        }
+
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            String name = decode(separator < 0 ? pair : pair.substring(0, separator));
+            String value = separator < 0 ? "" : decode(pair.substring(separator + 1));
+            values.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+        return new QueryParameters(values);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the parameter is missing or repeated
+     */
+    String required(String name) {
+        List<String> parameter = values.get(name);
+        if (parameter == null) {
+            throw new IllegalArgumentException("Parameter " + name + " is required.");
+        }
+        if (parameter.size() > 1) {
+            throw new IllegalArgumentException("Parameter " + name + " must not be repeated.");
+        }
+        return parameter.get(0);
+    }
+
+    /**
+     * @return the values of the parameter in the order they were given, or an empty set if it is missing
+     */
+    Set<String> all(String name) {
+        return new LinkedHashSet<>(values.getOrDefault(name, List.of()));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the parameter is repeated or not a positive integer
+     */
+    int positiveInt(String name, int defaultValue) {
+        if (!values.containsKey(name)) {
+            return defaultValue;
+        }
+        String value = required(name);
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ex) {
+            // reported below together with the non-positive values
+        }
+        throw new IllegalArgumentException("Parameter " + name + " must be a positive integer.");
+    }
+
+    /**
+     * @return the option named by the parameter, {@code all} or {@code any}, or defaultValue if it is missing
+     * @throws IllegalArgumentException if the parameter is repeated or names no option
+     */
+    MatchOption matchOption(String name, MatchOption defaultValue) {
+        if (!values.containsKey(name)) {
+            return defaultValue;
+        }
+        return switch (required(name)) {
+            case "all" -> MatchOption.MATCH_ALL;
+            case "any" -> MatchOption.MATCH_ANY;
+            default -> throw new IllegalArgumentException("Parameter " + name + " must be all or any.");
+        };
+    }
+
+    private static String decode(String encoded) {
+        return URLDecoder.decode(encoded, StandardCharsets.UTF_8);
+    }
+}
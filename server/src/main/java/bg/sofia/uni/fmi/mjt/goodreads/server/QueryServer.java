@@ -0,0 +1,285 @@
+package bg.sofia.uni.fmi.mjt.goodreads.server;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.BookFinderAPI;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.MatchOption;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.BookRecommenderAPI;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the searches of a {@link BookFinderAPI} and the recommendations of a {@link BookRecommenderAPI}
+ * as JSON over HTTP, on the JDK's built-in server:
+ * <ul>
+ *     <li>{@code GET /books/author?name=...}</li>
+ *     <li>{@code GET /books/genres?genre=...&genre=...&match=all|any}</li>
+ *     <li>{@code GET /books/keywords?keyword=...&keyword=...&match=all|any}</li>
+ *     <li>{@code GET /recommendations?book=<ID>&max=<N>}</li>
+ * </ul>
+ * {@code match} defaults to {@code all} and {@code max} to {@value #DEFAULT_RECOMMENDATIONS}.
+ * Invalid parameters are answered with 400, an unknown book ID with 404, each with an {@code error} object.
+ *
+ * <p>Every request is handled on its own virtual thread, so a request blocked on a slow query costs no
+ * platform thread. At most {@code maxInFlight} requests are handled at a time: a request beyond that is
+ * answered with 503 and a {@code Retry-After} header at once instead of being queued, so that an
+ * overloaded server keeps its latency for the requests it admits and clients back off.
+ * Requests are admitted by the thread which accepts them, before a virtual thread is started, and the
+ * rejections are answered on a few platform threads of their own: virtual threads are not preempted, so while
+ * the admitted queries keep every carrier thread busy, a check made on a new virtual thread would wait for them.
+ * The rejecting threads and their queue are bounded. Once both are full, a rejection is answered by the
+ * accepting thread itself, as the JDK's server does without an executor, which stops it from accepting more
+ * connections until then, so that an overload beyond that is pushed back to the clients' connections.
+ */
+public final class QueryServer implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    public static final int DEFAULT_RECOMMENDATIONS = 10;
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final int REJECTING_THREADS = 2;
+    private static final int QUEUED_REJECTIONS = 64;
+    private static final ThreadLocal<Boolean> ADMITTED = new ThreadLocal<>();
+
+    private final BookFinderAPI finder;
+    private final BookRecommenderAPI recommender;
+    private final Semaphore admissions;
+    private final LongAdder rejected = new LongAdder();
+    private final int maxInFlight;
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private ExecutorService rejections;
+
+    /**
+     * @param maxInFlight the maximum number of requests handled at a time
+     * @throws IllegalArgumentException if finder or recommender is null or maxInFlight is not positive
+     */
+    public QueryServer(BookFinderAPI finder, BookRecommenderAPI recommender, int maxInFlight) {
+        if (finder == null) {
+            throw new IllegalArgumentException("BookFinderAPI must not be null.");
+        }
+        if (recommender == null) {
+            throw new IllegalArgumentException("BookRecommenderAPI must not be null.");
+        }
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Maximum in-flight requests must be greater than 0.");
+        }
+        this.finder = finder;
+        this.recommender = recommender;
+        this.maxInFlight = maxInFlight;
+        this.admissions = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Binds the server and starts accepting requests.
+     *
+     * @param address the address to listen on; port 0 picks a free port
+     * @return the address the server listens on
+     * @throws IllegalArgumentException if address is null
+     * @throws IllegalStateException    if the server was already started
+     * @throws UncheckedIOException     if the address could not be bound
+     */
+    public synchronized InetSocketAddress start(InetSocketAddress address) {
+        if (address == null) {
+            throw new IllegalArgumentException("Address must not be null.");
+        }
+        if (server != null) {
+            throw new IllegalStateException("The server was already started.");
+        }
+
+        try {
+            server = HttpServer.create(address, 0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not bind " + address, ex);
+        }
+        Filter admission = new AdmissionFilter();
+        route("/books/author", admission, this::searchByAuthor);
+        route("/books/genres", admission, this::searchByGenres);
+        route("/books/keywords", admission, this::searchByKeywords);
+        route("/recommendations", admission, this::recommendBooks);
+        route("/", admission, parameters -> {
+            throw new NotFoundException("Unknown endpoint.");
+        });
+
+        handlers = Executors.newVirtualThreadPerTaskExecutor();
+        rejections = new ThreadPoolExecutor(REJECTING_THREADS, REJECTING_THREADS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUED_REJECTIONS), Thread.ofPlatform().name("rejections-", 0).daemon().factory(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        server.setExecutor(this::admit);
+        server.start();
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests and interrupts the requests still being handled.
+     */
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            handlers.shutdownNow();
+            rejections.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the number of requests being handled now
+     */
+    public int inFlightRequests() {
+        return maxInFlight - admissions.availablePermits();
+    }
+
+    /**
+     * @return the number of requests answered with 503 because too many requests were in flight
+     */
+    public long rejectedRequests() {
+        return rejected.sum();
+    }
+
+    BookFinderAPI finder() {
+        return finder;
+    }
+
+    private String searchByAuthor(QueryParameters parameters) {
+        return JsonWriter.books(finder.searchByAuthor(parameters.required("name")));
+    }
+
+    private String searchByGenres(QueryParameters parameters) {
+        MatchOption option = parameters.matchOption("match", MatchOption.MATCH_ALL);
+        return JsonWriter.books(finder.searchByGenres(parameters.all("genre"), option));
+    }
+
+    private String searchByKeywords(QueryParameters parameters) {
+        MatchOption option = parameters.matchOption("match", MatchOption.MATCH_ALL);
+        return JsonWriter.books(finder.searchByKeywords(parameters.all("keyword"), option));
+    }
+
+    private String recommendBooks(QueryParameters parameters) {
+        String id = parameters.required("book");
+        int maxN = parameters.positiveInt("max", DEFAULT_RECOMMENDATIONS);
+
+        // a linear scan, like the scoring of the recommendations itself, which always sees the current books
+        Book origin = finder.allBooks().stream()
+            .filter(book -> book.ID().equals(id))
+            .findFirst()
+            .orElseThrow(() -> new NotFoundException("No book with ID " + id + "."));
+        return JsonWriter.recommendations(recommender.recommendBooks(origin, maxN));
+    }
+
+    /**
+     * Runs an exchange of the server, which reads the request and calls the filters and the handler,
+     * on a virtual thread if a request may be admitted and on a rejecting thread otherwise.
+     */
+    private void admit(Runnable exchange) {
+        if (!admissions.tryAcquire()) {
+            rejections.execute(exchange);
+            return;
+        }
+        try {
+            handlers.execute(() -> {
+                ADMITTED.set(Boolean.TRUE);
+                try {
+                    exchange.run();
+                } finally {
+                    admissions.release();
+                }
+            });
+        } catch (RuntimeException ex) {
+            admissions.release();
+            throw ex;
+        }
+    }
+
+    private void route(String path, Filter admission, Endpoint endpoint) {
+        HttpContext context = server.createContext(path, exchange -> respond(exchange, path, endpoint));
+        context.getFilters().add(admission);
+    }
+
+    private static void respond(HttpExchange exchange, String path, Endpoint endpoint) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                send(exchange, 405, JsonWriter.error("Only GET is supported."));
+                return;
+            }
+            if (!path.equals("/") && !path.equals(exchange.getRequestURI().getPath())) {
+                send(exchange, 404, JsonWriter.error("Unknown endpoint."));
+                return;
+            }
+
+            String body;
+            try {
+                body = endpoint.handle(QueryParameters.parse(exchange.getRequestURI().getRawQuery()));
+            } catch (NotFoundException ex) {
+                send(exchange, 404, JsonWriter.error(ex.getMessage()));
+                return;
+            } catch (IllegalArgumentException ex) {
+                send(exchange, 400, JsonWriter.error(ex.getMessage()));
+                return;
+            } catch (RuntimeException ex) {
+                send(exchange, 500, JsonWriter.error("Internal server error."));
+                return;
+            }
+            send(exchange, 200, body);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        String handle(QueryParameters parameters);
+    }
+
+    private static final class NotFoundException extends RuntimeException {
+        NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Answers the requests which were not admitted with 503.
+     */
+    private final class AdmissionFilter extends Filter {
+
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            if (ADMITTED.get() == null) {
+                rejected.increment();
+                try (exchange) {
+                    exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+                    send(exchange, 503, JsonWriter.error("Too many requests in flight."));
+                }
+                return;
+            }
+            chain.doFilter(exchange);
+        }
+
+        @Override
+        public String description() {
+            return "Rejects requests beyond " + maxInFlight + " in flight with 503";
+        }
+    }
+}
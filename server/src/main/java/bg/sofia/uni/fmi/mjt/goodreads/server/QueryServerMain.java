@@ -0,0 +1,71 @@
+package bg.sofia.uni.fmi.mjt.goodreads.server;
+
+import bg.sofia.uni.fmi.mjt.goodreads.BookLoader;
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.BookFinder;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.BookRecommender;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.composite.CompositeSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.TFIDFSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.genres.GenresOverlapSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads a dataset and serves it with a {@link QueryServer}:
+ * {@code QueryServerMain <books.csv> <stopwords.txt> [port] [maxInFlight]}.
+ * The recommendations weigh the overlap of genres by {@value #GENRES_WEIGHT} and the TF-IDF similarity
+ * of descriptions by {@value #DESCRIPTIONS_WEIGHT}.
+ */
+public final class QueryServerMain {
+
+    static final double GENRES_WEIGHT = 0.4;
+    static final double DESCRIPTIONS_WEIGHT = 0.6;
+
+    private static final int DEFAULT_PORT = 8080;
+
+    private QueryServerMain() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("Usage: QueryServerMain <books.csv> <stopwords.txt> [port] [maxInFlight]");
+            System.exit(2);
+        }
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PORT;
+        int maxInFlight = args.length > 3 ? Integer.parseInt(args[3]) : QueryServer.DEFAULT_MAX_IN_FLIGHT;
+
+        QueryServer server = create(Path.of(args[0]), Path.of(args[1]), maxInFlight);
+        InetSocketAddress address = server.start(new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Serving on http://localhost:" + address.getPort() + "/");
+    }
+
+    /**
+     * Loads the books and builds the finder and the recommender a server answers from.
+     *
+     * @throws UncheckedIOException if the stopwords could not be read
+     */
+    static QueryServer create(Path booksPath, Path stopwordsPath, int maxInFlight) {
+        Set<Book> books = BookLoader.load(booksPath);
+        TextTokenizer tokenizer;
+        try (Reader stopwords = Files.newBufferedReader(stopwordsPath)) {
+            tokenizer = new TextTokenizer(stopwords);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read stopwords", ex);
+        }
+
+        SimilarityCalculator calculator = new CompositeSimilarityCalculator(Map.of(
+            new GenresOverlapSimilarityCalculator(books), GENRES_WEIGHT,
+            new TFIDFSimilarityCalculator(books, tokenizer), DESCRIPTIONS_WEIGHT));
+        return new QueryServer(new BookFinder(books, tokenizer), new BookRecommender(books, calculator), maxInFlight);
+    }
+}
@@ -0,0 +1,49 @@
+package bg.sofia.uni.fmi.mjt.goodreads.server;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonWriterTest {
+
+    private static final Book BOOK = new Book("1", "Say \"Hi\"", "A\\B", "Line\nbreak\u0001",
+        List.of("Fantasy", "Magic"), 4.5, 100, "url");
+
+    @Test
+    void testBooksWritesEveryField() {
+        assertEquals("[{\"id\":\"1\",\"title\":\"Say \\\"Hi\\\"\",\"author\":\"A\\\\B\","
+                + "\"description\":\"Line\\nbreak\\u0001\",\"genres\":[\"Fantasy\",\"Magic\"],"
+                + "\"rating\":4.5,\"ratingCount\":100,\"url\":\"url\"}]",
+            JsonWriter.books(List.of(BOOK)), "Every field of a book should be written and escaped.");
+        assertEquals("[]", JsonWriter.books(List.of()), "No books should be an empty array.");
+    }
+
+    @Test
+    void testRecommendationsKeepTheirOrder() {
+        Book other = new Book("2", "T", "A", "D", List.of(), 3.0, 1, "u");
+        Map<Book, Double> recommendations = new LinkedHashMap<>();
+        recommendations.put(other, 0.5);
+        recommendations.put(BOOK, Double.NaN);
+
+        String json = JsonWriter.recommendations(recommendations);
+
+        assertTrue(json.startsWith("[{\"book\":{\"id\":\"2\",\"title\":\"T\",\"author\":\"A\","
+                + "\"description\":\"D\",\"genres\":[],\"rating\":3.0,\"ratingCount\":1,\"url\":\"u\"},"
+                + "\"similarity\":0.5},{\"book\":{\"id\":\"1\""),
+            "Recommendations should be written in order: " + json);
+        assertEquals(",\"similarity\":null}]", json.substring(json.lastIndexOf(",\"similarity\"")),
+            "A similarity which is not finite should be null.");
+    }
+
+    @Test
+    void testError() {
+        assertEquals("{\"error\":\"No \\\"book\\\".\"}", JsonWriter.error("No \"book\"."),
+            "The message should be escaped.");
+    }
+}
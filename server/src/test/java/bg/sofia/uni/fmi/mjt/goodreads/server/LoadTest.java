@@ -0,0 +1,153 @@
+package bg.sofia.uni.fmi.mjt.goodreads.server;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a {@link QueryServer} on the loopback interface with a closed loop of clients, each sending its
+ * next request as soon as the previous one is answered, and reports the throughput and the latencies of the
+ * admitted and the rejected requests:
+ * {@code LoadTest <books.csv> <stopwords.txt> [clients] [seconds] [maxInFlight]}.
+ * The requests cycle through all endpoints with parameters drawn from the dataset with a fixed seed.
+ * The clients run on platform threads, so that their latencies are not delayed by the virtual threads of
+ * the server, which share the carrier threads with any virtual thread of the client.
+ * With more clients than maxInFlight, the rejected requests should stay fast while the admitted ones keep
+ * the latency the server has at maxInFlight concurrent requests.
+ */
+public final class LoadTest {
+
+    private static final int DEFAULT_CLIENTS = 64;
+    private static final int DEFAULT_SECONDS = 10;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    private static final int REQUESTS = 1024;
+    private static final long SEED = 7L;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2 || args.length > 5) {
+            System.err.println("Usage: LoadTest <books.csv> <stopwords.txt> [clients] [seconds] [maxInFlight]");
+            System.exit(2);
+        }
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CLIENTS;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_SECONDS;
+        int maxInFlight = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_MAX_IN_FLIGHT;
+
+        try (QueryServer server = QueryServerMain.create(Path.of(args[0]), Path.of(args[1]), maxInFlight);
+             HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+             ExecutorService clientThreads = Executors.newFixedThreadPool(clients)) {
+            InetSocketAddress address = server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            List<URI> requests = requests(server, address);
+
+            Results results = new Results();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            for (int i = 0; i < clients; i++) {
+                int offset = i * (REQUESTS / clients + 1);
+                clientThreads.submit(() -> drive(client, requests, offset, deadline, results));
+            }
+            clientThreads.shutdown();
+            clientThreads.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+
+            System.out.printf("clients=%d seconds=%d maxInFlight=%d%n", clients, seconds, maxInFlight);
+            long total = results.ok.count() + results.rejected.count() + results.failed.sum();
+            System.out.printf("requests %d (%.1f/s)%n", total, (double) total / seconds);
+            print("200", results.ok);
+            print("503", results.rejected);
+            System.out.printf("  failed %d%n", results.failed.sum());
+            System.out.printf("  rejected by the server %d%n", server.rejectedRequests());
+        }
+    }
+
+    private static void drive(HttpClient client, List<URI> requests, int offset, long deadline, Results results) {
+        for (int i = offset; System.nanoTime() < deadline; i++) {
+            HttpRequest request = HttpRequest.newBuilder(requests.get(i % requests.size())).GET().build();
+            long start = System.nanoTime();
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                long latency = System.nanoTime() - start;
+                switch (status) {
+                    case 200 -> results.ok.record(latency);
+                    case 503 -> results.rejected.record(latency);
+                    default -> results.failed.increment();
+                }
+            } catch (IOException ex) {
+                results.failed.increment();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static List<URI> requests(QueryServer server, InetSocketAddress address) {
+        String base = "http://" + address.getHostString() + ":" + address.getPort();
+        List<Book> books = server.finder().allBooks().stream()
+            .sorted(Comparator.comparing(Book::ID))
+            .toList();
+
+        Random random = new Random(SEED);
+        List<URI> requests = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            Book book = books.get(random.nextInt(books.size()));
+            String path = switch (i % 4) {
+                case 0 -> "/books/author?name=" + encode(book.author());
+                case 1 -> "/books/genres?match=any" + book.genres().stream()
+                    .limit(2)
+                    .map(genre -> "&genre=" + encode(genre))
+                    .reduce("", String::concat);
+                case 2 -> "/books/keywords?match=any&keyword=" + encode(firstWord(book.title()));
+                default -> "/recommendations?max=10&book=" + encode(book.ID());
+            };
+            requests.add(URI.create(base + path));
+        }
+        return requests;
+    }
+
+    private static String firstWord(String text) {
+        String[] words = text.toLowerCase().split("[^\\p{L}\\p{N}]+");
+        for (String word : words) {
+            if (!word.isEmpty()) {
+                return word;
+            }
+        }
+        return text;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static void print(String status, LatencyHistogram latencies) {
+        System.out.printf("  %s %d p50=%.2fms p99=%.2fms p999=%.2fms%n", status, latencies.count(),
+            latencies.valueAt(0.5) / NANOS_PER_MILLI,
+            latencies.valueAt(0.99) / NANOS_PER_MILLI,
+            latencies.valueAt(0.999) / NANOS_PER_MILLI);
+    }
+
+    private static final class Results {
+        private final LatencyHistogram ok = new LatencyHistogram();
+        private final LatencyHistogram rejected = new LatencyHistogram();
+        private final LongAdder failed = new LongAdder();
+    }
+}
@@ -0,0 +1,69 @@
+package bg.sofia.uni.fmi.mjt.goodreads.server;
+
+import bg.sofia.uni.fmi.mjt.goodreads.finder.MatchOption;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryParametersTest {
+
+    @Test
+    void testParseDecodesNamesAndValues() {
+        QueryParameters parameters = QueryParameters.parse("name=Ann+Lee&genre=Science%20Fiction&flag");
+
+        assertEquals("Ann Lee", parameters.required("name"), "A plus should decode to a space.");
+        assertEquals(Set.of("Science Fiction"), parameters.all("genre"), "Percent escapes should be decoded.");
+        assertEquals("", parameters.required("flag"), "A parameter without a value should be empty.");
+    }
+
+    @Test
+    void testAllKeepsTheOrderOfRepeatedValues() {
+        QueryParameters parameters = QueryParameters.parse("genre=b&genre=a&genre=b");
+
+        assertEquals(List.of("b", "a"), List.copyOf(parameters.all("genre")),
+            "Repeated values should be kept once in the order given.");
+        assertTrue(parameters.all("keyword").isEmpty(), "A missing parameter should have no values.");
+    }
+
+    @Test
+    void testRequiredThrowsForMissingOrRepeatedParameter() {
+        QueryParameters parameters = QueryParameters.parse("book=1&book=2");
+
+        assertThrows(IllegalArgumentException.class, () -> parameters.required("name"),
+            "A missing parameter should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> parameters.required("book"),
+            "A repeated parameter should be rejected.");
+    }
+
+    @Test
+    void testPositiveInt() {
+        assertEquals(10, QueryParameters.parse(null).positiveInt("max", 10), "A missing value should default.");
+        assertEquals(3, QueryParameters.parse("max=3").positiveInt("max", 10), "A value should be parsed.");
+        assertThrows(IllegalArgumentException.class, () -> QueryParameters.parse("max=0").positiveInt("max", 10),
+            "Zero should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> QueryParameters.parse("max=x").positiveInt("max", 10),
+            "A non-number should be rejected.");
+    }
+
+    @Test
+    void testMatchOption() {
+        assertEquals(MatchOption.MATCH_ALL, QueryParameters.parse("").matchOption("match", MatchOption.MATCH_ALL),
+            "A missing option should default.");
+        assertEquals(MatchOption.MATCH_ANY,
+            QueryParameters.parse("match=any").matchOption("match", MatchOption.MATCH_ALL), "any should be parsed.");
+        assertThrows(IllegalArgumentException.class,
+            () -> QueryParameters.parse("match=most").matchOption("match", MatchOption.MATCH_ALL),
+            "An unknown option should be rejected.");
+    }
+
+    @Test
+    void testParseThrowsForMalformedEscape() {
+        assertThrows(IllegalArgumentException.class, () -> QueryParameters.parse("name=%G1"),
+            "A malformed escape should be rejected.");
+    }
+}
@@ -0,0 +1,279 @@
+package bg.sofia.uni.fmi.mjt.goodreads.server;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.BookFinder;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.BookRecommenderAPI;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryServerTest {
+
+    private static final Book DRAGON = new Book("1", "The Dragon", "Ann Lee", "A dragon guards the gold.",
+        List.of("Fantasy", "Adventure"), 4.5, 100, "url1");
+    private static final Book SPACE = new Book("2", "Space \"Quest\"", "Bo Ray", "Ships explore the stars.",
+        List.of("Science Fiction", "Adventure"), 4.0, 50, "url2");
+    private static final Book KNIGHT = new Book("3", "The Knight", "Ann Lee", "A knight fights a dragon.",
+        List.of("Fantasy"), 3.5, 20, "url3");
+
+    private BookFinder finder;
+    private QueryServer server;
+    private HttpClient client;
+    private String base;
+
+    @BeforeEach
+    void setUp() {
+        finder = new BookFinder(Set.of(DRAGON, SPACE, KNIGHT), new TextTokenizer(new StringReader("the\na\n")));
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+        client.close();
+    }
+
+    @Test
+    void testSearchByAuthorReturnsTheBooksAsJson() throws Exception {
+        start((origin, maxN) -> new TreeMap<>(), 4);
+
+        HttpResponse<String> response = get("/books/author?name=Ann+Lee");
+
+        assertEquals(200, response.statusCode(), "A valid search should succeed.");
+        assertEquals("application/json; charset=utf-8", response.headers().firstValue("Content-Type").orElse(""),
+            "The response should be JSON.");
+        assertEquals(JsonWriter.books(finder.searchByAuthor("Ann Lee")), response.body(),
+            "The response should be the books the finder found.");
+    }
+
+    @Test
+    void testSearchByGenresAndKeywordsUseTheMatchOption() throws Exception {
+        start((origin, maxN) -> new TreeMap<>(), 4);
+
+        assertEquals(JsonWriter.books(List.of(DRAGON)),
+            get("/books/genres?genre=fantasy&genre=adventure").body(), "Genres should match all by default.");
+        assertEquals(3, count(get("/books/genres?genre=fantasy&genre=adventure&match=any").body()),
+            "Genres should match any when asked to.");
+        assertEquals(JsonWriter.books(List.of(KNIGHT)),
+            get("/books/keywords?keyword=knight&keyword=dragon&match=all").body(),
+            "Keywords should match the title or the description.");
+    }
+
+    @Test
+    void testRecommendationsAreResolvedByBookId() throws Exception {
+        start((origin, maxN) -> {
+            TreeMap<Book, Double> result = new TreeMap<>((first, second) -> first.ID().compareTo(second.ID()));
+            if (origin.equals(DRAGON) && maxN == 2) {
+                result.put(KNIGHT, 0.75);
+            }
+            return result;
+        }, 4);
+
+        HttpResponse<String> response = get("/recommendations?book=1&max=2");
+
+        assertEquals(200, response.statusCode(), "A recommendation for a known book should succeed.");
+        assertEquals(JsonWriter.recommendations(Map.of(KNIGHT, 0.75)), response.body(),
+            "The response should be the recommendations for the book with the ID.");
+    }
+
+    @Test
+    void testInvalidRequestsAreRejectedWithTheirStatus() throws Exception {
+        start((origin, maxN) -> new TreeMap<>(), 4);
+
+        assertEquals(400, get("/books/author").statusCode(), "A missing parameter should be a bad request.");
+        assertEquals(400, get("/books/genres?genre=fantasy&match=some").statusCode(),
+            "An unknown match option should be a bad request.");
+        assertEquals(400, get("/recommendations?book=1&max=0").statusCode(),
+            "A non-positive maximum should be a bad request.");
+        assertEquals(404, get("/recommendations?book=42").statusCode(), "An unknown book should not be found.");
+        assertEquals(404, get("/books/authors?name=Ann").statusCode(), "An unknown path should not be found.");
+        assertEquals(404, get("/").statusCode(), "The root should not be found.");
+
+        HttpResponse<String> post = client.send(HttpRequest.newBuilder(URI.create(base + "/books/author?name=Ann"))
+            .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, post.statusCode(), "Only GET should be allowed.");
+        assertEquals("GET", post.headers().firstValue("Allow").orElse(""), "The allowed method should be named.");
+    }
+
+    @Test
+    void testFailingQueryIsAnInternalError() throws Exception {
+        start((origin, maxN) -> {
+            throw new IllegalStateException("broken");
+        }, 4);
+
+        HttpResponse<String> response = get("/recommendations?book=1");
+
+        assertEquals(500, response.statusCode(), "An unexpected failure should be an internal error.");
+        assertEquals(JsonWriter.error("Internal server error."), response.body(),
+            "The failure should not be exposed to the client.");
+    }
+
+    @Test
+    void testRequestsBeyondMaxInFlightAreRejectedAtOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        start((origin, maxN) -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return new TreeMap<>();
+        }, 2);
+
+        List<CompletableFuture<HttpResponse<String>>> blocked = List.of(getAsync("/recommendations?book=1"),
+            getAsync("/recommendations?book=2"));
+        awaitInFlight(2);
+
+        long start = System.nanoTime();
+        HttpResponse<String> rejected = get("/books/author?name=Ann+Lee");
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(503, rejected.statusCode(), "A request beyond the limit should be rejected.");
+        assertEquals("1", rejected.headers().firstValue("Retry-After").orElse(""),
+            "A rejected client should be told when to retry.");
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(2), "A rejected request should not wait for a slot.");
+        assertEquals(1, server.rejectedRequests(), "The rejection should be counted.");
+
+        release.countDown();
+        for (CompletableFuture<HttpResponse<String>> response : blocked) {
+            assertEquals(200, response.get(5, TimeUnit.SECONDS).statusCode(), "Admitted requests should finish.");
+        }
+        awaitInFlight(0);
+        assertEquals(200, get("/books/author?name=Ann+Lee").statusCode(),
+            "Requests should be admitted again once the slots are free.");
+    }
+
+    @Test
+    void testRejectionsBeyondTheRejectingThreadsAreAnswered() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        start((origin, maxN) -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return new TreeMap<>();
+        }, 1);
+        CompletableFuture<HttpResponse<String>> blocked = getAsync("/recommendations?book=1");
+        awaitInFlight(1);
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            responses.add(getAsync("/books/author?name=Ann+Lee"));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(503, response.get(10, TimeUnit.SECONDS).statusCode(),
+                "Every request beyond the limit should be rejected, however many arrive at once.");
+        }
+        assertEquals(200, server.rejectedRequests(), "Every rejection should be counted.");
+
+        release.countDown();
+        assertEquals(200, blocked.get(5, TimeUnit.SECONDS).statusCode(), "The admitted request should finish.");
+    }
+
+    @Test
+    void testConcurrentLoadIsEitherServedOrRejected() throws Exception {
+        start((origin, maxN) -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return new TreeMap<>();
+        }, 4);
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            responses.add(getAsync("/recommendations?book=" + (i % 3 + 1)));
+        }
+
+        int served = 0;
+        int rejected = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            int status = response.get(10, TimeUnit.SECONDS).statusCode();
+            assertTrue(status == 200 || status == 503, "A request should be served or rejected, not " + status);
+            if (status == 200) {
+                served++;
+            } else {
+                rejected++;
+            }
+        }
+
+        assertTrue(served >= 4, "At least the first maxInFlight requests should be served.");
+        assertEquals(rejected, server.rejectedRequests(), "Every 503 should be counted as a rejection.");
+        awaitInFlight(0);
+    }
+
+    @Test
+    void testStartingTwiceThrows() {
+        start((origin, maxN) -> new TreeMap<>(), 4);
+
+        assertThrows(IllegalStateException.class,
+            () -> server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)),
+            "A server should only be started once.");
+    }
+
+    @Test
+    void testConstructorThrowsForInvalidArguments() {
+        BookRecommenderAPI recommender = (origin, maxN) -> new TreeMap<>();
+
+        assertThrows(IllegalArgumentException.class, () -> new QueryServer(null, recommender, 1),
+            "The finder should be required.");
+        assertThrows(IllegalArgumentException.class, () -> new QueryServer(finder, null, 1),
+            "The recommender should be required.");
+        assertThrows(IllegalArgumentException.class, () -> new QueryServer(finder, recommender, 0),
+            "At least one request should be admitted.");
+    }
+
+    private void start(BookRecommenderAPI recommender, int maxInFlight) {
+        server = new QueryServer(finder, recommender, maxInFlight);
+        InetSocketAddress address = server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        base = "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(base + path)).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+    }
+
+    private CompletableFuture<HttpResponse<String>> getAsync(String path) {
+        return client.sendAsync(HttpRequest.newBuilder(URI.create(base + path)).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void awaitInFlight(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.inFlightRequests() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, server.inFlightRequests(), "The in-flight requests should be counted.");
+    }
+
+    private static int count(String booksJson) {
+        return booksJson.split("\"id\":", -1).length - 1;
+    }
+}
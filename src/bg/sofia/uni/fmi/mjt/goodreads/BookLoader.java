@@ -2,25 +2,152 @@ package bg.sofia.uni.fmi.mjt.goodreads;
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
 import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
+import com.opencsv.exceptions.CsvValidationException;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class BookLoader {
 
     public static Set<Book> load(Reader reader) {
+        try (Stream<Book> books = stream(reader)) {
+            return books.collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * Parses the dataset row by row and passes every book to {@code consumer} as soon as it is read,
+     * so only one row is held in memory at a time. The reader is closed when all books are consumed.
+     *
+     * @throws IllegalArgumentException if the dataset could not be read or a row is not a valid book
+     */
+    public static void load(Reader reader, Consumer<Book> consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null.");
+        }
 
-        try (CSVReader csvReader = new CSVReader(reader)) {
-            return csvReader.readAll().stream()
-                .skip(1)
-                .map(Book::of)
-                .collect(Collectors.toSet());
+        try (Stream<Book> books = stream(reader)) {
+            books.forEachOrdered(consumer);
+        }
+    }
+
+    /**
+     * Loads a UTF-8 encoded dataset file by memory-mapping it and parsing the rows directly from
+     * its bytes, which avoids decoding the numeric columns into strings.
+     *
+     * @throws IllegalArgumentException if the file could not be read or a row is not a valid book
+     */
+    public static Set<Book> load(Path path) {
+        Set<Book> books = new HashSet<>();
+        load(path, books::add);
+        return books;
+    }
 
-        } catch (IOException | CsvException ex) {
+    /**
+     * Memory-maps a UTF-8 encoded dataset file and passes every book to {@code consumer} in file order.
+     * Files larger than 2 GB, which cannot be mapped as a single buffer, are streamed through a reader.
+     *
+     * @throws IllegalArgumentException if the file could not be read or a row is not a valid book
+     */
+    public static void load(Path path, Consumer<Book> consumer) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path must not be null.");
+        }
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null.");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                load(Files.newBufferedReader(path), consumer);
+                return;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            MappedBookParser parser = new MappedBookParser(buffer);
+            parser.skipHeader();
+            for (Book book = parser.next(); book != null; book = parser.next()) {
+                consumer.accept(book);
+            }
+        } catch (IOException ex) {
             throw new IllegalArgumentException("Could not load dataset", ex);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a lazily populated stream of the books in the dataset, skipping its header row.
+     * Rows are parsed only as the stream is consumed. The stream should be closed after use,
+     * which also closes the reader.
+     *
+     * @throws IllegalArgumentException if the reader is null. Failures to read or parse a row
+     *                                  are thrown as IllegalArgumentException during consumption.
+     */
+    public static Stream<Book> stream(Reader reader) {
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader must not be null.");
+        }
+
+        CSVReader csvReader = new CSVReader(reader);
+        return StreamSupport.stream(new BookSpliterator(csvReader), false)
+            .onClose(() -> close(csvReader));
+    }
+
+    private static void close(CSVReader csvReader) {
+        try {
+            csvReader.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not close dataset", ex);
+        }
+    }
+
+    private static final class BookSpliterator extends Spliterators.AbstractSpliterator<Book> {
+
+        private final CSVReader csvReader;
+        private boolean headerSkipped;
+
+        BookSpliterator(CSVReader csvReader) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.csvReader = csvReader;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Book> action) {
+            if (!headerSkipped) {
+                headerSkipped = true;
+                if (readNext() == null) {
+                    return false;
+                }
+            }
+
+            String[] tokens = readNext();
+            if (tokens == null) {
+                return false;
+            }
+
+            action.accept(Book.of(tokens));
+            return true;
+        }
+
+        private String[] readNext() {
+            try {
+                return csvReader.readNext();
+            } catch (IOException | CsvValidationException ex) {
+                throw new IllegalArgumentException("Could not load dataset", ex);
+            }
+        }
+    }
+}
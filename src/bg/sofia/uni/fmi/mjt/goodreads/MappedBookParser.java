@@ -0,0 +1,426 @@
+package bg.sofia.uni.fmi.mjt.goodreads;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import com.opencsv.CSVParser;
+import com.opencsv.ICSVParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses UTF-8 encoded dataset rows directly from the bytes of a (memory-mapped) buffer.
+ * Field boundaries are found without decoding, the rating columns are parsed straight from bytes
+ * and strings are only created for the text columns.
+ * Only the quoting on which all CSV dialects agree is parsed from bytes: a field which is either
+ * free of quotes and backslashes or enclosed in double quotes, with doubled quotes and escaped
+ * quotes and backslashes inside. Any other row is read line by line with the opencsv parser that
+ * {@link BookLoader#load(java.io.Reader)} uses, so that both loaders give the same books.
+ */
+final class MappedBookParser {
+
+    private static final int COLUMNS = 8;
+    private static final int ID = 0;
+    private static final int TITLE = 1;
+    private static final int AUTHOR = 2;
+    private static final int DESCRIPTION = 3;
+    private static final int GENRES = 4;
+    private static final int RATING = 5;
+    private static final int RATING_COUNT = 6;
+    private static final int URL = 7;
+
+    private static final byte QUOTE = '"';
+    private static final byte ESCAPE = '\\';
+    private static final byte SEPARATOR = ',';
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private final ICSVParser csvParser = new CSVParser();
+    private int position;
+    private int rowStart;
+    private boolean simpleRow;
+
+    private int fieldCount;
+    private int[] fieldStarts = new int[COLUMNS];
+    private int[] fieldEnds = new int[COLUMNS];
+    private boolean[] plainFields = new boolean[COLUMNS];
+
+    private byte[] scratch = new byte[256];
+
+    MappedBookParser(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+        this.position = hasByteOrderMark() ? 3 : 0;
+    }
+
+    /**
+     * Skips the header row of the dataset.
+     */
+    void skipHeader() {
+        if (scanRow() && !simpleRow) {
+            parseRow();
+        }
+    }
+
+    /**
+     * @return the next book or null if the end of the buffer is reached
+     * @throws IllegalArgumentException if the row is malformed or is not a valid book
+     */
+    Book next() {
+        if (!scanRow()) {
+            return null;
+        }
+        if (!simpleRow) {
+            return Book.of(parseRow());
+        }
+        if (fieldCount != COLUMNS) {
+            return Book.of(materializeRow());
+        }
+
+        int length = decode(RATING);
+        double rating = parseRating(length);
+        length = decode(RATING_COUNT);
+        long ratingCount = parseRatingCount(length);
+        if (Double.isNaN(rating) || ratingCount < 0) {
+            return Book.of(materializeRow()); // let Book report the invalid value
+        }
+
+        return new Book(text(ID).trim(), text(TITLE).trim(), text(AUTHOR).trim(), text(DESCRIPTION).trim(),
+            genres(text(GENRES)), rating, (int) ratingCount, text(URL).trim());
+    }
+
+    /**
+     * Splits the genres column like {@link Book#of(String[])}.
+     */
+    private static List<String> genres(String column) {
+        if (column.isBlank()) {
+            return List.of();
+        }
+        if (column.startsWith("[") && column.endsWith("]")) {
+            column = column.substring(1, column.length() - 1);
+        }
+        return Arrays.stream(column.split(","))
+            .map(String::trim)
+            .filter(genre -> !genre.isEmpty())
+            .toList();
+    }
+
+    private boolean hasByteOrderMark() {
+        return limit >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB
+            && buffer.get(2) == (byte) 0xBF;
+    }
+
+    /**
+     * Finds the boundaries of the fields of the next row and moves past its line terminator.
+     * A row with other quoting is not simple, and the position is left at its start.
+     *
+     * @return false if there are no more rows
+     */
+    private boolean scanRow() {
+        if (position >= limit) {
+            return false;
+        }
+
+        rowStart = position;
+        simpleRow = false;
+        fieldCount = 0;
+        boolean rowEnded = false;
+        while (!rowEnded) {
+            int start = position;
+            boolean quoted = position < limit && buffer.get(position) == QUOTE;
+            boolean inQuotes = quoted;
+            if (quoted) {
+                position++;
+            }
+
+            int end;
+            while (true) {
+                if (position >= limit) {
+                    if (inQuotes) {
+                        throw new IllegalArgumentException("Could not load dataset: unterminated quoted field");
+                    }
+                    end = position;
+                    rowEnded = true;
+                    break;
+                }
+
+                byte current = buffer.get(position);
+                if (inQuotes) {
+                    if (current == ESCAPE) {
+                        if (!isQuoteOrEscape(position + 1)) {
+                            return notSimple();
+                        }
+                        position += 2;
+                    } else if (current == QUOTE && position + 1 < limit && buffer.get(position + 1) == QUOTE) {
+                        position += 2;
+                    } else {
+                        inQuotes = current != QUOTE;
+                        position++;
+                        if (!inQuotes && !endsField(position)) {
+                            return notSimple();
+                        }
+                    }
+                } else if (current == SEPARATOR) {
+                    end = position++;
+                    break;
+                } else if (current == LINE_FEED || current == CARRIAGE_RETURN) {
+                    end = position++;
+                    if (current == CARRIAGE_RETURN && position < limit && buffer.get(position) == LINE_FEED) {
+                        position++;
+                    }
+                    rowEnded = true;
+                    break;
+                } else if (current == QUOTE || current == ESCAPE) {
+                    return notSimple();
+                } else {
+                    position++;
+                }
+            }
+
+            addField(start, end, !quoted);
+        }
+        simpleRow = true;
+        return true;
+    }
+
+    private boolean notSimple() {
+        position = rowStart;
+        return true;
+    }
+
+    private boolean isQuoteOrEscape(int index) {
+        return index < limit && (buffer.get(index) == QUOTE || buffer.get(index) == ESCAPE);
+    }
+
+    private boolean endsField(int index) {
+        if (index >= limit) {
+            return true;
+        }
+        byte current = buffer.get(index);
+        return current == SEPARATOR || current == LINE_FEED || current == CARRIAGE_RETURN;
+    }
+
+    /**
+     * Parses the row at the position with opencsv, feeding it the lines of the row one at a time
+     * like a {@link com.opencsv.CSVReader} does.
+     *
+     * @return the fields of the row
+     */
+    private String[] parseRow() {
+        String[] tokens = new String[0];
+        do {
+            if (position >= limit) {
+                throw new IllegalArgumentException("Could not load dataset: unterminated quoted field");
+            }
+            try {
+                String[] lineTokens = csvParser.parseLineMulti(readLine());
+                int size = tokens.length;
+                tokens = Arrays.copyOf(tokens, size + lineTokens.length);
+                System.arraycopy(lineTokens, 0, tokens, size, lineTokens.length);
+            } catch (IOException ex) {
+                throw new IllegalArgumentException("Could not load dataset", ex);
+            }
+        } while (csvParser.isPending());
+        return tokens;
+    }
+
+    /**
+     * @return the line at the position without its terminator, which the position moves past
+     */
+    private String readLine() {
+        int start = position;
+        while (position < limit && buffer.get(position) != LINE_FEED && buffer.get(position) != CARRIAGE_RETURN) {
+            position++;
+        }
+        int end = position;
+        if (position < limit && buffer.get(position++) == CARRIAGE_RETURN
+            && position < limit && buffer.get(position) == LINE_FEED) {
+            position++;
+        }
+        ensureScratchCapacity(end - start);
+        buffer.get(start, scratch, 0, end - start);
+        return new String(scratch, 0, end - start, StandardCharsets.UTF_8);
+    }
+
+    private void addField(int start, int end, boolean plain) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            plainFields = Arrays.copyOf(plainFields, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        plainFields[fieldCount] = plain;
+        fieldCount++;
+    }
+
+    /**
+     * Copies the unquoted and unescaped bytes of a field into the scratch array.
+     *
+     * @return the number of bytes of the field value
+     */
+    private int decode(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        ensureScratchCapacity(end - start);
+
+        if (plainFields[field]) {
+            buffer.get(start, scratch, 0, end - start);
+            return end - start;
+        }
+
+        int length = 0;
+        boolean inQuotes = false;
+        int index = start;
+        if (buffer.get(index) == QUOTE) {
+            inQuotes = true;
+            index++;
+        }
+
+        while (index < end) {
+            byte current = buffer.get(index);
+            if (current == ESCAPE && index + 1 < end) {
+                scratch[length++] = buffer.get(index + 1);
+                index += 2;
+            } else if (current == QUOTE && index + 1 < end && buffer.get(index + 1) == QUOTE) {
+                scratch[length++] = QUOTE;
+                index += 2;
+            } else if (current == QUOTE && inQuotes) {
+                inQuotes = false;
+                index++;
+            } else if (current == CARRIAGE_RETURN && inQuotes) {
+                scratch[length++] = LINE_FEED; // line terminators inside quotes are read as \n
+                index++;
+                if (index < end && buffer.get(index) == LINE_FEED) {
+                    index++;
+                }
+            } else {
+                scratch[length++] = current;
+                index++;
+            }
+        }
+        return length;
+    }
+
+    private String text(int field) {
+        int length = decode(field);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private String[] materializeRow() {
+        String[] tokens = new String[fieldCount];
+        for (int field = 0; field < fieldCount; field++) {
+            tokens[field] = text(field);
+        }
+        return tokens;
+    }
+
+    /**
+     * Parses a plain decimal number such as {@code 4.28}. The result is exactly what
+     * {@link Double#parseDouble} returns, because both the digits and the power of ten are
+     * exactly representable and are divided with a single rounding.
+     *
+     * @return the rating or NaN if it is not a plain decimal number with up to 15 digits
+     */
+    private double parseRating(int length) {
+        int from = skipLeadingSpaces(0, length);
+        int to = skipTrailingSpaces(from, length);
+
+        boolean negative = false;
+        if (from < to && (scratch[from] == '-' || scratch[from] == '+')) {
+            negative = scratch[from++] == '-';
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenPoint = false;
+        for (int index = from; index < to; index++) {
+            byte current = scratch[index];
+            if (current >= '0' && current <= '9') {
+                if (++digits > MAX_EXACT_DIGITS) {
+                    return Double.NaN;
+                }
+                mantissa = mantissa * 10 + (current - '0');
+                fractionDigits += seenPoint ? 1 : 0;
+            } else if (current == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a non-negative integer in which commas are ignored, such as {@code 3,589,321}.
+     *
+     * @return the rating count or -1 if it is not such an integer or does not fit in an int
+     */
+    private long parseRatingCount(int length) {
+        int from = 0;
+        int to = length;
+        while (from < to && (scratch[from] == SEPARATOR || isSpace(scratch[from]))) {
+            from++;
+        }
+        while (to > from && (scratch[to - 1] == SEPARATOR || isSpace(scratch[to - 1]))) {
+            to--;
+        }
+        if (from == to) {
+            return -1;
+        }
+
+        long value = 0;
+        for (int index = from; index < to; index++) {
+            byte current = scratch[index];
+            if (current >= '0' && current <= '9') {
+                value = value * 10 + (current - '0');
+                if (value > Integer.MAX_VALUE) {
+                    return -1;
+                }
+            } else if (current != SEPARATOR) {
+                return -1;
+            }
+        }
+        return value;
+    }
+
+    private int skipLeadingSpaces(int from, int to) {
+        while (from < to && isSpace(scratch[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private int skipTrailingSpaces(int from, int to) {
+        while (to > from && isSpace(scratch[to - 1])) {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isSpace(byte value) {
+        return value >= 0 && value <= ' '; // the bytes which String.trim() removes
+    }
+
+    private void ensureScratchCapacity(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+    }
+}
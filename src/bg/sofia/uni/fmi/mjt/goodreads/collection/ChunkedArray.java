@@ -0,0 +1,136 @@
+package bg.sofia.uni.fmi.mjt.goodreads.collection;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An immutable array of references which is split into chunks of {@value #CHUNK_SIZE} elements,
+ * like a {@link ChunkedIntArray}: setting elements returns a new array which copies the array of
+ * chunks and the chunks of the changed elements and shares all other chunks. An element which
+ * was never set is null.
+ */
+public final class ChunkedArray<T> {
+
+    static final int CHUNK_SIZE = 64;
+
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+
+    private static final ChunkedArray<?> EMPTY = new ChunkedArray<>(new Object[0][], 0);
+
+    private final Object[][] chunks;
+    private final int length;
+
+    private ChunkedArray(Object[][] chunks, int length) {
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    public static <T> ChunkedArray<T> of(T[] elements) {
+        Object[][] chunks = new Object[chunkCountFor(elements.length)][];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            chunks[chunk] = Arrays.copyOfRange(elements, chunk << CHUNK_SHIFT, (chunk + 1) << CHUNK_SHIFT,
+                Object[].class);
+        }
+        return new ChunkedArray<>(chunks, elements.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> ChunkedArray<T> empty() {
+        return (ChunkedArray<T>) EMPTY;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if index is negative or not less than the length
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Objects.checkIndex(index, length);
+        Object[] chunk = chunks[index >>> CHUNK_SHIFT];
+        return chunk == null ? null : (T) chunk[index & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * @return an array of the given length with the elements of this one and nulls after them
+     * @throws IllegalArgumentException if length is less than the length of this array
+     */
+    public ChunkedArray<T> withLength(int newLength) {
+        if (newLength < length) {
+            throw new IllegalArgumentException("An array cannot be shortened.");
+        }
+        if (newLength == length) {
+            return this;
+        }
+        return new ChunkedArray<>(Arrays.copyOf(chunks, chunkCountFor(newLength)), newLength);
+    }
+
+    /**
+     * @return an array in which the element at index is element
+     * @throws IndexOutOfBoundsException if index is negative or not less than the length
+     */
+    public ChunkedArray<T> with(int index, T element) {
+        Editor<T> editor = edit();
+        editor.set(index, element);
+        return editor.build();
+    }
+
+    /**
+     * @return an editor of a copy of this array, which leaves this array unchanged
+     */
+    public Editor<T> edit() {
+        return new Editor<>(this);
+    }
+
+    private static int chunkCountFor(int length) {
+        return (length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+    }
+
+    /**
+     * Sets several elements of a new version of an array, copying every chunk at most once.
+     * An editor is not thread-safe and should not be used after {@link #build()}.
+     */
+    public static final class Editor<T> {
+
+        private final Object[][] shared;
+        private final Object[][] chunks;
+        private final int length;
+
+        private Editor(ChunkedArray<T> array) {
+            this.shared = array.chunks;
+            this.chunks = array.chunks.clone();
+            this.length = array.length;
+        }
+
+        /**
+         * @throws IndexOutOfBoundsException if index is negative or not less than the length
+         */
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            Objects.checkIndex(index, length);
+            Object[] chunk = chunks[index >>> CHUNK_SHIFT];
+            return chunk == null ? null : (T) chunk[index & (CHUNK_SIZE - 1)];
+        }
+
+        /**
+         * @throws IndexOutOfBoundsException if index is negative or not less than the length
+         */
+        public void set(int index, T element) {
+            Objects.checkIndex(index, length);
+            int chunk = index >>> CHUNK_SHIFT;
+            if (chunks[chunk] == shared[chunk]) {
+                chunks[chunk] = shared[chunk] == null ? new Object[CHUNK_SIZE] : shared[chunk].clone();
+            }
+            chunks[chunk][index & (CHUNK_SIZE - 1)] = element;
+        }
+
+        /**
+         * @return the edited array
+         */
+        public ChunkedArray<T> build() {
+            return new ChunkedArray<>(chunks, length);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package bg.sofia.uni.fmi.mjt.goodreads.collection;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * An immutable bitset which is split into chunks of {@value #BITS_PER_CHUNK} bits. Setting or
+ * clearing a bit returns a new bitset which copies the array of chunks and the chunk of the bit
+ * and shares all other chunks, so a version of the bitset is derived in time proportional to the
+ * number of chunks instead of the number of bits. A chunk without set bits is not allocated.
+ */
+public final class ChunkedBitSet {
+
+    static final int BITS_PER_CHUNK = 4096;
+
+    private static final int WORDS_PER_CHUNK = BITS_PER_CHUNK / Long.SIZE;
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(BITS_PER_CHUNK);
+    private static final int WORD_SHIFT = Integer.numberOfTrailingZeros(Long.SIZE);
+    private static final ChunkedBitSet EMPTY = new ChunkedBitSet(new long[0][], 0);
+
+    private final long[][] chunks;
+    private final int cardinality;
+
+    private ChunkedBitSet(long[][] chunks, int cardinality) {
+        this.chunks = chunks;
+        this.cardinality = cardinality;
+    }
+
+    public static ChunkedBitSet empty() {
+        return EMPTY;
+    }
+
+    public static ChunkedBitSet of(BitSet bits) {
+        long[] words = bits.toLongArray();
+        long[][] chunks = new long[(words.length + WORDS_PER_CHUNK - 1) / WORDS_PER_CHUNK][];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            chunks[chunk] = Arrays.copyOfRange(words, chunk * WORDS_PER_CHUNK, (chunk + 1) * WORDS_PER_CHUNK);
+        }
+        return new ChunkedBitSet(chunks, bits.cardinality());
+    }
+
+    /**
+     * @return the number of set bits
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if bit is negative
+     */
+    public boolean get(int bit) {
+        if (bit < 0) {
+            throw new IndexOutOfBoundsException("Bit index must not be negative: " + bit);
+        }
+        int chunk = bit >>> CHUNK_SHIFT;
+        if (chunk >= chunks.length || chunks[chunk] == null) {
+            return false;
+        }
+        return (chunks[chunk][wordOf(bit)] & (1L << bit)) != 0;
+    }
+
+    /**
+     * @return a bitset in which the bit is set
+     * @throws IndexOutOfBoundsException if bit is negative
+     */
+    public ChunkedBitSet with(int bit) {
+        return get(bit) ? this : updated(bit, true);
+    }
+
+    /**
+     * @return a bitset in which the bit is clear
+     * @throws IndexOutOfBoundsException if bit is negative
+     */
+    public ChunkedBitSet without(int bit) {
+        return get(bit) ? updated(bit, false) : this;
+    }
+
+    /**
+     * @return the first set bit from the given one on, or -1 if there is none
+     * @throws IndexOutOfBoundsException if from is negative
+     */
+    public int nextSetBit(int from) {
+        if (from < 0) {
+            throw new IndexOutOfBoundsException("Bit index must not be negative: " + from);
+        }
+        int word = wordOf(from);
+        long mask = -1L << from;
+        for (int chunk = from >>> CHUNK_SHIFT; chunk < chunks.length; chunk++) {
+            long[] words = chunks[chunk];
+            for (; words != null && word < WORDS_PER_CHUNK; word++) {
+                long bits = words[word] & mask;
+                if (bits != 0) {
+                    return (chunk << CHUNK_SHIFT) + (word << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+                }
+                mask = -1L;
+            }
+            word = 0;
+            mask = -1L;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the first clear bit from the given one on
+     * @throws IndexOutOfBoundsException if from is negative
+     */
+    public int nextClearBit(int from) {
+        if (from < 0) {
+            throw new IndexOutOfBoundsException("Bit index must not be negative: " + from);
+        }
+        int word = wordOf(from);
+        long mask = -1L << from;
+        for (int chunk = from >>> CHUNK_SHIFT; chunk < chunks.length; chunk++) {
+            long[] words = chunks[chunk];
+            if (words == null) {
+                return Math.max(from, chunk << CHUNK_SHIFT);
+            }
+            for (; word < WORDS_PER_CHUNK; word++) {
+                long clear = ~words[word] & mask;
+                if (clear != 0) {
+                    return (chunk << CHUNK_SHIFT) + (word << WORD_SHIFT) + Long.numberOfTrailingZeros(clear);
+                }
+                mask = -1L;
+            }
+            word = 0;
+            mask = -1L;
+        }
+        return Math.max(from, chunks.length << CHUNK_SHIFT);
+    }
+
+    /**
+     * @return a mutable copy of this bitset
+     */
+    public BitSet toBitSet() {
+        long[] words = new long[chunks.length * WORDS_PER_CHUNK];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            if (chunks[chunk] != null) {
+                System.arraycopy(chunks[chunk], 0, words, chunk * WORDS_PER_CHUNK, WORDS_PER_CHUNK);
+            }
+        }
+        return BitSet.valueOf(words);
+    }
+
+    private ChunkedBitSet updated(int bit, boolean value) {
+        int chunk = bit >>> CHUNK_SHIFT;
+        long[][] copy = Arrays.copyOf(chunks, Math.max(chunks.length, chunk + 1));
+        long[] words = copy[chunk] == null ? new long[WORDS_PER_CHUNK] : copy[chunk].clone();
+        if (value) {
+            words[wordOf(bit)] |= 1L << bit;
+        } else {
+            words[wordOf(bit)] &= ~(1L << bit);
+        }
+        copy[chunk] = words;
+        return new ChunkedBitSet(copy, value ? cardinality + 1 : cardinality - 1);
+    }
+
+    private static int wordOf(int bit) {
+        return (bit >>> WORD_SHIFT) & (WORDS_PER_CHUNK - 1);
+    }
+}
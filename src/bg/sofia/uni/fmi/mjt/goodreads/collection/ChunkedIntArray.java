@@ -0,0 +1,143 @@
+package bg.sofia.uni.fmi.mjt.goodreads.collection;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An immutable array of ints which is split into chunks of {@value #CHUNK_SIZE} values. Setting
+ * values returns a new array which copies the array of chunks and the chunks of the changed values
+ * and shares all other chunks, so a version of the array is derived in time proportional to the
+ * number of chunks instead of the number of values. A chunk which was never set holds zeros and
+ * is not allocated.
+ */
+public final class ChunkedIntArray {
+
+    static final int CHUNK_SIZE = 64;
+
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+    private static final ChunkedIntArray EMPTY = new ChunkedIntArray(new int[0][], 0);
+
+    private final int[][] chunks;
+    private final int length;
+
+    private ChunkedIntArray(int[][] chunks, int length) {
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    public static ChunkedIntArray of(int[] values) {
+        int[][] chunks = new int[chunkCountFor(values.length)][];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            chunks[chunk] = Arrays.copyOfRange(values, chunk << CHUNK_SHIFT, (chunk + 1) << CHUNK_SHIFT);
+        }
+        return new ChunkedIntArray(chunks, values.length);
+    }
+
+    public static ChunkedIntArray empty() {
+        return EMPTY;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if index is negative or not less than the length
+     */
+    public int get(int index) {
+        Objects.checkIndex(index, length);
+        int[] chunk = chunks[index >>> CHUNK_SHIFT];
+        return chunk == null ? 0 : chunk[index & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * @return an array of the given length with the values of this one and zeros after them
+     * @throws IllegalArgumentException if length is less than the length of this array
+     */
+    public ChunkedIntArray withLength(int newLength) {
+        if (newLength < length) {
+            throw new IllegalArgumentException("An array cannot be shortened.");
+        }
+        if (newLength == length) {
+            return this;
+        }
+        return new ChunkedIntArray(Arrays.copyOf(chunks, chunkCountFor(newLength)), newLength);
+    }
+
+    /**
+     * @return an array in which the value at index is value
+     * @throws IndexOutOfBoundsException if index is negative or not less than the length
+     */
+    public ChunkedIntArray with(int index, int value) {
+        Editor editor = edit();
+        editor.set(index, value);
+        return editor.build();
+    }
+
+    /**
+     * @return an editor of a copy of this array, which leaves this array unchanged
+     */
+    public Editor edit() {
+        return new Editor(this);
+    }
+
+    public int[] toArray() {
+        int[] values = new int[length];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            if (chunks[chunk] != null) {
+                int start = chunk << CHUNK_SHIFT;
+                System.arraycopy(chunks[chunk], 0, values, start, Math.min(CHUNK_SIZE, length - start));
+            }
+        }
+        return values;
+    }
+
+    private static int chunkCountFor(int length) {
+        return (length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+    }
+
+    /**
+     * Sets several values of a new version of an array, copying every chunk at most once.
+     * An editor is not thread-safe and should not be used after {@link #build()}.
+     */
+    public static final class Editor {
+
+        private final int[][] shared;
+        private final int[][] chunks;
+        private final int length;
+
+        private Editor(ChunkedIntArray array) {
+            this.shared = array.chunks;
+            this.chunks = array.chunks.clone();
+            this.length = array.length;
+        }
+
+        /**
+         * @throws IndexOutOfBoundsException if index is negative or not less than the length
+         */
+        public int get(int index) {
+            Objects.checkIndex(index, length);
+            int[] chunk = chunks[index >>> CHUNK_SHIFT];
+            return chunk == null ? 0 : chunk[index & (CHUNK_SIZE - 1)];
+        }
+
+        /**
+         * @throws IndexOutOfBoundsException if index is negative or not less than the length
+         */
+        public void set(int index, int value) {
+            Objects.checkIndex(index, length);
+            int chunk = index >>> CHUNK_SHIFT;
+            if (chunks[chunk] == shared[chunk]) {
+                chunks[chunk] = shared[chunk] == null ? new int[CHUNK_SIZE] : shared[chunk].clone();
+            }
+            chunks[chunk][index & (CHUNK_SIZE - 1)] = value;
+        }
+
+        /**
+         * @return the edited array
+         */
+        public ChunkedIntArray build() {
+            return new ChunkedIntArray(chunks, length);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package bg.sofia.uni.fmi.mjt.goodreads.collection;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable hash map which is split into shards of a few dozen entries. Putting or removing a
+ * key returns a new map which copies the array of shards and the shard of the key and shares all
+ * other shards, so a version of the map is derived in time proportional to the number of shards
+ * instead of the number of entries. The shards are doubled once they grow too large.
+ *
+ * <p>A map created by {@link #identityOf(Map)} compares its keys by identity, like an
+ * {@link IdentityHashMap}, and one created by {@link #of(Map)} by {@code equals}.
+ */
+public final class ShardedMap<K, V> {
+
+    private static final int ENTRIES_PER_SHARD = 64;
+
+    private final Map<K, V>[] shards;
+    private final int size;
+    private final boolean identity;
+
+    private ShardedMap(Map<K, V>[] shards, int size, boolean identity) {
+        this.shards = shards;
+        this.size = size;
+        this.identity = identity;
+    }
+
+    public static <K, V> ShardedMap<K, V> of(Map<K, V> entries) {
+        return of(entries, false);
+    }
+
+    public static <K, V> ShardedMap<K, V> identityOf(Map<K, V> entries) {
+        return of(entries, true);
+    }
+
+    private static <K, V> ShardedMap<K, V> of(Map<K, V> entries, boolean identity) {
+        Map<K, V>[] shards = newShards(shardCountFor(entries.size()), identity);
+        entries.forEach((key, value) -> shards[shardOf(key, shards.length, identity)].put(key, value));
+        return new ShardedMap<>(shards, entries.size(), identity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(Object key) {
+        return shards[shardOf(key)].containsKey(key);
+    }
+
+    public V get(Object key) {
+        return shards[shardOf(key)].get(key);
+    }
+
+    public V getOrDefault(Object key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * @return a map in which the key is mapped to the value
+     */
+    public ShardedMap<K, V> with(K key, V value) {
+        int shard = shardOf(key);
+        Map<K, V> updated = copyOf(shards[shard], identity);
+        int newSize = updated.put(key, value) == null ? size + 1 : size;
+        if (newSize > 2 * ENTRIES_PER_SHARD * shards.length) {
+            Map<K, V> entries = identity ? new IdentityHashMap<>(newSize) : new HashMap<>(newSize);
+            forEach(entries::put);
+            entries.put(key, value);
+            return of(entries, identity);
+        }
+        return withShard(shard, updated, newSize);
+    }
+
+    /**
+     * @return a map without the key
+     */
+    public ShardedMap<K, V> without(K key) {
+        int shard = shardOf(key);
+        if (!shards[shard].containsKey(key)) {
+            return this;
+        }
+        Map<K, V> updated = copyOf(shards[shard], identity);
+        updated.remove(key);
+        return withShard(shard, updated, size - 1);
+    }
+
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Map<K, V> shard : shards) {
+            shard.forEach(action);
+        }
+    }
+
+    private ShardedMap<K, V> withShard(int shard, Map<K, V> updated, int newSize) {
+        Map<K, V>[] copy = shards.clone();
+        copy[shard] = updated;
+        return new ShardedMap<>(copy, newSize, identity);
+    }
+
+    private int shardOf(Object key) {
+        return shardOf(key, shards.length, identity);
+    }
+
+    private static int shardCountFor(int size) {
+        int shards = Integer.highestOneBit(Math.max(1, size / ENTRIES_PER_SHARD));
+        return shards < size / ENTRIES_PER_SHARD ? shards << 1 : shards;
+    }
+
+    private static int shardOf(Object key, int shardCount, boolean identity) {
+        int hash = key == null ? 0 : identity ? System.identityHashCode(key) : key.hashCode();
+        return (hash ^ (hash >>> 16)) & (shardCount - 1);
+    }
+
+    private static <K, V> Map<K, V> copyOf(Map<K, V> shard, boolean identity) {
+        return identity ? new IdentityHashMap<>(shard) : new HashMap<>(shard);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Map<K, V>[] newShards(int count, boolean identity) {
+        Map<K, V>[] shards = new Map[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = identity ? new IdentityHashMap<>() : new HashMap<>();
+        }
+        return shards;
+    }
+}
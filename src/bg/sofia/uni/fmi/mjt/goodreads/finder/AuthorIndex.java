@@ -0,0 +1,131 @@
+package bg.sofia.uni.fmi.mjt.goodreads.finder;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.collection.ShardedMap;
+import bg.sofia.uni.fmi.mjt.goodreads.snapshot.SnapshotFormat;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable hash index from normalized author names to the immutable list of their books.
+ * Adding or removing a book gives a new index which replaces only the list of its author and
+ * shares the rest of the map with this one.
+ */
+final class AuthorIndex {
+
+    private static final char ASCII_MAX = 0x7F;
+
+    private final ShardedMap<String, List<Book>> booksByAuthor;
+
+    private AuthorIndex(ShardedMap<String, List<Book>> booksByAuthor) {
+        this.booksByAuthor = booksByAuthor;
+    }
+
+    static AuthorIndex build(List<Book> books) {
+        Map<String, List<Book>> builders = new HashMap<>();
+        for (Book book : books) {
+            if (book.author() != null) {
+                builders.computeIfAbsent(normalize(book.author()), author -> new ArrayList<>()).add(book);
+            }
+        }
+
+        Map<String, List<Book>> booksByAuthor = new HashMap<>();
+        builders.forEach((author, authorBooks) -> booksByAuthor.put(author, List.copyOf(authorBooks)));
+
+        return new AuthorIndex(ShardedMap.of(booksByAuthor));
+    }
+
+    static AuthorIndex readFrom(ByteBuffer in, List<Book> books) {
+        int authors = in.getInt();
+        Map<String, List<Book>> booksByAuthor = new HashMap<>();
+        for (int i = 0; i < authors; i++) {
+            String author = SnapshotFormat.readString(in);
+            int[] ordinals = SnapshotFormat.readInts(in);
+
+            Book[] authorBooks = new Book[ordinals.length];
+            for (int j = 0; j < ordinals.length; j++) {
+                authorBooks[j] = books.get(ordinals[j]);
+            }
+            booksByAuthor.put(author, List.of(authorBooks));
+        }
+        return new AuthorIndex(ShardedMap.of(booksByAuthor));
+    }
+
+    void writeTo(DataOutput out, Map<Book, Integer> ordinals) throws IOException {
+        Map<String, List<Book>> entries = new HashMap<>();
+        booksByAuthor.forEach(entries::put);
+
+        out.writeInt(entries.size());
+        for (Map.Entry<String, List<Book>> entry : entries.entrySet()) {
+            SnapshotFormat.writeString(out, entry.getKey());
+            SnapshotFormat.writeInts(out, entry.getValue().stream().mapToInt(ordinals::get).toArray());
+        }
+    }
+
+    /**
+     * @return an index in which the book follows the other books of its author
+     */
+    AuthorIndex withBook(Book book) {
+        if (book.author() == null) {
+            return this;
+        }
+        String author = normalize(book.author());
+        List<Book> authorBooks = new ArrayList<>(booksByAuthor.getOrDefault(author, List.of()));
+        authorBooks.add(book);
+        return new AuthorIndex(booksByAuthor.with(author, List.copyOf(authorBooks)));
+    }
+
+    /**
+     * @return an index without the book
+     */
+    AuthorIndex withoutBook(Book book) {
+        if (book.author() == null) {
+            return this;
+        }
+        String author = normalize(book.author());
+        List<Book> authorBooks = new ArrayList<>(booksByAuthor.getOrDefault(author, List.of()));
+        if (!authorBooks.remove(book)) {
+            return this;
+        }
+        return new AuthorIndex(authorBooks.isEmpty()
+            ? booksByAuthor.without(author)
+            : booksByAuthor.with(author, List.copyOf(authorBooks)));
+    }
+
+    /**
+     * @return the books of the author in corpus order or an empty list if there are none
+     */
+    List<Book> booksBy(String authorName) {
+        return booksByAuthor.getOrDefault(normalize(authorName), List.of());
+    }
+
+    /**
+     * Brings an author name to its NFKC form and folds its case, so that names which differ
+     * only in case or in the Unicode representation of their characters are the same key.
+     * ASCII is already in NFKC form, so an ASCII name is only lower-cased and a name which is
+     * already a key is returned as it is, without allocating.
+     */
+    static String normalize(String authorName) {
+        if (!isAscii(authorName) && !Normalizer.isNormalized(authorName, Normalizer.Form.NFKC)) {
+            authorName = Normalizer.normalize(authorName, Normalizer.Form.NFKC);
+        }
+        return authorName.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ASCII_MAX) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
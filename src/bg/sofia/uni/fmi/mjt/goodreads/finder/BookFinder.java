@@ -1,18 +1,44 @@
 package bg.sofia.uni.fmi.mjt.goodreads.finder;
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.collection.ChunkedBitSet;
+import bg.sofia.uni.fmi.mjt.goodreads.collection.ShardedMap;
 import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import bg.sofia.uni.fmi.mjt.goodreads.vocabulary.CorpusVocabulary;
 
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+/**
+ * Finds books by author, genre and keywords through indexes over the ordinals of the books.
+ *
+ * <p>Books can be added, removed and updated after the finder is created. A new book gets the
+ * next ordinal and is appended to the indexes of its author, genres and terms, so an update costs
+ * time proportional to the book and not to the corpus. A removed book only leaves the author
+ * index, while its ordinal is marked as removed and filtered out of the results of the other
+ * indexes. Once more ordinals are removed than are in use, the ordinals are renumbered and the
+ * posting lists compacted, which does not tokenize the corpus again.
+ *
+ * <p>Every search reads a single immutable {@link Corpus version} of the corpus and its indexes,
+ * which an update never modifies. Updates are serialised with each other and each of them derives
+ * the next version from the current one, sharing everything the update does not touch, and then
+ * publishes it at once, so searches never lock and never see a partial update. Searches which
+ * started before the update keep reading the version they started with.
+ */
 public class BookFinder implements BookFinderAPI {
 
-    private final Set<Book> books;
     private final TextTokenizer tokenizer;
+    private final AtomicReference<Corpus> corpus;
 
     public BookFinder(Set<Book> books, TextTokenizer tokenizer) {
         if (books == null || books.isEmpty()) {
@@ -21,12 +47,49 @@ public class BookFinder implements BookFinderAPI {
         if (tokenizer == null) {
             throw new IllegalArgumentException("TextTokenizer must not be null.");
         }
-        this.books = books;
+        List<Book> booksByOrdinal = List.copyOf(books);
         this.tokenizer = tokenizer;
+        this.corpus = new AtomicReference<>(Corpus.of(booksByOrdinal, AuthorIndex.build(booksByOrdinal),
+            GenreIndex.build(booksByOrdinal), KeywordIndex.build(booksByOrdinal, tokenizer)));
     }
 
+    /**
+     * Creates a finder whose keyword index is built from the term ids of a vocabulary, so that
+     * the corpus is not tokenized again.
+     *
+     * @throws IllegalArgumentException if vocabulary is null or has no books
+     */
+    public BookFinder(CorpusVocabulary vocabulary) {
+        if (vocabulary == null || vocabulary.books().isEmpty()) {
+            throw new IllegalArgumentException("Vocabulary must not be null or empty.");
+        }
+        List<Book> booksByOrdinal = vocabulary.books();
+        this.tokenizer = vocabulary.tokenizer();
+        this.corpus = new AtomicReference<>(Corpus.of(booksByOrdinal, AuthorIndex.build(booksByOrdinal),
+            GenreIndex.build(booksByOrdinal), KeywordIndex.build(vocabulary)));
+    }
+
+    /**
+     * Creates a finder over books in a fixed order with indexes which are already built for that order.
+     */
+    BookFinder(List<Book> booksByOrdinal, TextTokenizer tokenizer,
+               AuthorIndex authorIndex, GenreIndex genreIndex, KeywordIndex keywordIndex) {
+        this.tokenizer = tokenizer;
+        this.corpus = new AtomicReference<>(Corpus.of(booksByOrdinal, authorIndex, genreIndex, keywordIndex));
+    }
+
+    /**
+     * @return the books of the current version of the corpus, which do not change with later updates
+     */
     public Set<Book> allBooks() {
-        return Collections.unmodifiableSet(books);
+        return corpus.get().books();
+    }
+
+    /**
+     * @return the version of the corpus, which is moved on by every update
+     */
+    public long corpusVersion() {
+        return corpus.get().version;
     }
 
     @Override
@@ -35,16 +98,12 @@ public class BookFinder implements BookFinderAPI {
             throw new IllegalArgumentException("Invalid author");
         }
 
-        return books.stream()
-            .filter(b -> b.author().equalsIgnoreCase(authorName)) //ignoreCase?
-            .toList();
+        return corpus.get().authorIndex.booksBy(authorName);
     }
 
     @Override
     public Set<String> allGenres() {
-        return books.stream()
-            .flatMap(book -> book.genres().stream())
-            .collect(Collectors.toSet());
+        return corpus.get().genreIndex.allGenres();
     }
 
     @Override
@@ -52,36 +111,20 @@ public class BookFinder implements BookFinderAPI {
         if (genres == null) {
             throw new IllegalArgumentException("Genres must not be null.");
         }
-
-        return books.stream()
-            .filter(book -> isMatchingGenres(book, genres, option))
-            .collect(Collectors.toList());
-    }
-
-    private boolean isMatchingGenres(Book book, Set<String> genres, MatchOption option) {
-        if (book.genres() == null || book.genres().isEmpty()) {
-            return false;
+        if (option == null) {
+            throw new IllegalArgumentException("MatchOption must not be null.");
         }
 
-        Set<String> bookGenres = book.genres().stream()
-            .map(String::toLowerCase)
-            .collect(Collectors.toSet());
-
         Set<String> lowercaseGenres = genres.stream()
             .map(String::toLowerCase)
             .collect(Collectors.toSet());
 
-        if (lowercaseGenres.isEmpty()) {
-            return false;
-        }
-
+        Corpus current = corpus.get();
         switch (option) {
             case MATCH_ALL:
-                return bookGenres.containsAll(genres);
+                return current.toBooks(current.genreIndex.matchAll(lowercaseGenres));
             case MATCH_ANY:
-                return lowercaseGenres.stream()
-                    .map(String::toLowerCase)
-                    .anyMatch(bookGenres::contains); //  !book.genres().isEmpty() ?
+                return current.toBooks(current.genreIndex.matchAny(lowercaseGenres));
             default:
                 throw new IllegalArgumentException("Invalid match option");
         }
@@ -100,26 +143,234 @@ public class BookFinder implements BookFinderAPI {
             .map(String::toLowerCase)
             .collect(Collectors.toSet());
 
-        return books.stream()
-            .filter(book -> matchesKeywords(book, lowerCaseKeywords, option))
-            .collect(Collectors.toList());
-    }
-
-    private boolean matchesKeywords(Book book, Set<String> keywords, MatchOption option) {
-        Set<String> descriptionTokens = new HashSet<>(tokenizer.tokenize(book.description()));
-        Set<String> titleTokens = new HashSet<>(tokenizer.tokenize(book.title()));
-
-        Set<String> combinedTokens = new HashSet<>(descriptionTokens);
-        combinedTokens.addAll(titleTokens);
-
-        //System.out.println("Combined tokens for book: " + combinedTokens); //for debug
+        Corpus current = corpus.get();
         switch (option) {
             case MATCH_ALL:
-                return keywords.stream().allMatch(combinedTokens::contains);
+                return current.toBooks(current.keywordIndex.matchAll(lowerCaseKeywords));
             case MATCH_ANY:
-                return keywords.stream().anyMatch(combinedTokens::contains);
+                return current.toBooks(current.keywordIndex.matchAny(lowerCaseKeywords));
             default:
                 throw new IllegalArgumentException("Invalid MatchOption.");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Adds a book to the corpus and to the indexes of its author, genres and terms.
+     *
+     * @return true if the book was added or false if it is already in the corpus
+     * @throws IllegalArgumentException if book is null
+     */
+    public synchronized boolean addBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book must not be null.");
+        }
+        Corpus current = corpus.get();
+        if (current.ordinals.get(book) != null) {
+            return false;
+        }
+
+        corpus.set(current.withBook(book, tokenizer, current.version + 1));
+        return true;
+    }
+
+    /**
+     * Removes a book from the corpus, so that no search finds it any more.
+     *
+     * @return true if the book was removed or false if it is not in the corpus
+     * @throws IllegalArgumentException if book is null
+     */
+    public synchronized boolean removeBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book must not be null.");
+        }
+        Corpus current = corpus.get();
+        if (current.ordinals.get(book) == null) {
+            return false;
+        }
+
+        corpus.set(current.withoutBook(book, current.version + 1));
+        return true;
+    }
+
+    /**
+     * Replaces a book of the corpus with a new version of it, such as one with an edited
+     * description, in a single update: no search finds both or neither of them. The new version
+     * is found after the books which were added before it.
+     *
+     * @return true if the old book was replaced or false if it is not in the corpus
+     * @throws IllegalArgumentException if oldBook or newBook is null
+     */
+    public synchronized boolean updateBook(Book oldBook, Book newBook) {
+        if (oldBook == null || newBook == null) {
+            throw new IllegalArgumentException("Books must not be null.");
+        }
+        Corpus current = corpus.get();
+        if (current.ordinals.get(oldBook) == null) {
+            return false;
+        }
+
+        Corpus updated = current.withoutBook(oldBook, current.version + 1);
+        if (updated.ordinals.get(newBook) == null) {
+            updated = updated.withBook(newBook, tokenizer, current.version + 1);
+        }
+        corpus.set(updated);
+        return true;
+    }
+
+    /**
+     * An immutable version of the corpus with its indexes.
+     *
+     * <p>The books are kept by ordinal in an array which versions share and only the latest
+     * version appends to, beyond the size of the versions before it. The removed ordinals are a
+     * {@link ChunkedBitSet}, of which a removal copies only the chunk of the ordinal. Compaction
+     * builds a version which shares nothing with the previous ones.
+     */
+    private static final class Corpus {
+
+        private final long version;
+        private final Book[] booksByOrdinal;
+        private final int size;
+        private final ChunkedBitSet removed;
+        private final ShardedMap<Book, Integer> ordinals;
+
+        private final AuthorIndex authorIndex;
+        private final GenreIndex genreIndex;
+        private final KeywordIndex keywordIndex;
+
+        private Corpus(long version, Book[] booksByOrdinal, int size, ChunkedBitSet removed,
+                       ShardedMap<Book, Integer> ordinals, AuthorIndex authorIndex, GenreIndex genreIndex,
+                       KeywordIndex keywordIndex) {
+            this.version = version;
+            this.booksByOrdinal = booksByOrdinal;
+            this.size = size;
+            this.removed = removed;
+            this.ordinals = ordinals;
+            this.authorIndex = authorIndex;
+            this.genreIndex = genreIndex;
+            this.keywordIndex = keywordIndex;
+        }
+
+        static Corpus of(List<Book> booksByOrdinal, AuthorIndex authorIndex, GenreIndex genreIndex,
+                         KeywordIndex keywordIndex) {
+            return of(0, booksByOrdinal, authorIndex, genreIndex, keywordIndex);
+        }
+
+        private static Corpus of(long version, List<Book> booksByOrdinal, AuthorIndex authorIndex,
+                                 GenreIndex genreIndex, KeywordIndex keywordIndex) {
+            Map<Book, Integer> ordinals = new HashMap<>();
+            for (int ordinal = 0; ordinal < booksByOrdinal.size(); ordinal++) {
+                ordinals.put(booksByOrdinal.get(ordinal), ordinal);
+            }
+            return new Corpus(version, booksByOrdinal.toArray(Book[]::new), booksByOrdinal.size(),
+                ChunkedBitSet.empty(), ShardedMap.of(ordinals), authorIndex, genreIndex, keywordIndex);
+        }
+
+        Set<Book> books() {
+            return new Books(this);
+        }
+
+        Corpus withBook(Book book, TextTokenizer tokenizer, long newVersion) {
+            int ordinal = size;
+            Book[] books = size == booksByOrdinal.length
+                ? Arrays.copyOf(booksByOrdinal, Math.max(1, 2 * size))
+                : booksByOrdinal;
+            books[ordinal] = book;
+
+            return new Corpus(newVersion, books, size + 1, removed, ordinals.with(book, ordinal),
+                authorIndex.withBook(book), genreIndex.withBook(ordinal, book, size + 1),
+                keywordIndex.withBook(ordinal, book, tokenizer));
+        }
+
+        Corpus withoutBook(Book book, long newVersion) {
+            ChunkedBitSet updatedRemoved = removed.with(ordinals.get(book));
+
+            Corpus updated = new Corpus(newVersion, booksByOrdinal, size, updatedRemoved, ordinals.without(book),
+                authorIndex.withoutBook(book), genreIndex.withoutBook(book), keywordIndex);
+            return updatedRemoved.cardinality() > updated.ordinals.size() ? updated.compacted() : updated;
+        }
+
+        /**
+         * Gives the books which are still in the corpus consecutive ordinals in their current order.
+         */
+        private Corpus compacted() {
+            int[] newOrdinals = new int[size];
+            List<Book> remaining = new ArrayList<>(ordinals.size());
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                if (removed.get(ordinal)) {
+                    newOrdinals[ordinal] = -1;
+                } else {
+                    newOrdinals[ordinal] = remaining.size();
+                    remaining.add(booksByOrdinal[ordinal]);
+                }
+            }
+
+            return of(version, remaining, authorIndex, GenreIndex.build(remaining),
+                keywordIndex.compacted(newOrdinals));
+        }
+
+        List<Book> toBooks(int[] ordinals) {
+            List<Book> result = new ArrayList<>(ordinals.length);
+            for (int ordinal : ordinals) {
+                if (!removed.get(ordinal)) {
+                    result.add(booksByOrdinal[ordinal]);
+                }
+            }
+            return result;
+        }
+
+        List<Book> toBooks(BitSet ordinals) {
+            for (int ordinal = removed.nextSetBit(0); ordinal >= 0; ordinal = removed.nextSetBit(ordinal + 1)) {
+                ordinals.clear(ordinal);
+            }
+            List<Book> result = new ArrayList<>(ordinals.cardinality());
+            for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+                result.add(booksByOrdinal[ordinal]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * An unmodifiable view of the books of a version of the corpus in ordinal order.
+     */
+    private static final class Books extends AbstractSet<Book> {
+
+        private final Corpus corpus;
+
+        private Books(Corpus corpus) {
+            this.corpus = corpus;
+        }
+
+        @Override
+        public boolean contains(Object book) {
+            return corpus.ordinals.get(book) != null;
+        }
+
+        @Override
+        public int size() {
+            return corpus.ordinals.size();
+        }
+
+        @Override
+        public Iterator<Book> iterator() {
+            return new Iterator<>() {
+                private int next = corpus.removed.nextClearBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next < corpus.size;
+                }
+
+                @Override
+                public Book next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Book book = corpus.booksByOrdinal[next];
+                    next = corpus.removed.nextClearBit(next + 1);
+                    return book;
+                }
+            };
+        }
+    }
+}
@@ -4,6 +4,9 @@ import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 public interface BookFinderAPI {
 
@@ -54,4 +57,43 @@ public interface BookFinderAPI {
      */
     List<Book> searchByKeywords(Set<String> keywords, MatchOption option);
 
-}
\ No newline at end of file
+    /**
+     * Runs {@link #searchByAuthor(String)} on the executor. A search which is cancelled before the executor
+     * starts it is not run. Searches and recommendations started one after another run at the same time if
+     * the executor has threads for them, so the queries of a page can be fanned out and joined with
+     * {@link CompletableFuture#allOf(CompletableFuture[])}.
+     *
+     * @return a future completed with the books, or exceptionally with the exception of the search
+     * @throws IllegalArgumentException if executor is null
+     */
+    default CompletableFuture<List<Book>> searchByAuthorAsync(String authorName, Executor executor) {
+        return supplyAsync(() -> searchByAuthor(authorName), executor);
+    }
+
+    /**
+     * Runs {@link #searchByGenres(Set, MatchOption)} on the executor, like {@link #searchByAuthorAsync}.
+     *
+     * @throws IllegalArgumentException if executor is null
+     */
+    default CompletableFuture<List<Book>> searchByGenresAsync(Set<String> genres, MatchOption option,
+                                                              Executor executor) {
+        return supplyAsync(() -> searchByGenres(genres, option), executor);
+    }
+
+    /**
+     * Runs {@link #searchByKeywords(Set, MatchOption)} on the executor, like {@link #searchByAuthorAsync}.
+     *
+     * @throws IllegalArgumentException if executor is null
+     */
+    default CompletableFuture<List<Book>> searchByKeywordsAsync(Set<String> keywords, MatchOption option,
+                                                                Executor executor) {
+        return supplyAsync(() -> searchByKeywords(keywords, option), executor);
+    }
+
+    private static <T> CompletableFuture<T> supplyAsync(Supplier<T> search, Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null.");
+        }
+        return CompletableFuture.supplyAsync(search, executor);
+    }
+}
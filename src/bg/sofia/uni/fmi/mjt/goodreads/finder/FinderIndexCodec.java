@@ -0,0 +1,57 @@
+package bg.sofia.uni.fmi.mjt.goodreads.finder;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import bg.sofia.uni.fmi.mjt.goodreads.vocabulary.CorpusVocabulary;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the author, genre and keyword indexes of a {@link BookFinder} to a snapshot and
+ * recreates the finder from them without tokenizing the corpus again.
+ * Books are referred to by their position in the list of books stored alongside the indexes.
+ */
+public final class FinderIndexCodec {
+
+    private FinderIndexCodec() {
+    }
+
+    /**
+     * Writes the indexes of the books of the vocabulary, in its ordinal order.
+     */
+    public static void write(DataOutput out, CorpusVocabulary vocabulary) throws IOException {
+        List<Book> books = vocabulary.books();
+        Map<Book, Integer> ordinals = new HashMap<>();
+        for (int ordinal = 0; ordinal < books.size(); ordinal++) {
+            ordinals.put(books.get(ordinal), ordinal);
+        }
+
+        AuthorIndex.build(books).writeTo(out, ordinals);
+        GenreIndex.build(books).writeTo(out);
+        KeywordIndex.build(vocabulary).writeTo(out);
+    }
+
+    /**
+     * Recreates the finder, which keeps reading its posting lists from the buffer, so the content
+     * of the buffer must not change.
+     */
+    public static BookFinder read(ByteBuffer in, List<Book> books, TextTokenizer tokenizer) {
+        if (books == null || books.isEmpty()) {
+            throw new IllegalArgumentException("Books list must not be null or empty.");
+        }
+        if (tokenizer == null) {
+            throw new IllegalArgumentException("TextTokenizer must not be null.");
+        }
+
+        AuthorIndex authorIndex = AuthorIndex.readFrom(in, books);
+        GenreIndex genreIndex = GenreIndex.readFrom(in, books);
+        KeywordIndex keywordIndex = KeywordIndex.readFrom(in);
+
+        return new BookFinder(List.copyOf(books), tokenizer, authorIndex, genreIndex, keywordIndex);
+    }
+}
@@ -0,0 +1,210 @@
+package bg.sofia.uni.fmi.mjt.goodreads.finder;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.collection.ShardedMap;
+import bg.sofia.uni.fmi.mjt.goodreads.snapshot.SnapshotFormat;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable dictionary of the genres in the corpus with the set of book ordinals of every genre.
+ * Genres are matched case-insensitively. The sets keep the ordinals of removed books, which
+ * the finder filters out, while a genre leaves {@link #allGenres()} with its last book.
+ * Adding or removing a book gives a new index whose maps of the genres are {@link ShardedMap
+ * sharded}, so it copies only the shards of the genres of the book and shares the sets of the
+ * genres the book does not have. The set of all genres is copied only when a genre is added to
+ * the corpus or leaves it.
+ */
+final class GenreIndex {
+
+    private final Set<String> allGenres;
+    private final ShardedMap<String, Integer> bookCounts;
+    private final ShardedMap<String, OrdinalSet> booksByGenre;
+
+    private GenreIndex(Set<String> allGenres, ShardedMap<String, Integer> bookCounts,
+                       ShardedMap<String, OrdinalSet> booksByGenre) {
+        this.allGenres = allGenres;
+        this.bookCounts = bookCounts;
+        this.booksByGenre = booksByGenre;
+    }
+
+    private GenreIndex(Set<String> allGenres, Map<String, OrdinalSet> booksByGenre, List<Book> books) {
+        this(Collections.unmodifiableSet(allGenres), ShardedMap.of(countGenres(books)), ShardedMap.of(booksByGenre));
+    }
+
+    static GenreIndex build(List<Book> books) {
+        Set<String> allGenres = new LinkedHashSet<>();
+        Map<String, OrdinalsBuilder> builders = new HashMap<>();
+
+        for (int ordinal = 0; ordinal < books.size(); ordinal++) {
+            List<String> genres = books.get(ordinal).genres();
+            if (genres == null) {
+                continue;
+            }
+            allGenres.addAll(genres);
+
+            for (String genre : lowercase(genres)) {
+                builders.computeIfAbsent(genre, g -> new OrdinalsBuilder()).add(ordinal);
+            }
+        }
+
+        Map<String, OrdinalSet> booksByGenre = new HashMap<>();
+        builders.forEach((genre, builder) -> booksByGenre.put(genre, OrdinalSet.of(builder.toArray(), books.size())));
+
+        return new GenreIndex(allGenres, booksByGenre, books);
+    }
+
+    static GenreIndex readFrom(ByteBuffer in, List<Book> books) {
+        int genreCount = in.getInt();
+        Set<String> allGenres = new LinkedHashSet<>();
+        for (int i = 0; i < genreCount; i++) {
+            allGenres.add(SnapshotFormat.readString(in));
+        }
+
+        int lowercaseGenreCount = in.getInt();
+        Map<String, OrdinalSet> booksByGenre = new HashMap<>();
+        for (int i = 0; i < lowercaseGenreCount; i++) {
+            String genre = SnapshotFormat.readString(in);
+            booksByGenre.put(genre, OrdinalSet.of(SnapshotFormat.readInts(in), books.size()));
+        }
+
+        return new GenreIndex(allGenres, booksByGenre, books);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(allGenres.size());
+        for (String genre : allGenres) {
+            SnapshotFormat.writeString(out, genre);
+        }
+
+        Map<String, OrdinalSet> genres = new LinkedHashMap<>();
+        booksByGenre.forEach(genres::put);
+        out.writeInt(genres.size());
+        for (Map.Entry<String, OrdinalSet> entry : genres.entrySet()) {
+            SnapshotFormat.writeString(out, entry.getKey());
+            SnapshotFormat.writeInts(out, entry.getValue().toArray());
+        }
+    }
+
+    Set<String> allGenres() {
+        return allGenres;
+    }
+
+    /**
+     * @param ordinal  an ordinal larger than the ordinals of all other books
+     * @param universe the number of books in the corpus, including the added one
+     * @return an index with the genres of the book
+     */
+    GenreIndex withBook(int ordinal, Book book, int universe) {
+        List<String> genres = book.genres();
+        if (genres == null) {
+            return this;
+        }
+
+        ShardedMap<String, OrdinalSet> updatedBooksByGenre = booksByGenre;
+        for (String genre : lowercase(genres)) {
+            OrdinalSet books = updatedBooksByGenre.getOrDefault(genre, OrdinalSet.of(new int[0], universe));
+            updatedBooksByGenre = updatedBooksByGenre.with(genre, books.with(ordinal, universe));
+        }
+        return withCounts(book, 1, updatedBooksByGenre);
+    }
+
+    /**
+     * @return an index without the genres which no other book has in {@link #allGenres()}
+     */
+    GenreIndex withoutBook(Book book) {
+        return book.genres() == null ? this : withCounts(book, -1, booksByGenre);
+    }
+
+    private GenreIndex withCounts(Book book, int delta, ShardedMap<String, OrdinalSet> updatedBooksByGenre) {
+        ShardedMap<String, Integer> updatedCounts = bookCounts;
+        boolean genresChanged = false;
+        for (String genre : new LinkedHashSet<>(book.genres())) {
+            int count = updatedCounts.getOrDefault(genre, 0) + delta;
+            genresChanged |= count <= 0 || count == delta;
+            updatedCounts = count > 0 ? updatedCounts.with(genre, count) : updatedCounts.without(genre);
+        }
+
+        Set<String> updatedGenres = allGenres;
+        if (genresChanged) {
+            ShardedMap<String, Integer> counts = updatedCounts;
+            Set<String> genres = new LinkedHashSet<>(allGenres);
+            genres.addAll(book.genres());
+            genres.removeIf(genre -> !counts.containsKey(genre));
+            updatedGenres = Collections.unmodifiableSet(genres);
+        }
+        return new GenreIndex(updatedGenres, updatedCounts, updatedBooksByGenre);
+    }
+
+    private static Map<String, Integer> countGenres(List<Book> books) {
+        Map<String, Integer> bookCounts = new HashMap<>();
+        for (Book book : books) {
+            if (book.genres() != null) {
+                for (String genre : new LinkedHashSet<>(book.genres())) {
+                    bookCounts.merge(genre, 1, Integer::sum);
+                }
+            }
+        }
+        return bookCounts;
+    }
+
+    private static Set<String> lowercase(List<String> genres) {
+        Set<String> lowercaseGenres = new HashSet<>();
+        for (String genre : genres) {
+            lowercaseGenres.add(genre.toLowerCase());
+        }
+        return lowercaseGenres;
+    }
+
+    /**
+     * @return the ordinals of the books having at least one of the lowercase genres
+     */
+    BitSet matchAny(Set<String> lowercaseGenres) {
+        BitSet result = new BitSet();
+        for (String genre : lowercaseGenres) {
+            OrdinalSet books = booksByGenre.get(genre);
+            if (books != null) {
+                books.or(result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the ordinals of the books having all of the lowercase genres
+     */
+    BitSet matchAll(Set<String> lowercaseGenres) {
+        OrdinalSet[] sets = new OrdinalSet[lowercaseGenres.size()];
+        int index = 0;
+        for (String genre : lowercaseGenres) {
+            sets[index] = booksByGenre.get(genre);
+            if (sets[index] == null) {
+                return new BitSet();
+            }
+            index++;
+        }
+        if (sets.length == 0) {
+            return new BitSet();
+        }
+        Arrays.sort(sets, Comparator.comparingInt(OrdinalSet::cardinality));
+
+        BitSet result = sets[0].toBitSet();
+        for (int i = 1; i < sets.length && !result.isEmpty(); i++) {
+            sets[i].and(result);
+        }
+        return result;
+    }
+}
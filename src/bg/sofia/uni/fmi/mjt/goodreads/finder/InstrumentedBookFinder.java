@@ -0,0 +1,85 @@
+package bg.sofia.uni.fmi.mjt.goodreads.finder;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.metrics.MetricsSink;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Records the calls, errors and latencies of every search of another finder into a {@link MetricsSink},
+ * under the operations {@code finder.searchByAuthor}, {@code finder.searchByGenres} and
+ * {@code finder.searchByKeywords}.
+ */
+public class InstrumentedBookFinder implements BookFinderAPI {
+
+    private final BookFinderAPI finder;
+    private final MetricsSink.Recorder searchByAuthor;
+    private final MetricsSink.Recorder searchByGenres;
+    private final MetricsSink.Recorder searchByKeywords;
+
+    /**
+     * @throws IllegalArgumentException if finder or sink is null
+     */
+    public InstrumentedBookFinder(BookFinderAPI finder, MetricsSink sink) {
+        if (finder == null) {
+            throw new IllegalArgumentException("BookFinderAPI must not be null.");
+        }
+        if (sink == null) {
+            throw new IllegalArgumentException("MetricsSink must not be null.");
+        }
+        this.finder = finder;
+        this.searchByAuthor = sink.recorder("finder.searchByAuthor");
+        this.searchByGenres = sink.recorder("finder.searchByGenres");
+        this.searchByKeywords = sink.recorder("finder.searchByKeywords");
+    }
+
+    @Override
+    public Set<Book> allBooks() {
+        return finder.allBooks();
+    }
+
+    @Override
+    public Set<String> allGenres() {
+        return finder.allGenres();
+    }
+
+    @Override
+    public List<Book> searchByAuthor(String authorName) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<Book> books = finder.searchByAuthor(authorName);
+            failed = false;
+            return books;
+        } finally {
+            searchByAuthor.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public List<Book> searchByGenres(Set<String> genres, MatchOption option) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<Book> books = finder.searchByGenres(genres, option);
+            failed = false;
+            return books;
+        } finally {
+            searchByGenres.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public List<Book> searchByKeywords(Set<String> keywords, MatchOption option) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<Book> books = finder.searchByKeywords(keywords, option);
+            failed = false;
+            return books;
+        } finally {
+            searchByKeywords.record(System.nanoTime() - start, failed);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package bg.sofia.uni.fmi.mjt.goodreads.finder;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.collection.ChunkedArray;
+import bg.sofia.uni.fmi.mjt.goodreads.collection.ChunkedIntArray;
+import bg.sofia.uni.fmi.mjt.goodreads.snapshot.SnapshotFormat;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TermDictionary;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TokenSink;
+import bg.sofia.uni.fmi.mjt.goodreads.vocabulary.CorpusVocabulary;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable inverted index from the term ids of the title and description of each book to the
+ * ascending ordinals of the books that contain them. A book added later gets the largest
+ * ordinal, so it is appended to the posting lists of its terms, which grow like an ArrayList.
+ *
+ * <p>Adding a book gives a new index whose list of posting lists and of their sizes are
+ * {@link ChunkedArray chunked}, so it copies only the chunks of the terms of the book, while the
+ * posting lists themselves are shared: the new index appends to their spare capacity, which the
+ * old index does not read. Only the latest index may therefore be added to.
+ * A book adds its new terms to a {@link TermDictionary#derive() derived} dictionary, as the
+ * dictionary may be shared as well.
+ *
+ * <p>An index read from a snapshot keeps only the offsets of the posting lists in the mapped
+ * snapshot, and queries read the posting lists in place. A posting list is copied to the heap
+ * only when a book is appended to it. The dictionary is decoded, as tokens are looked up by
+ * their text.
+ */
+final class KeywordIndex {
+
+    private static final int[] NO_BOOKS = new int[0];
+    private static final int MIN_CAPACITY = 4;
+
+    private final TermDictionary terms;
+    private final ChunkedArray<int[]> postings;
+    private final ChunkedIntArray sizes;
+    private final ByteBuffer snapshot;
+    private final int[] snapshotOffsets;
+
+    private KeywordIndex(TermDictionary terms, int[][] postings) {
+        this(terms, ChunkedArray.of(postings), ChunkedIntArray.of(sizesOf(postings)), null, NO_BOOKS);
+    }
+
+    /**
+     * @param snapshot        the snapshot section of the posting lists which are not in postings, or null
+     * @param snapshotOffsets the offsets of the posting lists of the first terms in the snapshot
+     */
+    private KeywordIndex(TermDictionary terms, ChunkedArray<int[]> postings, ChunkedIntArray sizes,
+                         ByteBuffer snapshot, int[] snapshotOffsets) {
+        this.terms = terms;
+        this.postings = postings;
+        this.sizes = sizes;
+        this.snapshot = snapshot;
+        this.snapshotOffsets = snapshotOffsets;
+    }
+
+    static KeywordIndex build(List<Book> books, TextTokenizer tokenizer) {
+        return build(CorpusVocabulary.build(books, tokenizer));
+    }
+
+    static KeywordIndex build(CorpusVocabulary vocabulary) {
+        TermDictionary terms = vocabulary.terms();
+        OrdinalsBuilder[] builders = new OrdinalsBuilder[terms.size()];
+        BitSet bookTerms = new BitSet(terms.size());
+
+        for (int ordinal = 0; ordinal < vocabulary.books().size(); ordinal++) {
+            bookTerms.clear();
+            for (int termId : vocabulary.descriptionTermIds(ordinal)) {
+                bookTerms.set(termId);
+            }
+            for (int termId : vocabulary.titleTermIds(ordinal)) {
+                bookTerms.set(termId);
+            }
+
+            for (int termId = bookTerms.nextSetBit(0); termId >= 0; termId = bookTerms.nextSetBit(termId + 1)) {
+                if (builders[termId] == null) {
+                    builders[termId] = new OrdinalsBuilder();
+                }
+                builders[termId].add(ordinal);
+            }
+        }
+
+        int[][] postings = new int[terms.size()][];
+        for (int termId = 0; termId < postings.length; termId++) {
+            postings[termId] = builders[termId] == null ? NO_BOOKS : builders[termId].toArray();
+        }
+        return new KeywordIndex(terms, postings);
+    }
+
+    /**
+     * Reads the dictionary and the offsets of the posting lists. The index keeps reading the
+     * posting lists from the buffer, so its content must not change.
+     */
+    static KeywordIndex readFrom(ByteBuffer in) {
+        int termCount = in.getInt();
+        TermDictionary terms = new TermDictionary();
+        int[] offsets = new int[termCount];
+        int[] sizes = new int[termCount];
+        for (int termId = 0; termId < termCount; termId++) {
+            terms.add(SnapshotFormat.readString(in));
+            offsets[termId] = in.position();
+            sizes[termId] = in.getInt(offsets[termId]);
+            SnapshotFormat.skipInts(in);
+        }
+        terms.freeze();
+        return new KeywordIndex(terms, ChunkedArray.<int[]>empty().withLength(termCount), ChunkedIntArray.of(sizes),
+            in, offsets);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(terms.size());
+        for (int termId = 0; termId < terms.size(); termId++) {
+            SnapshotFormat.writeString(out, terms.term(termId));
+            SnapshotFormat.writeInts(out, postings(termId));
+        }
+    }
+
+    /**
+     * @param ordinal an ordinal larger than the ordinals of all other books
+     * @return an index in which the book is appended to the posting lists of the terms of its
+     * title and description
+     */
+    KeywordIndex withBook(int ordinal, Book book, TextTokenizer tokenizer) {
+        BookTerms bookTerms = new BookTerms(terms);
+        String description = book.description();
+        if (description != null && !description.isBlank()) {
+            tokenizer.tokenize(description, bookTerms);
+        }
+        tokenizer.tokenize(book.title(), bookTerms);
+        TermDictionary updatedTerms = bookTerms.terms;
+
+        ChunkedArray.Editor<int[]> updatedPostings = postings.withLength(updatedTerms.size()).edit();
+        ChunkedIntArray.Editor updatedSizes = sizes.withLength(updatedTerms.size()).edit();
+
+        BitSet termIds = bookTerms.ids;
+        for (int termId = termIds.nextSetBit(0); termId >= 0; termId = termIds.nextSetBit(termId + 1)) {
+            int size = updatedSizes.get(termId);
+            int[] list = updatedPostings.get(termId);
+            if (list == null || size == list.length) {
+                list = new int[Math.max(MIN_CAPACITY, 2 * size)];
+                postingList(termId).get(0, list, 0, size);
+                updatedPostings.set(termId, list);
+            }
+            list[size] = ordinal;
+            updatedSizes.set(termId, size + 1);
+        }
+        return new KeywordIndex(updatedTerms, updatedPostings.build(), updatedSizes.build(), snapshot,
+            snapshotOffsets);
+    }
+
+    /**
+     * Drops the ordinals of removed books from the posting lists and renumbers the others.
+     *
+     * @param newOrdinals the new ordinal of every book, ascending, or -1 for a removed book
+     * @return an index which shares no posting lists with this one
+     */
+    KeywordIndex compacted(int[] newOrdinals) {
+        int[][] compacted = new int[postings.length()][];
+        for (int termId = 0; termId < compacted.length; termId++) {
+            IntBuffer postingList = postingList(termId);
+            int[] list = new int[postingList.limit()];
+            int size = 0;
+            for (int i = 0; i < list.length; i++) {
+                int ordinal = newOrdinals[postingList.get(i)];
+                if (ordinal >= 0) {
+                    list[size++] = ordinal;
+                }
+            }
+            compacted[termId] = size == 0 ? NO_BOOKS : Arrays.copyOf(list, size);
+        }
+        return new KeywordIndex(terms, compacted);
+    }
+
+    TermDictionary terms() {
+        return terms;
+    }
+
+    int[] postings(String token) {
+        int termId = terms.idOf(token);
+        return termId == TermDictionary.NOT_FOUND ? NO_BOOKS : postings(termId);
+    }
+
+    private int[] postings(int termId) {
+        int[] list = postings.get(termId);
+        int size = sizes.get(termId);
+        if (list == null) {
+            list = new int[size];
+            postingList(termId).get(0, list);
+            return list;
+        }
+        return size == list.length ? list : Arrays.copyOf(list, size);
+    }
+
+    /**
+     * @return a view of the posting list of the term without its spare capacity, whose limit is its size
+     */
+    private IntBuffer postingList(int termId) {
+        if (termId >= postings.length()) {
+            return IntBuffer.wrap(NO_BOOKS);
+        }
+        int[] list = postings.get(termId);
+        int size = sizes.get(termId);
+        if (list != null) {
+            return IntBuffer.wrap(list, 0, size);
+        }
+        if (termId < snapshotOffsets.length) {
+            return snapshot.slice(snapshotOffsets[termId] + Integer.BYTES, size * Integer.BYTES).asIntBuffer();
+        }
+        return IntBuffer.wrap(NO_BOOKS);
+    }
+
+    private static int[] sizesOf(int[][] postings) {
+        int[] sizes = new int[postings.length];
+        for (int termId = 0; termId < postings.length; termId++) {
+            sizes[termId] = postings[termId].length;
+        }
+        return sizes;
+    }
+
+    /**
+     * @return the ordinals of the books containing at least one of the tokens
+     */
+    BitSet matchAny(Set<String> tokens) {
+        BitSet result = new BitSet();
+        for (String token : tokens) {
+            int termId = terms.idOf(token);
+            if (termId == TermDictionary.NOT_FOUND) {
+                continue;
+            }
+            IntBuffer list = postingList(termId);
+            for (int i = 0; i < list.limit(); i++) {
+                result.set(list.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Intersects the posting lists of the tokens starting from the rarest one and stops
+     * as soon as the intersection becomes empty.
+     *
+     * @return the ascending ordinals of the books containing all of the tokens
+     */
+    int[] matchAll(Set<String> tokens) {
+        Integer[] termIds = new Integer[tokens.size()];
+        int index = 0;
+        for (String token : tokens) {
+            int termId = terms.idOf(token);
+            if (termId == TermDictionary.NOT_FOUND || sizes.get(termId) == 0) {
+                return NO_BOOKS;
+            }
+            termIds[index++] = termId;
+        }
+        Arrays.sort(termIds, Comparator.comparingInt(sizes::get));
+
+        int[] result = postings(termIds[0]);
+        for (int i = 1; i < termIds.length && result.length > 0; i++) {
+            result = intersect(result, postingList(termIds[i]));
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] smaller, IntBuffer larger) {
+        int[] result = new int[smaller.length];
+        int size = 0;
+        int from = 0;
+
+        for (int ordinal : smaller) {
+            int position = binarySearch(larger, from, ordinal);
+            if (position >= 0) {
+                result[size++] = ordinal;
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+            if (from == larger.limit()) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Searches the ascending ordinals from the given index to the limit like Arrays.binarySearch.
+     */
+    private static int binarySearch(IntBuffer ordinals, int from, int ordinal) {
+        int low = from;
+        int high = ordinals.limit() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = ordinals.get(middle);
+            if (value < ordinal) {
+                low = middle + 1;
+            } else if (value > ordinal) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Collects the term ids of the tokens of a book. The dictionary is derived on the first token
+     * which is not a term yet, so a book with known terms only leaves it as it is.
+     */
+    private static final class BookTerms implements TokenSink {
+
+        private final BitSet ids = new BitSet();
+        private final TermDictionary shared;
+        private TermDictionary terms;
+
+        private BookTerms(TermDictionary shared) {
+            this.shared = shared;
+            this.terms = shared;
+        }
+
+        @Override
+        public void accept(CharSequence token) {
+            int termId = terms.idOf(token);
+            if (termId == TermDictionary.NOT_FOUND) {
+                if (terms == shared) {
+                    terms = shared.derive();
+                }
+                termId = terms.add(token);
+            }
+            ids.set(termId);
+        }
+    }
+}
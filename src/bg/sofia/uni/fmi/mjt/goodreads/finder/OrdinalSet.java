@@ -0,0 +1,139 @@
+package bg.sofia.uni.fmi.mjt.goodreads.finder;
+
+import bg.sofia.uni.fmi.mjt.goodreads.collection.ChunkedBitSet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * An immutable set of book ordinals which is stored as a sorted array when it is sparse and as
+ * a bitmap when a bitmap over the whole corpus would take less memory. Books added to a corpus
+ * get ordinals larger than all existing ones, so ordinals are only ever appended to a set.
+ *
+ * <p>Appending gives a new set. An array has spare capacity at its end, which the new set fills
+ * and shares with the old one, which only reads the ordinals before its own cardinality.
+ * Only the latest set of an array may therefore be appended to. A bitmap is a
+ * {@link ChunkedBitSet}, so the new set copies only the chunk of the ordinal.
+ */
+final class OrdinalSet {
+
+    private static final int BITS_PER_ORDINAL = Integer.SIZE;
+    private static final int MIN_CAPACITY = 4;
+
+    private final int[] ordinals;
+    private final ChunkedBitSet bitmap;
+    private final int cardinality;
+
+    private OrdinalSet(int[] ordinals, ChunkedBitSet bitmap, int cardinality) {
+        this.ordinals = ordinals;
+        this.bitmap = bitmap;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * @param ordinals the ascending ordinals in the set
+     * @param universe the number of books in the corpus
+     */
+    static OrdinalSet of(int[] ordinals, int universe) {
+        if (!isDense(ordinals.length, universe)) {
+            return new OrdinalSet(ordinals, null, ordinals.length);
+        }
+        return new OrdinalSet(null, toBitmap(ordinals, ordinals.length, universe), ordinals.length);
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean contains(int ordinal) {
+        return bitmap != null ? bitmap.get(ordinal) : Arrays.binarySearch(ordinals, 0, cardinality, ordinal) >= 0;
+    }
+
+    /**
+     * Appends an ordinal which is larger than every ordinal in the set. The set turns into a
+     * bitmap once a bitmap over the corpus would take less memory than the array.
+     *
+     * @param universe the number of books in the corpus, including the added one
+     * @return the set with the ordinal
+     */
+    OrdinalSet with(int ordinal, int universe) {
+        if (bitmap != null) {
+            return new OrdinalSet(null, bitmap.with(ordinal), cardinality + 1);
+        }
+
+        int[] appended = cardinality == ordinals.length
+            ? Arrays.copyOf(ordinals, Math.max(MIN_CAPACITY, 2 * cardinality))
+            : ordinals;
+        appended[cardinality] = ordinal;
+
+        if (isDense(cardinality + 1, universe)) {
+            return new OrdinalSet(null, toBitmap(appended, cardinality + 1, universe), cardinality + 1);
+        }
+        return new OrdinalSet(appended, null, cardinality + 1);
+    }
+
+    /**
+     * @return the ordinals of the set in ascending order
+     */
+    int[] toArray() {
+        if (bitmap == null) {
+            return Arrays.copyOf(ordinals, cardinality);
+        }
+        int[] result = new int[cardinality];
+        int ordinal = -1;
+        for (int i = 0; i < cardinality; i++) {
+            ordinal = bitmap.nextSetBit(ordinal + 1);
+            result[i] = ordinal;
+        }
+        return result;
+    }
+
+    BitSet toBitSet() {
+        if (bitmap != null) {
+            return bitmap.toBitSet();
+        }
+        BitSet result = new BitSet();
+        or(result);
+        return result;
+    }
+
+    /**
+     * Adds all ordinals of this set to {@code target}.
+     */
+    void or(BitSet target) {
+        if (bitmap != null) {
+            target.or(bitmap.toBitSet());
+            return;
+        }
+        for (int i = 0; i < cardinality; i++) {
+            target.set(ordinals[i]);
+        }
+    }
+
+    /**
+     * Removes from {@code target} all ordinals which are not in this set.
+     */
+    void and(BitSet target) {
+        if (bitmap != null) {
+            target.and(bitmap.toBitSet());
+            return;
+        }
+        for (int ordinal = target.nextSetBit(0); ordinal >= 0; ordinal = target.nextSetBit(ordinal + 1)) {
+            if (Arrays.binarySearch(ordinals, 0, cardinality, ordinal) < 0) {
+                target.clear(ordinal);
+            }
+        }
+    }
+
+    private static boolean isDense(int cardinality, int universe) {
+        return (long) cardinality * BITS_PER_ORDINAL > universe;
+    }
+
+    private static ChunkedBitSet toBitmap(int[] ordinals, int count, int universe) {
+        BitSet bitmap = new BitSet(universe);
+        for (int i = 0; i < count; i++) {
+            bitmap.set(ordinals[i]);
+        }
+        return ChunkedBitSet.of(bitmap);
+    }
+}
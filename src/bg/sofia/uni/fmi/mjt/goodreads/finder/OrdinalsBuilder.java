@@ -0,0 +1,23 @@
+package bg.sofia.uni.fmi.mjt.goodreads.finder;
+
+import java.util.Arrays;
+
+/**
+ * Collects book ordinals, which are expected to be added in ascending order, into an array.
+ */
+final class OrdinalsBuilder {
+
+    private int[] ordinals = new int[4];
+    private int size;
+
+    void add(int ordinal) {
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+        }
+        ordinals[size++] = ordinal;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(ordinals, size);
+    }
+}
@@ -0,0 +1,105 @@
+package bg.sofia.uni.fmi.mjt.goodreads.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds with log-linear buckets: every power of two is
+ * split into {@value #SUB_BUCKETS} buckets, so a recorded value is off by at most 12.5% and
+ * recording is a single atomic increment, whatever the range of the values.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records a latency. Negative latencies, which a clock adjustment could produce, count as 0.
+     */
+    public void record(long latencyNanos) {
+        counts.incrementAndGet(bucketOf(Math.max(0, latencyNanos)));
+    }
+
+    /**
+     * @return the number of recorded latencies
+     */
+    public long count() {
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            count += counts.get(bucket);
+        }
+        return count;
+    }
+
+    /**
+     * @param quantile the quantile, between 0 and 1, e.g. 0.99 for the 99th percentile
+     * @return the largest latency of the bucket the quantile falls in or 0 if nothing was recorded
+     * @throws IllegalArgumentException if quantile is not between 0 and 1
+     */
+    public long valueAt(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1.");
+        }
+
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            snapshot[bucket] = counts.get(bucket);
+            total += snapshot[bucket];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += snapshot[bucket];
+            if (seen >= rank) {
+                return highestValueOf(bucket);
+            }
+        }
+        return highestValueOf(BUCKETS - 1);
+    }
+
+    /**
+     * @return the mean of the recorded latencies, taking the middle of each bucket, or 0 if nothing was recorded
+     */
+    public double mean() {
+        long total = 0;
+        double sum = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long count = counts.get(bucket);
+            total += count;
+            sum += count * ((lowestValueOf(bucket) + (double) highestValueOf(bucket)) / 2);
+        }
+        return total == 0 ? 0 : sum / total;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return lowestValueOf(bucket) + (1L << shift) - 1;
+    }
+}
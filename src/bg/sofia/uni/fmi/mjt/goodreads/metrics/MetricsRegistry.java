@@ -0,0 +1,120 @@
+package bg.sofia.uni.fmi.mjt.goodreads.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the {@link OperationMetrics} of every operation recorded into it and publishes them as
+ * MBeans, one per operation, named {@code <domain>:type=Operation,name=<operation>}.
+ * Operations which are first recorded after the registry was published are published as they appear.
+ */
+public class MetricsRegistry implements MetricsSink {
+
+    public static final String DEFAULT_DOMAIN = "bg.sofia.uni.fmi.mjt.goodreads";
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private MBeanServer server;
+    private String domain;
+
+    @Override
+    public OperationMetrics recorder(String operation) {
+        if (operation == null || operation.isBlank()) {
+            throw new IllegalArgumentException("Operation must not be null or blank.");
+        }
+
+        OperationMetrics metrics = operations.get(operation);
+        if (metrics != null) {
+            return metrics;
+        }
+
+        synchronized (this) {
+            metrics = operations.get(operation);
+            if (metrics == null) {
+                metrics = new OperationMetrics(operation);
+                operations.put(operation, metrics);
+                if (server != null) {
+                    register(metrics);
+                }
+            }
+            return metrics;
+        }
+    }
+
+    /**
+     * @return the metrics of every recorded operation, ordered by operation name
+     */
+    public SortedMap<String, OperationMetrics> operations() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(operations));
+    }
+
+    /**
+     * Publishes the metrics to the platform MBean server under {@link #DEFAULT_DOMAIN}.
+     */
+    public void publish() {
+        publish(ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN);
+    }
+
+    /**
+     * Publishes the metrics of every operation to the MBean server.
+     *
+     * @throws IllegalArgumentException if server or domain is null
+     * @throws IllegalStateException    if the registry is already published or an MBean could not be registered
+     */
+    public synchronized void publish(MBeanServer server, String domain) {
+        if (server == null || domain == null) {
+            throw new IllegalArgumentException("MBean server and domain must not be null.");
+        }
+        if (this.server != null) {
+            throw new IllegalStateException("Metrics are already published.");
+        }
+
+        this.server = server;
+        this.domain = domain;
+        for (OperationMetrics metrics : operations.values()) {
+            register(metrics);
+        }
+    }
+
+    /**
+     * Removes the MBeans of the registry from the server it was published to, if any.
+     */
+    public synchronized void unpublish() {
+        if (server == null) {
+            return;
+        }
+
+        try {
+            for (OperationMetrics metrics : operations.values()) {
+                ObjectName name = objectName(metrics);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            }
+        } catch (JMException ex) {
+            throw new IllegalStateException("Could not unpublish metrics", ex);
+        } finally {
+            server = null;
+            domain = null;
+        }
+    }
+
+    private void register(OperationMetrics metrics) {
+        try {
+            server.registerMBean(metrics, objectName(metrics));
+        } catch (JMException ex) {
+            throw new IllegalStateException("Could not publish metrics of " + metrics.operation(), ex);
+        }
+    }
+
+    private ObjectName objectName(OperationMetrics metrics) throws JMException {
+        return new ObjectName(domain + ":type=Operation,name=" + ObjectName.quote(metrics.operation()));
+    }
+}
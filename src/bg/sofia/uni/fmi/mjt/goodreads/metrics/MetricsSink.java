@@ -0,0 +1,36 @@
+package bg.sofia.uni.fmi.mjt.goodreads.metrics;
+
+/**
+ * Receives the calls of the instrumented operations of the library. An instrumented component
+ * asks for the recorder of each of its operations once, when it is created, so that recording
+ * a call does not look the operation up by name.
+ *
+ * <p>Recorders are called from every thread which uses the instrumented component, so they must
+ * be safe for concurrent use, and they are called on the hot path, so they should be cheap.
+ */
+public interface MetricsSink {
+
+    /**
+     * @return the recorder of the calls of the operation with this name
+     */
+    Recorder recorder(String operation);
+
+    interface Recorder {
+
+        /**
+         * Records a call whose latency was measured.
+         *
+         * @param latencyNanos the duration of the call in nanoseconds
+         * @param failed       whether the call threw an exception
+         */
+        void record(long latencyNanos, boolean failed);
+
+        /**
+         * Records a call whose latency was not measured, because only a sample of the calls of
+         * a very cheap operation is timed.
+         *
+         * @param failed whether the call threw an exception
+         */
+        void recordUntimed(boolean failed);
+    }
+}
@@ -0,0 +1,77 @@
+package bg.sofia.uni.fmi.mjt.goodreads.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The call count, error count and latency histogram of a single operation.
+ */
+public final class OperationMetrics implements MetricsSink.Recorder, OperationMetricsMBean {
+
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    private final String operation;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    OperationMetrics(String operation) {
+        this.operation = operation;
+    }
+
+    public String operation() {
+        return operation;
+    }
+
+    @Override
+    public void record(long latencyNanos, boolean failed) {
+        recordUntimed(failed);
+        latencies.record(latencyNanos);
+    }
+
+    @Override
+    public void recordUntimed(boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public LatencyHistogram latencies() {
+        return latencies;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getTimedCalls() {
+        return latencies.count();
+    }
+
+    @Override
+    public double getMeanLatencyMicros() {
+        return latencies.mean() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP50LatencyMicros() {
+        return latencies.valueAt(0.5) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP99LatencyMicros() {
+        return latencies.valueAt(0.99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP999LatencyMicros() {
+        return latencies.valueAt(0.999) / NANOS_PER_MICRO;
+    }
+}
@@ -0,0 +1,25 @@
+package bg.sofia.uni.fmi.mjt.goodreads.metrics;
+
+/**
+ * The attributes under which the metrics of an operation are published over JMX.
+ * Latencies are in microseconds.
+ */
+public interface OperationMetricsMBean {
+
+    long getCalls();
+
+    long getErrors();
+
+    /**
+     * @return the number of calls whose latency was measured
+     */
+    long getTimedCalls();
+
+    double getMeanLatencyMicros();
+
+    double getP50LatencyMicros();
+
+    double getP99LatencyMicros();
+
+    double getP999LatencyMicros();
+}
@@ -0,0 +1,71 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates.CandidateGenerator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Recommends books by scoring only the candidates of a {@link CandidateGenerator} instead of the
+ * whole corpus. Candidates are scored exactly and ranked like in {@link BookRecommender}, so the
+ * recommendations only differ from the exact ones when a similar book is not a candidate.
+ */
+public class ApproximateBookRecommender implements BookRecommenderAPI {
+
+    private final Book[] books;
+    private final Map<Book, Integer> ordinals;
+    private final SimilarityCalculator calculator;
+    private final CandidateGenerator candidateGenerator;
+
+    public ApproximateBookRecommender(Set<Book> initialBooks, SimilarityCalculator calculator,
+                                      CandidateGenerator candidateGenerator) {
+        if (initialBooks == null || initialBooks.isEmpty()) {
+            throw new IllegalArgumentException("Books set must not be null or empty.");
+        }
+        if (calculator == null) {
+            throw new IllegalArgumentException("SimilarityCalculator must not be null.");
+        }
+        if (candidateGenerator == null) {
+            throw new IllegalArgumentException("CandidateGenerator must not be null.");
+        }
+        this.books = BookRecommender.sortedById(initialBooks);
+        this.calculator = calculator;
+        this.candidateGenerator = candidateGenerator;
+
+        this.ordinals = new HashMap<>();
+        for (int ordinal = 0; ordinal < books.length; ordinal++) {
+            ordinals.put(books[ordinal], ordinal);
+        }
+    }
+
+    @Override
+    public SortedMap<Book, Double> recommendBooks(Book origin, int maxN) {
+        if (origin == null) {
+            throw new IllegalArgumentException("Origin book must not be null.");
+        }
+        if (maxN <= 0) {
+            throw new IllegalArgumentException("maxN must be greater than 0.");
+        }
+
+        TopK topK = new TopK(Math.min(maxN, books.length));
+        for (Book candidate : candidateGenerator.candidates(origin)) {
+            Integer ordinal = ordinals.get(candidate);
+            if (ordinal != null && !candidate.equals(origin)) {
+                topK.offer(ordinal, origin, candidate, calculator);
+            }
+        }
+        return topK.toSortedMap(books);
+    }
+
+    /**
+     * @return 0, because the books of this recommender never change
+     */
+    @Override
+    public long corpusVersion() {
+        return 0;
+    }
+}
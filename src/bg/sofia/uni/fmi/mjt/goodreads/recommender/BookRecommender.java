@@ -2,62 +2,520 @@ package bg.sofia.uni.fmi.mjt.goodreads.recommender;
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
 import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.UpdatableSimilarityCalculator;
 
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
+/**
+ * Recommends books by scoring every book of the corpus against the origin book.
+ *
+ * <p>Books can be added, removed and updated after the recommender is created. The corpus is kept
+ * sorted by ID, so a change copies the array of the books with the changed book in its place, and
+ * an {@link UpdatableSimilarityCalculator} is passed the change as well. Every change discards the
+ * neighbour graph, which was built for the previous corpus, and moves the corpus version on.
+ *
+ * <p>Every recommendation reads a single immutable {@link Corpus version} of the books, a
+ * {@link UpdatableSimilarityCalculator#snapshot() snapshot} of the calculator and the neighbour
+ * graph, which are published together. Updates are serialised with each other, while
+ * recommendations never lock and score all books against the version they started with.
+ *
+ * <p>A recommendation which is passed a cancellation checks it every {@value #BOOKS_PER_CANCELLATION_CHECK}
+ * books, in each of its tasks, and stops scoring once it is raised, so that a cancelled
+ * {@link #recommendBooksAsync asynchronous recommendation} frees its threads within a few thousand scores.
+ */
 public class BookRecommender implements BookRecommenderAPI {
 
-    private final Set<Book> initialBooks;
+    private static final Comparator<Book> BY_ID =
+        Comparator.comparing(Book::ID, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private static final int MIN_BOOKS_PER_TASK = 512;
+    private static final int TASKS_PER_WORKER = 4;
+
+    private static final int ORIGINS_PER_TILE = 32;
+    private static final int CANDIDATES_PER_TILE = 2048;
+
+    private static final int BOOKS_PER_CANCELLATION_CHECK = 1024;
+    private static final BooleanSupplier NOT_CANCELLED = () -> false;
+
     private final SimilarityCalculator calculator;
+    private final ForkJoinPool pool;
+    private final AtomicReference<Corpus> corpus;
 
     public BookRecommender(Set<Book> initialBooks, SimilarityCalculator calculator) {
+        validate(initialBooks, calculator);
+        this.calculator = calculator;
+        this.pool = null;
+        this.corpus = new AtomicReference<>(new Corpus(0, sortedById(initialBooks), snapshotOf(calculator), null));
+    }
+
+    /**
+     * Creates a recommender which splits the scoring of the corpus into tasks run on {@code pool}.
+     * The calculator is called from several threads at once, so it must be safe for concurrent use.
+     *
+     * @throws IllegalArgumentException if pool is null
+     */
+    public BookRecommender(Set<Book> initialBooks, SimilarityCalculator calculator, ForkJoinPool pool) {
+        validate(initialBooks, calculator);
+        if (pool == null) {
+            throw new IllegalArgumentException("ForkJoinPool must not be null.");
+        }
+        this.calculator = calculator;
+        this.pool = pool;
+        this.corpus = new AtomicReference<>(new Corpus(0, sortedById(initialBooks), snapshotOf(calculator), null));
+    }
+
+    private static void validate(Set<Book> initialBooks, SimilarityCalculator calculator) {
         if (initialBooks == null || initialBooks.isEmpty()) {
             throw new IllegalArgumentException("Books set must not be null or empty.");
         }
         if (calculator == null) {
             throw new IllegalArgumentException("SimilarityCalculator must not be null.");
         }
-        this.initialBooks = Set.copyOf(initialBooks);
-        this.calculator = calculator;
+    }
+
+    /**
+     * Books with equal similarity scores are ranked by ID. Their position in the corpus array
+     * is used as the tie-breaker, so the array is ordered by ID to make rankings deterministic.
+     */
+    static Book[] sortedById(Set<Book> books) {
+        return List.copyOf(books).stream()
+            .sorted(BY_ID)
+            .toArray(Book[]::new);
+    }
+
+    /**
+     * Adds a book to the corpus at its place in ID order and to the calculator.
+     *
+     * @return true if the book was added or false if it is already in the corpus
+     * @throws IllegalArgumentException if book is null
+     */
+    public synchronized boolean addBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book must not be null.");
+        }
+        Book[] books = corpus.get().books;
+        if (indexOf(books, book) >= 0) {
+            return false;
+        }
+
+        publish(withBook(books, book));
+        return true;
+    }
+
+    /**
+     * Removes a book from the corpus and from the calculator.
+     *
+     * @return true if the book was removed or false if it is not in the corpus
+     * @throws IllegalArgumentException if book is null
+     */
+    public synchronized boolean removeBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book must not be null.");
+        }
+        Book[] books = corpus.get().books;
+        if (indexOf(books, book) < 0) {
+            return false;
+        }
+
+        publish(withoutBook(books, book));
+        return true;
+    }
+
+    /**
+     * Replaces a book of the corpus with a new version of it, such as one with an edited description,
+     * in a single update: no recommendation scores both or neither of them.
+     *
+     * @return true if the old book was replaced or false if it is not in the corpus
+     * @throws IllegalArgumentException if oldBook or newBook is null
+     */
+    public synchronized boolean updateBook(Book oldBook, Book newBook) {
+        if (oldBook == null || newBook == null) {
+            throw new IllegalArgumentException("Books must not be null.");
+        }
+        Book[] books = corpus.get().books;
+        if (indexOf(books, oldBook) < 0) {
+            return false;
+        }
+
+        Book[] updated = withoutBook(books, oldBook);
+        if (indexOf(updated, newBook) < 0) {
+            updated = withBook(updated, newBook);
+        }
+        publish(updated);
+        return true;
+    }
+
+    @Override
+    public long corpusVersion() {
+        return corpus.get().version;
+    }
+
+    private Book[] withBook(Book[] books, Book book) {
+        int position = insertionPoint(books, book);
+        Book[] updated = new Book[books.length + 1];
+        System.arraycopy(books, 0, updated, 0, position);
+        updated[position] = book;
+        System.arraycopy(books, position, updated, position + 1, books.length - position);
+
+        if (calculator instanceof UpdatableSimilarityCalculator updatable) {
+            updatable.addBook(book);
+        }
+        return updated;
+    }
+
+    private Book[] withoutBook(Book[] books, Book book) {
+        int position = indexOf(books, book);
+        Book[] updated = new Book[books.length - 1];
+        System.arraycopy(books, 0, updated, 0, position);
+        System.arraycopy(books, position + 1, updated, position, updated.length - position);
+
+        if (calculator instanceof UpdatableSimilarityCalculator updatable) {
+            updatable.removeBook(book);
+        }
+        return updated;
+    }
+
+    /**
+     * Publishes the next version of the corpus with the current snapshot of the calculator and
+     * without a neighbour graph.
+     */
+    private void publish(Book[] books) {
+        corpus.set(new Corpus(corpus.get().version + 1, books, snapshotOf(calculator), null));
+    }
+
+    private static SimilarityCalculator snapshotOf(SimilarityCalculator calculator) {
+        return calculator instanceof UpdatableSimilarityCalculator updatable ? updatable.snapshot() : calculator;
+    }
+
+    /**
+     * @return the position of the book in the corpus or -1 if it is not in the corpus
+     */
+    private static int indexOf(Book[] books, Book book) {
+        int position = Arrays.binarySearch(books, book, BY_ID);
+        if (position < 0) {
+            return -1;
+        }
+
+        for (int i = position; i >= 0 && BY_ID.compare(books[i], book) == 0; i--) {
+            if (books[i].equals(book)) {
+                return i;
+            }
+        }
+        for (int i = position + 1; i < books.length && BY_ID.compare(books[i], book) == 0; i++) {
+            if (books[i].equals(book)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the position after the last book whose ID is not greater than the one of the book
+     */
+    private static int insertionPoint(Book[] books, Book book) {
+        int low = 0;
+        int high = books.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (BY_ID.compare(books[middle], book) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
     }
 
     @Override
     public SortedMap<Book, Double> recommendBooks(Book origin, int maxN) {
+        return recommendBooks(origin, maxN, NOT_CANCELLED);
+    }
+
+    @Override
+    public SortedMap<Book, Double> recommendBooks(Book origin, int maxN, BooleanSupplier cancelled) {
         if (origin == null) {
             throw new IllegalArgumentException("Origin book must not be null.");
         }
         if (maxN <= 0) {
             throw new IllegalArgumentException("maxN must be greater than 0.");
         }
+        checkCancelled(cancelled);
+
+        Corpus current = corpus.get();
+        if (current.neighbourGraph != null) {
+            SortedMap<Book, Double> neighbours = current.neighbourGraph.neighbours(origin, maxN);
+            if (neighbours != null) {
+                return neighbours;
+            }
+        }
+
+        Book[] books = current.books;
+        int capacity = Math.min(maxN, books.length);
+        int booksPerTask = pool == null ? books.length : booksPerTask(books);
+
+        TopK topK = booksPerTask >= books.length
+            ? score(current, origin, 0, books.length, capacity, cancelled)
+            : pool.invoke(new ScoringTask(current, origin, 0, books.length, capacity, booksPerTask, cancelled));
+        return topK.toSortedMap(books);
+    }
+
+    /**
+     * Scores the origin books in tiles of origins and candidates: a tile of candidates is compared
+     * with every origin of a tile before moving to the next one, so the candidates and their cached
+     * features are read while they are still in the CPU cache. Origin tiles run in parallel when the
+     * recommender was created with a pool.
+     */
+    @Override
+    public Map<Book, SortedMap<Book, Double>> recommendBooksForEach(Collection<Book> originBooks, int maxN) {
+        return recommendBooksForEach(originBooks, maxN, NOT_CANCELLED);
+    }
+
+    @Override
+    public Map<Book, SortedMap<Book, Double>> recommendBooksForEach(Collection<Book> originBooks, int maxN,
+                                                                    BooleanSupplier cancelled) {
+        if (originBooks == null || originBooks.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Origin books must not be null.");
+        }
+        if (maxN <= 0) {
+            throw new IllegalArgumentException("maxN must be greater than 0.");
+        }
+        checkCancelled(cancelled);
+
+        Corpus current = corpus.get();
+        if (current.neighbourGraph != null && maxN <= current.neighbourGraph.k()) {
+            return BookRecommenderAPI.super.recommendBooksForEach(originBooks, maxN, cancelled);
+        }
+
+        Book[] origins = originBooks.stream().distinct().toArray(Book[]::new);
+        TopK[] heaps = new TopK[origins.length];
+        int capacity = Math.min(maxN, current.books.length);
+
+        if (pool == null || origins.length <= ORIGINS_PER_TILE) {
+            for (int from = 0; from < origins.length; from += ORIGINS_PER_TILE) {
+                int to = Math.min(from + ORIGINS_PER_TILE, origins.length);
+                scoreTile(current, origins, from, to, capacity, heaps, cancelled);
+            }
+        } else {
+            pool.invoke(new TileTask(current, origins, 0, origins.length, capacity, heaps, cancelled));
+        }
+
+        Map<Book, SortedMap<Book, Double>> result = new LinkedHashMap<>();
+        for (int i = 0; i < origins.length; i++) {
+            result.put(origins[i], heaps[i].toSortedMap(current.books));
+        }
+        return result;
+    }
+
+    /**
+     * Computes the k nearest neighbours of every book with the calculator of this recommender,
+     * writes them to {@code path} and serves later recommendations of up to k books for books of
+     * the corpus from that file. Every pair of books is scored once, so the calculator must be
+     * symmetric. The scoring runs on the pool of this recommender if it has one. The graph is
+     * built for the current version of the corpus and is not used if the corpus changes before
+     * it is written.
+     *
+     * @throws IllegalArgumentException if path is null or k is smaller or equal to 0
+     * @throws UncheckedIOException     if the graph could not be written
+     */
+    public void buildNeighbourGraph(Path path, int k) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path must not be null.");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be greater than 0.");
+        }
+
+        Corpus built = corpus.get();
+        NeighbourGraph.write(path, built.books, built.calculator, k, pool);
+        synchronized (this) {
+            Corpus current = corpus.get();
+            if (current.version == built.version) {
+                corpus.set(current.withNeighbourGraph(NeighbourGraph.open(path, current.books)));
+            }
+        }
+    }
+
+    /**
+     * Serves recommendations of up to k books for books of the corpus from a neighbour graph
+     * which was built earlier for the same corpus and calculator.
+     *
+     * @throws IllegalArgumentException if path is null, the file could not be read, is not a
+     *                                  neighbour graph or was built for another corpus
+     */
+    public synchronized void useNeighbourGraph(Path path) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path must not be null.");
+        }
+
+        Corpus current = corpus.get();
+        corpus.set(current.withNeighbourGraph(NeighbourGraph.open(path, current.books)));
+    }
+
+    private static void scoreTile(Corpus current, Book[] origins, int from, int to, int capacity, TopK[] heaps,
+                                  BooleanSupplier cancelled) {
+        for (int i = from; i < to; i++) {
+            heaps[i] = new TopK(capacity);
+        }
+
+        Book[] books = current.books;
+        for (int candidatesFrom = 0; candidatesFrom < books.length; candidatesFrom += CANDIDATES_PER_TILE) {
+            int candidatesTo = Math.min(candidatesFrom + CANDIDATES_PER_TILE, books.length);
+            checkCancelled(cancelled);
+
+            for (int i = from; i < to; i++) {
+                Book origin = origins[i];
+                TopK topK = heaps[i];
+                for (int ordinal = candidatesFrom; ordinal < candidatesTo; ordinal++) {
+                    Book candidate = books[ordinal];
+                    if (!candidate.equals(origin)) {
+                        topK.offer(ordinal, origin, candidate, current.calculator);
+                    }
+                }
+            }
+        }
+    }
+
+    private int booksPerTask(Book[] books) {
+        return Math.max(MIN_BOOKS_PER_TASK, books.length / (pool.getParallelism() * TASKS_PER_WORKER));
+    }
+
+    private static TopK score(Corpus current, Book origin, int from, int to, int capacity,
+                              BooleanSupplier cancelled) {
+        TopK topK = new TopK(capacity);
+        for (int checkFrom = from; checkFrom < to; checkFrom += BOOKS_PER_CANCELLATION_CHECK) {
+            checkCancelled(cancelled);
+
+            int checkTo = Math.min(checkFrom + BOOKS_PER_CANCELLATION_CHECK, to);
+            for (int ordinal = checkFrom; ordinal < checkTo; ordinal++) {
+                Book candidate = current.books[ordinal];
+                if (!candidate.equals(origin)) {
+                    topK.offer(ordinal, origin, candidate, current.calculator);
+                }
+            }
+        }
+        return topK;
+    }
+
+    /**
+     * @throws CancellationException    if cancelled returns true
+     * @throws IllegalArgumentException if cancelled is null
+     */
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled == null) {
+            throw new IllegalArgumentException("Cancellation must not be null.");
+        }
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Recommendation was cancelled.");
+        }
+    }
 
-        Map<Book, Double> similarityScores = calculateSimilarityScores(origin);
-        return getTopNSimilarBooks(similarityScores, maxN);
+    /**
+     * An immutable version of the corpus: the books sorted by ID, the calculator which scores
+     * them and the neighbour graph built for them, if any.
+     */
+    private record Corpus(long version, Book[] books, SimilarityCalculator calculator, NeighbourGraph neighbourGraph) {
+
+        Corpus withNeighbourGraph(NeighbourGraph graph) {
+            return new Corpus(version, books, calculator, graph);
+        }
     }
 
-    private Map<Book, Double> calculateSimilarityScores(Book originBook) {
-        return initialBooks.stream()
-            .filter(book -> !book.equals(originBook))
-            .collect(Collectors.toMap(
-                book -> book,
-                book -> calculator.calculateSimilarity(originBook, book)));
+    /**
+     * Scores a range of the corpus into its own heap, splitting the range in halves until it is
+     * small enough. The heaps of the halves are merged, so the result is the same as the one of
+     * scoring the whole range sequentially.
+     */
+    @SuppressWarnings("serial")
+    private static final class ScoringTask extends RecursiveTask<TopK> {
+
+        private final Corpus corpus;
+        private final Book origin;
+        private final int from;
+        private final int to;
+        private final int capacity;
+        private final int booksPerTask;
+        private final BooleanSupplier cancelled;
+
+        private ScoringTask(Corpus corpus, Book origin, int from, int to, int capacity, int booksPerTask,
+                            BooleanSupplier cancelled) {
+            this.corpus = corpus;
+            this.origin = origin;
+            this.from = from;
+            this.to = to;
+            this.capacity = capacity;
+            this.booksPerTask = booksPerTask;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= booksPerTask) {
+                return score(corpus, origin, from, to, capacity, cancelled);
+            }
+
+            int middle = (from + to) >>> 1;
+            ScoringTask left = new ScoringTask(corpus, origin, from, middle, capacity, booksPerTask, cancelled);
+            ScoringTask right = new ScoringTask(corpus, origin, middle, to, capacity, booksPerTask, cancelled);
+            left.fork();
+
+            TopK topK = right.compute();
+            topK.merge(left.join());
+            return topK;
+        }
     }
 
-    private SortedMap<Book, Double> getTopNSimilarBooks(Map<Book, Double> similarityScores, int maxN) {
-        return similarityScores.entrySet()
-            .stream()
-            .sorted((e1, e2) -> Double.compare(e2.getValue(), e1.getValue())) // Sort by value descending
-            .limit(maxN)
-            .collect(Collectors.toMap(
-                Map.Entry::getKey,
-                Map.Entry::getValue,
-                (e1, e2) -> e1, // potential duplicates
-                () -> new TreeMap<>(
-                    Comparator.comparingDouble(key -> similarityScores.getOrDefault(key, Double.MIN_VALUE))
-                        .reversed())));
+    /**
+     * Splits a range of origin books in halves until it fits in a single tile and scores the tile
+     * into the heaps of its origins.
+     */
+    @SuppressWarnings("serial")
+    private static final class TileTask extends RecursiveAction {
+
+        private final Corpus corpus;
+        private final Book[] origins;
+        private final int from;
+        private final int to;
+        private final int capacity;
+        private final TopK[] heaps;
+        private final BooleanSupplier cancelled;
+
+        private TileTask(Corpus corpus, Book[] origins, int from, int to, int capacity, TopK[] heaps,
+                         BooleanSupplier cancelled) {
+            this.corpus = corpus;
+            this.origins = origins;
+            this.from = from;
+            this.to = to;
+            this.capacity = capacity;
+            this.heaps = heaps;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ORIGINS_PER_TILE) {
+                scoreTile(corpus, origins, from, to, capacity, heaps, cancelled);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new TileTask(corpus, origins, from, middle, capacity, heaps, cancelled),
+                new TileTask(corpus, origins, middle, to, capacity, heaps, cancelled));
+        }
     }
-}
\ No newline at end of file
+}
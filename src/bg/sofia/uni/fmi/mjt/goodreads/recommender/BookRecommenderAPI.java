@@ -2,10 +2,25 @@ package bg.sofia.uni.fmi.mjt.goodreads.recommender;
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.SortedMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 
 public interface BookRecommenderAPI {
 
+    /**
+     * The {@link #corpusVersion() corpus version} of a recommender which does not track the
+     * changes of its books.
+     */
+    long UNVERSIONED = -1;
+
     /**
      * Searches for books that are similar to the provided one.
      *
@@ -18,4 +33,129 @@ public interface BookRecommenderAPI {
      */
     SortedMap<Book, Double> recommendBooks(Book originBook, int maxN);
 
-}
\ No newline at end of file
+    /**
+     * Searches for books that are similar to each of the provided ones.
+     *
+     * @param originBooks the books we should calculate similarity with.
+     * @param maxN        the maximum number of entries returned for each origin book
+     * @return a Map from each origin book, in iteration order, to its top maxN closest books
+     * as returned by {@link #recommendBooks(Book, int)}
+     * @throws IllegalArgumentException if originBooks is null or contains null.
+     * @throws IllegalArgumentException if maxN is smaller or equal to 0.
+     */
+    default Map<Book, SortedMap<Book, Double>> recommendBooksForEach(Collection<Book> originBooks, int maxN) {
+        return recommendBooksForEach(originBooks, maxN, () -> false);
+    }
+
+    /**
+     * Searches for books that are similar to the provided one, like {@link #recommendBooks(Book, int)},
+     * and gives up as soon as it notices that {@code cancelled} returns true.
+     * The default implementation checks {@code cancelled} only before it starts; implementations which
+     * score the corpus check it while they score, so that a cancelled recommendation stops its work.
+     *
+     * @param cancelled tells whether the caller no longer needs the result
+     * @throws CancellationException    if the recommendation was cancelled before it finished
+     * @throws IllegalArgumentException if cancelled is null
+     */
+    default SortedMap<Book, Double> recommendBooks(Book originBook, int maxN, BooleanSupplier cancelled) {
+        checkCancelled(cancelled);
+        return recommendBooks(originBook, maxN);
+    }
+
+    /**
+     * Searches for books that are similar to each of the provided ones, like
+     * {@link #recommendBooksForEach(Collection, int)}, and gives up as soon as it notices that
+     * {@code cancelled} returns true. The default implementation checks {@code cancelled} between the origins.
+     *
+     * @param cancelled tells whether the caller no longer needs the result
+     * @throws CancellationException    if the recommendations were cancelled before they finished
+     * @throws IllegalArgumentException if cancelled is null
+     */
+    default Map<Book, SortedMap<Book, Double>> recommendBooksForEach(Collection<Book> originBooks, int maxN,
+                                                                     BooleanSupplier cancelled) {
+        if (originBooks == null || originBooks.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Origin books must not be null.");
+        }
+        if (maxN <= 0) {
+            throw new IllegalArgumentException("maxN must be greater than 0.");
+        }
+
+        Map<Book, SortedMap<Book, Double>> result = new LinkedHashMap<>();
+        for (Book originBook : originBooks) {
+            result.put(originBook, recommendBooks(originBook, maxN, cancelled));
+        }
+        return result;
+    }
+
+    /**
+     * Computes {@link #recommendBooks(Book, int)} on the executor. Cancelling or otherwise completing the
+     * returned future stops the scoring as soon as the recommender notices it, as described in
+     * {@link #recommendBooks(Book, int, BooleanSupplier)}. Several recommendations, and searches, started
+     * one after another run at the same time if the executor has threads for them, so the queries of a
+     * page can be fanned out and joined with {@link CompletableFuture#allOf(CompletableFuture[])}.
+     *
+     * @return a future completed with the recommendations, or exceptionally with the exception of the
+     * recommendation, such as an IllegalArgumentException for an invalid origin or maxN
+     * @throws IllegalArgumentException if executor is null
+     */
+    default CompletableFuture<SortedMap<Book, Double>> recommendBooksAsync(Book originBook, int maxN,
+                                                                          Executor executor) {
+        return supplyCancellable(cancelled -> recommendBooks(originBook, maxN, cancelled), executor);
+    }
+
+    /**
+     * Computes {@link #recommendBooksForEach(Collection, int)} on the executor, and stops it when the
+     * returned future is cancelled, like {@link #recommendBooksAsync(Book, int, Executor)}.
+     *
+     * @throws IllegalArgumentException if executor is null
+     */
+    default CompletableFuture<Map<Book, SortedMap<Book, Double>>> recommendBooksForEachAsync(
+        Collection<Book> originBooks, int maxN, Executor executor) {
+        return supplyCancellable(cancelled -> recommendBooksForEach(originBooks, maxN, cancelled), executor);
+    }
+
+    /**
+     * @return a non-negative number which changes whenever the books the recommendations are chosen
+     * from change, so that results cached for an older version can be recognised as stale, or
+     * {@link #UNVERSIONED} if the recommender does not track the changes of its books
+     */
+    default long corpusVersion() {
+        return UNVERSIONED;
+    }
+
+    /**
+     * @throws CancellationException    if cancelled returns true
+     * @throws IllegalArgumentException if cancelled is null
+     */
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled == null) {
+            throw new IllegalArgumentException("Cancellation must not be null.");
+        }
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Recommendation was cancelled.");
+        }
+    }
+
+    /**
+     * Runs the query on the executor with a cancellation which is raised once the returned future is done,
+     * so that cancelling the future stops the query instead of only discarding its result.
+     */
+    private static <T> CompletableFuture<T> supplyCancellable(Function<BooleanSupplier, T> query, Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null.");
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return; // cancelled before it started
+            }
+            try {
+                future.complete(query.apply(future::isDone));
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex); // a no-op if the future was cancelled
+            }
+        });
+        return future;
+    }
+}
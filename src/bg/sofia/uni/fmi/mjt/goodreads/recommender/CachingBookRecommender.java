@@ -0,0 +1,273 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Caches the recommendations of another recommender for the least recently used origin books.
+ * Only the largest result computed for an origin is kept, because the recommendations for a smaller
+ * maxN are its first maxN entries. The cache is cleared when the
+ * {@link BookRecommenderAPI#corpusVersion() corpus version} of the recommender changes.
+ * A cache belongs to a single recommender, so the calculator it uses is part of every key implicitly.
+ * Only recommenders which report a corpus version can be cached, because the cache of a recommender
+ * which keeps the {@link BookRecommenderAPI#UNVERSIONED default} could never tell its results stale.
+ *
+ * <p>Concurrent misses for the same origin are computed once: the first miss registers the
+ * computation as in flight and the others wait for its result, which counts as a hit for them,
+ * instead of all of them scoring the corpus when a popular origin drops out of the cache or the
+ * corpus version changes. A miss for a larger maxN than the one in flight is computed on its own.
+ * If the computation in flight is cancelled, the requests waiting for it compute their own.
+ */
+public class CachingBookRecommender implements BookRecommenderAPI {
+
+    private static final BooleanSupplier NOT_CANCELLED = () -> false;
+    private static final long CANCELLATION_CHECK_MILLIS = 10;
+
+    private final BookRecommenderAPI recommender;
+    private final int maximumSize;
+    private final Map<Book, CachedRecommendations> cache;
+    private final Map<Book, InFlight> inFlight = new HashMap<>();
+
+    private long cachedVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize the maximum number of origin books whose recommendations are kept
+     * @throws IllegalArgumentException if recommender is null or {@link BookRecommenderAPI#UNVERSIONED
+     *                                  unversioned}, or maximumSize is not positive
+     */
+    public CachingBookRecommender(BookRecommenderAPI recommender, int maximumSize) {
+        if (recommender == null) {
+            throw new IllegalArgumentException("BookRecommenderAPI must not be null.");
+        }
+        if (recommender.corpusVersion() == UNVERSIONED) {
+            throw new IllegalArgumentException("BookRecommenderAPI must report its corpus version.");
+        }
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be greater than 0.");
+        }
+        this.recommender = recommender;
+        this.maximumSize = maximumSize;
+        this.cachedVersion = recommender.corpusVersion();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Book, CachedRecommendations> eldest) {
+                boolean evict = size() > CachingBookRecommender.this.maximumSize;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+    }
+
+    @Override
+    public SortedMap<Book, Double> recommendBooks(Book origin, int maxN) {
+        return recommendBooks(origin, maxN, NOT_CANCELLED, () -> recommender.recommendBooks(origin, maxN));
+    }
+
+    /**
+     * Serves the recommendations from the cache, or computes them with the cancellation passed on
+     * to the underlying recommender.
+     */
+    @Override
+    public SortedMap<Book, Double> recommendBooks(Book origin, int maxN, BooleanSupplier cancelled) {
+        if (cancelled == null) {
+            throw new IllegalArgumentException("Cancellation must not be null.");
+        }
+        return recommendBooks(origin, maxN, cancelled,
+            () -> recommender.recommendBooks(origin, maxN, cancelled));
+    }
+
+    private SortedMap<Book, Double> recommendBooks(Book origin, int maxN, BooleanSupplier cancelled,
+                                                   Supplier<SortedMap<Book, Double>> miss) {
+        if (origin == null) {
+            throw new IllegalArgumentException("Origin book must not be null.");
+        }
+        if (maxN <= 0) {
+            throw new IllegalArgumentException("maxN must be greater than 0.");
+        }
+
+        while (true) {
+            long version = recommender.corpusVersion();
+            CachedRecommendations cached;
+            InFlight pending;
+            boolean computing = false;
+            synchronized (this) {
+                cached = lookup(origin, version);
+                pending = inFlight.get(origin);
+                if ((cached == null || !cached.covers(maxN)) && (pending == null || pending.maxN() < maxN)) {
+                    pending = new InFlight(new CompletableFuture<>(), maxN);
+                    inFlight.put(origin, pending);
+                    computing = true;
+                }
+            }
+
+            if (cached != null && cached.covers(maxN)) {
+                hits.increment();
+                return firstEntries(cached.recommendations(), maxN);
+            }
+            if (computing) {
+                return compute(origin, version, maxN, pending, miss);
+            }
+            SortedMap<Book, Double> shared = await(pending.result(), cancelled);
+            if (shared != null) {
+                hits.increment();
+                return firstEntries(shared, maxN);
+            }
+        }
+    }
+
+    private SortedMap<Book, Double> compute(Book origin, long version, int maxN, InFlight pending,
+                                            Supplier<SortedMap<Book, Double>> miss) {
+        misses.increment();
+        try {
+            SortedMap<Book, Double> recommendations = miss.get();
+            CachedRecommendations computed = new CachedRecommendations(firstEntries(recommendations, maxN), maxN);
+            store(origin, version, computed);
+            pending.result().complete(computed.recommendations());
+            return firstEntries(recommendations, maxN);
+        } catch (RuntimeException | Error ex) {
+            pending.result().completeExceptionally(ex);
+            throw ex;
+        } finally {
+            synchronized (this) {
+                inFlight.remove(origin, pending);
+            }
+        }
+    }
+
+    /**
+     * Waits for the result of a computation in flight, checking the cancellation of the waiting
+     * request in between.
+     *
+     * @return the result or null if the computation was cancelled
+     * @throws CancellationException if the waiting request is cancelled or interrupted
+     */
+    private static SortedMap<Book, Double> await(CompletableFuture<SortedMap<Book, Double>> result,
+                                                 BooleanSupplier cancelled) {
+        while (true) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Recommendation was cancelled.");
+            }
+            try {
+                return result.get(CANCELLATION_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                // check the cancellation again
+            } catch (CancellationException ex) {
+                return null;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Recommendation was interrupted.");
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof CancellationException) {
+                    return null;
+                }
+                if (ex.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw (RuntimeException) ex.getCause();
+            }
+        }
+    }
+
+    @Override
+    public long corpusVersion() {
+        return recommender.corpusVersion();
+    }
+
+    /**
+     * Removes all cached recommendations.
+     */
+    public synchronized void invalidateAll() {
+        cache.clear();
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), cache.size());
+    }
+
+    private synchronized CachedRecommendations lookup(Book origin, long version) {
+        if (version != cachedVersion) {
+            cache.clear();
+            inFlight.clear();
+            cachedVersion = version;
+        }
+        return cache.get(origin);
+    }
+
+    private synchronized void store(Book origin, long version, CachedRecommendations recommendations) {
+        if (version != cachedVersion) {
+            return; // computed from a corpus which has changed meanwhile
+        }
+        CachedRecommendations cached = cache.get(origin);
+        if (cached == null || cached.maxN() < recommendations.maxN()) {
+            cache.put(origin, recommendations);
+        }
+    }
+
+    /**
+     * Copies the first maxN entries, so that callers cannot modify the cached results.
+     */
+    private static SortedMap<Book, Double> firstEntries(SortedMap<Book, Double> recommendations, int maxN) {
+        SortedMap<Book, Double> result = new TreeMap<>(recommendations.comparator());
+        Iterator<Map.Entry<Book, Double>> entries = recommendations.entrySet().iterator();
+        while (result.size() < maxN && entries.hasNext()) {
+            Map.Entry<Book, Double> entry = entries.next();
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * The recommendations computed for an origin and the maxN they were computed for.
+     */
+    private record CachedRecommendations(SortedMap<Book, Double> recommendations, int maxN) {
+
+        /**
+         * A result with fewer than maxN books contains every candidate, so it covers any maxN.
+         */
+        boolean covers(int requestedMaxN) {
+            return requestedMaxN <= maxN || recommendations.size() < maxN;
+        }
+    }
+
+    /**
+     * A computation of the recommendations for an origin which other requests can wait for.
+     */
+    private record InFlight(CompletableFuture<SortedMap<Book, Double>> result, int maxN) {
+    }
+
+    /**
+     * Hit and miss counts of the cache.
+     *
+     * @param hits      the number of recommendations served from the cache or from a computation in flight
+     * @param misses    the number of recommendations computed by the recommender
+     * @param evictions the number of origins evicted to keep the cache within its maximum size
+     * @param size      the number of origins currently cached
+     */
+    public record CacheStats(long hits, long misses, long evictions, int size) {
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.metrics.MetricsSink;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Records the calls, errors and latencies of the recommendations of another recommender into a
+ * {@link MetricsSink}, under the operations {@code recommender.recommendBooks} and
+ * {@code recommender.recommendBooksForEach}.
+ */
+public class InstrumentedBookRecommender implements BookRecommenderAPI {
+
+    private final BookRecommenderAPI recommender;
+    private final MetricsSink.Recorder recommendBooks;
+    private final MetricsSink.Recorder recommendBooksForEach;
+
+    /**
+     * @throws IllegalArgumentException if recommender or sink is null
+     */
+    public InstrumentedBookRecommender(BookRecommenderAPI recommender, MetricsSink sink) {
+        if (recommender == null) {
+            throw new IllegalArgumentException("BookRecommenderAPI must not be null.");
+        }
+        if (sink == null) {
+            throw new IllegalArgumentException("MetricsSink must not be null.");
+        }
+        this.recommender = recommender;
+        this.recommendBooks = sink.recorder("recommender.recommendBooks");
+        this.recommendBooksForEach = sink.recorder("recommender.recommendBooksForEach");
+    }
+
+    @Override
+    public SortedMap<Book, Double> recommendBooks(Book originBook, int maxN) {
+        return record(recommendBooks, () -> recommender.recommendBooks(originBook, maxN));
+    }
+
+    @Override
+    public SortedMap<Book, Double> recommendBooks(Book originBook, int maxN, BooleanSupplier cancelled) {
+        return record(recommendBooks, () -> recommender.recommendBooks(originBook, maxN, cancelled));
+    }
+
+    @Override
+    public Map<Book, SortedMap<Book, Double>> recommendBooksForEach(Collection<Book> originBooks, int maxN) {
+        return record(recommendBooksForEach, () -> recommender.recommendBooksForEach(originBooks, maxN));
+    }
+
+    @Override
+    public Map<Book, SortedMap<Book, Double>> recommendBooksForEach(Collection<Book> originBooks, int maxN,
+                                                                    BooleanSupplier cancelled) {
+        return record(recommendBooksForEach, () -> recommender.recommendBooksForEach(originBooks, maxN, cancelled));
+    }
+
+    @Override
+    public long corpusVersion() {
+        return recommender.corpusVersion();
+    }
+
+    /**
+     * Records a cancelled call as an error, like any other call which does not return.
+     */
+    private static <T> T record(MetricsSink.Recorder recorder, Supplier<T> call) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            recorder.record(System.nanoTime() - start, failed);
+        }
+    }
+}
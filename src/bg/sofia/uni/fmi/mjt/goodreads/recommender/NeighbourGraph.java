@@ -0,0 +1,287 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.snapshot.SnapshotFormat;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The k nearest neighbours of every book of a corpus, stored in a memory-mapped file.
+ * Every row has room for k neighbours, so the neighbours of a book are found at a fixed offset.
+ *
+ * <p>Layout: a header (magic, version, book count, k), the IDs of the books in ordinal order
+ * and one row per book with the ordinals and then the scores of its neighbours from the best
+ * to the worst one. Unused slots of a row hold the ordinal -1.
+ */
+final class NeighbourGraph {
+
+    static final int VERSION = 1;
+
+    private static final int MAGIC = 0x47524e47; // "GRNG"
+    private static final int NO_NEIGHBOUR = -1;
+    private static final int BLOCK_SIZE = 256;
+
+    private final ByteBuffer buffer;
+    private final Book[] books;
+    private final Map<Book, Integer> ordinals;
+    private final int k;
+    private final int rowsOffset;
+
+    private NeighbourGraph(ByteBuffer buffer, Book[] books) {
+        this.buffer = buffer;
+        this.books = books;
+
+        if (buffer.limit() < 4 * Integer.BYTES || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a neighbour graph.");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported neighbour graph version " + version
+                + ", expected " + VERSION);
+        }
+        int bookCount = buffer.getInt();
+        this.k = buffer.getInt();
+        if (bookCount != books.length) {
+            throw new IllegalArgumentException("Neighbour graph was built for another corpus.");
+        }
+
+        this.ordinals = new HashMap<>();
+        for (int ordinal = 0; ordinal < bookCount; ordinal++) {
+            if (!Objects.equals(SnapshotFormat.readString(buffer), books[ordinal].ID())) {
+                throw new IllegalArgumentException("Neighbour graph was built for another corpus.");
+            }
+            ordinals.put(books[ordinal], ordinal);
+        }
+
+        this.rowsOffset = buffer.position();
+        if ((long) rowsOffset + (long) bookCount * rowBytes() != buffer.limit()) {
+            throw new IllegalArgumentException("Neighbour graph is truncated.");
+        }
+    }
+
+    /**
+     * Computes the k nearest neighbours of every book and writes them to {@code path}.
+     * Every pair of books is scored once and offered to the rows of both books, so the calculator
+     * must be symmetric. The corpus is split into blocks and pairs of blocks are scored in rounds
+     * in which no two tasks share a block, so the rows are updated without locking.
+     *
+     * @param pool the pool to score the blocks on or null to score them sequentially
+     * @throws UncheckedIOException if the graph could not be written
+     */
+    static void write(Path path, Book[] books, SimilarityCalculator calculator, int k, ForkJoinPool pool) {
+        TopK[] rows = new TopK[books.length];
+        for (int ordinal = 0; ordinal < rows.length; ordinal++) {
+            rows[ordinal] = new TopK(Math.min(k, books.length - 1));
+        }
+
+        int blocks = (books.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        for (List<int[]> round : rounds(blocks)) {
+            if (pool == null) {
+                for (int[] pair : round) {
+                    scoreBlocks(books, calculator, rows, pair[0], pair[1]);
+                }
+            } else {
+                pool.invoke(new BlockPairsTask(books, calculator, rows, round, 0, round.size()));
+            }
+        }
+
+        writeRows(path, books, rows, k);
+    }
+
+    /**
+     * Memory-maps a neighbour graph which was built for the books.
+     *
+     * @throws IllegalArgumentException if the file could not be read, is not a neighbour graph
+     *                                  or was built for another corpus
+     */
+    static NeighbourGraph open(Path path, Book[] books) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Neighbour graphs larger than 2 GB are not supported.");
+            }
+            return new NeighbourGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), books);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Could not open neighbour graph", ex);
+        }
+    }
+
+    int k() {
+        return k;
+    }
+
+    /**
+     * @return the maxN nearest neighbours of the origin or null if the origin is not a book of the
+     * graph or maxN is larger than k
+     */
+    SortedMap<Book, Double> neighbours(Book origin, int maxN) {
+        Integer ordinal = ordinals.get(origin);
+        if (ordinal == null || maxN > k) {
+            return null;
+        }
+
+        int ordinalsOffset = rowsOffset + ordinal * rowBytes();
+        int scoresOffset = ordinalsOffset + k * Integer.BYTES;
+
+        int[] neighbourOrdinals = new int[maxN];
+        double[] scores = new double[maxN];
+        int count = 0;
+        while (count < maxN) {
+            int neighbour = buffer.getInt(ordinalsOffset + count * Integer.BYTES);
+            if (neighbour == NO_NEIGHBOUR) {
+                break;
+            }
+            neighbourOrdinals[count] = neighbour;
+            scores[count] = buffer.getDouble(scoresOffset + count * Double.BYTES);
+            count++;
+        }
+        return TopK.toSortedMap(books, neighbourOrdinals, scores, count);
+    }
+
+    private int rowBytes() {
+        return k * (Integer.BYTES + Double.BYTES);
+    }
+
+    private static void writeRows(Path path, Book[] books, TopK[] rows, int k) {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(books.length);
+            out.writeInt(k);
+            for (Book book : books) {
+                SnapshotFormat.writeString(out, book.ID());
+            }
+
+            int[] neighbourOrdinals = new int[k];
+            double[] scores = new double[k];
+            for (TopK row : rows) {
+                int count = row.ranked(neighbourOrdinals, scores);
+                for (int slot = 0; slot < k; slot++) {
+                    out.writeInt(slot < count ? neighbourOrdinals[slot] : NO_NEIGHBOUR);
+                }
+                for (int slot = 0; slot < k; slot++) {
+                    out.writeDouble(slot < count ? scores[slot] : 0.0);
+                }
+            }
+
+            if (out.size() == Integer.MAX_VALUE) { // the counter of DataOutputStream saturates at 2 GB
+                throw new IOException("Neighbour graphs larger than 2 GB are not supported");
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write neighbour graph", ex);
+        }
+
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write neighbour graph", ex);
+        }
+    }
+
+    /**
+     * Schedules all pairs of blocks, including every block paired with itself, into rounds of
+     * disjoint pairs with the circle method of round-robin tournaments.
+     */
+    private static List<List<int[]>> rounds(int blocks) {
+        List<List<int[]>> rounds = new ArrayList<>();
+
+        List<int[]> diagonal = new ArrayList<>();
+        for (int block = 0; block < blocks; block++) {
+            diagonal.add(new int[] {block, block});
+        }
+        rounds.add(diagonal);
+
+        int players = blocks % 2 == 0 ? blocks : blocks + 1; // an odd block count gets a resting slot
+        for (int round = 0; round < players - 1; round++) {
+            List<int[]> pairs = new ArrayList<>();
+            addPair(pairs, players - 1, round, blocks);
+            for (int i = 1; i < players / 2; i++) {
+                addPair(pairs, (round + i) % (players - 1), (round - i + players - 1) % (players - 1), blocks);
+            }
+            rounds.add(pairs);
+        }
+        return rounds;
+    }
+
+    private static void addPair(List<int[]> pairs, int first, int second, int blocks) {
+        if (first < blocks && second < blocks) {
+            pairs.add(new int[] {first, second});
+        }
+    }
+
+    /**
+     * Scores every pair of a book of the first block with a book of the second block once.
+     */
+    private static void scoreBlocks(Book[] books, SimilarityCalculator calculator, TopK[] rows,
+                                    int firstBlock, int secondBlock) {
+        int firstFrom = firstBlock * BLOCK_SIZE;
+        int firstTo = Math.min(firstFrom + BLOCK_SIZE, books.length);
+        int secondFrom = secondBlock * BLOCK_SIZE;
+        int secondTo = Math.min(secondFrom + BLOCK_SIZE, books.length);
+
+        for (int first = firstFrom; first < firstTo; first++) {
+            for (int second = firstBlock == secondBlock ? first + 1 : secondFrom; second < secondTo; second++) {
+                double threshold = Math.min(rows[first].threshold(), rows[second].threshold());
+                double score = TopK.similarity(calculator, books[first], books[second], threshold);
+                rows[first].offer(second, score);
+                rows[second].offer(first, score);
+            }
+        }
+    }
+
+    /**
+     * Scores a range of the disjoint block pairs of a round.
+     */
+    @SuppressWarnings("serial")
+    private static final class BlockPairsTask extends RecursiveAction {
+
+        private final Book[] books;
+        private final SimilarityCalculator calculator;
+        private final TopK[] rows;
+        private final List<int[]> pairs;
+        private final int from;
+        private final int to;
+
+        private BlockPairsTask(Book[] books, SimilarityCalculator calculator, TopK[] rows, List<int[]> pairs,
+                               int from, int to) {
+            this.books = books;
+            this.calculator = calculator;
+            this.rows = rows;
+            this.pairs = pairs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BlockPairsTask(books, calculator, rows, pairs, from, middle),
+                    new BlockPairsTask(books, calculator, rows, pairs, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                scoreBlocks(books, calculator, rows, pairs.get(i)[0], pairs.get(i)[1]);
+            }
+        }
+    }
+}
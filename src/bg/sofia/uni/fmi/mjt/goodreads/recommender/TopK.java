@@ -0,0 +1,189 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.ThresholdSimilarityCalculator;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Keeps the k best scored book ordinals seen so far in a bounded min-heap of primitives.
+ * A higher score is better and equal scores are broken in favour of the lower ordinal,
+ * so the selected books do not depend on the order in which they are offered.
+ */
+final class TopK {
+
+    private final int capacity;
+    private final int[] ordinals;
+    private final double[] scores;
+    private int size;
+
+    TopK(int capacity) {
+        this.capacity = capacity;
+        this.ordinals = new int[capacity];
+        this.scores = new double[capacity];
+    }
+
+    void offer(int ordinal, double score) {
+        if (size < capacity) {
+            ordinals[size] = ordinal;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (capacity > 0 && isBetter(ordinal, score, ordinals[0], scores[0])) {
+            ordinals[0] = ordinal;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Scores a candidate against the origin and offers it. Once the heap is full, calculators which
+     * can stop early skip the candidates which can not reach the worst kept book.
+     */
+    void offer(int ordinal, Book origin, Book candidate, SimilarityCalculator calculator) {
+        offer(ordinal, similarity(calculator, origin, candidate, threshold()));
+    }
+
+    /**
+     * @return the similarity of the books, or any value below threshold if it is below threshold
+     */
+    static double similarity(SimilarityCalculator calculator, Book first, Book second, double threshold) {
+        if (threshold > Double.NEGATIVE_INFINITY && calculator instanceof ThresholdSimilarityCalculator bounded) {
+            return bounded.calculateSimilarity(first, second, threshold);
+        }
+        return calculator.calculateSimilarity(first, second);
+    }
+
+    /**
+     * @return the score a book has to reach to possibly be kept: the score of the worst kept book
+     * once the heap is full or negative infinity before that. A book with exactly this score is
+     * only kept if its ordinal is lower than the one of the worst kept book.
+     */
+    double threshold() {
+        return capacity > 0 && size == capacity ? scores[0] : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Offers every book kept by another heap to this one.
+     */
+    void merge(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ordinals[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * @return a map from the kept books to their scores which iterates from the best to the worst book
+     */
+    SortedMap<Book, Double> toSortedMap(Book[] books) {
+        int[] rankedOrdinals = new int[size];
+        double[] rankedScores = new double[size];
+        int count = ranked(rankedOrdinals, rankedScores);
+        return toSortedMap(books, rankedOrdinals, rankedScores, count);
+    }
+
+    /**
+     * Copies the kept ordinals and scores from the best to the worst one into the arrays.
+     *
+     * @return the number of kept books
+     */
+    int ranked(int[] rankedOrdinals, double[] rankedScores) {
+        TopK heap = copy();
+        for (int rank = size - 1; rank >= 0; rank--) {
+            rankedOrdinals[rank] = heap.ordinals[0];
+            rankedScores[rank] = heap.scores[0];
+            heap.removeWorst();
+        }
+        return size;
+    }
+
+    /**
+     * @return a map from the first {@code count} ranked books to their scores which iterates in rank order
+     */
+    static SortedMap<Book, Double> toSortedMap(Book[] books, int[] rankedOrdinals, double[] rankedScores,
+                                               int count) {
+        Map<Book, Integer> ranks = new HashMap<>();
+        for (int rank = 0; rank < count; rank++) {
+            ranks.put(books[rankedOrdinals[rank]], rank);
+        }
+
+        SortedMap<Book, Double> result = new TreeMap<>(byRank(ranks));
+        for (int rank = 0; rank < count; rank++) {
+            result.put(books[rankedOrdinals[rank]], rankedScores[rank]);
+        }
+        return result;
+    }
+
+    /**
+     * Orders the ranked books by rank and places books without a rank after them.
+     */
+    private static Comparator<Book> byRank(Map<Book, Integer> ranks) {
+        return Comparator.<Book>comparingInt(book -> ranks.getOrDefault(book, Integer.MAX_VALUE))
+            .thenComparing(Book::ID, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(System::identityHashCode);
+    }
+
+    private TopK copy() {
+        TopK copy = new TopK(capacity);
+        System.arraycopy(ordinals, 0, copy.ordinals, 0, size);
+        System.arraycopy(scores, 0, copy.scores, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    private void removeWorst() {
+        size--;
+        ordinals[0] = ordinals[size];
+        scores[0] = scores[size];
+        siftDown(0);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!isBetter(ordinals[parent], scores[parent], ordinals[index], scores[index])) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && isBetter(ordinals[worst], scores[worst], ordinals[left], scores[left])) {
+                worst = left;
+            }
+            if (right < size && isBetter(ordinals[worst], scores[worst], ordinals[right], scores[right])) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int first, int second) {
+        int ordinal = ordinals[first];
+        ordinals[first] = ordinals[second];
+        ordinals[second] = ordinal;
+
+        double score = scores[first];
+        scores[first] = scores[second];
+        scores[second] = score;
+    }
+
+    private static boolean isBetter(int ordinal, double score, int otherOrdinal, double otherScore) {
+        int comparison = Double.compare(score, otherScore);
+        return comparison > 0 || comparison == 0 && ordinal < otherOrdinal;
+    }
+}
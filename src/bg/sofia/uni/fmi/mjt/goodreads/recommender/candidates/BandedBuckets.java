@@ -0,0 +1,60 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The buckets of locality-sensitive hashing with banding: the signature of a book is split into
+ * bands, each band is hashed to a key and books are candidates for each other when they share
+ * the key of at least one band.
+ */
+final class BandedBuckets {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final List<Map<Long, List<Book>>> buckets;
+
+    BandedBuckets(int bands) {
+        this.buckets = new ArrayList<>(bands);
+        for (int band = 0; band < bands; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    void add(Book book, long[] bandKeys) {
+        for (int band = 0; band < bandKeys.length; band++) {
+            buckets.get(band).computeIfAbsent(bandKeys[band], key -> new ArrayList<>()).add(book);
+        }
+    }
+
+    Set<Book> candidates(long[] bandKeys) {
+        Set<Book> candidates = new LinkedHashSet<>();
+        for (int band = 0; band < bandKeys.length; band++) {
+            candidates.addAll(buckets.get(band).getOrDefault(bandKeys[band], List.of()));
+        }
+        return candidates;
+    }
+
+    /**
+     * Combines a value into a running hash.
+     */
+    static long combine(long hash, long value) {
+        return mix(hash * GOLDEN_GAMMA + value);
+    }
+
+    /**
+     * The finalizer of SplitMix64, which spreads every bit of the input over the whole output.
+     */
+    static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
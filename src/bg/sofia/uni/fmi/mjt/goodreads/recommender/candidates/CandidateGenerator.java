@@ -0,0 +1,20 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+import java.util.Set;
+
+/**
+ * Selects the books of a corpus which are likely to be similar to an origin book, so that
+ * only they have to be scored exactly instead of the whole corpus.
+ */
+public interface CandidateGenerator {
+
+    /**
+     * @param origin the book to find candidates for, which does not have to be part of the corpus
+     * @return the books of the corpus which are likely to be similar to origin
+     * @throws IllegalArgumentException if origin is null
+     */
+    Set<Book> candidates(Book origin);
+
+}
@@ -0,0 +1,93 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Finds books with overlapping genres through MinHash signatures of their genre sets and LSH banding.
+ * Two books share a band with probability {@code 1 - (1 - j^rowsPerBand)^bands}, where j is the
+ * Jaccard similarity of their genres, so more bands raise the recall and more rows per band shrink
+ * the number of candidates. Genres are compared case-sensitively, like in
+ * {@link bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.genres.GenresOverlapSimilarityCalculator}.
+ * Books without genres have no similar books and are never candidates.
+ */
+public class MinHashGenresCandidateGenerator implements CandidateGenerator {
+
+    private final int bands;
+    private final int rowsPerBand;
+    private final long[] seeds;
+    private final BandedBuckets buckets;
+
+    /**
+     * @param bands       the number of bands of the signature
+     * @param rowsPerBand the number of MinHash values in each band
+     * @param seed        the seed of the hash functions, so that signatures are reproducible
+     * @throws IllegalArgumentException if books is null or empty or bands or rowsPerBand is not positive
+     */
+    public MinHashGenresCandidateGenerator(Set<Book> books, int bands, int rowsPerBand, long seed) {
+        if (books == null || books.isEmpty()) {
+            throw new IllegalArgumentException("Books set must not be null or empty.");
+        }
+        if (bands <= 0 || rowsPerBand <= 0) {
+            throw new IllegalArgumentException("Bands and rows per band must be greater than 0.");
+        }
+        this.bands = bands;
+        this.rowsPerBand = rowsPerBand;
+
+        SplittableRandom random = new SplittableRandom(seed);
+        this.seeds = new long[bands * rowsPerBand];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = random.nextLong();
+        }
+
+        this.buckets = new BandedBuckets(bands);
+        for (Book book : books) {
+            long[] bandKeys = bandKeys(book.genres());
+            if (bandKeys != null) {
+                buckets.add(book, bandKeys);
+            }
+        }
+    }
+
+    @Override
+    public Set<Book> candidates(Book origin) {
+        if (origin == null) {
+            throw new IllegalArgumentException("Origin book must not be null.");
+        }
+
+        long[] bandKeys = bandKeys(origin.genres());
+        return bandKeys == null ? Set.of() : buckets.candidates(bandKeys);
+    }
+
+    /**
+     * @return the keys of the bands of the MinHash signature of the genres or null if there are no genres
+     */
+    private long[] bandKeys(List<String> genres) {
+        if (genres == null || genres.isEmpty()) {
+            return null;
+        }
+
+        long[] signature = new long[seeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String genre : genres) {
+            long genreHash = BandedBuckets.mix(genre.hashCode());
+            for (int i = 0; i < seeds.length; i++) {
+                signature[i] = Math.min(signature[i], BandedBuckets.mix(genreHash ^ seeds[i]));
+            }
+        }
+
+        long[] bandKeys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long key = band;
+            for (int row = 0; row < rowsPerBand; row++) {
+                key = BandedBuckets.combine(key, signature[band * rowsPerBand + row]);
+            }
+            bandKeys[band] = key;
+        }
+        return bandKeys;
+    }
+}
@@ -0,0 +1,103 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.SparseVector;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.TFIDFSimilarityCalculator;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Finds books with similar descriptions through SimHash signatures of their TF-IDF vectors and LSH
+ * banding. Every bit of a signature is the side of a random hyperplane the vector lies on, so two
+ * vectors at angle θ agree on a bit with probability {@code 1 - θ / π}. More bands raise the recall
+ * and more bits per band shrink the number of candidates. The hyperplanes are derived from hashes
+ * of the term ids, so they are never stored. Books without description words have no similar books
+ * and are never candidates.
+ */
+public class SimHashDescriptionCandidateGenerator implements CandidateGenerator {
+
+    private static final int MAX_BITS_PER_BAND = Long.SIZE;
+
+    private final TFIDFSimilarityCalculator calculator;
+    private final int bands;
+    private final int bitsPerBand;
+    private final long seed;
+    private final BandedBuckets buckets;
+
+    /**
+     * @param calculator  the calculator whose TF-IDF vectors are hashed
+     * @param bands       the number of bands of the signature
+     * @param bitsPerBand the number of signature bits in each band, at most 64
+     * @param seed        the seed of the hyperplanes, so that signatures are reproducible
+     * @throws IllegalArgumentException if books is null or empty, calculator is null, bands is not
+     *                                  positive or bitsPerBand is not between 1 and 64
+     */
+    public SimHashDescriptionCandidateGenerator(Set<Book> books, TFIDFSimilarityCalculator calculator,
+                                                int bands, int bitsPerBand, long seed) {
+        if (books == null || books.isEmpty()) {
+            throw new IllegalArgumentException("Books set must not be null or empty.");
+        }
+        if (calculator == null) {
+            throw new IllegalArgumentException("TFIDFSimilarityCalculator must not be null.");
+        }
+        if (bands <= 0 || bitsPerBand <= 0 || bitsPerBand > MAX_BITS_PER_BAND) {
+            throw new IllegalArgumentException("Bands must be positive and bits per band between 1 and 64.");
+        }
+        this.calculator = calculator;
+        this.bands = bands;
+        this.bitsPerBand = bitsPerBand;
+        this.seed = seed;
+
+        this.buckets = new BandedBuckets(bands);
+        for (Book book : books) {
+            long[] bandKeys = bandKeys(calculator.vectorOf(book));
+            if (bandKeys != null) {
+                buckets.add(book, bandKeys);
+            }
+        }
+    }
+
+    @Override
+    public Set<Book> candidates(Book origin) {
+        if (origin == null) {
+            throw new IllegalArgumentException("Origin book must not be null.");
+        }
+
+        long[] bandKeys = bandKeys(calculator.vectorOf(origin));
+        return bandKeys == null ? Set.of() : buckets.candidates(bandKeys);
+    }
+
+    /**
+     * @return the keys of the bands of the SimHash signature of the vector or null if the vector is zero
+     */
+    private long[] bandKeys(SparseVector vector) {
+        if (vector.norm() == 0) {
+            return null;
+        }
+
+        long[] bandKeys = new long[bands];
+        double[] projections = new double[bitsPerBand];
+        for (int band = 0; band < bands; band++) {
+            Arrays.fill(projections, 0.0);
+            long bandSeed = BandedBuckets.combine(seed, band);
+
+            for (int i = 0; i < vector.size(); i++) {
+                long signs = BandedBuckets.mix(BandedBuckets.combine(bandSeed, vector.termId(i)));
+                double weight = vector.weight(i);
+                for (int bit = 0; bit < bitsPerBand; bit++) {
+                    projections[bit] += (signs >>> bit & 1) == 0 ? weight : -weight;
+                }
+            }
+
+            long bits = 0;
+            for (int bit = 0; bit < bitsPerBand; bit++) {
+                if (projections[bit] > 0) {
+                    bits |= 1L << bit;
+                }
+            }
+            bandKeys[band] = BandedBuckets.combine(band, bits);
+        }
+        return bandKeys;
+    }
+}
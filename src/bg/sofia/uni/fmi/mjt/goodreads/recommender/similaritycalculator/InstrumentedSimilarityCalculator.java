@@ -0,0 +1,194 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.metrics.MetricsSink;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Records the calls, errors and latencies of another calculator into a {@link MetricsSink} under
+ * the operation {@code similarity.<name>}. A recommendation scores the whole corpus and a single
+ * similarity may take less than 100 ns, so every call is counted but only a random sample of the
+ * calls is timed, which keeps the cost of reading the clock off most calls.
+ *
+ * <p>The bounds and the cost are the ones of the wrapped calculator. The instrumented calculator
+ * is a {@link ThresholdSimilarityCalculator} and an {@link UpdatableSimilarityCalculator} whenever
+ * the wrapped one is, so that an instrumented composite calculator still stops early and a
+ * recommender still passes its updates on. The snapshots of an updatable calculator are recorded
+ * under the same operation.
+ */
+public class InstrumentedSimilarityCalculator implements SimilarityCalculator {
+
+    private final SimilarityCalculator calculator;
+    private final MetricsSink.Recorder recorder;
+    private final int sampleInterval;
+
+    private InstrumentedSimilarityCalculator(SimilarityCalculator calculator, MetricsSink.Recorder recorder,
+                                             int sampleInterval) {
+        this.calculator = calculator;
+        this.recorder = recorder;
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * @param name           the name of the calculator in the operation name
+     * @param sampleInterval time one in this many calls on average, 1 to time every call
+     * @return an instrumented calculator which implements the same calculator interfaces as calculator
+     * @throws IllegalArgumentException if calculator, name or sink is null or sampleInterval is not positive
+     */
+    public static SimilarityCalculator of(SimilarityCalculator calculator, String name, MetricsSink sink,
+                                          int sampleInterval) {
+        if (calculator == null) {
+            throw new IllegalArgumentException("SimilarityCalculator must not be null.");
+        }
+        if (name == null || sink == null) {
+            throw new IllegalArgumentException("Name and MetricsSink must not be null.");
+        }
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("Sample interval must be greater than 0.");
+        }
+        return of(calculator, sink.recorder("similarity." + name), sampleInterval);
+    }
+
+    private static SimilarityCalculator of(SimilarityCalculator calculator, MetricsSink.Recorder recorder,
+                                           int sampleInterval) {
+        boolean bounded = calculator instanceof ThresholdSimilarityCalculator;
+        if (calculator instanceof UpdatableSimilarityCalculator updatable) {
+            return bounded
+                ? new UpdatableThresholdCalculator(updatable, recorder, sampleInterval)
+                : new UpdatableCalculator(updatable, recorder, sampleInterval);
+        }
+        return bounded
+            ? new ThresholdCalculator((ThresholdSimilarityCalculator) calculator, recorder, sampleInterval)
+            : new InstrumentedSimilarityCalculator(calculator, recorder, sampleInterval);
+    }
+
+    @Override
+    public double calculateSimilarity(Book first, Book second) {
+        return record(first, second, Double.NEGATIVE_INFINITY);
+    }
+
+    @Override
+    public double upperBound() {
+        return calculator.upperBound();
+    }
+
+    @Override
+    public double lowerBound() {
+        return calculator.lowerBound();
+    }
+
+    @Override
+    public double cost() {
+        return calculator.cost();
+    }
+
+    /**
+     * @return the similarity of the wrapped calculator, which a threshold-aware calculator may cut
+     * short below the threshold
+     */
+    double similarity(Book first, Book second, double threshold) {
+        return calculator.calculateSimilarity(first, second);
+    }
+
+    final double record(Book first, Book second, double threshold) {
+        if (sampleInterval > 1 && ThreadLocalRandom.current().nextInt(sampleInterval) != 0) {
+            boolean failed = true;
+            try {
+                double similarity = similarity(first, second, threshold);
+                failed = false;
+                return similarity;
+            } finally {
+                recorder.recordUntimed(failed);
+            }
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            double similarity = similarity(first, second, threshold);
+            failed = false;
+            return similarity;
+        } finally {
+            recorder.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * @return the snapshot instrumented like this calculator, under the same operation
+     */
+    final SimilarityCalculator instrumented(SimilarityCalculator snapshot) {
+        return of(snapshot, recorder, sampleInterval);
+    }
+
+    private static final class ThresholdCalculator extends InstrumentedSimilarityCalculator
+        implements ThresholdSimilarityCalculator {
+
+        private final ThresholdSimilarityCalculator calculator;
+
+        private ThresholdCalculator(ThresholdSimilarityCalculator calculator, MetricsSink.Recorder recorder,
+                                    int sampleInterval) {
+            super(calculator, recorder, sampleInterval);
+            this.calculator = calculator;
+        }
+
+        @Override
+        public double calculateSimilarity(Book first, Book second, double threshold) {
+            return record(first, second, threshold);
+        }
+
+        @Override
+        double similarity(Book first, Book second, double threshold) {
+            return calculator.calculateSimilarity(first, second, threshold);
+        }
+    }
+
+    private static class UpdatableCalculator extends InstrumentedSimilarityCalculator
+        implements UpdatableSimilarityCalculator {
+
+        private final UpdatableSimilarityCalculator calculator;
+
+        private UpdatableCalculator(UpdatableSimilarityCalculator calculator, MetricsSink.Recorder recorder,
+                                    int sampleInterval) {
+            super(calculator, recorder, sampleInterval);
+            this.calculator = calculator;
+        }
+
+        @Override
+        public boolean addBook(Book book) {
+            return calculator.addBook(book);
+        }
+
+        @Override
+        public boolean removeBook(Book book) {
+            return calculator.removeBook(book);
+        }
+
+        @Override
+        public SimilarityCalculator snapshot() {
+            return instrumented(calculator.snapshot());
+        }
+    }
+
+    private static final class UpdatableThresholdCalculator extends UpdatableCalculator
+        implements ThresholdSimilarityCalculator {
+
+        private final ThresholdSimilarityCalculator calculator;
+
+        private UpdatableThresholdCalculator(UpdatableSimilarityCalculator calculator, MetricsSink.Recorder recorder,
+                                             int sampleInterval) {
+            super(calculator, recorder, sampleInterval);
+            this.calculator = (ThresholdSimilarityCalculator) calculator;
+        }
+
+        @Override
+        public double calculateSimilarity(Book first, Book second, double threshold) {
+            return record(first, second, threshold);
+        }
+
+        @Override
+        double similarity(Book first, Book second, double threshold) {
+            return calculator.calculateSimilarity(first, second, threshold);
+        }
+    }
+}
@@ -2,6 +2,13 @@ package bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator;
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
 
+/**
+ * Calculates how similar two books are.
+ * Implementations must be safe for concurrent use, because a recommender may score
+ * the books of a corpus from several threads at once. The calculators shipped with the
+ * library only read state which is built in their constructors or published by their updates
+ * as a whole.
+ */
 public interface SimilarityCalculator {
     /**
      * Calculates the similarity between two books.
@@ -11,4 +18,26 @@ public interface SimilarityCalculator {
      * @return a double - score of similarity
      */
     double calculateSimilarity(Book first, Book second);
-}
\ No newline at end of file
+
+    /**
+     * @return the largest similarity this calculator returns for any two books, up to rounding errors
+     */
+    default double upperBound() {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the smallest similarity this calculator returns for any two books, up to rounding errors
+     */
+    default double lowerBound() {
+        return Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @return the cost of a single similarity calculation relative to the other calculators.
+     * Cheaper calculators are evaluated first when a composite score can be cut short.
+     */
+    default double cost() {
+        return 1.0;
+    }
+}
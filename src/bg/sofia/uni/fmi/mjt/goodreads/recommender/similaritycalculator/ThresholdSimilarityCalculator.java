@@ -0,0 +1,20 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+/**
+ * A calculator which can stop early when two books cannot reach a given similarity.
+ * A recommender which only keeps the books scoring at least as high as its current k-th book
+ * passes that score as the threshold, so that hopeless candidates are not fully scored.
+ */
+public interface ThresholdSimilarityCalculator extends SimilarityCalculator {
+    /**
+     * Calculates the similarity between two books if it may reach the threshold.
+     *
+     * @param threshold the similarity the books have to reach to be of interest
+     * @throws IllegalArgumentException if first or second is null
+     * @return exactly {@link #calculateSimilarity(Book, Book)} if that is at least threshold,
+     * otherwise any value below threshold
+     */
+    double calculateSimilarity(Book first, Book second, double threshold);
+}
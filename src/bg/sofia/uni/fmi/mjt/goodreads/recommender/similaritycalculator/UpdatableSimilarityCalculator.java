@@ -0,0 +1,37 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+/**
+ * A calculator which keeps state for the books of a corpus, such as their precomputed features or
+ * statistics over all of them, and is told when books enter or leave the corpus. A recommender
+ * whose corpus changes passes the change on to its calculator, so the calculator only updates
+ * the state of the changed book instead of being created again for the whole corpus.
+ *
+ * <p>Books may be added and removed while similarities are being calculated. A calculation sees
+ * the corpus either before or after an update, and a {@link #snapshot() snapshot} keeps seeing
+ * the corpus it was taken of, so that all books of a recommendation are scored against it.
+ */
+public interface UpdatableSimilarityCalculator extends SimilarityCalculator {
+    /**
+     * Adds a book to the corpus of the calculator.
+     *
+     * @throws IllegalArgumentException if book is null
+     * @return true if the book was not in the corpus before
+     */
+    boolean addBook(Book book);
+
+    /**
+     * Removes a book from the corpus of the calculator.
+     *
+     * @throws IllegalArgumentException if book is null
+     * @return true if the book was in the corpus
+     */
+    boolean removeBook(Book book);
+
+    /**
+     * @return a calculator which scores books like this one does now, even after books are added
+     * to or removed from this calculator
+     */
+    SimilarityCalculator snapshot();
+}
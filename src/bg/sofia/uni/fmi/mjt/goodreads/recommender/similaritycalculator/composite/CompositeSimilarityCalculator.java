@@ -2,34 +2,170 @@ package bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.composit
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
 import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.ThresholdSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.UpdatableSimilarityCalculator;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 
-public class CompositeSimilarityCalculator implements SimilarityCalculator {
+/**
+ * Sums the similarities of several calculators, each multiplied by its weight.
+ * The calculators are evaluated from the cheapest to the most expensive one and always summed in
+ * that order, so a score which is cut short by a threshold never differs from an exhaustive one.
+ * Books added to or removed from the corpus are passed on to the updatable calculators, and a
+ * snapshot combines the snapshots of the updatable calculators with the same weights.
+ */
+public class CompositeSimilarityCalculator implements ThresholdSimilarityCalculator, UpdatableSimilarityCalculator {
 
-    private final Map<SimilarityCalculator, Double> similarityCalculatorMap;
+    /**
+     * How far below the threshold a bound has to be, relative to its magnitude, so that rounding
+     * errors of the partial sums can not turn a skipped candidate into one which reaches the threshold.
+     */
+    private static final double BOUND_SLACK = 1e-9;
+
+    private final SimilarityCalculator[] calculators;
+    private final double[] weights;
+    private final double[] remainingUpperBounds;
+    private final double upperBound;
+    private final double lowerBound;
 
     public CompositeSimilarityCalculator(Map<SimilarityCalculator, Double> similarityCalculatorMap) {
         if (similarityCalculatorMap == null || similarityCalculatorMap.isEmpty()) {
             throw new IllegalArgumentException("Invalid similarity calculator map");
         }
-        this.similarityCalculatorMap = Map.copyOf(similarityCalculatorMap);
+        List<Map.Entry<SimilarityCalculator, Double>> entries = new ArrayList<>(similarityCalculatorMap.entrySet());
+        entries.sort(Comparator.comparingDouble(entry -> entry.getKey().cost()));
+
+        int count = entries.size();
+        this.calculators = new SimilarityCalculator[count];
+        this.weights = new double[count];
+        for (int i = 0; i < count; i++) {
+            calculators[i] = entries.get(i).getKey();
+            weights[i] = entries.get(i).getValue();
+        }
+
+        this.remainingUpperBounds = new double[count + 1];
+        double lower = 0.0;
+        for (int i = count - 1; i >= 0; i--) {
+            remainingUpperBounds[i] = remainingUpperBounds[i + 1]
+                + weightedBound(weights[i], calculators[i].upperBound(), calculators[i].lowerBound());
+            lower += weightedBound(weights[i], calculators[i].lowerBound(), calculators[i].upperBound());
+        }
+        this.upperBound = remainingUpperBounds[0];
+        this.lowerBound = lower;
+    }
+
+    private CompositeSimilarityCalculator(CompositeSimilarityCalculator composite, SimilarityCalculator[] calculators) {
+        this.calculators = calculators;
+        this.weights = composite.weights;
+        this.remainingUpperBounds = composite.remainingUpperBounds;
+        this.upperBound = composite.upperBound;
+        this.lowerBound = composite.lowerBound;
     }
 
     @Override
     public double calculateSimilarity(Book first, Book second) {
+        return calculateSimilarity(first, second, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Adds up the weighted similarities from the cheapest calculator on and stops as soon as the
+     * weighted upper bounds of the remaining calculators can not lift the sum to the threshold.
+     *
+     * @return the weighted sum of the similarities or negative infinity if it is below threshold
+     */
+    @Override
+    public double calculateSimilarity(Book first, Book second, double threshold) {
         if (first == null || second == null) {
             throw new IllegalArgumentException("Books cannot be null.");
         }
 
-        return similarityCalculatorMap.entrySet()
-            .stream()
-            .mapToDouble(entry -> {
-                SimilarityCalculator calculator = entry.getKey();
-                double weight = entry.getValue();
+        double sum = 0.0;
+        for (int i = 0; i < calculators.length; i++) {
+            if (cannotReach(sum + remainingUpperBounds[i], threshold)) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            sum += calculators[i].calculateSimilarity(first, second) * weights[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public boolean addBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book must not be null.");
+        }
+
+        boolean added = false;
+        for (SimilarityCalculator calculator : calculators) {
+            if (calculator instanceof UpdatableSimilarityCalculator updatable) {
+                added |= updatable.addBook(book);
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book must not be null.");
+        }
 
-                return calculator.calculateSimilarity(first, second) * weight;
-            })
-            .sum();
+        boolean removed = false;
+        for (SimilarityCalculator calculator : calculators) {
+            if (calculator instanceof UpdatableSimilarityCalculator updatable) {
+                removed |= updatable.removeBook(book);
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public SimilarityCalculator snapshot() {
+        SimilarityCalculator[] snapshots = calculators.clone();
+        boolean updatable = false;
+        for (int i = 0; i < snapshots.length; i++) {
+            if (snapshots[i] instanceof UpdatableSimilarityCalculator calculator) {
+                snapshots[i] = calculator.snapshot();
+                updatable = true;
+            }
+        }
+        return updatable ? new CompositeSimilarityCalculator(this, snapshots) : this;
+    }
+
+    @Override
+    public double upperBound() {
+        return upperBound;
+    }
+
+    @Override
+    public double lowerBound() {
+        return lowerBound;
+    }
+
+    @Override
+    public double cost() {
+        double cost = 0.0;
+        for (SimilarityCalculator calculator : calculators) {
+            cost += calculator.cost();
+        }
+        return cost;
+    }
+
+    private static boolean cannotReach(double bound, double threshold) {
+        return bound + BOUND_SLACK * (Math.abs(bound) + 1) < threshold;
+    }
+
+    /**
+     * @return the bound of the weighted similarity towards {@code bound}, taking into account
+     * that a negative weight swaps the bounds of the similarity
+     */
+    private static double weightedBound(double weight, double bound, double oppositeBound) {
+        if (weight == 0) {
+            return 0.0;
+        }
+        return weight > 0 ? weight * bound : weight * oppositeBound;
     }
-}
\ No newline at end of file
+}
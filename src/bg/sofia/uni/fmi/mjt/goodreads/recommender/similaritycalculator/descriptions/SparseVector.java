@@ -0,0 +1,84 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions;
+
+/**
+ * An immutable sparse vector of term weights, stored as term ids sorted in ascending order
+ * with a parallel array of weights and a precomputed Euclidean norm.
+ */
+public final class SparseVector {
+
+    private static final SparseVector EMPTY = new SparseVector(new int[0], new double[0]);
+
+    private final int[] termIds;
+    private final double[] weights;
+    private final double norm;
+
+    SparseVector(int[] termIds, double[] weights) {
+        if (termIds.length != weights.length) {
+            throw new IllegalArgumentException("Term ids and weights must have the same length.");
+        }
+        this.termIds = termIds;
+        this.weights = weights;
+        this.norm = computeNorm(weights);
+    }
+
+    public static SparseVector empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return termIds.length;
+    }
+
+    public int termId(int index) {
+        return termIds[index];
+    }
+
+    public double weight(int index) {
+        return weights[index];
+    }
+
+    public double norm() {
+        return norm;
+    }
+
+    /**
+     * Calculates the dot product with another vector by merging the two sorted term id arrays.
+     */
+    public double dot(SparseVector other) {
+        int[] otherTermIds = other.termIds;
+        double[] otherWeights = other.weights;
+
+        double sum = 0.0;
+        int i = 0;
+        int j = 0;
+        while (i < termIds.length && j < otherTermIds.length) {
+            if (termIds[i] < otherTermIds[j]) {
+                i++;
+            } else if (termIds[i] > otherTermIds[j]) {
+                j++;
+            } else {
+                sum += weights[i++] * otherWeights[j++];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return the cosine similarity with another vector or 0.0 if either of them has zero norm
+     */
+    public double cosineSimilarity(SparseVector other) {
+        if (norm == 0 || other.norm == 0) {
+            return 0.0;
+        }
+
+        return dot(other) / (norm * other.norm);
+    }
+
+    private static double computeNorm(double[] weights) {
+        double squaredNorm = 0.0;
+        for (double weight : weights) {
+            squaredNorm += weight * weight;
+        }
+        return Math.sqrt(squaredNorm);
+    }
+}
@@ -0,0 +1,42 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import bg.sofia.uni.fmi.mjt.goodreads.vocabulary.CorpusVocabulary;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Writes the vocabulary, document frequencies and term frequencies of a corpus to a snapshot and
+ * recreates a {@link TFIDFSimilarityCalculator} from them without tokenizing the corpus again.
+ */
+public final class TFIDFModelCodec {
+
+    private TFIDFModelCodec() {
+    }
+
+    /**
+     * Writes the model of the books of the vocabulary, in its ordinal order.
+     */
+    public static void write(DataOutput out, CorpusVocabulary vocabulary) throws IOException {
+        new TFIDFSimilarityCalculator(vocabulary).writeTo(out, vocabulary.books());
+    }
+
+    /**
+     * Recreates the calculator, which keeps reading the term frequencies of the books from the
+     * buffer, so the content of the buffer must not change.
+     */
+    public static TFIDFSimilarityCalculator read(ByteBuffer in, List<Book> books, TextTokenizer tokenizer) {
+        if (books == null) {
+            throw new IllegalArgumentException("Books list must not be null.");
+        }
+        if (tokenizer == null) {
+            throw new IllegalArgumentException("TextTokenizer must not be null.");
+        }
+
+        return new TFIDFSimilarityCalculator(in, books, tokenizer);
+    }
+}
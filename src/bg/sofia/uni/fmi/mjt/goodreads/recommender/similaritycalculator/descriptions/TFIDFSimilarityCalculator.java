@@ -1,37 +1,287 @@
 package bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions;
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.collection.ChunkedBitSet;
+import bg.sofia.uni.fmi.mjt.goodreads.collection.ChunkedIntArray;
 import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.UpdatableSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.snapshot.SnapshotFormat;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TermDictionary;
 import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TokenSink;
+import bg.sofia.uni.fmi.mjt.goodreads.vocabulary.CorpusVocabulary;
 
-import java.util.Collection;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Collectors;
 
-public class TFIDFSimilarityCalculator implements SimilarityCalculator {
+/**
+ * Calculates the cosine similarity of the TF-IDF vectors of the descriptions of two books.
+ *
+ * <p>Books can be added to and removed from the corpus. A book keeps the term frequencies of its
+ * description, which do not depend on the other books, so an update only changes the document
+ * frequencies of the terms of the changed book. The inverse document frequencies also depend on
+ * the size of the corpus, so after an update they are computed again for the whole vocabulary on
+ * the next comparison, and the weights of every vector are computed again the next time it is
+ * compared and kept with the model, so that snapshots of older models keep their own weights.
+ *
+ * <p>Every comparison reads a single immutable {@link Model model} of the corpus. An update
+ * derives the document frequencies of the next model, copying only the chunks of the terms of
+ * the changed book, and publishes it at once, so comparisons never lock and never see a partial
+ * update.
+ */
+public class TFIDFSimilarityCalculator implements UpdatableSimilarityCalculator {
 
-    private Set<Book> books;
-    private TextTokenizer tokenizer;
+    private final TextTokenizer tokenizer;
+    private final BitSet prunedTerms;
+
+    private volatile Model model;
 
     public TFIDFSimilarityCalculator(Set<Book> books, TextTokenizer tokenizer) {
-        this.books = books;
+        this(vocabularyOf(books, tokenizer));
+    }
+
+    /**
+     * Creates a calculator from the term ids and document frequencies of a vocabulary, so that
+     * the corpus is not tokenized again. Pruned terms carry no weight.
+     *
+     * @throws IllegalArgumentException if vocabulary is null
+     */
+    public TFIDFSimilarityCalculator(CorpusVocabulary vocabulary) {
+        if (vocabulary == null) {
+            throw new IllegalArgumentException("Vocabulary must not be null.");
+        }
+        this.tokenizer = vocabulary.tokenizer();
+
+        TermDictionary terms = vocabulary.terms();
+        this.prunedTerms = new BitSet();
+        for (int termId = 0; termId < terms.size(); termId++) {
+            if (vocabulary.isPruned(termId)) {
+                prunedTerms.set(termId);
+            }
+        }
+
+        List<Book> books = vocabulary.books();
+        Map<Book, DescriptionVector> vectors = new ConcurrentHashMap<>();
+        for (int ordinal = 0; ordinal < books.size(); ordinal++) {
+            Book book = books.get(ordinal);
+            int[] ids = vocabulary.descriptionTermIds(ordinal);
+            vectors.put(book, DescriptionVector.of(ordinal, ids, ids.length));
+        }
+        this.model = Model.of(terms, vocabulary.documentFrequencies(), books.size(), vectors);
+    }
+
+    /**
+     * Recreates a calculator from its vocabulary and term frequencies without tokenizing the
+     * corpus again. The term frequencies are stored in the order of {@code books}; only their
+     * offsets are read, as the vectors keep reading them from the buffer, so its content must
+     * not change.
+     */
+    TFIDFSimilarityCalculator(ByteBuffer in, List<Book> books, TextTokenizer tokenizer) {
         this.tokenizer = tokenizer;
+        int totalBooks = in.getInt();
+
+        int termCount = in.getInt();
+        TermDictionary terms = new TermDictionary();
+        for (int termId = 0; termId < termCount; termId++) {
+            terms.add(SnapshotFormat.readString(in));
+        }
+        terms.freeze();
+        int[] documentFrequencies = SnapshotFormat.readInts(in);
+        this.prunedTerms = new BitSet();
+        for (int termId : SnapshotFormat.readInts(in)) {
+            prunedTerms.set(termId);
+        }
+
+        Map<Book, DescriptionVector> vectors = new ConcurrentHashMap<>();
+        for (int ordinal = 0; ordinal < books.size(); ordinal++) {
+            Book book = books.get(ordinal);
+            vectors.put(book, DescriptionVector.in(ordinal, in, in.position()));
+            SnapshotFormat.skipInts(in);
+            SnapshotFormat.skipDoubles(in);
+        }
+        this.model = Model.of(terms, documentFrequencies, totalBooks, vectors);
+    }
+
+    private static CorpusVocabulary vocabularyOf(Set<Book> books, TextTokenizer tokenizer) {
+        if (books == null) {
+            throw new IllegalArgumentException("Books set must not be null.");
+        }
+        if (tokenizer == null) {
+            throw new IllegalArgumentException("TextTokenizer must not be null.");
+        }
+        return CorpusVocabulary.build(books, tokenizer);
+    }
+
+    void writeTo(DataOutput out, List<Book> books) throws IOException {
+        Model current = model;
+        out.writeInt(current.totalBooks);
+
+        out.writeInt(current.terms.size());
+        for (int termId = 0; termId < current.terms.size(); termId++) {
+            SnapshotFormat.writeString(out, current.terms.term(termId));
+        }
+        SnapshotFormat.writeInts(out, current.documentFrequencies.toArray());
+        SnapshotFormat.writeInts(out, prunedTerms.stream().toArray());
+
+        for (Book book : books) {
+            current.vectors.get(book).writeTo(out);
+        }
+    }
+
+    /**
+     * Adds the description of a book to the document frequencies of its terms. The dictionary of
+     * a model may be shared with older models or with a finder, so the book adds its new terms to
+     * a {@link TermDictionary#derive() derived} dictionary.
+     */
+    @Override
+    public synchronized boolean addBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book must not be null.");
+        }
+        Model current = model;
+        if (current.vectorOf(book) != null) {
+            return false;
+        }
+
+        TermDictionary terms = current.terms;
+        DescriptionVector vector = current.vectors.get(book);
+        if (vector == null) {
+            DescriptionTerms words = descriptionTerms(book, new DescriptionTerms(terms, true));
+            terms = words.terms;
+            vector = DescriptionVector.of(current.vectors.size(), words.ids(), words.count);
+            current.vectors.put(book, vector);
+        }
+
+        ChunkedIntArray.Editor documentFrequencies = current.documentFrequencies.withLength(terms.size()).edit();
+        for (int i = 0; i < vector.size; i++) {
+            int termId = vector.termId(i);
+            documentFrequencies.set(termId, documentFrequencies.get(termId) + 1);
+        }
+
+        model = new Model(terms, documentFrequencies.build(), current.totalBooks + 1, current.vectors,
+            current.members.with(vector.slot));
+        return true;
+    }
+
+    /**
+     * Removes the description of a book from the document frequencies of its terms. The vector of
+     * the book is kept for the models which still have the book, until more vectors are kept than
+     * there are books in the corpus and the vectors of the removed books are dropped.
+     */
+    @Override
+    public synchronized boolean removeBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book must not be null.");
+        }
+        Model current = model;
+        DescriptionVector vector = current.vectorOf(book);
+        if (vector == null) {
+            return false;
+        }
+
+        ChunkedIntArray.Editor documentFrequencies = current.documentFrequencies.edit();
+        for (int i = 0; i < vector.size; i++) {
+            int termId = vector.termId(i);
+            documentFrequencies.set(termId, documentFrequencies.get(termId) - 1);
+        }
+
+        Model updated = new Model(current.terms, documentFrequencies.build(), current.totalBooks - 1,
+            current.vectors, current.members.without(vector.slot));
+        model = current.vectors.size() > 2 * updated.totalBooks ? updated.compacted() : updated;
+        return true;
+    }
+
+    /**
+     * @return a calculator which compares books with the current model of this one
+     */
+    @Override
+    public SimilarityCalculator snapshot() {
+        return new Snapshot(this, model);
     }
 
     @Override
     public double calculateSimilarity(Book first, Book second) {
-        Map<String, Double> tfIdfScoresFirst = computeTFIDF(first);
-        Map<String, Double> tfIdfScoresSecond = computeTFIDF(second);
+        return calculateSimilarity(model, first, second);
+    }
+
+    private double calculateSimilarity(Model current, Book first, Book second) {
+        if (first == null || second == null) {
+            throw new IllegalArgumentException("Books cannot be null.");
+        }
+
+        double[] idfs = current.inverseDocumentFrequencies();
+        SparseVector firstVector = cachedVector(current, first, idfs);
+        SparseVector secondVector = cachedVector(current, second, idfs);
+
+        if (firstVector != null && secondVector != null) {
+            return firstVector.cosineSimilarity(secondVector);
+        }
+
+        return queryVector(current, first, firstVector, idfs)
+            .cosineSimilarity(queryVector(current, second, secondVector, idfs));
+    }
+
+    /**
+     * The cosine similarity of two vectors is at most 1.
+     */
+    @Override
+    public double upperBound() {
+        return 1.0;
+    }
 
-        return cosineSimilarity(tfIdfScoresFirst, tfIdfScoresSecond);
+    @Override
+    public double lowerBound() {
+        return -1.0; // weights are negative for terms which occur in almost every description
+    }
+
+    /**
+     * Comparing two vectors touches every term of both descriptions and books outside the corpus
+     * are tokenized first, so this is far more expensive than comparing genres.
+     */
+    @Override
+    public double cost() {
+        return 10.0;
+    }
+
+    /**
+     * @return the TF-IDF vector of the book over the term ids of the corpus. Words which do not
+     * occur in the corpus have no term id and are left out of the vector.
+     * @throws IllegalArgumentException if book is null
+     */
+    public SparseVector vectorOf(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null.");
+        }
+
+        Model current = model;
+        double[] idfs = current.inverseDocumentFrequencies();
+        SparseVector cached = cachedVector(current, book, idfs);
+        if (cached != null) {
+            return cached;
+        }
+
+        DescriptionTerms words = descriptionTerms(book, new DescriptionTerms(current.terms, false));
+        return DescriptionVector.of(-1, words.ids(), words.count).weigh(idfs, prunedTerms);
     }
 
     public Map<String, Double> computeTFIDF(Book book) {
+        return computeTFIDF(model, book);
+    }
+
+    private Map<String, Double> computeTFIDF(Model current, Book book) {
         Map<String, Double> tf = computeTF(book);
-        Map<String, Double> idf = computeIDF(book);
+        Map<String, Double> idf = computeIDF(current, book);
 
         if (tf.isEmpty() || idf.isEmpty()) {
             return Map.of();  // return empty map for empty descriptions or no valid tokens
@@ -60,6 +310,10 @@ public class TFIDFSimilarityCalculator implements SimilarityCalculator {
     }
 
     public Map<String, Double> computeIDF(Book book) {
+        return computeIDF(model, book);
+    }
+
+    private Map<String, Double> computeIDF(Model current, Book book) {
         List<String> tokens = getValidTokens(book);
 
         if (tokens.isEmpty()) {
@@ -67,34 +321,54 @@ public class TFIDFSimilarityCalculator implements SimilarityCalculator {
         }
 
         Set<String> uniqueWords = new HashSet<>(tokens);
-        int totalBooks = books.size();
 
-        Map<String, Long> documentFrequencies = computeDocumentFrequencies(uniqueWords, books);
+        return uniqueWords.stream()
+            .collect(Collectors.toMap(word -> word, word -> idf(current, word)));
+    }
 
-        return documentFrequencies.entrySet()
-            .stream()
-            .collect(Collectors.toMap(
-                Map.Entry::getKey,
-                entry -> Math.log(
-                    (double) totalBooks / (1 + entry.getValue())))); // use the smooth method???
+    /**
+     * @return the vector of a book of the corpus of the model, or null for a book outside it
+     */
+    private SparseVector cachedVector(Model current, Book book, double[] idfs) {
+        DescriptionVector cached = current.vectorOf(book);
+        if (cached == null) {
+            return null;
+        }
+        return current.weighted(cached, idfs, prunedTerms);
     }
 
-    private Map<String, Long> computeDocumentFrequencies(Set<String> uniqueWords, Set<Book> books) {
-        if (uniqueWords.isEmpty()) {
-            return Map.of();
+    /**
+     * @return the vector of a book which may be outside the corpus of the model: the cached
+     * vector of a book of the corpus or the vector of its description, with the words which are
+     * not terms of the corpus weighted like terms which occur in no description
+     */
+    private QueryVector queryVector(Model current, Book book, SparseVector cached, double[] idfs) {
+        if (cached != null) {
+            return new QueryVector(cached, Map.of());
         }
 
-        return uniqueWords.stream()
-            .collect(Collectors.toMap(
-                word -> word,
-                word -> books.stream()
-                    .filter(book -> isWordInBookDescription(book, word))
-                    .count()));
+        DescriptionTerms words = descriptionTerms(book, new DescriptionTerms(current.terms, false));
+        SparseVector terms = DescriptionVector.of(-1, words.ids(), words.count)
+            .weigh(idfs, prunedTerms);
+        if (words.otherWords.isEmpty()) {
+            return new QueryVector(terms, Map.of());
+        }
+
+        double idf = current.idf(0);
+        Map<String, Double> otherWords = new HashMap<>();
+        words.otherWords.forEach((word, count) -> otherWords.put(word, (double) count / words.count * idf));
+        return new QueryVector(terms, otherWords);
     }
 
-    private boolean isWordInBookDescription(Book book, String word) {
-        List<String> tokens = getValidTokens(book);
-        return tokens.contains(word);
+    /**
+     * @return the inverse document frequency of a word, which is 0 for pruned terms
+     */
+    private double idf(Model current, String word) {
+        int termId = current.terms.idOf(word);
+        if (termId == TermDictionary.NOT_FOUND) {
+            return current.idf(0);
+        }
+        return prunedTerms.get(termId) ? 0.0 : current.idf(current.documentFrequencies.get(termId));
     }
 
     private List<String> getValidTokens(Book book) {
@@ -106,31 +380,362 @@ public class TFIDFSimilarityCalculator implements SimilarityCalculator {
         return tokenizer.tokenize(description);
     }
 
-    private double cosineSimilarity(Map<String, Double> first, Map<String, Double> second) {
-        double magnitudeFirst = magnitude(first.values());
-        double magnitudeSecond = magnitude(second.values());
+    private DescriptionTerms descriptionTerms(Book book, DescriptionTerms words) {
+        String description = book.description();
+        if (description != null && !description.isBlank()) {
+            tokenizer.tokenize(description, words);
+        }
+        return words;
+    }
+
+    /**
+     * An immutable version of the corpus of the calculator.
+     *
+     * <p>The vectors of the books are kept in a map which models share. A vector does not depend
+     * on the other books, so an update only puts the vector of a new book into the map and sets
+     * its slot in the bitset of the books of the next model, while older models do not have the
+     * slot set and ignore the vector. The vectors of removed books stay in the map, so that the
+     * models which still have them can use them, until {@link #compacted() compaction} builds a
+     * map which is not shared with older models.
+     */
+    private static final class Model {
+
+        private final TermDictionary terms;
+        private final ChunkedIntArray documentFrequencies;
+        private final int totalBooks;
+        private final Map<Book, DescriptionVector> vectors;
+        private final ChunkedBitSet members;
+
+        private volatile double[] inverseDocumentFrequencies;
+        private volatile AtomicReferenceArray<SparseVector> weightedVectors;
+
+        private Model(TermDictionary terms, ChunkedIntArray documentFrequencies, int totalBooks,
+                      Map<Book, DescriptionVector> vectors, ChunkedBitSet members) {
+            this.terms = terms;
+            this.documentFrequencies = documentFrequencies;
+            this.totalBooks = totalBooks;
+            this.vectors = vectors;
+            this.members = members;
+        }
+
+        /**
+         * @param vectors the vectors of all books of the corpus, with the slots from 0 on
+         */
+        static Model of(TermDictionary terms, int[] documentFrequencies, int totalBooks,
+                        Map<Book, DescriptionVector> vectors) {
+            BitSet members = new BitSet();
+            members.set(0, vectors.size());
+            return new Model(terms, ChunkedIntArray.of(Arrays.copyOf(documentFrequencies, terms.size())), totalBooks,
+                vectors, ChunkedBitSet.of(members));
+        }
+
+        /**
+         * @return the vector of a book of this corpus or null if the book is not in it
+         */
+        DescriptionVector vectorOf(Book book) {
+            DescriptionVector vector = vectors.get(book);
+            return vector != null && members.get(vector.slot) ? vector : null;
+        }
+
+        /**
+         * Computes the inverse document frequencies of all terms on the first comparison with this
+         * model. Comparisons which start at the same time may compute them at the same time
+         * instead of waiting for each other, which gives equal arrays.
+         *
+         * @return the inverse document frequencies of all terms, by term id
+         */
+        double[] inverseDocumentFrequencies() {
+            double[] idfs = inverseDocumentFrequencies;
+            if (idfs == null) {
+                idfs = new double[terms.size()];
+                int[] frequencies = documentFrequencies.toArray();
+                for (int termId = 0; termId < idfs.length; termId++) {
+                    idfs[termId] = idf(frequencies[termId]);
+                }
+                inverseDocumentFrequencies = idfs;
+            }
+            return idfs;
+        }
+
+        /**
+         * Weighs a vector of this model on its first comparison with the model and keeps the
+         * weighted vector by its slot. Like the inverse document frequencies, the array of the
+         * weighted vectors is created on the first comparison, and comparisons at the same time
+         * may weigh the same vector or create the array at the same time, which gives equal ones.
+         *
+         * @param vector a vector of a book of this model
+         * @param idfs   the inverse document frequencies of this model
+         */
+        SparseVector weighted(DescriptionVector vector, double[] idfs, BitSet prunedTerms) {
+            AtomicReferenceArray<SparseVector> weighted = weightedVectors;
+            if (weighted == null) {
+                weighted = new AtomicReferenceArray<>(vectors.size());
+                weightedVectors = weighted;
+            }
+
+            SparseVector result = weighted.get(vector.slot);
+            if (result == null) {
+                result = vector.weigh(idfs, prunedTerms);
+                weighted.set(vector.slot, result);
+            }
+            return result;
+        }
+
+        double idf(int documentFrequency) {
+            return Math.log((double) totalBooks / (1 + documentFrequency)); // smooth method
+        }
+
+        /**
+         * @return a model with the vectors of the books of this one only, in new slots
+         */
+        Model compacted() {
+            Map<Book, DescriptionVector> kept = new ConcurrentHashMap<>();
+            vectors.forEach((book, vector) -> {
+                if (members.get(vector.slot)) {
+                    kept.put(book, vector.withSlot(kept.size()));
+                }
+            });
+            return Model.of(terms, documentFrequencies.toArray(), totalBooks, kept);
+        }
+    }
+
+    /**
+     * Compares books with a fixed model of a calculator.
+     */
+    private static final class Snapshot implements SimilarityCalculator {
+
+        private final TFIDFSimilarityCalculator calculator;
+        private final Model model;
+
+        private Snapshot(TFIDFSimilarityCalculator calculator, Model model) {
+            this.calculator = calculator;
+            this.model = model;
+        }
+
+        @Override
+        public double calculateSimilarity(Book first, Book second) {
+            return calculator.calculateSimilarity(model, first, second);
+        }
+
+        @Override
+        public double upperBound() {
+            return calculator.upperBound();
+        }
+
+        @Override
+        public double lowerBound() {
+            return calculator.lowerBound();
+        }
+
+        @Override
+        public double cost() {
+            return calculator.cost();
+        }
+    }
+
+    /**
+     * The term frequencies of a description, either in arrays or in a snapshot, where the term ids
+     * are followed by the frequencies.
+     */
+    private static final class DescriptionVector {
+
+        private final int slot;
+        private final int size;
+        private final int[] termIds;
+        private final double[] frequencies;
+        private final ByteBuffer snapshot;
+        private final int offset;
+
+        private DescriptionVector(int slot, int[] termIds, double[] frequencies) {
+            this(slot, termIds.length, termIds, frequencies, null, 0);
+        }
+
+        private DescriptionVector(int slot, int size, int[] termIds, double[] frequencies, ByteBuffer snapshot,
+                                  int offset) {
+            this.slot = slot;
+            this.size = size;
+            this.termIds = termIds;
+            this.frequencies = frequencies;
+            this.snapshot = snapshot;
+            this.offset = offset;
+        }
+
+        /**
+         * @param offset the offset of the term ids of the vector in the snapshot
+         */
+        static DescriptionVector in(int slot, ByteBuffer snapshot, int offset) {
+            return new DescriptionVector(slot, snapshot.getInt(offset), null, null, snapshot, offset);
+        }
+
+        /**
+         * @param slot       the slot of the vector in the models, or -1 for a book outside the corpus
+         * @param tokenIds   the term ids of the words of the description, in any order
+         * @param totalWords the number of words of the description, which may include words without a term id
+         */
+        static DescriptionVector of(int slot, int[] tokenIds, int totalWords) {
+            int[] sorted = tokenIds.clone();
+            Arrays.sort(sorted);
+
+            int uniqueCount = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    uniqueCount++;
+                }
+            }
+
+            int[] ids = new int[uniqueCount];
+            double[] frequencies = new double[uniqueCount];
+
+            int start = 0;
+            for (int unique = 0; unique < uniqueCount; unique++) {
+                int end = start;
+                while (end < sorted.length && sorted[end] == sorted[start]) {
+                    end++;
+                }
+                ids[unique] = sorted[start];
+                frequencies[unique] = (double) (end - start) / totalWords;
+                start = end;
+            }
+            return new DescriptionVector(slot, ids, frequencies);
+        }
+
+        DescriptionVector withSlot(int newSlot) {
+            return new DescriptionVector(newSlot, size, termIds, frequencies, snapshot, offset);
+        }
+
+        int termId(int index) {
+            return termIds != null ? termIds[index] : snapshot.getInt(offset + (1 + index) * Integer.BYTES);
+        }
+
+        double frequency(int index) {
+            if (frequencies != null) {
+                return frequencies[index];
+            }
+            return snapshot.getDouble(offset + (2 + size) * Integer.BYTES + index * Double.BYTES);
+        }
 
-        if (magnitudeFirst == 0 || magnitudeSecond == 0) {
-            return 0.0;
+        void writeTo(DataOutput out) throws IOException {
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeInt(termId(i));
+            }
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(frequency(i));
+            }
         }
 
-        return dotProduct(first, second) / (magnitudeFirst * magnitudeSecond);
+        /**
+         * @return the vector of the term frequencies multiplied by the inverse document
+         * frequencies, without the pruned terms
+         */
+        SparseVector weigh(double[] idfs, BitSet prunedTerms) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!prunedTerms.get(termId(i))) {
+                    kept++;
+                }
+            }
+            if (kept == 0) {
+                return SparseVector.empty();
+            }
+
+            int[] ids = kept == size && termIds != null ? termIds : new int[kept];
+            double[] weights = new double[kept];
+            int index = 0;
+            for (int i = 0; i < size; i++) {
+                int termId = termId(i);
+                if (!prunedTerms.get(termId)) {
+                    ids[index] = termId;
+                    weights[index++] = frequency(i) * idfs[termId];
+                }
+            }
+            return new SparseVector(ids, weights);
+        }
     }
 
-    private double dotProduct(Map<String, Double> first, Map<String, Double> second) {
-        Set<String> commonKeys = new HashSet<>(first.keySet());
-        commonKeys.retainAll(second.keySet());
+    /**
+     * Collects the term ids of the words of a description as the tokenizer passes them on, so
+     * that only a word which is not a term yet becomes a String. New words are either added to
+     * the dictionary, which is derived on the first of them, or counted by their text.
+     */
+    private static final class DescriptionTerms implements TokenSink {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final TermDictionary shared;
+        private final boolean addTerms;
+        private final Map<String, Integer> otherWords = new HashMap<>();
+
+        private TermDictionary terms;
+        private int[] ids = new int[INITIAL_CAPACITY];
+        private int size;
+        private int count;
 
-        return commonKeys.stream()
-            .mapToDouble(word -> first.get(word) * second.get(word))
-            .sum();
+        private DescriptionTerms(TermDictionary terms, boolean addTerms) {
+            this.shared = terms;
+            this.terms = terms;
+            this.addTerms = addTerms;
+        }
+
+        @Override
+        public void accept(CharSequence token) {
+            count++;
+            int termId = terms.idOf(token);
+            if (termId == TermDictionary.NOT_FOUND) {
+                if (!addTerms) {
+                    otherWords.merge(token.toString(), 1, Integer::sum);
+                    return;
+                }
+                if (terms == shared) {
+                    terms = shared.derive();
+                }
+                termId = terms.add(token);
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            ids[size++] = termId;
+        }
+
+        /**
+         * @return the term ids of the words which are terms, in token order
+         */
+        int[] ids() {
+            return Arrays.copyOf(ids, size);
+        }
     }
 
-    private double magnitude(Collection<Double> input) {
-        double squaredMagnitude = input.stream()
-            .map(v -> v * v)
-            .reduce(0.0, Double::sum);
+    /**
+     * The TF-IDF vector of a description which is not a vector of the model, with the weights of
+     * its words which are not terms of the corpus by their text: only another description outside
+     * the corpus can share them.
+     */
+    private record QueryVector(SparseVector terms, Map<String, Double> otherWords) {
 
-        return Math.sqrt(squaredMagnitude);
+        double cosineSimilarity(QueryVector other) {
+            if (otherWords.isEmpty() && other.otherWords.isEmpty()) {
+                return terms.cosineSimilarity(other.terms);
+            }
+
+            double norm = norm();
+            double otherNorm = other.norm();
+            if (norm == 0 || otherNorm == 0) {
+                return 0.0;
+            }
+            double dot = terms.dot(other.terms);
+            for (Map.Entry<String, Double> word : otherWords.entrySet()) {
+                dot += word.getValue() * other.otherWords.getOrDefault(word.getKey(), 0.0);
+            }
+            return dot / (norm * otherNorm);
+        }
+
+        private double norm() {
+            double squaredNorm = terms.norm() * terms.norm();
+            for (double weight : otherWords.values()) {
+                squaredNorm += weight * weight;
+            }
+            return Math.sqrt(squaredNorm);
+        }
     }
-}
\ No newline at end of file
+}
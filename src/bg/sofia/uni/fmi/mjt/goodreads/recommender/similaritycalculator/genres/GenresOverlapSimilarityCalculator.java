@@ -1,12 +1,58 @@
 package bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.genres;
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.collection.ShardedMap;
 import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.UpdatableSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TermDictionary;
 
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
-public class GenresOverlapSimilarityCalculator implements SimilarityCalculator {
+/**
+ * Calculates the overlap coefficient of the genres of two books: the number of genres they share
+ * divided by the number of genres of the book with fewer genres.
+ *
+ * <p>A calculator created for a corpus gives every genre a dense id and keeps a bitset of the
+ * genres of every book, so that two books of the corpus are compared with a few bit counts and
+ * without allocating. Books are looked up by identity and other books are compared through
+ * their genre lists. Books added to the corpus later get their bitsets when they are added.
+ * The map of the bitsets is never modified once it is published: an update publishes a new
+ * version which copies only the shard of the book. The overlap of two books does not depend on
+ * the rest of the corpus, so a snapshot of the calculator is the calculator itself.
+ */
+public class GenresOverlapSimilarityCalculator implements UpdatableSimilarityCalculator {
+
+    private final TermDictionary genres = new TermDictionary();
+    private volatile ShardedMap<Book, GenreBits> genreBits = ShardedMap.identityOf(Map.of());
+
+    public GenresOverlapSimilarityCalculator() {
+    }
+
+    /**
+     * Creates a calculator which precomputes the genre bitsets of the books.
+     *
+     * @throws IllegalArgumentException if books is null
+     */
+    public GenresOverlapSimilarityCalculator(Set<Book> books) {
+        if (books == null) {
+            throw new IllegalArgumentException("Books set must not be null.");
+        }
+
+        Map<Book, GenreBits> bits = new IdentityHashMap<>();
+        for (Book book : books) {
+            GenreBits bookBits = bitsOf(book);
+            if (bookBits != null) {
+                bits.put(book, bookBits);
+            }
+        }
+        this.genreBits = ShardedMap.identityOf(bits);
+    }
 
     @Override
     public double calculateSimilarity(Book first, Book second) {
@@ -14,19 +60,121 @@ public class GenresOverlapSimilarityCalculator implements SimilarityCalculator {
             throw new IllegalArgumentException("Books and their genres must not be null");
         }
 
-        Set<String> firstGenres = new HashSet<>(first.genres());
-        Set<String> secondGenres = new HashSet<>(second.genres());
-
-        firstGenres.retainAll(secondGenres);
-        int intersectionSize = firstGenres.size();
-
         int minSize = Math.min(first.genres().size(), second.genres().size());
 
         if (minSize == 0) {
             return 0.0;
         }
 
+        GenreBits firstBits = cachedBits(first);
+        GenreBits secondBits = cachedBits(second);
+        int intersectionSize = firstBits != null && secondBits != null
+            ? firstBits.intersectionSize(secondBits)
+            : intersectionSize(first.genres(), second.genres());
+
         return (double) intersectionSize / minSize;
     }
 
-}
\ No newline at end of file
+    /**
+     * Precomputes the genre bitset of a book, unless its genres are null or contain null.
+     */
+    @Override
+    public synchronized boolean addBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book must not be null.");
+        }
+        if (genreBits.containsKey(book)) {
+            return false;
+        }
+        GenreBits bits = bitsOf(book);
+        if (bits == null) {
+            return false;
+        }
+        genreBits = genreBits.with(book, bits);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean removeBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book must not be null.");
+        }
+        if (!genreBits.containsKey(book)) {
+            return false;
+        }
+        genreBits = genreBits.without(book);
+        return true;
+    }
+
+    @Override
+    public SimilarityCalculator snapshot() {
+        return this;
+    }
+
+    @Override
+    public double upperBound() {
+        return 1.0;
+    }
+
+    @Override
+    public double lowerBound() {
+        return 0.0;
+    }
+
+    /**
+     * @return the genre bitset of a book, giving ids to its new genres, or null if its genres
+     * are null or contain null
+     */
+    private GenreBits bitsOf(Book book) {
+        List<String> bookGenres = book.genres();
+        if (bookGenres == null || bookGenres.stream().anyMatch(Objects::isNull)) {
+            return null;
+        }
+
+        long[] words = new long[0];
+        for (String genre : bookGenres) {
+            int id = genres.add(genre);
+            if (id / Long.SIZE >= words.length) {
+                words = Arrays.copyOf(words, id / Long.SIZE + 1);
+            }
+            words[id / Long.SIZE] |= 1L << id;
+        }
+        return new GenreBits(bookGenres, words);
+    }
+
+    /**
+     * @return the bitset of a corpus book, as long as its genres are still the ones the bitset
+     * was built from, or null otherwise
+     */
+    private GenreBits cachedBits(Book book) {
+        GenreBits cached = genreBits.get(book);
+        if (cached == null || !Objects.equals(cached.genres(), book.genres())) {
+            return null;
+        }
+        return cached;
+    }
+
+    private static int intersectionSize(List<String> first, List<String> second) {
+        Set<String> firstGenres = new HashSet<>(first);
+        Set<String> secondGenres = new HashSet<>(second);
+
+        firstGenres.retainAll(secondGenres);
+        return firstGenres.size();
+    }
+
+    /**
+     * @param genres the genres the bitset was built from
+     * @param words  the bitset of the genre ids, in words of 64 genres
+     */
+    private record GenreBits(List<String> genres, long[] words) {
+
+        int intersectionSize(GenreBits other) {
+            int sharedWords = Math.min(words.length, other.words.length);
+            int count = 0;
+            for (int i = 0; i < sharedWords; i++) {
+                count += Long.bitCount(words[i] & other.words[i]);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package bg.sofia.uni.fmi.mjt.goodreads.snapshot;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.BookFinder;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.FinderIndexCodec;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.TFIDFModelCodec;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.TFIDFSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import bg.sofia.uni.fmi.mjt.goodreads.vocabulary.CorpusVocabulary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A versioned binary snapshot of a corpus: its books in columnar form, the indexes of a
+ * {@link BookFinder} and the vocabulary and vectors of a {@link TFIDFSimilarityCalculator}.
+ * A snapshot is written once after the dataset is loaded and later opened by memory-mapping the
+ * file, so that a finder and a calculator are recreated without parsing or tokenizing anything.
+ *
+ * <p>The posting lists of the keyword index and the term frequencies of the descriptions, which
+ * are the bulk of the indexes, stay in the mapped file and are read from it when they are used,
+ * so they are shared by all processes which open the same file. Everything else is decoded onto
+ * the heap: the books, when the snapshot is opened, as the finders and recommenders hash and
+ * return them, the dictionaries, as terms are looked up by their text, and the small author and
+ * genre indexes. The weights of the TF-IDF vectors are computed on the heap of each process too.
+ *
+ * <p>Layout: a header (magic, version, book count), the book columns, the finder section,
+ * the TF-IDF section and a footer with the offsets of the two sections.
+ */
+public final class CorpusSnapshot {
+
+    public static final int VERSION = 3;
+
+    private static final int MAGIC = 0x47525342; // "GRSB"
+    private static final int FOOTER_BYTES = 3 * Integer.BYTES;
+
+    private final ByteBuffer buffer;
+    private final List<Book> books;
+    private final Set<Book> bookSet;
+    private final int finderOffset;
+    private final int tfidfOffset;
+    private final int footerOffset;
+
+    private CorpusSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+
+        if (buffer.limit() < 3 * Integer.BYTES + FOOTER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a corpus snapshot.");
+        }
+        int version = buffer.getInt(Integer.BYTES);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + version + ", expected " + VERSION);
+        }
+
+        footerOffset = buffer.limit() - FOOTER_BYTES;
+        finderOffset = buffer.getInt(footerOffset);
+        tfidfOffset = buffer.getInt(footerOffset + Integer.BYTES);
+        if (buffer.getInt(footerOffset + 2 * Integer.BYTES) != MAGIC) {
+            throw new IllegalArgumentException("Corpus snapshot is truncated.");
+        }
+
+        this.books = readBooks(buffer.slice(2 * Integer.BYTES, finderOffset - 2 * Integer.BYTES));
+        this.bookSet = Collections.unmodifiableSet(new LinkedHashSet<>(books));
+    }
+
+    /**
+     * Builds the finder indexes and the TF-IDF model of the books from a single tokenization of the
+     * corpus and writes them to {@code path}.
+     * The snapshot is written to a temporary file which then replaces {@code path}, so a snapshot
+     * which is being written is never opened.
+     *
+     * @throws IllegalArgumentException if books is null or empty or tokenizer is null
+     * @throws UncheckedIOException     if the snapshot could not be written
+     */
+    public static void write(Path path, Set<Book> books, TextTokenizer tokenizer) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path must not be null.");
+        }
+        if (books == null || books.isEmpty()) {
+            throw new IllegalArgumentException("Books set must not be null or empty.");
+        }
+        if (tokenizer == null) {
+            throw new IllegalArgumentException("TextTokenizer must not be null.");
+        }
+
+        CorpusVocabulary vocabulary = CorpusVocabulary.build(books, tokenizer);
+        List<Book> orderedBooks = vocabulary.books();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeBooks(out, orderedBooks);
+
+            int finderSection = out.size();
+            FinderIndexCodec.write(out, vocabulary);
+
+            int tfidfSection = out.size();
+            TFIDFModelCodec.write(out, vocabulary);
+
+            if (out.size() == Integer.MAX_VALUE) { // the counter of DataOutputStream saturates at 2 GB
+                throw new IOException("Snapshots larger than 2 GB are not supported");
+            }
+            out.writeInt(finderSection);
+            out.writeInt(tfidfSection);
+            out.writeInt(MAGIC);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write snapshot", ex);
+        }
+
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not write snapshot", ex);
+        }
+    }
+
+    /**
+     * Memory-maps a snapshot file and decodes its books.
+     *
+     * @throws IllegalArgumentException if the file could not be read, is not a snapshot
+     *                                  or was written by another snapshot version
+     */
+    public static CorpusSnapshot open(Path path) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path must not be null.");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Snapshots larger than 2 GB are not supported.");
+            }
+            return new CorpusSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Could not open snapshot", ex);
+        }
+    }
+
+    /**
+     * @return the books of the snapshot, in the order the indexes refer to them
+     */
+    public Set<Book> books() {
+        return bookSet;
+    }
+
+    /**
+     * Creates a finder from the indexes in the snapshot, which reads its posting lists from the
+     * mapped file.
+     */
+    public BookFinder bookFinder(TextTokenizer tokenizer) {
+        return FinderIndexCodec.read(buffer.slice(finderOffset, tfidfOffset - finderOffset), books, tokenizer);
+    }
+
+    /**
+     * Creates a TF-IDF calculator from the vocabulary and vectors in the snapshot, which reads the
+     * term frequencies of the books from the mapped file.
+     */
+    public TFIDFSimilarityCalculator tfidfSimilarityCalculator(TextTokenizer tokenizer) {
+        return TFIDFModelCodec.read(buffer.slice(tfidfOffset, footerOffset - tfidfOffset), books, tokenizer);
+    }
+
+    private static void writeBooks(DataOutputStream out, List<Book> books) throws IOException {
+        out.writeInt(books.size());
+
+        for (Book book : books) {
+            SnapshotFormat.writeString(out, book.ID());
+        }
+        for (Book book : books) {
+            SnapshotFormat.writeString(out, book.title());
+        }
+        for (Book book : books) {
+            SnapshotFormat.writeString(out, book.author());
+        }
+        for (Book book : books) {
+            SnapshotFormat.writeString(out, book.description());
+        }
+        for (Book book : books) {
+            out.writeInt(book.genres().size());
+            for (String genre : book.genres()) {
+                SnapshotFormat.writeString(out, genre);
+            }
+        }
+        SnapshotFormat.writeDoubles(out, books.stream().mapToDouble(Book::rating).toArray());
+        SnapshotFormat.writeInts(out, books.stream().mapToInt(Book::ratingCount).toArray());
+        for (Book book : books) {
+            SnapshotFormat.writeString(out, book.URL());
+        }
+    }
+
+    private static List<Book> readBooks(ByteBuffer in) {
+        int count = in.getInt();
+
+        String[] ids = readStrings(in, count);
+        String[] titles = readStrings(in, count);
+        String[] authors = readStrings(in, count);
+        String[] descriptions = readStrings(in, count);
+
+        List<List<String>> genres = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            genres.add(List.of(readStrings(in, in.getInt())));
+        }
+
+        double[] ratings = SnapshotFormat.readDoubles(in);
+        int[] ratingCounts = SnapshotFormat.readInts(in);
+        String[] urls = readStrings(in, count);
+
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            books.add(new Book(ids[i], titles[i], authors[i], descriptions[i], genres.get(i),
+                ratings[i], ratingCounts[i], urls[i]));
+        }
+        return List.copyOf(books);
+    }
+
+    private static String[] readStrings(ByteBuffer in, int count) {
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = SnapshotFormat.readString(in);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,85 @@
+package bg.sofia.uni.fmi.mjt.goodreads.snapshot;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoding of the values stored in a snapshot file. All values are big-endian, strings are
+ * stored as their UTF-8 byte length followed by the bytes and arrays as their length followed
+ * by the elements.
+ */
+public final class SnapshotFormat {
+
+    private static final int NULL_LENGTH = -1;
+
+    private SnapshotFormat() {
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeInts(DataOutput out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    public static int[] readInts(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * Skips an array of ints, so that it can be read later by its offset.
+     */
+    public static void skipInts(ByteBuffer in) {
+        int length = in.getInt();
+        in.position(in.position() + length * Integer.BYTES);
+    }
+
+    public static void writeDoubles(DataOutput out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    public static double[] readDoubles(ByteBuffer in) {
+        double[] values = new double[in.getInt()];
+        in.asDoubleBuffer().get(values);
+        in.position(in.position() + values.length * Double.BYTES);
+        return values;
+    }
+
+    /**
+     * Skips an array of doubles, so that it can be read later by its offset.
+     */
+    public static void skipDoubles(ByteBuffer in) {
+        int length = in.getInt();
+        in.position(in.position() + length * Double.BYTES);
+    }
+}
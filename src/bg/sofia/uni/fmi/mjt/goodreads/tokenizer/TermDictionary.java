@@ -0,0 +1,202 @@
+package bg.sofia.uni.fmi.mjt.goodreads.tokenizer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns dense int ids, starting from 0, to terms. Terms are looked up by their characters,
+ * so any {@link CharSequence}, such as a token passed to a {@link TokenSink}, can be looked up
+ * without creating a String. Adding terms is not thread-safe, but a dictionary which is no
+ * longer modified can be read concurrently. A dictionary shared by several components is
+ * {@link #freeze() frozen}, so that none of them can add terms.
+ *
+ * <p>A component which adds terms to a shared dictionary {@link #derive() derives} its own. The
+ * terms are only ever appended to the arrays of a dictionary, so a derived dictionary shares
+ * them and appends its new terms in place, while every dictionary reads only the ids below its
+ * own size. Only the first dictionary which adds terms after a given size appends in place; any
+ * other dictionary copies the terms it sees before adding its own.
+ */
+public final class TermDictionary {
+
+    public static final int NOT_FOUND = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] terms = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private int[] slots = new int[2 * INITIAL_CAPACITY]; // id + 1 of the term in each slot, 0 if empty
+
+    // the number of terms appended to the arrays by all dictionaries which share them
+    private AtomicInteger appended = new AtomicInteger();
+
+    private boolean frozen;
+
+    /**
+     * @return the id of the term, which is added to the dictionary if it is not there yet
+     * @throws IllegalArgumentException if term is null
+     * @throws IllegalStateException    if the term is new and the dictionary is frozen
+     */
+    public int add(CharSequence term) {
+        if (term == null) {
+            throw new IllegalArgumentException("Term must not be null.");
+        }
+
+        int hash = hash(term);
+        int slot = find(term, hash);
+        if (slots[slot] != 0) {
+            return slots[slot] - 1;
+        }
+        if (frozen) {
+            throw new IllegalStateException("Cannot add terms to a frozen dictionary.");
+        }
+        if (!appended.compareAndSet(size, size + 1)) {
+            unshare();
+            slot = find(term, hash);
+        }
+
+        if (size == terms.length) {
+            terms = Arrays.copyOf(terms, 2 * size);
+            hashes = Arrays.copyOf(hashes, 2 * size);
+        }
+        terms[size] = term.toString();
+        hashes[size] = hash;
+        slots[slot] = ++size;
+
+        if (2 * size > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    /**
+     * @return the id of the term or {@link #NOT_FOUND} if it is not in the dictionary
+     */
+    public int idOf(CharSequence term) {
+        if (term == null) {
+            return NOT_FOUND;
+        }
+        return slots[find(term, hash(term))] - 1;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if there is no term with this id
+     */
+    public String term(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("No term with id " + id);
+        }
+        return terms[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Prevents adding terms from now on.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * @return a dictionary which is not frozen and assigns the same ids to the terms of this one,
+     * so that a component can add terms to a shared dictionary without changing it for the others.
+     * The dictionaries share their arrays.
+     */
+    public TermDictionary derive() {
+        TermDictionary derived = new TermDictionary();
+        derived.terms = terms;
+        derived.hashes = hashes;
+        derived.slots = slots;
+        derived.size = size;
+        derived.appended = appended;
+        return derived;
+    }
+
+    /**
+     * @return true if the dictionaries share their arrays of terms
+     */
+    public boolean sharesTermsWith(TermDictionary other) {
+        return terms == other.terms;
+    }
+
+    /**
+     * Copies the terms of this dictionary to arrays of its own, after another dictionary has
+     * appended terms to the shared ones.
+     */
+    private void unshare() {
+        terms = Arrays.copyOf(terms, Math.max(INITIAL_CAPACITY, 2 * size));
+        hashes = Arrays.copyOf(hashes, terms.length);
+        slots = new int[2 * terms.length];
+        rehash(slots.length);
+        appended = new AtomicInteger(size + 1);
+    }
+
+    /**
+     * Skips the slots of the terms which other dictionaries have appended to the shared arrays.
+     *
+     * @return the slot of the term or the slot after the last one of its probe sequence
+     */
+    private int find(CharSequence term, int hash) {
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (id < size && hashes[id] == hash && contentEquals(terms[id], term)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        rehash(2 * slots.length);
+    }
+
+    private void rehash(int slotCount) {
+        slots = new int[slotCount];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(hashes[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static boolean contentEquals(String term, CharSequence other) {
+        if (term.length() != other.length()) {
+            return false;
+        }
+        for (int i = 0; i < term.length(); i++) {
+            if (term.charAt(i) != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The same hash as {@link String#hashCode()}, computed over any CharSequence.
+     */
+    private static int hash(CharSequence term) {
+        int hash = 0;
+        for (int i = 0; i < term.length(); i++) {
+            hash = 31 * hash + term.charAt(i);
+        }
+        return hash;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -3,14 +3,19 @@ package bg.sofia.uni.fmi.mjt.goodreads.tokenizer;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class TextTokenizer {
 
+    private static final int INITIAL_WORD_CAPACITY = 32;
+
     private final Set<String> stopwords;
+    private final TermDictionary stopwordIds = new TermDictionary();
 
     public TextTokenizer(Reader stopwordsReader) {
         if (stopwordsReader == null) { //to delete it?
@@ -22,23 +27,153 @@ public class TextTokenizer {
         } catch (IOException ex) {
             throw new IllegalArgumentException("Could not load dataset", ex);
         }
+        stopwords.forEach(stopwordIds::add);
     }
 
+    /**
+     * Splits the input into lowercase words in a single pass over its characters.
+     * ASCII punctuation is removed, words are separated by ASCII whitespace, words which consist
+     * only of other whitespace characters are ignored and stopwords are removed.
+     */
     public List<String> tokenize(String input) {
         if (input == null || input.isBlank()) {
             return List.of();
         }
 
-        return Arrays.stream(input.replaceAll("\\p{Punct}", "")
-                .replaceAll("\\s+", " ")
-                .toLowerCase()
-                .split(" "))                // Split by space into words
-            .filter(word -> !word.isBlank())   //?????      // Ignore blank words
-            .filter(word -> !stopwords.contains(word)) // Remove stopwords
-            .collect(Collectors.toList());
+        List<String> tokens = new ArrayList<>();
+        tokenize(input, token -> tokens.add(token.toString()));
+        return tokens;
+    }
+
+    /**
+     * Passes the same tokens as {@link #tokenize(String)} to the sink as a reusable view, so that
+     * no String is created for a token. Only words with non-ASCII characters are lowercased
+     * through a String.
+     *
+     * @throws IllegalArgumentException if sink is null
+     */
+    public void tokenize(CharSequence input, TokenSink sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("TokenSink must not be null.");
+        }
+        if (input == null) {
+            return;
+        }
+
+        boolean asciiLowerCase = hasAsciiLowerCase(Locale.getDefault());
+        Word word = new Word(Math.min(input.length(), INITIAL_WORD_CAPACITY));
+        boolean ascii = true;
+        boolean blank = true;
+
+        for (int i = 0, length = input.length(); i <= length; i++) {
+            char current = i < length ? input.charAt(i) : ' ';
+
+            if (isSeparator(current)) {
+                if (word.length() > 0 && !blank) {
+                    if (!ascii || !asciiLowerCase) {
+                        word.set(word.toString().toLowerCase());
+                    }
+                    if (stopwordIds.idOf(word) == TermDictionary.NOT_FOUND) {
+                        sink.accept(word);
+                    }
+                }
+                word.clear();
+                ascii = true;
+                blank = true;
+            } else if (!isPunctuation(current)) {
+                if (current < 0x80) {
+                    boolean upperCase = current >= 'A' && current <= 'Z';
+                    word.append(upperCase && asciiLowerCase ? (char) (current + ('a' - 'A')) : current);
+                } else {
+                    word.append(current);
+                    ascii = false;
+                }
+                blank &= Character.isWhitespace(current);
+            }
+        }
     }
 
     public Set<String> stopwords() {
         return stopwords;
     }
-}
\ No newline at end of file
+
+    /**
+     * The characters of {@code \s} in a regular expression.
+     */
+    private static boolean isSeparator(char value) {
+        return value == ' ' || value >= '\t' && value <= '\r';
+    }
+
+    /**
+     * The characters of {@code \p{Punct}} in a regular expression, which is ASCII punctuation only.
+     */
+    private static boolean isPunctuation(char value) {
+        return value >= '!' && value <= '/' || value >= ':' && value <= '@'
+            || value >= '[' && value <= '`' || value >= '{' && value <= '~';
+    }
+
+    /**
+     * ASCII letters can be lowercased one by one unless the locale has special rules for them:
+     * Turkish and Azerbaijani map {@code I} to a dotless i and Lithuanian keeps the dot of an
+     * {@code I} followed by an accent.
+     */
+    private static boolean hasAsciiLowerCase(Locale locale) {
+        String language = locale.getLanguage();
+        return !language.equals("tr") && !language.equals("az") && !language.equals("lt");
+    }
+
+    /**
+     * The characters of the current word, reused for every word of a text.
+     */
+    private static final class Word implements CharSequence {
+
+        private char[] chars;
+        private int length;
+
+        private Word(int capacity) {
+            this.chars = new char[Math.max(capacity, 1)];
+        }
+
+        private void append(char value) {
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, 2 * length);
+            }
+            chars[length++] = value;
+        }
+
+        private void set(String value) {
+            if (value.length() > chars.length) {
+                chars = new char[value.length()];
+            }
+            value.getChars(0, value.length(), chars, 0);
+            length = value.length();
+        }
+
+        private void clear() {
+            length = 0;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package bg.sofia.uni.fmi.mjt.goodreads.tokenizer;
+
+/**
+ * Receives the tokens of a text one by one.
+ */
+@FunctionalInterface
+public interface TokenSink {
+
+    /**
+     * @param token a view of the lowercase token which is reused for the next token, so it is only
+     *              valid until this method returns. Callers which keep the token must copy it, for
+     *              example with {@code token.toString()}.
+     */
+    void accept(CharSequence token);
+
+}
@@ -0,0 +1,210 @@
+package bg.sofia.uni.fmi.mjt.goodreads.vocabulary;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TermDictionary;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TokenSink;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The terms of the descriptions and titles of a corpus with dense int ids, built by tokenizing
+ * every book once. The tokens are looked up in the dictionary as they are passed on by the
+ * tokenizer, so only a new term becomes a String. The finder and the TF-IDF calculator can be
+ * created from the same vocabulary, so that they work on the same term ids instead of tokenizing
+ * the corpus on their own.
+ *
+ * <p>Document frequencies count the descriptions which contain a term. Terms which occur in too
+ * few or too many descriptions can be pruned: they stay searchable, but carry no TF-IDF weight.
+ */
+public final class CorpusVocabulary {
+
+    public static final int NOT_FOUND = TermDictionary.NOT_FOUND;
+
+    private static final int INITIAL_TERM_IDS = 64;
+
+    private final List<Book> books;
+    private final Map<Book, Integer> ordinals;
+    private final TextTokenizer tokenizer;
+
+    private final TermDictionary terms;
+    private final int[][] descriptionTerms;
+    private final int[][] titleTerms;
+    private final int[] documentFrequencies;
+    private final BitSet prunedTerms;
+
+    private CorpusVocabulary(List<Book> books, TextTokenizer tokenizer, int minDocumentFrequency,
+                             double maxDocumentRatio) {
+        this.books = books;
+        this.tokenizer = tokenizer;
+        this.ordinals = new HashMap<>();
+        this.terms = new TermDictionary();
+        this.descriptionTerms = new int[books.size()][];
+        this.titleTerms = new int[books.size()][];
+
+        TermIds termIds = new TermIds(terms);
+        for (int ordinal = 0; ordinal < books.size(); ordinal++) {
+            Book book = books.get(ordinal);
+            ordinals.putIfAbsent(book, ordinal);
+
+            String description = book.description();
+            if (description != null && !description.isBlank()) {
+                tokenizer.tokenize(description, termIds);
+            }
+            descriptionTerms[ordinal] = termIds.drain();
+            tokenizer.tokenize(book.title(), termIds);
+            titleTerms[ordinal] = termIds.drain();
+        }
+        terms.freeze();
+
+        this.documentFrequencies = countDocumentFrequencies();
+        this.prunedTerms = new BitSet(terms.size());
+        double maxDocumentFrequency = maxDocumentRatio * books.size();
+        for (int termId = 0; termId < terms.size(); termId++) {
+            int frequency = documentFrequencies[termId];
+            if (frequency > 0 && (frequency < minDocumentFrequency || frequency > maxDocumentFrequency)) {
+                prunedTerms.set(termId);
+            }
+        }
+    }
+
+    /**
+     * Builds the vocabulary of the books without pruning any terms. The ordinals of the books
+     * follow the iteration order of the collection.
+     *
+     * @throws IllegalArgumentException if books or tokenizer is null
+     */
+    public static CorpusVocabulary build(Collection<Book> books, TextTokenizer tokenizer) {
+        return build(books, tokenizer, 1, 1.0);
+    }
+
+    /**
+     * Builds the vocabulary of the books and prunes the terms which occur in fewer than
+     * minDocumentFrequency descriptions or in more than maxDocumentRatio of all descriptions.
+     *
+     * @throws IllegalArgumentException if books or tokenizer is null or maxDocumentRatio is not
+     *                                  in (0, 1]
+     */
+    public static CorpusVocabulary build(Collection<Book> books, TextTokenizer tokenizer,
+                                         int minDocumentFrequency, double maxDocumentRatio) {
+        if (books == null) {
+            throw new IllegalArgumentException("Books collection must not be null.");
+        }
+        if (tokenizer == null) {
+            throw new IllegalArgumentException("TextTokenizer must not be null.");
+        }
+        if (!(maxDocumentRatio > 0 && maxDocumentRatio <= 1)) {
+            throw new IllegalArgumentException("Max document ratio must be in (0, 1].");
+        }
+
+        return new CorpusVocabulary(List.copyOf(books), tokenizer, minDocumentFrequency, maxDocumentRatio);
+    }
+
+    /**
+     * @return the books of the corpus in ordinal order
+     */
+    public List<Book> books() {
+        return books;
+    }
+
+    /**
+     * @return the tokenizer the vocabulary was built with
+     */
+    public TextTokenizer tokenizer() {
+        return tokenizer;
+    }
+
+    /**
+     * @return the ordinal of the book or {@link #NOT_FOUND} if it is not part of the corpus
+     */
+    public int ordinalOf(Book book) {
+        return ordinals.getOrDefault(book, NOT_FOUND);
+    }
+
+    /**
+     * @return the frozen dictionary of the term ids
+     */
+    public TermDictionary terms() {
+        return terms;
+    }
+
+    public int documentFrequency(int termId) {
+        return documentFrequencies[termId];
+    }
+
+    /**
+     * @return a copy of the document frequencies indexed by term id
+     */
+    public int[] documentFrequencies() {
+        return documentFrequencies.clone();
+    }
+
+    public boolean isPruned(int termId) {
+        return prunedTerms.get(termId);
+    }
+
+    /**
+     * @return a copy of the term ids of the description of the book with this ordinal, in token order
+     */
+    public int[] descriptionTermIds(int ordinal) {
+        return descriptionTerms[ordinal].clone();
+    }
+
+    /**
+     * @return a copy of the term ids of the title of the book with this ordinal, in token order
+     */
+    public int[] titleTermIds(int ordinal) {
+        return titleTerms[ordinal].clone();
+    }
+
+    private int[] countDocumentFrequencies() {
+        int[] frequencies = new int[terms.size()];
+        int[] lastSeenIn = new int[terms.size()];
+        for (int ordinal = 0; ordinal < descriptionTerms.length; ordinal++) {
+            for (int termId : descriptionTerms[ordinal]) {
+                if (lastSeenIn[termId] != ordinal + 1) {
+                    lastSeenIn[termId] = ordinal + 1;
+                    frequencies[termId]++;
+                }
+            }
+        }
+        return frequencies;
+    }
+
+    /**
+     * Adds the tokens of a text to the dictionary and collects their ids, without creating a
+     * String for a token which is already a term. The buffer is reused for every text.
+     */
+    private static final class TermIds implements TokenSink {
+
+        private final TermDictionary terms;
+        private int[] ids = new int[INITIAL_TERM_IDS];
+        private int size;
+
+        private TermIds(TermDictionary terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        public void accept(CharSequence token) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            ids[size++] = terms.add(token);
+        }
+
+        /**
+         * @return the ids of the tokens of the text, in token order, and starts the next text
+         */
+        private int[] drain() {
+            int[] result = Arrays.copyOf(ids, size);
+            size = 0;
+            return result;
+        }
+    }
+}
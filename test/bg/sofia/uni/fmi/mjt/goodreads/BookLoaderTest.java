@@ -0,0 +1,150 @@
+package bg.sofia.uni.fmi.mjt.goodreads;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookLoaderTest {
+
+    private static final String HEADER = "N,Book,Author,Description,Genres,Avg_Rating,Num_Ratings,URL\n";
+    private static final String HOBBIT = "0,The Hobbit,J.R.R. Tolkien,\"A hobbit, a dragon and a ring.\","
+        + "\"['Fantasy', 'Classics']\",4.28,\"3,589,321\",https://example.com/hobbit\n";
+    private static final String DUNE = "1,Dune,Frank Herbert,Spice.,\"['Science Fiction']\",4.25,\"1,000\","
+        + "https://example.com/dune\n";
+
+    @Test
+    void testLoadSkipsHeader() {
+        Set<Book> books = BookLoader.load(new StringReader(HEADER + HOBBIT + DUNE));
+
+        assertEquals(2, books.size(), "Every row except the header should be loaded as a book.");
+    }
+
+    @Test
+    void testLoadParsesQuotedFields() {
+        Book hobbit = BookLoader.load(new StringReader(HEADER + HOBBIT)).iterator().next();
+
+        assertEquals("A hobbit, a dragon and a ring.", hobbit.description());
+        assertEquals(3_589_321, hobbit.ratingCount());
+    }
+
+    @Test
+    void testLoadWithConsumerPassesBooksInFileOrder() {
+        List<String> titles = new ArrayList<>();
+
+        BookLoader.load(new StringReader(HEADER + HOBBIT + DUNE), book -> titles.add(book.title()));
+
+        assertEquals(List.of("The Hobbit", "Dune"), titles, "Books should be consumed in file order.");
+    }
+
+    @Test
+    void testStreamIsLazy() {
+        String invalidRow = "2,Broken,Author,Description,[],not a rating,1,url\n";
+
+        try (Stream<Book> books = BookLoader.stream(new StringReader(HEADER + HOBBIT + invalidRow))) {
+            assertEquals("The Hobbit", books.findFirst().orElseThrow().title(),
+                "Rows after the consumed ones should not be parsed.");
+        }
+    }
+
+    @Test
+    void testStreamWithInvalidRowThrowsException() {
+        String invalidRow = "2,Broken,Author,Description,[],not a rating,1,url\n";
+
+        try (Stream<Book> books = BookLoader.stream(new StringReader(HEADER + invalidRow))) {
+            assertThrows(IllegalArgumentException.class, books::toList,
+                "An invalid row should fail when it is consumed.");
+        }
+    }
+
+    @Test
+    void testStreamOfEmptyDatasetIsEmpty() {
+        try (Stream<Book> books = BookLoader.stream(new StringReader(""))) {
+            assertTrue(books.findAny().isEmpty(), "An empty dataset should have no books.");
+        }
+    }
+
+    @Test
+    void testStreamWithNullReaderThrowsException() {
+        Reader reader = null;
+
+        assertThrows(IllegalArgumentException.class, () -> BookLoader.stream(reader),
+            "Reader must not be null.");
+    }
+
+    @Test
+    void testLoadFromPathMatchesLoadFromReader(@TempDir Path directory) throws IOException {
+        String tricky = "2,\"Quotes \"\"inside\"\" and \\\"escaped\\\" ones\",\u00C9mile Zola,"
+            + "\"Line one\r\nline two, \u65E5\u672C\",[],\" 3.5 \",\" 1,000 \",url\r\n";
+        String content = HEADER + HOBBIT + DUNE + tricky;
+        Path dataset = write(directory, content);
+
+        assertEquals(BookLoader.load(new StringReader(content)), BookLoader.load(dataset),
+            "The memory-mapped loader should parse the same books as the reader-based one.");
+    }
+
+    @Test
+    void testLoadFromPathFollowsOpenCsvQuoting(@TempDir Path directory) throws IOException {
+        String leadingSpace = "3,Lead,Author, \"lead space\",[],4.0,10,url\n";
+        String quoteInside = "4,ab\"cd,ef\"gh,Author,Description,[],4.0,10,url\n";
+        String textAfterQuote = "5,\"ab\"cd,Author,Description,[],4.0,10,url\n";
+        String escapeOutsideQuotes = "6,Title,Au\\thor,Description,[],4.0,10,url\n";
+        String content = HEADER + HOBBIT + leadingSpace + quoteInside + textAfterQuote + escapeOutsideQuotes + DUNE;
+        Path dataset = write(directory, content);
+
+        Set<Book> expected = BookLoader.load(new StringReader(content));
+
+        assertEquals(expected, BookLoader.load(dataset),
+            "The memory-mapped loader should quote fields like the reader-based one.");
+        assertTrue(expected.stream().anyMatch(book -> book.description().equals("lead space")),
+            "A quoted field after a space should be unquoted.");
+        assertTrue(expected.stream().anyMatch(book -> book.title().equals("ab\"cd,ef\"gh")),
+            "A quote inside an unquoted field should not end the field at a separator.");
+    }
+
+    @Test
+    void testLoadFromPathPassesBooksInFileOrder(@TempDir Path directory) throws IOException {
+        Path dataset = write(directory, HEADER + HOBBIT + DUNE);
+        List<Book> books = new ArrayList<>();
+
+        BookLoader.load(dataset, books::add);
+
+        assertEquals(List.of("The Hobbit", "Dune"), books.stream().map(Book::title).toList());
+        assertEquals(4.28, books.get(0).rating());
+        assertEquals(3_589_321, books.get(0).ratingCount());
+    }
+
+    @Test
+    void testLoadFromPathWithInvalidRatingThrowsException(@TempDir Path directory) throws IOException {
+        Path dataset = write(directory, HEADER + "2,Broken,Author,Description,[],not a rating,1,url\n");
+
+        assertThrows(IllegalArgumentException.class, () -> BookLoader.load(dataset),
+            "An invalid rating should be reported as for the reader-based loader.");
+    }
+
+    @Test
+    void testLoadFromPathWithUnterminatedQuoteThrowsException(@TempDir Path directory) throws IOException {
+        Path dataset = write(directory, HEADER + "2,\"Unterminated,Author\n");
+
+        assertThrows(IllegalArgumentException.class, () -> BookLoader.load(dataset),
+            "An unterminated quoted field should not be accepted.");
+    }
+
+    private static Path write(Path directory, String content) throws IOException {
+        return Files.writeString(directory.resolve("books.csv"), content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,39 @@
+package bg.sofia.uni.fmi.mjt.goodreads.collection;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ChunkedArrayTest {
+
+    private static final int LENGTH = 2 * ChunkedArray.CHUNK_SIZE + 1;
+
+    @Test
+    void testEditDoesNotChangeTheArray() {
+        ChunkedArray<String> array = ChunkedArray.of(new String[] {"a", "b"});
+
+        ChunkedArray.Editor<String> editor = array.withLength(LENGTH).edit();
+        editor.set(0, "c");
+        editor.set(LENGTH - 1, "d");
+        ChunkedArray<String> edited = editor.build();
+
+        assertEquals("c", edited.get(0), "An edited element should be set.");
+        assertEquals("b", edited.get(1), "Other elements should be kept.");
+        assertNull(edited.get(2), "An element which was never set should be null.");
+        assertEquals("d", edited.get(LENGTH - 1), "An element in a new chunk should be set.");
+        assertEquals("a", array.get(0), "The original array should not change.");
+        assertEquals(2, array.length(), "The original array should keep its length.");
+        assertEquals("e", array.with(1, "e").get(1), "With should set a single element.");
+        assertThrows(IndexOutOfBoundsException.class, () -> array.get(2), "An index past the end should throw.");
+    }
+
+    @Test
+    void testEmptyArrayGrowsWithNulls() {
+        ChunkedArray<String> array = ChunkedArray.<String>empty().withLength(LENGTH);
+
+        assertEquals(LENGTH, array.length(), "An empty array should grow to the given length.");
+        assertNull(array.get(LENGTH - 1), "An empty array should grow with nulls.");
+    }
+}
@@ -0,0 +1,83 @@
+package bg.sofia.uni.fmi.mjt.goodreads.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChunkedBitSetTest {
+
+    private static final int FAR = 3 * ChunkedBitSet.BITS_PER_CHUNK + 5;
+
+    @Test
+    void testOfHasTheBitsOfTheBitSet() {
+        BitSet bits = bits(0, 63, 64, ChunkedBitSet.BITS_PER_CHUNK, FAR);
+
+        ChunkedBitSet set = ChunkedBitSet.of(bits);
+
+        assertEquals(5, set.cardinality(), "The cardinality should count the set bits.");
+        assertTrue(set.get(64), "A set bit should be set.");
+        assertFalse(set.get(65), "Other bits should be clear.");
+        assertFalse(set.get(10 * FAR), "Bits beyond the chunks should be clear.");
+        assertEquals(bits, set.toBitSet(), "The bitset should convert back to the same bits.");
+    }
+
+    @Test
+    void testWithAndWithoutDoNotChangeTheBitSet() {
+        ChunkedBitSet empty = ChunkedBitSet.empty();
+
+        ChunkedBitSet set = empty.with(FAR).with(7);
+        ChunkedBitSet cleared = set.without(FAR);
+
+        assertEquals(0, empty.cardinality(), "The original bitset should not change.");
+        assertFalse(empty.get(7), "The original bitset should not have the set bit.");
+        assertEquals(bits(7, FAR), set.toBitSet(), "Setting should add the bits.");
+        assertEquals(bits(7), cleared.toBitSet(), "Clearing should remove the bit.");
+        assertEquals(1, cleared.cardinality(), "The cardinality should follow the updates.");
+        assertSame(set, set.with(7), "Setting a set bit should give the same bitset.");
+        assertSame(cleared, cleared.without(FAR), "Clearing a clear bit should give the same bitset.");
+    }
+
+    @Test
+    void testNextSetBitSkipsEmptyChunks() {
+        ChunkedBitSet set = ChunkedBitSet.of(bits(5, FAR));
+
+        assertEquals(5, set.nextSetBit(0), "The first set bit should be found.");
+        assertEquals(5, set.nextSetBit(5), "The bit itself should be found.");
+        assertEquals(FAR, set.nextSetBit(6), "A set bit after an empty chunk should be found.");
+        assertEquals(-1, set.nextSetBit(FAR + 1), "There should be no set bit after the last.");
+    }
+
+    @Test
+    void testNextClearBit() {
+        BitSet bits = new BitSet();
+        bits.set(0, ChunkedBitSet.BITS_PER_CHUNK + 3);
+        ChunkedBitSet set = ChunkedBitSet.of(bits).with(FAR);
+
+        assertEquals(ChunkedBitSet.BITS_PER_CHUNK + 3, set.nextClearBit(0),
+            "The first clear bit after a full chunk should be found.");
+        assertEquals(2 * ChunkedBitSet.BITS_PER_CHUNK, set.nextClearBit(2 * ChunkedBitSet.BITS_PER_CHUNK),
+            "A bit in an empty chunk should be clear.");
+        assertEquals(FAR + 1, set.nextClearBit(FAR), "The bit after the last set bit should be clear.");
+        assertEquals(20 * FAR, set.nextClearBit(20 * FAR), "Bits beyond the chunks should be clear.");
+    }
+
+    @Test
+    void testNegativeBitThrows() {
+        assertThrows(IndexOutOfBoundsException.class, () -> ChunkedBitSet.empty().with(-1),
+            "A negative bit should be rejected.");
+    }
+
+    private static BitSet bits(int... indexes) {
+        BitSet result = new BitSet();
+        for (int index : indexes) {
+            result.set(index);
+        }
+        return result;
+    }
+}
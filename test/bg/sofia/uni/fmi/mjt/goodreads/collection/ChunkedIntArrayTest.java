@@ -0,0 +1,63 @@
+package bg.sofia.uni.fmi.mjt.goodreads.collection;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ChunkedIntArrayTest {
+
+    private static final int LENGTH = 3 * ChunkedIntArray.CHUNK_SIZE + 1;
+
+    @Test
+    void testOfHasTheValues() {
+        int[] values = values(LENGTH);
+
+        ChunkedIntArray array = ChunkedIntArray.of(values);
+
+        assertEquals(LENGTH, array.length(), "The length should be the number of values.");
+        assertEquals(LENGTH - 1, array.get(LENGTH - 1), "A value should be at its index.");
+        assertArrayEquals(values, array.toArray(), "The array should convert back to the same values.");
+        assertThrows(IndexOutOfBoundsException.class, () -> array.get(LENGTH), "An index past the end should throw.");
+    }
+
+    @Test
+    void testEditDoesNotChangeTheArray() {
+        ChunkedIntArray array = ChunkedIntArray.of(values(LENGTH));
+
+        ChunkedIntArray.Editor editor = array.edit();
+        editor.set(1, 100);
+        editor.set(1, editor.get(1) + 1);
+        editor.set(LENGTH - 1, -1);
+        ChunkedIntArray edited = editor.build();
+
+        assertEquals(101, edited.get(1), "An edited value should be set.");
+        assertEquals(-1, edited.get(LENGTH - 1), "Values in several chunks should be set.");
+        assertEquals(2, edited.get(2), "Other values should be kept.");
+        assertArrayEquals(values(LENGTH), array.toArray(), "The original array should not change.");
+    }
+
+    @Test
+    void testWithLengthAppendsZeros() {
+        ChunkedIntArray array = ChunkedIntArray.of(values(3));
+
+        ChunkedIntArray longer = array.withLength(LENGTH).with(LENGTH - 1, 7);
+
+        assertEquals(3, array.length(), "The original array should not change.");
+        assertEquals(LENGTH, longer.length(), "The array should have the new length.");
+        assertEquals(2, longer.get(2), "The values should be kept.");
+        assertEquals(0, longer.get(3), "The new values should be zero.");
+        assertEquals(7, longer.get(LENGTH - 1), "A value in a new chunk should be set.");
+        assertEquals(0, ChunkedIntArray.empty().withLength(5).get(4), "An empty array should grow with zeros.");
+        assertThrows(IllegalArgumentException.class, () -> longer.withLength(3), "An array cannot shrink.");
+    }
+
+    private static int[] values(int length) {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = i;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,75 @@
+package bg.sofia.uni.fmi.mjt.goodreads.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedMapTest {
+
+    @Test
+    void testOfContainsTheEntries() {
+        ShardedMap<String, Integer> map = ShardedMap.of(Map.of("one", 1, "two", 2));
+
+        assertEquals(2, map.size(), "The map should have the given entries.");
+        assertEquals(1, map.get("one"), "A key should map to its value.");
+        assertNull(map.get("three"), "An unknown key should have no value.");
+        assertEquals(0, map.getOrDefault("three", 0), "An unknown key should have the default value.");
+    }
+
+    @Test
+    void testWithAndWithoutDoNotChangeTheMap() {
+        ShardedMap<String, Integer> map = ShardedMap.of(Map.of("one", 1));
+
+        ShardedMap<String, Integer> added = map.with("two", 2).with("one", 11);
+        ShardedMap<String, Integer> removed = added.without("one");
+
+        assertEquals(Map.of("one", 1), toMap(map), "The original map should not change.");
+        assertEquals(Map.of("one", 11, "two", 2), toMap(added), "A put should add or replace the entry.");
+        assertEquals(Map.of("two", 2), toMap(removed), "A removal should drop the entry.");
+        assertSame(removed, removed.without("one"), "Removing a missing key should give the same map.");
+    }
+
+    @Test
+    void testGrowingMapKeepsAllEntries() {
+        ShardedMap<Integer, Integer> map = ShardedMap.of(Map.of());
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int key = 0; key < 5_000; key++) {
+            map = map.with(key, -key);
+            expected.put(key, -key);
+        }
+        for (int key = 0; key < 5_000; key += 3) {
+            map = map.without(key);
+            expected.remove(key);
+        }
+
+        assertEquals(expected.size(), map.size(), "The size should count the entries.");
+        assertEquals(expected, toMap(map), "Reshaping the shards should keep all entries.");
+    }
+
+    @Test
+    void testIdentityMapComparesKeysByIdentity() {
+        String key = new String("key");
+        String equalKey = new String("key");
+        ShardedMap<String, Integer> map = ShardedMap.<String, Integer>identityOf(Map.of()).with(key, 1);
+
+        assertEquals(1, map.get(key), "The key itself should map to its value.");
+        assertNull(map.get(equalKey), "An equal key should not be found.");
+        assertTrue(map.containsKey(key), "The map should contain the key itself.");
+        assertFalse(map.containsKey(equalKey), "The map should not contain an equal key.");
+        assertSame(map, map.without(equalKey), "Removing an equal key should give the same map.");
+        assertEquals(2, map.with(equalKey, 2).size(), "An equal key should be a new entry.");
+    }
+
+    private static <K, V> Map<K, V> toMap(ShardedMap<K, V> map) {
+        Map<K, V> result = new HashMap<>();
+        map.forEach(result::put);
+        return result;
+    }
+}
@@ -0,0 +1,95 @@
+package bg.sofia.uni.fmi.mjt.goodreads.finder;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuthorIndexTest {
+
+    private Book hobbit;
+    private Book silmarillion;
+    private Book dune;
+    private AuthorIndex index;
+
+    @BeforeEach
+    void setUp() {
+        hobbit = book("1", "The Hobbit", "J.R.R. Tolkien");
+        silmarillion = book("2", "The Silmarillion", "J.R.R. TOLKIEN");
+        dune = book("3", "Dune", "Frank Herbert");
+
+        index = AuthorIndex.build(List.of(hobbit, silmarillion, dune));
+    }
+
+    @Test
+    void testBooksByIgnoresCase() {
+        assertEquals(List.of(hobbit, silmarillion), index.booksBy("j.r.r. tolkien"),
+            "Author lookups should ignore case and keep corpus order.");
+    }
+
+    @Test
+    void testBooksByNormalizesUnicode() {
+        Book composed = book("4", "Nana", "\u00C9mile Zola");
+        Book decomposed = book("5", "Germinal", "E\u0301mile Zola");
+
+        AuthorIndex unicodeIndex = AuthorIndex.build(List.of(composed, decomposed));
+
+        assertEquals(List.of(composed, decomposed), unicodeIndex.booksBy("\u00C9MILE ZOLA"),
+            "Composed and decomposed forms of a name should be the same author.");
+    }
+
+    @Test
+    void testBooksByReturnsTheSameImmutableList() {
+        List<Book> books = index.booksBy("Frank Herbert");
+
+        assertSame(books, index.booksBy("frank herbert"), "Repeated lookups should not allocate new lists.");
+        assertThrows(UnsupportedOperationException.class, () -> books.add(hobbit),
+            "The returned list should be immutable.");
+    }
+
+    @Test
+    void testNormalizeReturnsAKeyAsItIs() {
+        String key = "frank herbert";
+
+        assertSame(key, AuthorIndex.normalize(key), "A name which is already a key should not be copied.");
+        assertEquals("frank herbert", AuthorIndex.normalize("Frank Herbert"), "An ASCII name should be lower-cased.");
+        assertEquals("\u00e9mile zola", AuthorIndex.normalize("E\u0301MILE Zola"),
+            "A name which is not in NFKC form should be normalized.");
+    }
+
+    @Test
+    void testWithBookAppendsToTheBooksOfTheAuthor() {
+        Book hurin = book("6", "The Children of Hurin", "J.R.R. Tolkien");
+
+        AuthorIndex updated = index.withBook(hurin);
+
+        assertEquals(List.of(hobbit, silmarillion, hurin), updated.booksBy("J.R.R. Tolkien"),
+            "An added book should follow the other books of its author.");
+        assertEquals(List.of(hobbit, silmarillion), index.booksBy("J.R.R. Tolkien"),
+            "The previous index should not change.");
+    }
+
+    @Test
+    void testWithoutBookDropsTheLastBookOfAnAuthor() {
+        AuthorIndex updated = index.withoutBook(silmarillion).withoutBook(dune);
+
+        assertEquals(List.of(hobbit), updated.booksBy("J.R.R. Tolkien"), "A removed book should not be found.");
+        assertTrue(updated.booksBy("Frank Herbert").isEmpty(), "An author without books should have no books.");
+        assertEquals(List.of(dune), index.booksBy("Frank Herbert"), "The previous index should not change.");
+    }
+
+    @Test
+    void testBooksByUnknownAuthorIsEmpty() {
+        assertTrue(index.booksBy("Unknown").isEmpty(), "An unknown author should have no books.");
+    }
+
+    private static Book book(String id, String title, String author) {
+        return new Book(id, title, author, "", List.of(), 4.0, 10, "url" + id);
+    }
+}
@@ -2,15 +2,28 @@ package bg.sofia.uni.fmi.mjt.goodreads.finder;
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
 import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import bg.sofia.uni.fmi.mjt.goodreads.vocabulary.CorpusVocabulary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -22,7 +35,7 @@ public class BookFinderTest {
 
     @BeforeEach
     void setUp() {
-        tokenizer = mock(TextTokenizer.class);
+        tokenizer = new TextTokenizer(new StringReader("the\nand\na\nof\nin\n"));
 
         Book book1 = mock(Book.class);
         when(book1.author()).thenReturn("Author One");
@@ -84,11 +97,23 @@ public class BookFinderTest {
             "The returned set of genres does not match the expected unique genres.");
     }
 
-//    @Test
-//    void testSearchByGenresWithMatchAllReturnsCorrectBooks() {
-//        List<Book> result = bookFinder.searchByGenres(Set.of("Science Fiction", "Adventure"), MatchOption.MATCH_ALL);
-//        assertEquals("Exploring the Cosmos", result.get(0).title());
-//    }
+    @Test
+    void testSearchByGenresWithMatchAllReturnsCorrectBooks() {
+        List<Book> result = bookFinder.searchByGenres(Set.of("Science Fiction", "Adventure"), MatchOption.MATCH_ALL);
+        assertEquals("Exploring the Cosmos", result.get(0).title());
+    }
+
+    @Test
+    void testSearchByGenresWithMatchAllIgnoresCase() {
+        List<Book> result = bookFinder.searchByGenres(Set.of("fantasy", "DRAMA"), MatchOption.MATCH_ALL);
+        assertEquals(List.of("Quest of the Dragon"), result.stream().map(Book::title).toList());
+    }
+
+    @Test
+    void testSearchByGenresWithEmptyGenresReturnsNoBooks() {
+        assertTrue(bookFinder.searchByGenres(Set.of(), MatchOption.MATCH_ANY).isEmpty(),
+            "No books should match an empty set of genres.");
+    }
 
     @Test
     void testSearchByGenresWithMatchAnyReturnsCorrectBooks() {
@@ -105,25 +130,14 @@ public class BookFinderTest {
 
     @Test
     void testSearchByKeywordsWithMatchAllReturnsCorrectBooks() {
-        when(tokenizer.tokenize("Space exploration and adventure."))
-            .thenReturn(List.of("space", "exploration", "adventure"));
-        when(tokenizer.tokenize("Exploring the Cosmos"))
-            .thenReturn(List.of("exploring", "cosmos"));
-
         List<Book> result = bookFinder.searchByKeywords(Set.of("space", "adventure"), MatchOption.MATCH_ALL);
         assertEquals("Author One", result.get(0).author());
     }
 
     @Test
     void testSearchByKeywordsWithMatchAnyReturnsCorrectBooks() {
-        when(tokenizer.tokenize("Knights and a dragon in a fantasy land."))
-            .thenReturn(List.of("knights", "dragon", "fantasy"));
-
-        when(tokenizer.tokenize("Quest of the Dragon"))
-            .thenReturn(List.of("dragon", "quest"));
-
         List<Book> result = bookFinder.searchByKeywords(Set.of("dragon", "space"), MatchOption.MATCH_ANY);
-        assertEquals(1, result.size());
+        assertEquals(2, result.size(), "Each book containing one of the keywords should be found.");
     }
 
 //    @Test
@@ -149,4 +163,216 @@ public class BookFinderTest {
         assertThrows(IllegalArgumentException.class,
             () -> bookFinder.searchByKeywords(Set.of("space"), null));
     }
+
+    @Test
+    void testFinderFromVocabularySearchesByKeywords() {
+        TextTokenizer realTokenizer = new TextTokenizer(new StringReader("the\nand\na\nof\n"));
+        Book wizards = new Book("1", "Wizards", "Author", "Young wizards learn magic", List.of(), 4.0, 10, "url");
+        Book dragons = new Book("2", "Dragons", "Author", "Dragons guard magic gold", List.of(), 4.0, 10, "url");
+
+        BookFinder finder = new BookFinder(CorpusVocabulary.build(List.of(wizards, dragons), realTokenizer));
+
+        assertEquals(List.of(wizards, dragons), finder.searchByKeywords(Set.of("magic"), MatchOption.MATCH_ALL),
+            "Books should be found by the terms of the vocabulary.");
+        assertEquals(List.of(dragons), finder.searchByKeywords(Set.of("Gold", "dragons"), MatchOption.MATCH_ALL),
+            "Title and description terms should be searchable.");
+    }
+
+    @Test
+    void testUpdatedFinderFindsTheSameBooksAsANewFinder() {
+        TextTokenizer realTokenizer = new TextTokenizer(new StringReader("the\nand\na\nof\n"));
+        List<Book> corpus = generatedBooks(0, 60);
+        List<Book> added = generatedBooks(60, 100);
+
+        BookFinder updated = new BookFinder(CorpusVocabulary.build(corpus, realTokenizer));
+        List<Book> expected = new ArrayList<>(corpus);
+        for (Book book : added) {
+            assertTrue(updated.addBook(book), "A new book should be added.");
+            expected.add(book);
+        }
+        for (Book book : corpus.subList(0, 55)) {
+            assertTrue(updated.removeBook(book), "A book of the corpus should be removed.");
+            expected.remove(book);
+        }
+        Book edited = new Book("edited", "Edited", "Author 1", "a lighthouse keeper", List.of("Mystery"), 4.0,
+            10, "url");
+        assertTrue(updated.updateBook(added.get(0), edited), "A book of the corpus should be replaced.");
+        expected.remove(added.get(0));
+        expected.add(edited);
+
+        assertSameSearchResults(new BookFinder(new LinkedHashSet<>(expected), realTokenizer), updated);
+    }
+
+    @Test
+    void testUpdatesBeforeAnyKeywordSearchAreIndexed() {
+        TextTokenizer realTokenizer = new TextTokenizer(new StringReader("the\nand\na\nof\n"));
+        List<Book> corpus = generatedBooks(0, 10);
+
+        BookFinder updated = new BookFinder(new LinkedHashSet<>(corpus), realTokenizer);
+        Book added = generatedBooks(10, 11).get(0);
+        updated.addBook(added);
+        updated.removeBook(corpus.get(3));
+
+        List<Book> expected = new ArrayList<>(corpus);
+        expected.remove(3);
+        expected.add(added);
+        assertSameSearchResults(new BookFinder(new LinkedHashSet<>(expected), realTokenizer), updated);
+    }
+
+    @Test
+    void testAddAndRemoveReportWhetherTheCorpusChanged() {
+        Book book = books.iterator().next();
+
+        assertFalse(bookFinder.addBook(book), "A book of the corpus should not be added twice.");
+        assertTrue(bookFinder.removeBook(book), "A book of the corpus should be removed.");
+        assertFalse(bookFinder.removeBook(book), "A removed book should not be removed twice.");
+        assertFalse(bookFinder.updateBook(book, mock(Book.class)), "A removed book should not be replaced.");
+        assertFalse(bookFinder.allBooks().contains(book), "A removed book should not be in the corpus.");
+    }
+
+    @Test
+    void testAddBookThrowsForNull() {
+        assertThrows(IllegalArgumentException.class, () -> bookFinder.addBook(null),
+            "Adding a null book should throw an exception.");
+    }
+
+    @Test
+    void testAsyncSearchesMatchTheBlockingSearches() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            CompletableFuture<List<Book>> byAuthor = bookFinder.searchByAuthorAsync("Author One", executor);
+            CompletableFuture<List<Book>> byGenres =
+                bookFinder.searchByGenresAsync(Set.of("fantasy"), MatchOption.MATCH_ANY, executor);
+            CompletableFuture<List<Book>> byKeywords =
+                bookFinder.searchByKeywordsAsync(Set.of("dragon"), MatchOption.MATCH_ALL, executor);
+            CompletableFuture.allOf(byAuthor, byGenres, byKeywords).join();
+
+            assertEquals(bookFinder.searchByAuthor("Author One"), byAuthor.join(),
+                "An async search by author should find the books of the blocking one.");
+            assertEquals(bookFinder.searchByGenres(Set.of("fantasy"), MatchOption.MATCH_ANY), byGenres.join(),
+                "An async search by genres should find the books of the blocking one.");
+            assertEquals(bookFinder.searchByKeywords(Set.of("dragon"), MatchOption.MATCH_ALL), byKeywords.join(),
+                "An async search by keywords should find the books of the blocking one.");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testAsyncSearchCompletesWithTheExceptionOfTheSearch() {
+        CompletableFuture<List<Book>> search = bookFinder.searchByAuthorAsync(null, Runnable::run);
+
+        CompletionException exception = assertThrows(CompletionException.class, search::join,
+            "An invalid async search should complete exceptionally.");
+        assertTrue(exception.getCause() instanceof IllegalArgumentException,
+            "The exception of the search should be passed on.");
+        assertThrows(IllegalArgumentException.class, () -> bookFinder.searchByAuthorAsync("Author One", null),
+            "An async search should require an executor.");
+    }
+
+    @Test
+    void testAllBooksIsTheCorpusOfItsVersion() {
+        Book book = books.iterator().next();
+        Set<Book> before = bookFinder.allBooks();
+        long version = bookFinder.corpusVersion();
+
+        bookFinder.removeBook(book);
+
+        assertTrue(before.contains(book), "The books of a version should not change with later updates.");
+        assertEquals(books, before, "The books of a version should not change with later updates.");
+        assertFalse(bookFinder.allBooks().contains(book), "The books of the next version should not have it.");
+        assertTrue(bookFinder.corpusVersion() > version, "Updates should move the corpus version on.");
+    }
+
+    @Test
+    void testConcurrentSearchesSeeWholeVersionsOfTheCorpus() throws InterruptedException {
+        TextTokenizer realTokenizer = new TextTokenizer(new StringReader("the\nand\na\nof\n"));
+        List<Book> corpus = generatedBooks(0, 40);
+        Book lighthouse = new Book("x", "Lighthouse", "Author 1", "lighthouse keeper", List.of("Mystery"), 4.0, 10,
+            "url");
+        Book dragon = new Book("x", "Dragon", "Author 1", "dragon castle", List.of("Fantasy", "Horror"), 4.0, 10,
+            "url");
+
+        List<BookFinder> versions = new ArrayList<>();
+        for (Book book : List.of(lighthouse, dragon)) {
+            List<Book> versionBooks = new ArrayList<>(corpus);
+            versionBooks.add(book);
+            versions.add(new BookFinder(new LinkedHashSet<>(versionBooks), realTokenizer));
+        }
+        List<Function<BookFinder, Object>> searches = List.of(
+            BookFinder::allBooks,
+            BookFinder::allGenres,
+            finder -> finder.searchByAuthor("Author 1"),
+            finder -> finder.searchByGenres(Set.of("Fantasy", "Mystery"), MatchOption.MATCH_ANY),
+            finder -> finder.searchByKeywords(Set.of("lighthouse", "castle"), MatchOption.MATCH_ANY),
+            finder -> finder.searchByKeywords(Set.of("dragon", "castle"), MatchOption.MATCH_ALL));
+
+        List<Book> initial = new ArrayList<>(corpus);
+        initial.add(lighthouse);
+        BookFinder finder = new BookFinder(new LinkedHashSet<>(initial), realTokenizer);
+        AtomicBoolean updating = new AtomicBoolean(true);
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 1_000; i++) {
+                finder.updateBook(i % 2 == 0 ? lighthouse : dragon, i % 2 == 0 ? dragon : lighthouse);
+            }
+            updating.set(false);
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int reader = 0; reader < 4; reader++) {
+            readers.add(new Thread(() -> {
+                for (int i = 0; updating.get() || i < searches.size(); i++) {
+                    Function<BookFinder, Object> search = searches.get(i % searches.size());
+                    Object result = search.apply(finder);
+                    if (!result.equals(search.apply(versions.get(0)))
+                        && !result.equals(search.apply(versions.get(1)))) {
+                        failures.add("Search " + i % searches.size() + " saw a partial update: " + result);
+                    }
+                }
+            }));
+        }
+
+        readers.forEach(Thread::start);
+        writer.start();
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue(failures.isEmpty(), "Every search should see a whole version of the corpus: " + failures.peek());
+        assertSameSearchResults(versions.get(0), finder);
+    }
+
+    private static void assertSameSearchResults(BookFinder expected, BookFinder actual) {
+        assertEquals(expected.allBooks(), actual.allBooks(), "The corpus should contain the same books.");
+        assertEquals(expected.allGenres(), actual.allGenres(), "The corpus should contain the same genres.");
+        for (int author = 0; author < 5; author++) {
+            assertEquals(expected.searchByAuthor("Author " + author), actual.searchByAuthor("Author " + author),
+                "The same books should be found by author.");
+        }
+        for (MatchOption option : MatchOption.values()) {
+            for (Set<String> genres : List.of(Set.of("Mystery"), Set.of("Fantasy", "Horror"))) {
+                assertEquals(expected.searchByGenres(genres, option), actual.searchByGenres(genres, option),
+                    "The same books should be found by genres.");
+            }
+            for (Set<String> keywords : List.of(Set.of("lighthouse"), Set.of("dragon", "castle"), Set.of("keeper"))) {
+                assertEquals(expected.searchByKeywords(keywords, option), actual.searchByKeywords(keywords, option),
+                    "The same books should be found by keywords.");
+            }
+        }
+    }
+
+    private static List<Book> generatedBooks(int from, int to) {
+        List<String> words = List.of("dragon", "castle", "lighthouse", "keeper", "storm", "letter", "garden");
+        List<String> genres = List.of("Mystery", "Fantasy", "Horror", "Romance");
+        List<Book> result = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            String description = words.get(i % words.size()) + " and " + words.get(i * 3 % words.size());
+            result.add(new Book(String.valueOf(i), "Title " + words.get(i * 5 % words.size()), "Author " + i % 5,
+                description, List.of(genres.get(i % genres.size()), genres.get(i / 2 % genres.size())), 4.0, 10,
+                "url"));
+        }
+        return result;
+    }
 }
@@ -0,0 +1,63 @@
+package bg.sofia.uni.fmi.mjt.goodreads.finder;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.metrics.MetricsRegistry;
+import bg.sofia.uni.fmi.mjt.goodreads.metrics.OperationMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InstrumentedBookFinderTest {
+
+    private BookFinderAPI finder;
+    private MetricsRegistry registry;
+    private InstrumentedBookFinder instrumented;
+
+    @BeforeEach
+    void setUp() {
+        finder = mock(BookFinderAPI.class);
+        registry = new MetricsRegistry();
+        instrumented = new InstrumentedBookFinder(finder, registry);
+    }
+
+    @Test
+    void testConstructorThrowsWhenFinderIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> new InstrumentedBookFinder(null, registry),
+            "Constructor should throw an exception when the finder is null.");
+    }
+
+    @Test
+    void testSearchesAreRecordedPerOperation() {
+        Book book = mock(Book.class);
+        when(finder.searchByAuthor("Tolkien")).thenReturn(List.of(book));
+
+        assertEquals(List.of(book), instrumented.searchByAuthor("Tolkien"), "The result should be passed on.");
+        instrumented.searchByGenres(Set.of("Fantasy"), MatchOption.MATCH_ANY);
+        instrumented.searchByGenres(Set.of("Horror"), MatchOption.MATCH_ALL);
+
+        assertEquals(1, registry.recorder("finder.searchByAuthor").getCalls(), "The author search should be counted.");
+        assertEquals(2, registry.recorder("finder.searchByGenres").getTimedCalls(),
+            "Every genre search should be timed.");
+        assertEquals(0, registry.recorder("finder.searchByKeywords").getCalls(),
+            "Searches which were not made should not be counted.");
+    }
+
+    @Test
+    void testFailedSearchIsCountedAsError() {
+        when(finder.searchByKeywords(null, MatchOption.MATCH_ALL)).thenThrow(new IllegalArgumentException());
+
+        assertThrows(IllegalArgumentException.class, () -> instrumented.searchByKeywords(null, MatchOption.MATCH_ALL),
+            "The exception of the finder should be passed on.");
+
+        OperationMetrics metrics = registry.recorder("finder.searchByKeywords");
+        assertEquals(1, metrics.getCalls(), "A failed search should be counted as a call.");
+        assertEquals(1, metrics.getErrors(), "A failed search should be counted as an error.");
+    }
+}
@@ -0,0 +1,130 @@
+package bg.sofia.uni.fmi.mjt.goodreads.finder;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeywordIndexTest {
+
+    private KeywordIndex index;
+    private TextTokenizer tokenizer;
+
+    @BeforeEach
+    void setUp() {
+        tokenizer = new TextTokenizer(new StringReader("the\nand\na\n"));
+
+        List<Book> books = List.of(
+            new Book("0", "The Dragon", "Author", "A dragon and a knight.", List.of(), 4.0, 10, "url0"),
+            new Book("1", "Space", "Author", "Space exploration and a dragon.", List.of(), 4.0, 10, "url1"),
+            new Book("2", "Knights", "Author", "Knight of the round table.", List.of(), 4.0, 10, "url2"));
+
+        index = KeywordIndex.build(books, tokenizer);
+    }
+
+    @Test
+    void testPostingsAreAscendingOrdinals() {
+        assertArrayEquals(new int[] {0, 1}, index.postings("dragon"),
+            "The posting list should contain the ordinals of all books with the token.");
+    }
+
+    @Test
+    void testPostingsIncludeTitleTokens() {
+        assertArrayEquals(new int[] {1}, index.postings("space"),
+            "A token in both title and description should be posted once.");
+    }
+
+    @Test
+    void testPostingsOfUnknownTokenAreEmpty() {
+        assertEquals(0, index.postings("unicorn").length, "An unknown token should have no postings.");
+    }
+
+    @Test
+    void testMatchAllIntersectsPostings() {
+        assertArrayEquals(new int[] {0, 2}, index.matchAll(Set.of("knight")),
+            "Match all with one token should return its postings.");
+        assertArrayEquals(new int[] {0}, index.matchAll(Set.of("knight", "dragon")),
+            "Match all should return only the books containing every token.");
+    }
+
+    @Test
+    void testMatchAllWithUnknownTokenIsEmpty() {
+        assertEquals(0, index.matchAll(Set.of("dragon", "unicorn")).length,
+            "Match all should be empty when one of the tokens is unknown.");
+    }
+
+    @Test
+    void testMatchAnyUnitesPostings() {
+        BitSet expected = new BitSet();
+        expected.set(1);
+        expected.set(2);
+
+        assertEquals(expected, index.matchAny(Set.of("space", "round", "unicorn")),
+            "Match any should return the books containing at least one of the tokens.");
+    }
+
+    @Test
+    void testWithBookAppendsTheOrdinalToThePostingsOfItsTerms() {
+        KeywordIndex updated = index.withBook(3,
+            new Book("3", "Unicorns", "Author", "A dragon and a unicorn.", List.of(), 4.0, 10, "url3"), tokenizer);
+
+        assertArrayEquals(new int[] {0, 1, 3}, updated.postings("dragon"),
+            "An added book should be appended to the postings of a known term.");
+        assertArrayEquals(new int[] {3}, updated.postings("unicorn"), "An added book should add its new terms.");
+        assertArrayEquals(new int[] {0, 1}, index.postings("dragon"), "The previous index should not change.");
+        assertArrayEquals(new int[0], index.postings("unicorn"), "The previous index should not get new terms.");
+    }
+
+    @Test
+    void testWithBookDoesNotCopyTheDictionary() {
+        KeywordIndex updated = index
+            .withBook(3, new Book("3", "Unicorns", "Author", "A unicorn.", List.of(), 4.0, 10, "url3"), tokenizer)
+            .withBook(4, new Book("4", "Griffins", "Author", "A griffin.", List.of(), 4.0, 10, "url4"), tokenizer);
+
+        assertTrue(updated.terms().sharesTermsWith(index.terms()),
+            "New terms should be appended to the dictionary instead of a copy of it.");
+        assertArrayEquals(new int[] {4}, updated.postings("griffin"), "The latest index should find every new term.");
+        assertArrayEquals(new int[0], index.postings("unicorn"), "The previous index should not get new terms.");
+    }
+
+    @Test
+    void testIndexReadFromSnapshotMatchesLikeTheBuiltOne() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        KeywordIndex read = KeywordIndex.readFrom(ByteBuffer.wrap(bytes.toByteArray()));
+
+        assertArrayEquals(index.postings("dragon"), read.postings("dragon"));
+        assertArrayEquals(index.matchAll(Set.of("knight", "dragon")), read.matchAll(Set.of("knight", "dragon")),
+            "Match all should intersect the posting lists in the snapshot.");
+        assertEquals(index.matchAny(Set.of("space", "round")), read.matchAny(Set.of("space", "round")),
+            "Match any should read the posting lists in the snapshot.");
+        assertArrayEquals(new int[] {0, 1, 3}, read.withBook(3,
+                new Book("3", "Unicorns", "Author", "A dragon.", List.of(), 4.0, 10, "url3"), tokenizer)
+                .postings("dragon"),
+            "A book should be appended to a posting list in the snapshot.");
+    }
+
+    @Test
+    void testCompactedDropsAndRenumbersOrdinals() {
+        KeywordIndex compacted = index.compacted(new int[] {-1, 0, 1});
+
+        assertArrayEquals(new int[] {0}, compacted.postings("dragon"),
+            "Removed ordinals should be dropped and the others renumbered.");
+        assertArrayEquals(new int[] {1}, compacted.matchAll(Set.of("knight")),
+            "Matching should use the renumbered ordinals.");
+        assertArrayEquals(new int[] {0, 1}, index.postings("dragon"), "The previous index should not change.");
+    }
+}
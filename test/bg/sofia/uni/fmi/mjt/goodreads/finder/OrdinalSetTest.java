@@ -0,0 +1,93 @@
+package bg.sofia.uni.fmi.mjt.goodreads.finder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrdinalSetTest {
+
+    private static final int UNIVERSE = 1_000;
+
+    @Test
+    void testSparseSetContainsItsOrdinals() {
+        OrdinalSet set = OrdinalSet.of(new int[] {3, 500, 999}, UNIVERSE);
+
+        assertTrue(set.contains(500), "The set should contain its ordinals.");
+        assertFalse(set.contains(4), "The set should not contain other ordinals.");
+        assertEquals(3, set.cardinality(), "The cardinality should be the number of ordinals.");
+    }
+
+    @Test
+    void testDenseSetContainsItsOrdinals() {
+        int[] ordinals = new int[UNIVERSE / 2];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = 2 * i;
+        }
+        OrdinalSet set = OrdinalSet.of(ordinals, UNIVERSE);
+
+        assertTrue(set.contains(998), "The set should contain its ordinals.");
+        assertFalse(set.contains(999), "The set should not contain other ordinals.");
+        assertEquals(UNIVERSE / 2, set.cardinality(), "The cardinality should be the number of ordinals.");
+    }
+
+    @Test
+    void testOrAddsOrdinals() {
+        BitSet target = bits(1);
+
+        OrdinalSet.of(new int[] {2, 5}, UNIVERSE).or(target);
+
+        assertEquals(bits(1, 2, 5), target, "Or should add the ordinals of the set to the target.");
+    }
+
+    @Test
+    void testAndRetainsCommonOrdinals() {
+        BitSet target = bits(1, 2, 5, 7);
+
+        OrdinalSet.of(new int[] {2, 3, 7}, UNIVERSE).and(target);
+
+        assertEquals(bits(2, 7), target, "And should keep only the ordinals which are in the set.");
+    }
+
+    @Test
+    void testWithAppendsOrdinalsAndTurnsDenseSetIntoBitmap() {
+        OrdinalSet first = OrdinalSet.of(new int[] {3}, UNIVERSE);
+        OrdinalSet set = first;
+        for (int ordinal = 10; ordinal < 200; ordinal += 2) {
+            set = set.with(ordinal, UNIVERSE);
+        }
+
+        assertTrue(set.contains(198), "An added ordinal should be in the set.");
+        assertFalse(set.contains(199), "Other ordinals should not be in the set.");
+        assertEquals(96, set.cardinality(), "The cardinality should count the added ordinals.");
+        assertEquals(3, set.toArray()[0], "The ordinals before the additions should be kept.");
+        assertEquals(1, first.cardinality(), "The previous set should not change.");
+        assertFalse(first.contains(10), "The previous set should not contain the appended ordinals.");
+    }
+
+    @Test
+    void testDenseSetCombinesWithBitSets() {
+        OrdinalSet set = OrdinalSet.of(new int[] {1, 2, 5, 7}, 64);
+        BitSet union = bits(3);
+        BitSet intersection = bits(2, 3, 7);
+
+        set.or(union);
+        set.and(intersection);
+
+        assertEquals(bits(1, 2, 3, 5, 7), union, "Or should add the ordinals of a bitmap to the target.");
+        assertEquals(bits(2, 7), intersection, "And should keep only the ordinals of a bitmap.");
+        assertEquals(bits(1, 2, 5, 7), set.toBitSet(), "A bitmap should convert to its ordinals.");
+        assertEquals(5, set.toArray()[2], "A bitmap should list its ordinals in ascending order.");
+    }
+
+    private static BitSet bits(int... ordinals) {
+        BitSet result = new BitSet();
+        for (int ordinal : ordinals) {
+            result.set(ordinal);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,76 @@
+package bg.sofia.uni.fmi.mjt.goodreads.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void testEmptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.count(), "An empty histogram should have no values.");
+        assertEquals(0, histogram.valueAt(0.99), "An empty histogram should report 0 for every quantile.");
+        assertEquals(0.0, histogram.mean(), "An empty histogram should have a mean of 0.");
+    }
+
+    @Test
+    void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        IntStream.range(0, 8).forEach(histogram::record);
+
+        assertEquals(3, histogram.valueAt(0.5), "Values below 8 should have buckets of their own.");
+        assertEquals(7, histogram.valueAt(1.0), "The largest value should be reported exactly.");
+    }
+
+    @Test
+    void testQuantilesAreWithinTheBucketPrecision() {
+        Random random = new Random(3);
+        long[] values = random.longs(100_000, 1_000, 50_000_000).sorted().toArray();
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value : values) {
+            histogram.record(value);
+        }
+
+        for (double quantile : new double[] {0.5, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+            long reported = histogram.valueAt(quantile);
+
+            assertTrue(reported >= exact && reported <= exact * 1.125,
+                "Quantile " + quantile + " should be at most 12.5% above " + exact + " but was " + reported);
+        }
+    }
+
+    @Test
+    void testBucketsCoverEveryValue() {
+        for (long value : new long[] {0, 7, 8, 15, 16, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+
+            assertTrue(LatencyHistogram.lowestValueOf(bucket) <= value
+                    && value <= LatencyHistogram.highestValueOf(bucket),
+                "The bucket of " + value + " should contain it.");
+        }
+    }
+
+    @Test
+    void testNegativeLatenciesCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertEquals(0, histogram.valueAt(1.0), "A negative latency should be recorded as 0.");
+    }
+
+    @Test
+    void testValueAtThrowsForInvalidQuantile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThrows(IllegalArgumentException.class, () -> histogram.valueAt(1.5),
+            "A quantile above 1 should be rejected.");
+    }
+}
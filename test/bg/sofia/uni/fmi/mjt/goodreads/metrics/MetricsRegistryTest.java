@@ -0,0 +1,89 @@
+package bg.sofia.uni.fmi.mjt.goodreads.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsRegistryTest {
+
+    private static final String DOMAIN = "test.goodreads";
+
+    private MetricsRegistry registry;
+    private MBeanServer server;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+        server = MBeanServerFactory.newMBeanServer();
+    }
+
+    @Test
+    void testRecorderIsSharedByOperationName() {
+        assertSame(registry.recorder("finder.searchByAuthor"), registry.recorder("finder.searchByAuthor"),
+            "Every component recording an operation should record into the same metrics.");
+    }
+
+    @Test
+    void testRecorderThrowsForBlankOperation() {
+        assertThrows(IllegalArgumentException.class, () -> registry.recorder(" "),
+            "A blank operation name should be rejected.");
+    }
+
+    @Test
+    void testRecordCountsCallsAndErrors() {
+        OperationMetrics metrics = registry.recorder("op");
+        metrics.record(2_000, false);
+        metrics.record(4_000, true);
+        metrics.recordUntimed(false);
+
+        assertEquals(3, metrics.getCalls(), "Every call should be counted.");
+        assertEquals(1, metrics.getErrors(), "Only failed calls should be counted as errors.");
+        assertEquals(2, metrics.getTimedCalls(), "Only timed calls should be in the histogram.");
+        assertEquals(List.of("op"), List.copyOf(registry.operations().keySet()),
+            "The registry should list the recorded operations.");
+    }
+
+    @Test
+    void testPublishRegistersExistingAndNewOperations() throws Exception {
+        registry.recorder("finder.searchByAuthor").record(1_500, false);
+        registry.publish(server, DOMAIN);
+        registry.recorder("recommender.recommendBooks").record(3_000, true);
+
+        ObjectName finder = new ObjectName(DOMAIN + ":type=Operation,name=\"finder.searchByAuthor\"");
+        ObjectName recommender = new ObjectName(DOMAIN + ":type=Operation,name=\"recommender.recommendBooks\"");
+
+        assertEquals(1L, server.getAttribute(finder, "Calls"), "The calls should be published as an attribute.");
+        assertEquals(1L, server.getAttribute(recommender, "Errors"),
+            "An operation recorded after publishing should be published too.");
+        assertTrue((double) server.getAttribute(finder, "P99LatencyMicros") > 0,
+            "The latency percentiles should be published in microseconds.");
+    }
+
+    @Test
+    void testUnpublishRemovesTheMBeans() throws Exception {
+        registry.recorder("op");
+        registry.publish(server, DOMAIN);
+        registry.unpublish();
+
+        assertFalse(server.isRegistered(new ObjectName(DOMAIN + ":type=Operation,name=\"op\"")),
+            "Unpublishing should unregister the MBeans.");
+    }
+
+    @Test
+    void testPublishTwiceThrows() {
+        registry.publish(server, DOMAIN);
+
+        assertThrows(IllegalStateException.class, () -> registry.publish(server, DOMAIN),
+            "A registry should only be published once.");
+    }
+}
@@ -0,0 +1,191 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates.CandidateGenerator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates.MinHashGenresCandidateGenerator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates.SimHashDescriptionCandidateGenerator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.TFIDFSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.genres.GenresOverlapSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ApproximateBookRecommenderTest {
+
+    // small enough for a fast recall check; the benchmarks measure recall and latency on large corpora
+    private static final int CORPUS_SIZE = 1_500;
+    private static final int QUERIES = 20;
+    private static final int K = 10;
+
+    @Test
+    void testConstructorThrowsWhenCandidateGeneratorIsNull() {
+        Set<Book> corpus = corpus(10);
+        assertThrows(IllegalArgumentException.class,
+            () -> new ApproximateBookRecommender(corpus, new GenresOverlapSimilarityCalculator(), null),
+            "Constructor should throw an exception when the CandidateGenerator is null.");
+    }
+
+    @Test
+    void testRecommendBooksScoresOnlyCandidates() {
+        List<Book> books = new ArrayList<>(corpus(10));
+        Book origin = books.get(0);
+        CandidateGenerator generator = book -> Set.of(books.get(1), books.get(2), origin);
+
+        ApproximateBookRecommender recommender =
+            new ApproximateBookRecommender(Set.copyOf(books), (first, second) -> 0.5, generator);
+        SortedMap<Book, Double> recommendations = recommender.recommendBooks(origin, 5);
+
+        assertEquals(Set.of(books.get(1), books.get(2)), recommendations.keySet(),
+            "Only the candidates other than the origin should be recommended.");
+    }
+
+    @Test
+    void testRecommendationsCanBeCached() {
+        List<Book> books = new ArrayList<>(corpus(10));
+        Book origin = books.get(0);
+        CandidateGenerator generator = book -> Set.of(books.get(1), books.get(2));
+        ApproximateBookRecommender recommender =
+            new ApproximateBookRecommender(Set.copyOf(books), (first, second) -> 0.5, generator);
+
+        CachingBookRecommender cached = new CachingBookRecommender(recommender, 2);
+
+        assertEquals(recommender.recommendBooks(origin, 5), cached.recommendBooks(origin, 5),
+            "A cache should serve the recommendations of a recommender whose books never change.");
+    }
+
+    @Test
+    void testAsyncRecommendationIsNotScoredOnceCancelled() {
+        List<Book> books = new ArrayList<>(corpus(10));
+        Book origin = books.get(0);
+        AtomicInteger generated = new AtomicInteger();
+        CandidateGenerator generator = book -> {
+            generated.incrementAndGet();
+            return Set.of(books.get(1), books.get(2));
+        };
+        ApproximateBookRecommender recommender =
+            new ApproximateBookRecommender(Set.copyOf(books), (first, second) -> 0.5, generator);
+
+        List<Runnable> queued = new ArrayList<>();
+        CompletableFuture<SortedMap<Book, Double>> cancelled = recommender.recommendBooksAsync(origin, 5, queued::add);
+        CompletableFuture<SortedMap<Book, Double>> completed = recommender.recommendBooksAsync(origin, 5, queued::add);
+        cancelled.cancel(true);
+        queued.forEach(Runnable::run);
+
+        assertTrue(cancelled.isCancelled(), "The cancelled recommendation should stay cancelled.");
+        assertEquals(recommender.recommendBooks(origin, 5), completed.join(),
+            "An async recommendation should equal the blocking one.");
+        assertEquals(2, generated.get(), "A recommendation cancelled before it started should not be computed.");
+    }
+
+    @Test
+    void testMinHashRecallAgainstExactGenresOverlap() {
+        Set<Book> corpus = corpus(CORPUS_SIZE);
+        SimilarityCalculator calculator = new GenresOverlapSimilarityCalculator();
+        CandidateGenerator generator = new MinHashGenresCandidateGenerator(corpus, 20, 2, 7);
+
+        Measurement measurement = measure(corpus, calculator, generator);
+
+        assertTrue(measurement.recall() >= 0.9, "Recall@10 should be at least 0.9 but was " + measurement);
+        assertTrue(measurement.scoredFraction() < 0.5, "Less than half of the corpus should be scored " + measurement);
+    }
+
+    @Test
+    void testSimHashRecallAgainstExactTFIDF() {
+        Set<Book> corpus = corpus(CORPUS_SIZE);
+        TFIDFSimilarityCalculator calculator =
+            new TFIDFSimilarityCalculator(corpus, new TextTokenizer(new StringReader("")));
+        CandidateGenerator generator = new SimHashDescriptionCandidateGenerator(corpus, calculator, 24, 6, 7);
+
+        Measurement measurement = measure(corpus, calculator, generator);
+
+        assertTrue(measurement.recall() >= 0.9, "Recall@10 should be at least 0.9 but was " + measurement);
+        assertTrue(measurement.scoredFraction() < 0.5, "Less than half of the corpus should be scored " + measurement);
+    }
+
+    @Test
+    void testMoreBandsDoNotLowerRecall() {
+        Set<Book> corpus = corpus(CORPUS_SIZE);
+        SimilarityCalculator calculator = new GenresOverlapSimilarityCalculator();
+
+        Measurement fewBands = measure(corpus, calculator, new MinHashGenresCandidateGenerator(corpus, 4, 2, 7));
+        Measurement manyBands = measure(corpus, calculator, new MinHashGenresCandidateGenerator(corpus, 32, 2, 7));
+
+        assertFalse(manyBands.recall() < fewBands.recall(), "More bands should not lower the recall.");
+        assertTrue(manyBands.scoredFraction() >= fewBands.scoredFraction(), "More bands should score more books.");
+    }
+
+    /**
+     * Recall@K counts an approximate recommendation as relevant when its exact score is at least
+     * the K-th best exact score, so that books tied with the K-th one are not counted as misses.
+     */
+    private static Measurement measure(Set<Book> corpus, SimilarityCalculator calculator,
+                                       CandidateGenerator generator) {
+        BookRecommender exact = new BookRecommender(corpus, calculator);
+        ApproximateBookRecommender approximate = new ApproximateBookRecommender(corpus, calculator, generator);
+
+        long relevant = 0;
+        long expected = 0;
+        long scored = 0;
+        List<Book> origins = new ArrayList<>(corpus).subList(0, QUERIES);
+        for (Book origin : origins) {
+            SortedMap<Book, Double> exactBooks = exact.recommendBooks(origin, K);
+            double threshold = new ArrayList<>(exactBooks.values()).get(exactBooks.size() - 1);
+
+            for (Book book : approximate.recommendBooks(origin, K).keySet()) {
+                if (calculator.calculateSimilarity(origin, book) >= threshold) {
+                    relevant++;
+                }
+            }
+            expected += exactBooks.size();
+            scored += generator.candidates(origin).size();
+        }
+        return new Measurement((double) relevant / expected, (double) scored / ((long) QUERIES * corpus.size()));
+    }
+
+    private static Set<Book> corpus(int size) {
+        Random random = new Random(42);
+        Set<Book> books = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            int cluster = random.nextInt(20);
+
+            Set<String> genres = new HashSet<>();
+            int genreCount = 2 + random.nextInt(3);
+            while (genres.size() < genreCount) {
+                genres.add("genre" + (cluster * 4 + random.nextInt(6)) % 80);
+            }
+            if (random.nextInt(4) == 0) {
+                genres.add("genre" + random.nextInt(80));
+            }
+
+            StringBuilder description = new StringBuilder();
+            for (int word = 0; word < 20; word++) {
+                description.append(" topic").append(cluster).append("word").append(random.nextInt(30));
+            }
+            for (int word = 0; word < 5; word++) {
+                description.append(" common").append(random.nextInt(300));
+            }
+
+            books.add(new Book(String.valueOf(i), "Title " + i, "Author", description.toString(),
+                List.copyOf(genres), 4.0, 10, "url"));
+        }
+        return books;
+    }
+
+    private record Measurement(double recall, double scoredFraction) {
+    }
+}
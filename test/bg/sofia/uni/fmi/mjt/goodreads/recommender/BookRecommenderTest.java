@@ -2,19 +2,47 @@ package bg.sofia.uni.fmi.mjt.goodreads.recommender;
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
 import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.UpdatableSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.composite.CompositeSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.TFIDFSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.genres.GenresOverlapSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.StringReader;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.Random;
 import java.util.SortedMap;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class BookRecommenderTest {
 
@@ -128,4 +156,380 @@ public class BookRecommenderTest {
         assertEquals(book3, recommendedBooks.get(0),
             "the book with the highest similarity score should be the top recommendation.");
     }
+
+    @Test
+    void testRecommendBooksKeepsBooksWithEqualScores() {
+        when(mockCalculator.calculateSimilarity(book1, book2)).thenReturn(0.5);
+        when(mockCalculator.calculateSimilarity(book1, book3)).thenReturn(0.5);
+
+        SortedMap<Book, Double> recommendations = recommender.recommendBooks(book1, 2);
+
+        assertEquals(2, recommendations.size(), "Books with equal scores should not be dropped.");
+        assertEquals(0.5, recommendations.get(book2), "Book2 should keep its score.");
+        assertEquals(0.5, recommendations.get(book3), "Book3 should keep its score.");
+    }
+
+    @Test
+    void testRecommendBooksBreaksTiesById() {
+        Book first = new Book("1", "First", "Author", "", List.of(), 4.0, 10, "url");
+        Book second = new Book("2", "Second", "Author", "", List.of(), 4.0, 10, "url");
+        Book third = new Book("3", "Third", "Author", "", List.of(), 4.0, 10, "url");
+        Book origin = new Book("0", "Origin", "Author", "", List.of(), 4.0, 10, "url");
+        BookRecommender tieRecommender = new BookRecommender(Set.of(origin, third, first, second), (a, b) -> 0.5);
+
+        List<Book> recommendedBooks = new ArrayList<>(tieRecommender.recommendBooks(origin, 2).keySet());
+
+        assertEquals(List.of(first, second), recommendedBooks,
+            "Books with equal scores should be ranked by ID.");
+    }
+
+    @Test
+    void testConstructorThrowsWhenPoolIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> new BookRecommender(books, mockCalculator, null),
+            "Constructor should throw an exception when the ForkJoinPool is null.");
+    }
+
+    @Test
+    void testParallelRecommendBooksMatchesSequential() {
+        Set<Book> corpus = IntStream.range(0, 5_000)
+            .mapToObj(i -> new Book(String.valueOf(i), "Title " + i, "Author", "", List.of(), 4.0, 10, "url"))
+            .collect(Collectors.toSet());
+        Book origin = new Book("origin", "Origin", "Author", "", List.of(), 4.0, 10, "url");
+        SimilarityCalculator calculator = (first, second) -> (second.ID().hashCode() % 97) / 97.0;
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SortedMap<Book, Double> sequential = new BookRecommender(corpus, calculator).recommendBooks(origin, 50);
+            SortedMap<Book, Double> parallel = new BookRecommender(corpus, calculator, pool).recommendBooks(origin, 50);
+
+            assertEquals(new ArrayList<>(sequential.entrySet()), new ArrayList<>(parallel.entrySet()),
+                "Parallel scoring should return the same recommendations in the same order.");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testBatchRecommendBooksThrowsWhenOriginsContainNull() {
+        assertThrows(IllegalArgumentException.class,
+            () -> recommender.recommendBooksForEach(Arrays.asList(book1, null), 2),
+            "RecommendBooks should throw an exception when an origin book is null.");
+    }
+
+    @Test
+    void testBatchRecommendBooksThrowsWhenMaxNIsNonPositive() {
+        assertThrows(IllegalArgumentException.class, () -> recommender.recommendBooksForEach(List.of(book1), 0),
+            "RecommendBooks should throw an exception when maxN is non-positive.");
+    }
+
+    @Test
+    void testBatchRecommendBooksMatchesSingleRecommendations() {
+        Set<Book> corpus = IntStream.range(0, 3_000)
+            .mapToObj(i -> new Book(String.valueOf(i), "Title " + i, "Author", "", List.of(), 4.0, 10, "url"))
+            .collect(Collectors.toSet());
+        List<Book> origins = corpus.stream().limit(100).toList();
+        SimilarityCalculator calculator =
+            (first, second) -> ((first.ID().hashCode() * 31 + second.ID().hashCode()) % 101) / 101.0;
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BookRecommender sequential = new BookRecommender(corpus, calculator);
+            BookRecommender parallel = new BookRecommender(corpus, calculator, pool);
+
+            for (BookRecommender batchRecommender : List.of(sequential, parallel)) {
+                Map<Book, SortedMap<Book, Double>> batch = batchRecommender.recommendBooksForEach(origins, 10);
+
+                assertEquals(origins, new ArrayList<>(batch.keySet()), "The result should follow the origins order.");
+                for (Book origin : origins) {
+                    assertEquals(new ArrayList<>(sequential.recommendBooks(origin, 10).entrySet()),
+                        new ArrayList<>(batch.get(origin).entrySet()),
+                        "Batch recommendations should equal the single recommendations of each origin.");
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testRecommendBooksThrowsWhenCancelled() {
+        assertThrows(CancellationException.class, () -> recommender.recommendBooks(book1, 2, () -> true),
+            "A cancelled recommendation should not be computed.");
+        assertThrows(CancellationException.class,
+            () -> recommender.recommendBooksForEach(List.of(book1), 2, () -> true),
+            "Cancelled recommendations should not be computed.");
+        assertThrows(IllegalArgumentException.class, () -> recommender.recommendBooks(book1, 2, null),
+            "A cancellation should be required.");
+    }
+
+    @Test
+    void testAsyncRecommendationsMatchBlockingRecommendations() {
+        Set<Book> corpus = IntStream.range(0, 3_000)
+            .mapToObj(i -> new Book(String.valueOf(i), "Title " + i, "Author", "", List.of(), 4.0, 10, "url"))
+            .collect(Collectors.toSet());
+        List<Book> origins = corpus.stream().limit(40).toList();
+        SimilarityCalculator calculator =
+            (first, second) -> ((first.ID().hashCode() * 31 + second.ID().hashCode()) % 101) / 101.0;
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (BookRecommender asyncRecommender : List.of(new BookRecommender(corpus, calculator),
+                new BookRecommender(corpus, calculator, pool))) {
+                CompletableFuture<SortedMap<Book, Double>> single =
+                    asyncRecommender.recommendBooksAsync(origins.get(0), 10, executor);
+                CompletableFuture<Map<Book, SortedMap<Book, Double>>> batch =
+                    asyncRecommender.recommendBooksForEachAsync(origins, 10, executor);
+
+                assertEquals(new ArrayList<>(asyncRecommender.recommendBooks(origins.get(0), 10).entrySet()),
+                    new ArrayList<>(single.join().entrySet()),
+                    "An async recommendation should equal the blocking one.");
+                assertEquals(asyncRecommender.recommendBooksForEach(origins, 10), batch.join(),
+                    "Async batch recommendations should equal the blocking ones.");
+            }
+        } finally {
+            executor.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testCancellingAnAsyncRecommendationStopsItsScoring() throws Exception {
+        Set<Book> corpus = IntStream.range(0, 40_000)
+            .mapToObj(i -> new Book(String.valueOf(i), "Title " + i, "Author", "", List.of(), 4.0, 10, "url"))
+            .collect(Collectors.toSet());
+        Book origin = new Book("origin", "Origin", "Author", "", List.of(), 4.0, 10, "url");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (boolean parallel : List.of(false, true)) {
+                AtomicInteger scores = new AtomicInteger();
+                CountDownLatch scoring = new CountDownLatch(1);
+                CountDownLatch cancelled = new CountDownLatch(1);
+                SimilarityCalculator calculator = (first, second) -> {
+                    if (scores.incrementAndGet() >= 100) {
+                        scoring.countDown();
+                        awaitQuietly(cancelled); // every task waits here until the recommendation is cancelled
+                    }
+                    return 0.5;
+                };
+                BookRecommender cancellable = parallel
+                    ? new BookRecommender(corpus, calculator, pool)
+                    : new BookRecommender(corpus, calculator);
+
+                CompletableFuture<SortedMap<Book, Double>> recommendation =
+                    cancellable.recommendBooksAsync(origin, 10, executor);
+                assertTrue(scoring.await(5, TimeUnit.SECONDS), "The recommendation should start scoring.");
+                assertTrue(recommendation.cancel(true), "A running recommendation should be cancellable.");
+                cancelled.countDown();
+
+                executor.submit(() -> { }).get(5, TimeUnit.SECONDS); // the executor runs one task at a time
+                assertTrue(pool.awaitQuiescence(5, TimeUnit.SECONDS), "The scoring tasks should stop.");
+                assertThrows(CancellationException.class, recommendation::join,
+                    "A cancelled recommendation should not complete.");
+                assertTrue(scores.get() < corpus.size() / 4,
+                    "A cancelled recommendation should stop scoring, but scored " + scores.get() + " books.");
+            }
+        } finally {
+            executor.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testAsyncRecommendationsFanOutConcurrently() {
+        Set<Book> corpus = IntStream.range(0, 100)
+            .mapToObj(i -> new Book(String.valueOf(i), "Title " + i, "Author", "", List.of(), 4.0, 10, "url"))
+            .collect(Collectors.toSet());
+        List<Book> origins = corpus.stream().limit(3).toList();
+        Set<Book> started = ConcurrentHashMap.newKeySet();
+        CountDownLatch allStarted = new CountDownLatch(origins.size());
+        AtomicBoolean overlapped = new AtomicBoolean(true);
+        SimilarityCalculator calculator = (first, second) -> {
+            if (started.add(first)) {
+                allStarted.countDown();
+                try {
+                    // back-to-back recommendations would wait here for the ones which have not started
+                    if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                        overlapped.set(false);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return 0.5;
+        };
+        BookRecommender fanOut = new BookRecommender(corpus, calculator);
+
+        ExecutorService executor = Executors.newFixedThreadPool(origins.size());
+        try {
+            List<CompletableFuture<SortedMap<Book, Double>>> recommendations = origins.stream()
+                .map(origin -> fanOut.recommendBooksAsync(origin, 5, executor))
+                .toList();
+            CompletableFuture.allOf(recommendations.toArray(CompletableFuture[]::new)).join();
+
+            assertTrue(overlapped.get(), "The recommendations of a page should be scored at the same time.");
+            recommendations.forEach(recommendation -> assertEquals(5, recommendation.join().size(),
+                "Every fanned out recommendation should complete."));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testAsyncRecommendationThrowsForNullExecutor() {
+        assertThrows(IllegalArgumentException.class, () -> recommender.recommendBooksAsync(book1, 2, null),
+            "An async recommendation should require an executor.");
+    }
+
+    @Test
+    void testThresholdScoringMatchesExhaustiveScoring() {
+        Random random = new Random(7);
+        List<String> genres = List.of("Fantasy", "Romance", "Horror", "Classics", "Poetry", "History");
+        List<String> words = List.of("dragon", "castle", "love", "war", "ghost", "king", "sea", "letter", "night");
+        Set<Book> corpus = IntStream.range(0, 400)
+            .mapToObj(i -> new Book(String.valueOf(i), "Title " + i, "Author",
+                String.join(" ", random.ints(8, 0, words.size()).mapToObj(words::get).toList()),
+                random.ints(2, 0, genres.size()).distinct().mapToObj(genres::get).toList(), 4.0, 10, "url"))
+            .collect(Collectors.toSet());
+
+        TextTokenizer tokenizer = new TextTokenizer(new StringReader("the\nand\na\n"));
+        CompositeSimilarityCalculator composite = new CompositeSimilarityCalculator(Map.of(
+            new GenresOverlapSimilarityCalculator(), 0.4,
+            new TFIDFSimilarityCalculator(corpus, tokenizer), 0.6));
+        SimilarityCalculator exhaustive = composite::calculateSimilarity;
+
+        BookRecommender thresholded = new BookRecommender(corpus, composite);
+        BookRecommender reference = new BookRecommender(corpus, exhaustive);
+        for (Book origin : corpus.stream().limit(50).toList()) {
+            assertEquals(new ArrayList<>(reference.recommendBooks(origin, 5).entrySet()),
+                new ArrayList<>(thresholded.recommendBooks(origin, 5).entrySet()),
+                "Skipping candidates which can not reach the top books should not change the recommendations.");
+        }
+    }
+
+    @Test
+    void testUpdatedRecommenderRecommendsLikeANewRecommender() {
+        List<String> genres = List.of("Fantasy", "Romance", "Horror", "Classics", "Poetry", "History");
+        List<Book> corpus = IntStream.range(0, 300)
+            .mapToObj(i -> new Book(String.format("%03d", i), "Title", "Author", "",
+                List.of(genres.get(i % genres.size()), genres.get(i / 7 % genres.size())), 4.0, 10, "url"))
+            .toList();
+        Set<Book> initial = Set.copyOf(corpus.subList(0, 200));
+        Set<Book> expected = new HashSet<>(corpus.subList(50, 300));
+
+        BookRecommender updated = new BookRecommender(initial, new GenresOverlapSimilarityCalculator(initial));
+        long version = updated.corpusVersion();
+        corpus.subList(200, 300).forEach(updated::addBook);
+        corpus.subList(0, 50).forEach(updated::removeBook);
+
+        BookRecommender reference = new BookRecommender(expected, new GenresOverlapSimilarityCalculator(expected));
+        for (Book origin : corpus.subList(40, 300)) {
+            assertEquals(new ArrayList<>(reference.recommendBooks(origin, 10).entrySet()),
+                new ArrayList<>(updated.recommendBooks(origin, 10).entrySet()),
+                "An updated recommender should recommend the same books as one built for the new corpus.");
+        }
+        assertTrue(updated.corpusVersion() > version, "Updates should move the corpus version on.");
+    }
+
+    @Test
+    void testUpdatesArePassedToAnUpdatableCalculator() {
+        UpdatableSimilarityCalculator updatable = mock(UpdatableSimilarityCalculator.class);
+        BookRecommender updatableRecommender = new BookRecommender(books, updatable);
+        Book added = mock(Book.class);
+
+        assertTrue(updatableRecommender.updateBook(book1, added), "A book of the corpus should be replaced.");
+        assertFalse(updatableRecommender.removeBook(book1), "A replaced book should not be in the corpus.");
+        assertFalse(updatableRecommender.addBook(added), "A book of the corpus should not be added twice.");
+        verify(updatable).removeBook(book1);
+        verify(updatable).addBook(added);
+    }
+
+    @Test
+    void testUpdateDiscardsTheNeighbourGraph(@TempDir Path directory) {
+        Book first = new Book("1", "First", "Author", "", List.of("Fantasy"), 4.0, 10, "url");
+        Book second = new Book("2", "Second", "Author", "", List.of("Fantasy"), 4.0, 10, "url");
+        Book third = new Book("3", "Third", "Author", "", List.of("Horror"), 4.0, 10, "url");
+        BookRecommender graphRecommender =
+            new BookRecommender(Set.of(first, second), new GenresOverlapSimilarityCalculator());
+        graphRecommender.buildNeighbourGraph(directory.resolve("neighbours.bin"), 1);
+
+        graphRecommender.removeBook(second);
+        graphRecommender.addBook(third);
+
+        assertEquals(Map.of(third, 0.0), graphRecommender.recommendBooks(first, 1),
+            "Recommendations after an update should not come from the graph of the previous corpus.");
+    }
+
+    @Test
+    void testConcurrentRecommendationsSeeWholeVersionsOfTheCorpus() throws InterruptedException {
+        Random random = new Random(11);
+        List<String> genres = List.of("Fantasy", "Romance", "Horror", "Classics", "Poetry", "History");
+        List<String> words = List.of("dragon", "castle", "love", "war", "ghost", "king", "sea", "letter", "night");
+        Set<Book> corpus = IntStream.range(0, 60)
+            .mapToObj(i -> new Book(String.format("%02d", i), "Title " + i, "Author",
+                String.join(" ", random.ints(8, 0, words.size()).mapToObj(words::get).toList()),
+                random.ints(2, 0, genres.size()).distinct().mapToObj(genres::get).toList(), 4.0, 10, "url"))
+            .collect(Collectors.toSet());
+        Book ghost = new Book("30x", "Ghost", "Author", "ghost night ghost sea", List.of("Horror"), 4.0, 10, "url");
+        Book king = new Book("30x", "King", "Author", "king castle war", List.of("History", "Fantasy"), 4.0, 10, "url");
+
+        TextTokenizer tokenizer = new TextTokenizer(new StringReader("the\nand\na\n"));
+        Set<Book> initial = new HashSet<>(corpus);
+        initial.add(ghost);
+        BookRecommender updated = new BookRecommender(initial, new CompositeSimilarityCalculator(Map.of(
+            new GenresOverlapSimilarityCalculator(initial), 0.4,
+            new TFIDFSimilarityCalculator(initial, tokenizer), 0.6)));
+        List<Book> origins = List.of(corpus.iterator().next(), ghost, king);
+
+        List<Map<Book, SortedMap<Book, Double>>> versions = new ArrayList<>();
+        versions.add(updated.recommendBooksForEach(origins, 10));
+        updated.updateBook(ghost, king);
+        versions.add(updated.recommendBooksForEach(origins, 10));
+        updated.updateBook(king, ghost);
+        assertEquals(versions.get(0), updated.recommendBooksForEach(origins, 10),
+            "Going back to a corpus should give its recommendations again.");
+
+        AtomicBoolean updating = new AtomicBoolean(true);
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 1_000; i++) {
+                updated.updateBook(i % 2 == 0 ? ghost : king, i % 2 == 0 ? king : ghost);
+            }
+            updating.set(false);
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int reader = 0; reader < 4; reader++) {
+            readers.add(new Thread(() -> {
+                for (int i = 0; updating.get() || i < origins.size(); i++) {
+                    Book origin = origins.get(i % origins.size());
+                    SortedMap<Book, Double> result = updated.recommendBooks(origin, 10);
+                    if (!result.equals(versions.get(0).get(origin)) && !result.equals(versions.get(1).get(origin))) {
+                        failures.add("Recommendations for " + origin.ID() + " saw a partial update: " + result);
+                    }
+                }
+            }));
+        }
+
+        readers.forEach(Thread::start);
+        writer.start();
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertTrue(failures.isEmpty(),
+            "Every recommendation should see a whole version of the corpus: " + failures.peek());
+        assertEquals(versions.get(0), updated.recommendBooksForEach(origins, 10),
+            "The recommendations should be the ones of the last version.");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
@@ -0,0 +1,271 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingBookRecommenderTest {
+
+    private static final Book[] BOOKS = new Book[6];
+
+    static {
+        for (int i = 0; i < BOOKS.length; i++) {
+            BOOKS[i] = new Book(String.valueOf(i), "Title " + i, "Author", "", List.of(), 4.0, 10, "url");
+        }
+    }
+
+    private BookRecommenderAPI delegate;
+    private CachingBookRecommender recommender;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(BookRecommenderAPI.class);
+        when(delegate.recommendBooks(any(Book.class), anyInt()))
+            .thenAnswer(invocation -> recommendations(invocation.getArgument(1)));
+
+        recommender = new CachingBookRecommender(delegate, 2);
+    }
+
+    @Test
+    void testConstructorThrowsWhenMaximumSizeIsNonPositive() {
+        assertThrows(IllegalArgumentException.class, () -> new CachingBookRecommender(delegate, 0),
+            "Constructor should throw an exception when the maximum size is non-positive.");
+    }
+
+    @Test
+    void testConstructorThrowsWhenRecommenderKeepsTheDefaultVersion() {
+        BookRecommenderAPI unversioned = (origin, maxN) -> recommendations(maxN);
+
+        assertThrows(IllegalArgumentException.class, () -> new CachingBookRecommender(unversioned, 2),
+            "Constructor should throw an exception when the recommender does not report its corpus version.");
+    }
+
+    @Test
+    void testRepeatedRequestsAreServedFromTheCache() {
+        SortedMap<Book, Double> first = recommender.recommendBooks(BOOKS[0], 3);
+        SortedMap<Book, Double> second = recommender.recommendBooks(BOOKS[0], 3);
+
+        assertEquals(new ArrayList<>(first.entrySet()), new ArrayList<>(second.entrySet()),
+            "A cached result should equal the computed one.");
+        verify(delegate, times(1)).recommendBooks(BOOKS[0], 3);
+        assertEquals(new CachingBookRecommender.CacheStats(1, 1, 0, 1), recommender.stats(),
+            "One miss and one hit should be counted.");
+    }
+
+    @Test
+    void testSmallerMaxNIsServedFromALargerResult() {
+        recommender.recommendBooks(BOOKS[0], 4);
+
+        SortedMap<Book, Double> smaller = recommender.recommendBooks(BOOKS[0], 2);
+
+        assertEquals(List.of(BOOKS[1], BOOKS[2]), new ArrayList<>(smaller.keySet()),
+            "A smaller result should be the first entries of the cached one.");
+        verify(delegate, times(1)).recommendBooks(any(Book.class), anyInt());
+    }
+
+    @Test
+    void testLargerMaxNIsRecomputed() {
+        recommender.recommendBooks(BOOKS[0], 2);
+
+        SortedMap<Book, Double> larger = recommender.recommendBooks(BOOKS[0], 4);
+
+        assertEquals(4, larger.size(), "A larger result should be computed.");
+        verify(delegate, times(1)).recommendBooks(BOOKS[0], 4);
+    }
+
+    @Test
+    void testLeastRecentlyUsedOriginIsEvicted() {
+        recommender.recommendBooks(BOOKS[0], 2);
+        recommender.recommendBooks(BOOKS[1], 2);
+        recommender.recommendBooks(BOOKS[0], 2);
+        recommender.recommendBooks(BOOKS[2], 2);
+
+        recommender.recommendBooks(BOOKS[0], 2);
+        recommender.recommendBooks(BOOKS[1], 2);
+
+        verify(delegate, times(1)).recommendBooks(BOOKS[0], 2);
+        verify(delegate, times(2)).recommendBooks(BOOKS[1], 2);
+        assertEquals(2, recommender.stats().evictions(), "Two evictions should be counted.");
+    }
+
+    @Test
+    void testCacheIsInvalidatedWhenTheCorpusChanges() {
+        recommender.recommendBooks(BOOKS[0], 2);
+        when(delegate.corpusVersion()).thenReturn(1L);
+
+        recommender.recommendBooks(BOOKS[0], 2);
+
+        verify(delegate, times(2)).recommendBooks(BOOKS[0], 2);
+    }
+
+    @Test
+    void testModifyingAResultDoesNotChangeTheCache() {
+        recommender.recommendBooks(BOOKS[0], 3).clear();
+
+        assertEquals(3, recommender.recommendBooks(BOOKS[0], 3).size(),
+            "Modifying a returned result should not change the cached one.");
+    }
+
+    @Test
+    void testInvalidateAllRemovesCachedResults() {
+        recommender.recommendBooks(BOOKS[0], 2);
+        recommender.invalidateAll();
+
+        recommender.recommendBooks(BOOKS[0], 2);
+
+        verify(delegate, times(2)).recommendBooks(BOOKS[0], 2);
+    }
+
+
+    @Test
+    void testCancellableRecommendationPassesTheCancellationOnOnAMiss() {
+        BooleanSupplier cancelled = () -> false;
+        when(delegate.recommendBooks(any(Book.class), anyInt(), any(BooleanSupplier.class)))
+            .thenAnswer(invocation -> recommendations(invocation.getArgument(1)));
+
+        recommender.recommendBooks(BOOKS[0], 3, cancelled);
+        recommender.recommendBooks(BOOKS[0], 3, cancelled);
+
+        verify(delegate, times(1)).recommendBooks(BOOKS[0], 3, cancelled);
+        assertEquals(new CachingBookRecommender.CacheStats(1, 1, 0, 1), recommender.stats(),
+            "A cancellable recommendation should be cached like any other.");
+    }
+
+    @Test
+    void testCancelledMissIsNotCached() {
+        when(delegate.recommendBooks(any(Book.class), anyInt(), any(BooleanSupplier.class)))
+            .thenThrow(new CancellationException());
+
+        assertThrows(CancellationException.class, () -> recommender.recommendBooks(BOOKS[0], 3, () -> true),
+            "The cancellation of the recommender should be passed on.");
+        assertEquals(0, recommender.stats().size(), "A cancelled recommendation should not be cached.");
+    }
+
+    @Test
+    void testConcurrentMissesForTheSameOriginAreComputedOnce() throws Exception {
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.recommendBooks(any(Book.class), anyInt())).thenAnswer(invocation -> {
+            computing.countDown();
+            release.await();
+            return recommendations(invocation.getArgument(1));
+        });
+
+        List<Future<SortedMap<Book, Double>>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            results.add(executor.submit(() -> recommender.recommendBooks(BOOKS[0], 3)));
+            assertTrue(computing.await(5, TimeUnit.SECONDS), "The first miss should be computed.");
+            for (int i = 0; i < 3; i++) {
+                int maxN = 1 + i;
+                results.add(executor.submit(() -> recommender.recommendBooks(BOOKS[0], maxN)));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i == 0 ? 3 : i, results.get(i).get(5, TimeUnit.SECONDS).size(),
+                    "Every request should get its own number of recommendations.");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(delegate, times(1)).recommendBooks(any(Book.class), anyInt());
+        assertEquals(new CachingBookRecommender.CacheStats(3, 1, 0, 1), recommender.stats(),
+            "The requests which waited for the computation in flight should be counted as hits.");
+    }
+
+    @Test
+    void testRequestWaitingForACancelledMissComputesItsOwn() throws Exception {
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean firstCancelled = new AtomicBoolean();
+        BooleanSupplier first = firstCancelled::get;
+        when(delegate.recommendBooks(any(Book.class), anyInt(), any(BooleanSupplier.class)))
+            .thenAnswer(invocation -> {
+                if (invocation.getArgument(2) == first) {
+                    computing.countDown();
+                    release.await();
+                    throw new CancellationException();
+                }
+                return recommendations(invocation.getArgument(1));
+            });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<SortedMap<Book, Double>> cancelled = executor.submit(
+                () -> recommender.recommendBooks(BOOKS[0], 3, first));
+            assertTrue(computing.await(5, TimeUnit.SECONDS), "The first miss should be computed.");
+            Future<SortedMap<Book, Double>> waiting = executor.submit(
+                () -> recommender.recommendBooks(BOOKS[0], 3, () -> false));
+            Thread.sleep(50);
+            firstCancelled.set(true);
+            release.countDown();
+
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> cancelled.get(5, TimeUnit.SECONDS), "The cancelled request should fail.");
+            assertTrue(exception.getCause() instanceof CancellationException,
+                "The cancelled request should fail with its cancellation.");
+            assertEquals(3, waiting.get(5, TimeUnit.SECONDS).size(),
+                "The waiting request should compute its own recommendations.");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCancelledRequestStopsWaitingForAMiss() throws Exception {
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.recommendBooks(any(Book.class), anyInt())).thenAnswer(invocation -> {
+            computing.countDown();
+            release.await();
+            return recommendations(invocation.getArgument(1));
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<SortedMap<Book, Double>> first = executor.submit(() -> recommender.recommendBooks(BOOKS[0], 3));
+            assertTrue(computing.await(5, TimeUnit.SECONDS), "The first miss should be computed.");
+
+            assertThrows(CancellationException.class, () -> recommender.recommendBooks(BOOKS[0], 3, () -> true),
+                "A cancelled request should not wait for the computation in flight.");
+            release.countDown();
+            assertEquals(3, first.get(5, TimeUnit.SECONDS).size(), "The computation should still finish.");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static SortedMap<Book, Double> recommendations(int maxN) {
+        TopK topK = new TopK(maxN);
+        for (int ordinal = 1; ordinal < BOOKS.length; ordinal++) {
+            topK.offer(ordinal, 1.0 / ordinal);
+        }
+        return topK.toSortedMap(BOOKS);
+    }
+}
@@ -0,0 +1,90 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.metrics.MetricsRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InstrumentedBookRecommenderTest {
+
+    private BookRecommenderAPI recommender;
+    private MetricsRegistry registry;
+    private InstrumentedBookRecommender instrumented;
+
+    @BeforeEach
+    void setUp() {
+        recommender = mock(BookRecommenderAPI.class);
+        registry = new MetricsRegistry();
+        instrumented = new InstrumentedBookRecommender(recommender, registry);
+    }
+
+    @Test
+    void testConstructorThrowsWhenSinkIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> new InstrumentedBookRecommender(recommender, null),
+            "Constructor should throw an exception when the sink is null.");
+    }
+
+    @Test
+    void testRecommendationsAreRecorded() {
+        Book origin = mock(Book.class);
+        SortedMap<Book, Double> recommendations = new TreeMap<>();
+        when(recommender.recommendBooks(origin, 5)).thenReturn(recommendations);
+        when(recommender.recommendBooksForEach(List.of(origin), 5)).thenReturn(Map.of(origin, recommendations));
+
+        assertSame(recommendations, instrumented.recommendBooks(origin, 5), "The result should be passed on.");
+        instrumented.recommendBooksForEach(List.of(origin), 5);
+
+        assertEquals(1, registry.recorder("recommender.recommendBooks").getTimedCalls(),
+            "A recommendation should be timed.");
+        assertEquals(1, registry.recorder("recommender.recommendBooksForEach").getCalls(),
+            "A batch of recommendations should be recorded as a single call.");
+    }
+
+    @Test
+    void testCancellableRecommendationsAreRecordedAndPassTheCancellationOn() {
+        Book origin = mock(Book.class);
+        BooleanSupplier cancelled = () -> false;
+        SortedMap<Book, Double> recommendations = new TreeMap<>();
+        when(recommender.recommendBooks(origin, 5, cancelled)).thenReturn(recommendations);
+        when(recommender.recommendBooksForEach(List.of(origin), 5, cancelled))
+            .thenReturn(Map.of(origin, recommendations));
+
+        assertSame(recommendations, instrumented.recommendBooks(origin, 5, cancelled),
+            "The result should be passed on.");
+        instrumented.recommendBooksForEach(List.of(origin), 5, cancelled);
+
+        assertEquals(1, registry.recorder("recommender.recommendBooks").getCalls(),
+            "A cancellable recommendation should be recorded.");
+        assertEquals(1, registry.recorder("recommender.recommendBooksForEach").getCalls(),
+            "Cancellable batch recommendations should be recorded.");
+    }
+
+    @Test
+    void testFailedRecommendationIsCountedAsError() {
+        when(recommender.recommendBooks(null, 5)).thenThrow(new IllegalArgumentException());
+
+        assertThrows(IllegalArgumentException.class, () -> instrumented.recommendBooks(null, 5),
+            "The exception of the recommender should be passed on.");
+        assertEquals(1, registry.recorder("recommender.recommendBooks").getErrors(),
+            "A failed recommendation should be counted as an error.");
+    }
+
+    @Test
+    void testCorpusVersionIsTheOneOfTheRecommender() {
+        when(recommender.corpusVersion()).thenReturn(7L);
+
+        assertEquals(7L, instrumented.corpusVersion(), "The corpus version should be passed on.");
+    }
+}
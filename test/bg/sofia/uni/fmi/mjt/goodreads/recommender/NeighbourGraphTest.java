@@ -0,0 +1,129 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NeighbourGraphTest {
+
+    private static final SimilarityCalculator SYMMETRIC_CALCULATOR =
+        (first, second) -> ((first.ID().hashCode() + second.ID().hashCode()) % 53) / 53.0;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testGraphServesTheSameRecommendationsAsExactScoring() {
+        Set<Book> corpus = books(700);
+        BookRecommender exact = new BookRecommender(corpus, SYMMETRIC_CALCULATOR);
+        BookRecommender fromGraph = new BookRecommender(corpus, SYMMETRIC_CALCULATOR);
+
+        fromGraph.buildNeighbourGraph(directory.resolve("graph.bin"), 20);
+
+        assertSameRecommendations(exact, fromGraph, corpus, 20);
+    }
+
+    @Test
+    void testGraphBuiltInParallelServesTheSameRecommendations() {
+        Set<Book> corpus = books(1_100);
+        BookRecommender exact = new BookRecommender(corpus, SYMMETRIC_CALCULATOR);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BookRecommender fromGraph = new BookRecommender(corpus, SYMMETRIC_CALCULATOR, pool);
+            fromGraph.buildNeighbourGraph(directory.resolve("graph.bin"), 10);
+
+            assertSameRecommendations(exact, fromGraph, corpus, 10);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testGraphIsReusedByAnotherRecommender() {
+        Set<Book> corpus = books(300);
+        Path path = directory.resolve("graph.bin");
+        new BookRecommender(corpus, SYMMETRIC_CALCULATOR).buildNeighbourGraph(path, 5);
+
+        BookRecommender fromGraph = new BookRecommender(corpus, (first, second) -> {
+            throw new AssertionError("Recommendations should be served from the graph.");
+        });
+        fromGraph.useNeighbourGraph(path);
+
+        Book origin = corpus.iterator().next();
+        assertEquals(5, fromGraph.recommendBooks(origin, 5).size(), "The graph should serve up to k books.");
+    }
+
+    @Test
+    void testRecommendationsOfMoreThanKBooksAreScored() {
+        Set<Book> corpus = books(50);
+        BookRecommender exact = new BookRecommender(corpus, SYMMETRIC_CALCULATOR);
+        BookRecommender fromGraph = new BookRecommender(corpus, SYMMETRIC_CALCULATOR);
+        fromGraph.buildNeighbourGraph(directory.resolve("graph.bin"), 3);
+
+        Book origin = corpus.iterator().next();
+        assertEquals(new ArrayList<>(exact.recommendBooks(origin, 10).entrySet()),
+            new ArrayList<>(fromGraph.recommendBooks(origin, 10).entrySet()),
+            "Recommendations of more than k books should be scored exactly.");
+    }
+
+    @Test
+    void testUseNeighbourGraphThrowsForAnotherCorpus() {
+        Path path = directory.resolve("graph.bin");
+        new BookRecommender(books(30), SYMMETRIC_CALCULATOR).buildNeighbourGraph(path, 5);
+
+        BookRecommender other = new BookRecommender(books(31), SYMMETRIC_CALCULATOR);
+
+        assertThrows(IllegalArgumentException.class, () -> other.useNeighbourGraph(path),
+            "A graph of another corpus should be rejected.");
+    }
+
+    @Test
+    void testUseNeighbourGraphThrowsForOtherFiles() throws IOException {
+        Path path = directory.resolve("graph.bin");
+        Files.writeString(path, "not a neighbour graph");
+
+        BookRecommender recommender = new BookRecommender(books(30), SYMMETRIC_CALCULATOR);
+
+        assertThrows(IllegalArgumentException.class, () -> recommender.useNeighbourGraph(path),
+            "A file which is not a neighbour graph should be rejected.");
+    }
+
+    @Test
+    void testBuildNeighbourGraphThrowsWhenKIsNonPositive() {
+        BookRecommender recommender = new BookRecommender(books(30), SYMMETRIC_CALCULATOR);
+
+        assertThrows(IllegalArgumentException.class,
+            () -> recommender.buildNeighbourGraph(directory.resolve("graph.bin"), 0),
+            "Building a graph should throw an exception when k is non-positive.");
+    }
+
+    private static void assertSameRecommendations(BookRecommender exact, BookRecommender fromGraph,
+                                                  Set<Book> corpus, int maxN) {
+        for (Book origin : corpus) {
+            assertEquals(new ArrayList<>(exact.recommendBooks(origin, maxN).entrySet()),
+                new ArrayList<>(fromGraph.recommendBooks(origin, maxN).entrySet()),
+                "The graph should serve the same recommendations as exact scoring.");
+        }
+    }
+
+    private static Set<Book> books(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> new Book(String.valueOf(i), "Title " + i, "Author", "", List.of(), 4.0, 10, "url"))
+            .collect(Collectors.toSet());
+    }
+}
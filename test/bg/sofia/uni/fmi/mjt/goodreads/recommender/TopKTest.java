@@ -0,0 +1,132 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TopKTest {
+
+    private static final Book[] BOOKS = books(6);
+
+    @Test
+    void testKeepsTheBestScores() {
+        TopK topK = new TopK(3);
+        double[] scores = {0.1, 0.9, 0.4, 0.7, 0.2, 0.8};
+        for (int ordinal = 0; ordinal < scores.length; ordinal++) {
+            topK.offer(ordinal, scores[ordinal]);
+        }
+
+        SortedMap<Book, Double> result = topK.toSortedMap(BOOKS);
+
+        assertEquals(List.of(BOOKS[1], BOOKS[5], BOOKS[3]), new ArrayList<>(result.keySet()),
+            "The books should be ordered from the highest to the lowest score.");
+        assertEquals(List.of(0.9, 0.8, 0.7), new ArrayList<>(result.values()),
+            "The scores of the best books should be kept.");
+    }
+
+    @Test
+    void testBreaksTiesByOrdinal() {
+        TopK topK = new TopK(2);
+        topK.offer(4, 0.5);
+        topK.offer(2, 0.5);
+        topK.offer(3, 0.5);
+
+        assertEquals(List.of(BOOKS[2], BOOKS[3]), new ArrayList<>(topK.toSortedMap(BOOKS).keySet()),
+            "Books with equal scores should be ranked by ordinal regardless of the order they were offered in.");
+    }
+
+    @Test
+    void testResultDoesNotDependOnOfferOrder() {
+        double[] scores = {0.3, 0.3, 0.1, 0.9, 0.3, 0.9};
+        TopK forward = new TopK(4);
+        TopK backward = new TopK(4);
+        for (int ordinal = 0; ordinal < scores.length; ordinal++) {
+            forward.offer(ordinal, scores[ordinal]);
+            backward.offer(scores.length - 1 - ordinal, scores[scores.length - 1 - ordinal]);
+        }
+
+        assertEquals(new ArrayList<>(forward.toSortedMap(BOOKS).entrySet()),
+            new ArrayList<>(backward.toSortedMap(BOOKS).entrySet()),
+            "The selected books should not depend on the order they were offered in.");
+    }
+
+    @Test
+    void testMatchesSortingAllScores() {
+        Random random = new Random(42);
+        Book[] books = books(500);
+        double[] scores = new double[books.length];
+        TopK topK = new TopK(25);
+        for (int ordinal = 0; ordinal < books.length; ordinal++) {
+            scores[ordinal] = random.nextInt(50) / 50.0;
+            topK.offer(ordinal, scores[ordinal]);
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int ordinal = 0; ordinal < books.length; ordinal++) {
+            expected.add(ordinal);
+        }
+        expected.sort((first, second) -> scores[first] != scores[second]
+            ? Double.compare(scores[second], scores[first])
+            : Integer.compare(first, second));
+
+        List<Book> expectedBooks = expected.subList(0, 25).stream().map(ordinal -> books[ordinal]).toList();
+        assertEquals(expectedBooks, new ArrayList<>(topK.toSortedMap(books).keySet()),
+            "The heap should select the same books as sorting all scores.");
+    }
+
+    @Test
+    void testMergeKeepsTheBestOfBothHeaps() {
+        TopK first = new TopK(2);
+        first.offer(0, 0.2);
+        first.offer(1, 0.6);
+        TopK second = new TopK(2);
+        second.offer(2, 0.9);
+        second.offer(3, 0.1);
+
+        first.merge(second);
+
+        assertEquals(List.of(BOOKS[2], BOOKS[1]), new ArrayList<>(first.toSortedMap(BOOKS).keySet()),
+            "The merged heap should keep the best books of both heaps.");
+    }
+
+    @Test
+    void testResultMapAnswersLookupsOfOtherBooks() {
+        TopK topK = new TopK(1);
+        topK.offer(0, 0.5);
+        topK.offer(1, 0.4);
+
+        SortedMap<Book, Double> result = topK.toSortedMap(BOOKS);
+
+        assertNull(result.get(BOOKS[1]), "A book which was not selected should not have a score.");
+        assertFalse(result.containsKey(BOOKS[2]), "A book which was not offered should not be contained.");
+    }
+
+    @Test
+    void testThresholdIsTheWorstKeptScoreOnceFull() {
+        TopK topK = new TopK(2);
+        topK.offer(0, 0.5);
+
+        assertEquals(Double.NEGATIVE_INFINITY, topK.threshold(), "Any book can be kept before the heap is full.");
+
+        topK.offer(1, 0.7);
+        topK.offer(2, 0.6);
+
+        assertEquals(0.6, topK.threshold(), "The threshold should be the score of the worst kept book.");
+    }
+
+    private static Book[] books(int count) {
+        Book[] books = new Book[count];
+        for (int i = 0; i < count; i++) {
+            books[i] = new Book(String.valueOf(i), "Title " + i, "Author", "", List.of(), 4.0, 10, "url");
+        }
+        return books;
+    }
+}
@@ -0,0 +1,57 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MinHashGenresCandidateGeneratorTest {
+
+    private final Book fantasy = book("1", List.of("Fantasy", "Adventure"));
+    private final Book sameGenres = book("2", List.of("Adventure", "Fantasy"));
+    private final Book otherGenres = book("3", List.of("Horror", "Thriller"));
+    private final Book noGenres = book("4", List.of());
+
+    private final Set<Book> books = Set.of(fantasy, sameGenres, otherGenres, noGenres);
+
+    @Test
+    void testConstructorThrowsWhenBandsIsNonPositive() {
+        assertThrows(IllegalArgumentException.class, () -> new MinHashGenresCandidateGenerator(books, 0, 2, 1),
+            "Constructor should throw an exception when bands is non-positive.");
+    }
+
+    @Test
+    void testCandidatesThrowsWhenOriginIsNull() {
+        MinHashGenresCandidateGenerator generator = new MinHashGenresCandidateGenerator(books, 8, 2, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> generator.candidates(null),
+            "Candidates should throw an exception when the origin is null.");
+    }
+
+    @Test
+    void testBooksWithTheSameGenresAreAlwaysCandidates() {
+        MinHashGenresCandidateGenerator generator = new MinHashGenresCandidateGenerator(books, 8, 2, 1);
+
+        Set<Book> candidates = generator.candidates(fantasy);
+
+        assertTrue(candidates.contains(sameGenres), "A book with the same genres should be a candidate.");
+        assertFalse(candidates.contains(otherGenres), "A book with disjoint genres should not be a candidate.");
+    }
+
+    @Test
+    void testBooksWithoutGenresHaveNoCandidates() {
+        MinHashGenresCandidateGenerator generator = new MinHashGenresCandidateGenerator(books, 8, 2, 1);
+
+        assertEquals(Set.of(), generator.candidates(noGenres), "A book without genres should have no candidates.");
+    }
+
+    private static Book book(String id, List<String> genres) {
+        return new Book(id, "Title " + id, "Author", "", genres, 4.0, 10, "url");
+    }
+}
@@ -0,0 +1,68 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.candidates;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.TFIDFSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SimHashDescriptionCandidateGeneratorTest {
+
+    private final Book wizards = book("1", "young wizard school magic castle");
+    private final Book sameWords = book("2", "magic castle young wizard school");
+    private final Book space = book("3", "starship captain galaxy war");
+    private final Book noWords = book("4", "");
+
+    private final Set<Book> books = Set.of(wizards, sameWords, space, noWords);
+
+    private TFIDFSimilarityCalculator calculator;
+
+    @BeforeEach
+    void setUp() {
+        calculator = new TFIDFSimilarityCalculator(books, new TextTokenizer(new StringReader("")));
+    }
+
+    @Test
+    void testConstructorThrowsWhenBitsPerBandIsTooLarge() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new SimHashDescriptionCandidateGenerator(books, calculator, 4, 65, 1),
+            "Constructor should throw an exception when a band has more than 64 bits.");
+    }
+
+    @Test
+    void testConstructorThrowsWhenCalculatorIsNull() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new SimHashDescriptionCandidateGenerator(books, null, 4, 8, 1),
+            "Constructor should throw an exception when the calculator is null.");
+    }
+
+    @Test
+    void testBooksWithTheSameWordsAreAlwaysCandidates() {
+        SimHashDescriptionCandidateGenerator generator =
+            new SimHashDescriptionCandidateGenerator(books, calculator, 4, 16, 1);
+
+        assertTrue(generator.candidates(wizards).contains(sameWords),
+            "A book with the same description words should be a candidate.");
+    }
+
+    @Test
+    void testBooksWithoutDescriptionWordsHaveNoCandidates() {
+        SimHashDescriptionCandidateGenerator generator =
+            new SimHashDescriptionCandidateGenerator(books, calculator, 4, 16, 1);
+
+        assertEquals(Set.of(), generator.candidates(noWords),
+            "A book without description words should have no candidates.");
+    }
+
+    private static Book book(String id, String description) {
+        return new Book(id, "Title " + id, "Author", description, List.of(), 4.0, 10, "url");
+    }
+}
@@ -0,0 +1,130 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.metrics.MetricsRegistry;
+import bg.sofia.uni.fmi.mjt.goodreads.metrics.OperationMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InstrumentedSimilarityCalculatorTest {
+
+    private SimilarityCalculator calculator;
+    private MetricsRegistry registry;
+    private Book first;
+    private Book second;
+
+    @BeforeEach
+    void setUp() {
+        calculator = mock(SimilarityCalculator.class);
+        registry = new MetricsRegistry();
+        first = mock(Book.class);
+        second = mock(Book.class);
+        when(calculator.calculateSimilarity(first, second)).thenReturn(0.25);
+    }
+
+    @Test
+    void testOfThrowsWhenSampleIntervalIsNotPositive() {
+        assertThrows(IllegalArgumentException.class,
+            () -> InstrumentedSimilarityCalculator.of(calculator, "genres", registry, 0),
+            "Instrumenting should throw an exception when the sample interval is not positive.");
+    }
+
+    @Test
+    void testEveryCallIsTimedWithoutSampling() {
+        SimilarityCalculator instrumented = InstrumentedSimilarityCalculator.of(calculator, "genres", registry, 1);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0.25, instrumented.calculateSimilarity(first, second), "The similarity should be passed on.");
+        }
+
+        OperationMetrics metrics = registry.recorder("similarity.genres");
+        assertEquals(10, metrics.getCalls(), "Every call should be counted.");
+        assertEquals(10, metrics.getTimedCalls(), "Every call should be timed without sampling.");
+    }
+
+    @Test
+    void testOnlyASampleOfTheCallsIsTimed() {
+        SimilarityCalculator instrumented = InstrumentedSimilarityCalculator.of(calculator, "tfidf", registry, 100);
+        for (int i = 0; i < 10_000; i++) {
+            instrumented.calculateSimilarity(first, second);
+        }
+
+        OperationMetrics metrics = registry.recorder("similarity.tfidf");
+        assertEquals(10_000, metrics.getCalls(), "Every call should be counted, timed or not.");
+        assertTrue(metrics.getTimedCalls() > 0 && metrics.getTimedCalls() < 1_000,
+            "About one in a hundred calls should be timed but " + metrics.getTimedCalls() + " were.");
+    }
+
+    @Test
+    void testFailedCallIsCountedAsError() {
+        when(calculator.calculateSimilarity(first, null)).thenThrow(new IllegalArgumentException());
+        SimilarityCalculator instrumented = InstrumentedSimilarityCalculator.of(calculator, "genres", registry, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> instrumented.calculateSimilarity(first, null),
+            "The exception of the calculator should be passed on.");
+        assertEquals(1, registry.recorder("similarity.genres").getErrors(), "The failed call should be an error.");
+    }
+
+    @Test
+    void testBoundsAreTheOnesOfTheCalculator() {
+        when(calculator.upperBound()).thenReturn(1.0);
+        when(calculator.cost()).thenReturn(10.0);
+        SimilarityCalculator instrumented = InstrumentedSimilarityCalculator.of(calculator, "tfidf", registry, 1);
+
+        assertEquals(1.0, instrumented.upperBound(), "The upper bound should be passed on.");
+        assertEquals(10.0, instrumented.cost(), "The cost should be passed on.");
+    }
+
+    @Test
+    void testPlainCalculatorIsNeitherThresholdNorUpdatable() {
+        SimilarityCalculator instrumented = InstrumentedSimilarityCalculator.of(calculator, "genres", registry, 1);
+
+        assertFalse(instrumented instanceof ThresholdSimilarityCalculator,
+            "A calculator without thresholds should not accept them.");
+        assertFalse(instrumented instanceof UpdatableSimilarityCalculator,
+            "A calculator without a corpus should not accept updates.");
+    }
+
+    @Test
+    void testThresholdsArePassedOn() {
+        ThresholdSimilarityCalculator bounded = mock(ThresholdSimilarityCalculator.class);
+        when(bounded.calculateSimilarity(first, second, 0.5)).thenReturn(Double.NEGATIVE_INFINITY);
+        SimilarityCalculator instrumented = InstrumentedSimilarityCalculator.of(bounded, "composite", registry, 1);
+
+        assertTrue(instrumented instanceof ThresholdSimilarityCalculator,
+            "A calculator with thresholds should still accept them.");
+        assertEquals(Double.NEGATIVE_INFINITY,
+            ((ThresholdSimilarityCalculator) instrumented).calculateSimilarity(first, second, 0.5),
+            "The threshold should be passed on.");
+        verify(bounded).calculateSimilarity(first, second, 0.5);
+        assertEquals(1, registry.recorder("similarity.composite").getCalls(), "The call should be counted.");
+    }
+
+    @Test
+    void testUpdatesAndSnapshotsArePassedOn() {
+        UpdatableSimilarityCalculator updatable = mock(UpdatableSimilarityCalculator.class);
+        SimilarityCalculator snapshot = mock(SimilarityCalculator.class);
+        when(updatable.addBook(first)).thenReturn(true);
+        when(updatable.removeBook(second)).thenReturn(true);
+        when(updatable.snapshot()).thenReturn(snapshot);
+        when(snapshot.calculateSimilarity(first, second)).thenReturn(0.75);
+        SimilarityCalculator instrumented = InstrumentedSimilarityCalculator.of(updatable, "tfidf", registry, 1);
+
+        assertTrue(instrumented instanceof UpdatableSimilarityCalculator,
+            "An updatable calculator should still accept updates.");
+        UpdatableSimilarityCalculator instrumentedUpdatable = (UpdatableSimilarityCalculator) instrumented;
+        assertTrue(instrumentedUpdatable.addBook(first), "An added book should be passed on.");
+        assertTrue(instrumentedUpdatable.removeBook(second), "A removed book should be passed on.");
+        assertEquals(0.75, instrumentedUpdatable.snapshot().calculateSimilarity(first, second),
+            "The snapshot should be the one of the calculator.");
+        assertEquals(1, registry.recorder("similarity.tfidf").getCalls(),
+            "The calls of the snapshot should be recorded under the same operation.");
+    }
+}
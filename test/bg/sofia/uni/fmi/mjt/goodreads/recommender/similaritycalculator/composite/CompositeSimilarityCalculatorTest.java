@@ -5,7 +5,11 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Map;
@@ -13,6 +17,7 @@ import java.util.Map;
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
 import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.UpdatableSimilarityCalculator;
 
 class CompositeSimilarityCalculatorTest {
 
@@ -110,5 +115,104 @@ class CompositeSimilarityCalculatorTest {
 
         assertEquals(0.0, similarity, 1e-9, "The similarity should be 0.0 if all weights are 0.");
     }
-}
 
+    @Test
+    void testThresholdSkipsExpensiveCalculatorWhenTheThresholdIsOutOfReach() {
+        stubBounds(calculator1, 1.0);
+        stubBounds(calculator2, 10.0);
+        when(calculator1.calculateSimilarity(book1, book2)).thenReturn(0.1);
+
+        compositeCalculator = new CompositeSimilarityCalculator(Map.of(calculator1, 0.5, calculator2, 0.5));
+
+        double similarity = compositeCalculator.calculateSimilarity(book1, book2, 0.6);
+
+        assertTrue(similarity < 0.6, "A pair which can not reach the threshold should score below it.");
+        verify(calculator2, never()).calculateSimilarity(book1, book2);
+    }
+
+    @Test
+    void testThresholdKeepsExactScoreWhenTheThresholdIsReachable() {
+        stubBounds(calculator1, 1.0);
+        stubBounds(calculator2, 10.0);
+        when(calculator1.calculateSimilarity(book1, book2)).thenReturn(0.3);
+        when(calculator2.calculateSimilarity(book1, book2)).thenReturn(0.9);
+
+        compositeCalculator = new CompositeSimilarityCalculator(Map.of(calculator1, 0.5, calculator2, 0.5));
+
+        assertEquals(compositeCalculator.calculateSimilarity(book1, book2),
+            compositeCalculator.calculateSimilarity(book1, book2, 0.6),
+            "A pair which reaches the threshold should get exactly its exhaustive score.");
+    }
+
+    @Test
+    void testThresholdIsNeverSkippedOnATie() {
+        stubBounds(calculator1, 1.0);
+        stubBounds(calculator2, 10.0);
+        when(calculator1.calculateSimilarity(book1, book2)).thenReturn(0.5);
+        when(calculator2.calculateSimilarity(book1, book2)).thenReturn(1.0);
+
+        compositeCalculator = new CompositeSimilarityCalculator(Map.of(calculator1, 0.5, calculator2, 0.5));
+        double exhaustive = compositeCalculator.calculateSimilarity(book1, book2);
+
+        assertEquals(exhaustive, compositeCalculator.calculateSimilarity(book1, book2, exhaustive),
+            "A pair whose best possible score equals the threshold should still be scored.");
+    }
+
+    @Test
+    void testBoundsAreTheWeightedSumsOfTheComponentBounds() {
+        stubBounds(calculator1, 1.0);
+        stubBounds(calculator2, 10.0);
+        when(calculator2.lowerBound()).thenReturn(-1.0);
+
+        compositeCalculator = new CompositeSimilarityCalculator(Map.of(calculator1, 0.7, calculator2, -0.3));
+
+        assertEquals(1.0, compositeCalculator.upperBound(), 1e-9,
+            "A negative weight should turn the lower bound of a component into an upper bound.");
+        assertEquals(-0.3, compositeCalculator.lowerBound(), 1e-9,
+            "The lower bound should be the weighted sum of the lowest component similarities.");
+        assertEquals(11.0, compositeCalculator.cost(), 1e-9, "The cost should be the sum of the component costs.");
+    }
+
+    @Test
+    void testAddAndRemoveBookArePassedToUpdatableCalculators() {
+        UpdatableSimilarityCalculator updatable = mock(UpdatableSimilarityCalculator.class);
+        when(updatable.addBook(book1)).thenReturn(true);
+
+        compositeCalculator = new CompositeSimilarityCalculator(Map.of(calculator1, 0.5, updatable, 0.5));
+
+        assertTrue(compositeCalculator.addBook(book1), "Adding should report the change of a component.");
+        assertFalse(compositeCalculator.removeBook(book2), "Removing should report that no component changed.");
+        verify(updatable).addBook(book1);
+        verify(updatable).removeBook(book2);
+    }
+
+    private static void stubBounds(SimilarityCalculator calculator, double cost) {
+        when(calculator.upperBound()).thenReturn(1.0);
+        when(calculator.lowerBound()).thenReturn(0.0);
+        when(calculator.cost()).thenReturn(cost);
+    }
+
+    @Test
+    void testSnapshotCombinesTheSnapshotsOfUpdatableCalculators() {
+        UpdatableSimilarityCalculator updatable = mock(UpdatableSimilarityCalculator.class);
+        SimilarityCalculator updatableSnapshot = mock(SimilarityCalculator.class);
+        when(updatable.snapshot()).thenReturn(updatableSnapshot);
+        when(updatableSnapshot.calculateSimilarity(book1, book2)).thenReturn(0.5);
+        when(calculator1.calculateSimilarity(book1, book2)).thenReturn(1.0);
+        compositeCalculator = new CompositeSimilarityCalculator(Map.of(calculator1, 1.0, updatable, 2.0));
+
+        SimilarityCalculator snapshot = compositeCalculator.snapshot();
+
+        assertEquals(2.0, snapshot.calculateSimilarity(book1, book2), 1e-9,
+            "A snapshot should weigh the snapshots of the updatable calculators.");
+        verify(updatable, never()).calculateSimilarity(book1, book2);
+    }
+
+    @Test
+    void testSnapshotWithoutUpdatableCalculatorsIsTheCalculatorItself() {
+        compositeCalculator = new CompositeSimilarityCalculator(Map.of(calculator1, 1.0, calculator2, 2.0));
+
+        assertEquals(compositeCalculator, compositeCalculator.snapshot(),
+            "A calculator without updatable parts should not change, so it should be its own snapshot.");
+    }
+}
@@ -0,0 +1,48 @@
+package bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SparseVectorTest {
+
+    @Test
+    void testNormIsPrecomputed() {
+        SparseVector vector = new SparseVector(new int[] {1, 4}, new double[] {3.0, 4.0});
+
+        assertEquals(5.0, vector.norm(), 1e-9, "The norm should be the Euclidean length of the weights.");
+    }
+
+    @Test
+    void testDotProductOnlyUsesCommonTerms() {
+        SparseVector first = new SparseVector(new int[] {1, 3, 5, 7}, new double[] {1.0, 2.0, 3.0, 4.0});
+        SparseVector second = new SparseVector(new int[] {2, 3, 7, 9}, new double[] {5.0, 6.0, 7.0, 8.0});
+
+        assertEquals(2.0 * 6.0 + 4.0 * 7.0, first.dot(second), 1e-9,
+            "The dot product should sum the products of the weights of the common term ids.");
+    }
+
+    @Test
+    void testCosineSimilarityOfParallelVectorsIsOne() {
+        SparseVector first = new SparseVector(new int[] {0, 2}, new double[] {1.0, 2.0});
+        SparseVector second = new SparseVector(new int[] {0, 2}, new double[] {2.0, 4.0});
+
+        assertEquals(1.0, first.cosineSimilarity(second), 1e-9,
+            "The cosine similarity of parallel vectors should be 1.0.");
+    }
+
+    @Test
+    void testCosineSimilarityWithEmptyVectorIsZero() {
+        SparseVector vector = new SparseVector(new int[] {0}, new double[] {1.0});
+
+        assertEquals(0.0, vector.cosineSimilarity(SparseVector.empty()),
+            "The cosine similarity with an empty vector should be 0.0.");
+    }
+
+    @Test
+    void testConstructorWithDifferentLengthsThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new SparseVector(new int[] {0, 1}, new double[] {1.0}),
+            "Term ids and weights must have the same length.");
+    }
+}
@@ -1,22 +1,29 @@
 package bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions;
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.SimilarityCalculator;
 import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import bg.sofia.uni.fmi.mjt.goodreads.vocabulary.CorpusVocabulary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.StringReader;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class TFIDFSimilarityCalculatorTest {
 
     private TFIDFSimilarityCalculator calculator;
-    private TextTokenizer mockedTokenizer;
+    private TextTokenizer tokenizer;
 
     private Book book1;
     private Book book2;
@@ -25,27 +32,22 @@ public class TFIDFSimilarityCalculatorTest {
     void setUp() {
         book1 = mock(Book.class);
         book2 = mock(Book.class);
-        mockedTokenizer = mock(TextTokenizer.class);
+        tokenizer = new TextTokenizer(new StringReader("and\nabout\n"));
 
         when(book1.description()).thenReturn("Science fiction space exploration");
         when(book2.description()).thenReturn("Space and time exploration");
 
-        when(mockedTokenizer.tokenize("Science fiction space exploration"))
-            .thenReturn(List.of("science", "fiction", "space", "exploration"));
-        when(mockedTokenizer.tokenize("Space and time exploration"))
-            .thenReturn(List.of("space", "and", "time", "exploration"));
-
         Set<Book> books = Set.of(book1, book2);
-        calculator = new TFIDFSimilarityCalculator(books, mockedTokenizer);
+        calculator = new TFIDFSimilarityCalculator(books, tokenizer);
     }
 
 
     @Test
     void testCalculateSimilarityWithNoCommonWords() {
-        when(book1.description()).thenReturn("Science fiction and space");
-        when(book2.description()).thenReturn("Medieval times and knights");
+        Book first = bookWithDescription("Science fiction and space");
+        Book second = bookWithDescription("Medieval times and knights");
 
-        double similarity = calculator.calculateSimilarity(book1, book2);
+        double similarity = calculator.calculateSimilarity(first, second);
 
         assertEquals(0.0, similarity,
             "The similarity should be 0.0 because there are no common words between the two descriptions.");
@@ -66,10 +68,10 @@ public class TFIDFSimilarityCalculatorTest {
     void testCalculateSimilarityWithIdenticalDescriptions() {
         // Arrange
         String description = "Story about FMI students";
-        when(book1.description()).thenReturn(description);
-        when(book2.description()).thenReturn(description);
+        Book first = bookWithDescription(description);
+        Book second = bookWithDescription(description);
 
-        double similarity = calculator.calculateSimilarity(book1, book2);
+        double similarity = calculator.calculateSimilarity(first, second);
 
         assertEquals(1.0, similarity, "The similarity should be 1.0 for identical descriptions.");
     }
@@ -77,11 +79,11 @@ public class TFIDFSimilarityCalculatorTest {
     @Test
     void testCalculateSimilarityWithEmptyDescriptionForOneBook() {
         // Arrange
-        when(book1.description()).thenReturn("Science fiction space exploration");
-        when(book2.description()).thenReturn("");
+        Book first = bookWithDescription("Science fiction space exploration");
+        Book second = bookWithDescription("");
 
         // Act
-        double similarity = calculator.calculateSimilarity(book1, book2);
+        double similarity = calculator.calculateSimilarity(first, second);
 
         // Assert
         assertEquals(0.0, similarity, "The similarity should be 0.0 because one description is empty.");
@@ -90,14 +92,178 @@ public class TFIDFSimilarityCalculatorTest {
     @Test
     void testCalculateSimilarityWithEmptyDescriptions() {
         // Arrange
-        when(book1.description()).thenReturn("");
-        when(book2.description()).thenReturn("");
+        Book first = bookWithDescription("");
+        Book second = bookWithDescription("");
 
         // Act
-        double similarity = calculator.calculateSimilarity(book1, book2);
+        double similarity = calculator.calculateSimilarity(first, second);
 
         // Assert
         assertEquals(0.0, similarity, "The similarity should be 0.0 because both descriptions are empty.");
     }
 
+    @Test
+    void testCalculateSimilarityOfCorpusBooksMatchesTFIDFMaps() {
+        Map<String, Double> first = calculator.computeTFIDF(book1);
+        Map<String, Double> second = calculator.computeTFIDF(book2);
+
+        double dotProduct = first.keySet().stream()
+            .filter(second::containsKey)
+            .mapToDouble(word -> first.get(word) * second.get(word))
+            .sum();
+        double expected = dotProduct / (magnitude(first) * magnitude(second));
+
+        assertEquals(expected, calculator.calculateSimilarity(book1, book2), 1e-9,
+            "The precomputed vectors should give the same cosine similarity as the TF-IDF maps.");
+    }
+
+    @Test
+    void testComputeIDFUsesCorpusDocumentFrequencies() {
+        Map<String, Double> idf = calculator.computeIDF(book1);
+
+        assertEquals(Math.log(2.0 / 2), idf.get("science"), 1e-9,
+            "A word found in one of two books should have idf log(2 / (1 + 1)).");
+        assertEquals(Math.log(2.0 / 3), idf.get("space"), 1e-9,
+            "A word found in both books should have idf log(2 / (1 + 2)).");
+    }
+
+    @Test
+    void testCalculateSimilarityOfBooksOutsideTheCorpusMatchesTFIDFMaps() {
+        Book outside = new Book("3", "Outside", "Author", "Space pirates and science pirates", List.of(), 4.0, 10,
+            "url");
+        Book other = new Book("4", "Other", "Author", "Pirates of time", List.of(), 4.0, 10, "url");
+
+        for (Book first : List.of(outside, other)) {
+            for (Book second : List.of(outside, other, book1)) {
+                Map<String, Double> firstWeights = calculator.computeTFIDF(first);
+                Map<String, Double> secondWeights = calculator.computeTFIDF(second);
+                double dotProduct = firstWeights.keySet().stream()
+                    .filter(secondWeights::containsKey)
+                    .mapToDouble(word -> firstWeights.get(word) * secondWeights.get(word))
+                    .sum();
+                double expected = dotProduct / (magnitude(firstWeights) * magnitude(secondWeights));
+
+                assertEquals(expected, calculator.calculateSimilarity(first, second), 1e-12,
+                    "Words outside the corpus should be weighted like in the TF-IDF maps.");
+            }
+        }
+    }
+
+    private static double magnitude(Map<String, Double> vector) {
+        return Math.sqrt(vector.values().stream().mapToDouble(v -> v * v).sum());
+    }
+
+    private static Book bookWithDescription(String description) {
+        return new Book("0", "Title", "Author", description, List.of(), 4.0, 10, "url");
+    }
+
+    @Test
+    void testCalculatorFromVocabularyMatchesCalculatorFromBooks() {
+        TextTokenizer tokenizer = new TextTokenizer(new StringReader("and\n"));
+        Book wizards = new Book("1", "Wizards", "Author", "Young wizards learn magic", List.of(), 4.0, 10, "url");
+        Book dragons = new Book("2", "Dragons", "Author", "Dragons guard magic gold", List.of(), 4.0, 10, "url");
+        Book knights = new Book("3", "Knights", "Author", "Knights fight dragons", List.of(), 4.0, 10, "url");
+        Set<Book> corpus = Set.of(wizards, dragons, knights);
+
+        TFIDFSimilarityCalculator fromBooks = new TFIDFSimilarityCalculator(corpus, tokenizer);
+        TFIDFSimilarityCalculator fromVocabulary =
+            new TFIDFSimilarityCalculator(CorpusVocabulary.build(corpus, tokenizer));
+
+        assertEquals(fromBooks.calculateSimilarity(wizards, dragons),
+            fromVocabulary.calculateSimilarity(wizards, dragons),
+            "A calculator built from a vocabulary should calculate the same similarity.");
+    }
+
+    @Test
+    void testPrunedTermsCarryNoWeight() {
+        TextTokenizer tokenizer = new TextTokenizer(new StringReader(""));
+        Book first = new Book("1", "First", "Author", "magic common", List.of(), 4.0, 10, "url");
+        Book second = new Book("2", "Second", "Author", "castle common", List.of(), 4.0, 10, "url");
+        Book third = new Book("3", "Third", "Author", "other words", List.of(), 4.0, 10, "url");
+
+        TFIDFSimilarityCalculator pruned = new TFIDFSimilarityCalculator(
+            CorpusVocabulary.build(List.of(first, second, third), tokenizer, 1, 0.5));
+
+        assertEquals(0.0, pruned.calculateSimilarity(first, second),
+            "Books which only share a pruned term should not be similar.");
+        assertEquals(0.0, pruned.computeIDF(first).get("common"), "A pruned term should have no weight.");
+    }
+
+    @Test
+    void testAddedAndRemovedBooksMatchCalculatorBuiltForTheNewCorpus() {
+        TextTokenizer tokenizer = new TextTokenizer(new StringReader("and\n"));
+        Book wizards = new Book("1", "Wizards", "Author", "Young wizards learn magic", List.of(), 4.0, 10, "url");
+        Book dragons = new Book("2", "Dragons", "Author", "Dragons guard magic gold", List.of(), 4.0, 10, "url");
+        Book knights = new Book("3", "Knights", "Author", "Knights fight dragons", List.of(), 4.0, 10, "url");
+        Book sorcerers = new Book("4", "Sorcerers", "Author", "Sorcerers hoard gold and magic", List.of(), 4.0,
+            10, "url");
+
+        TFIDFSimilarityCalculator updated =
+            new TFIDFSimilarityCalculator(CorpusVocabulary.build(List.of(wizards, dragons, knights), tokenizer));
+        updated.calculateSimilarity(wizards, dragons);
+
+        assertTrue(updated.addBook(sorcerers), "A new book should be added.");
+        assertTrue(updated.removeBook(knights), "A book of the corpus should be removed.");
+        assertFalse(updated.addBook(sorcerers), "A book of the corpus should not be added twice.");
+        assertFalse(updated.removeBook(knights), "A removed book should not be removed twice.");
+
+        TFIDFSimilarityCalculator rebuilt =
+            new TFIDFSimilarityCalculator(Set.of(wizards, dragons, sorcerers), tokenizer);
+        assertEquals(rebuilt.calculateSimilarity(wizards, sorcerers), updated.calculateSimilarity(wizards, sorcerers),
+            1e-12, "An added book should be weighted by the document frequencies of the new corpus.");
+        assertEquals(rebuilt.calculateSimilarity(wizards, dragons), updated.calculateSimilarity(wizards, dragons),
+            1e-12, "The vectors of other books should be weighted by the document frequencies of the new corpus.");
+        assertEquals(rebuilt.computeIDF(knights), updated.computeIDF(knights),
+            "The words of a removed book should no longer count towards the document frequencies.");
+    }
+
+    @Test
+    void testSnapshotKeepsComparingWithTheCorpusItWasTakenOf() {
+        TextTokenizer tokenizer = new TextTokenizer(new StringReader("and\n"));
+        Book wizards = new Book("1", "Wizards", "Author", "Young wizards learn magic", List.of(), 4.0, 10, "url");
+        Book dragons = new Book("2", "Dragons", "Author", "Dragons guard magic gold", List.of(), 4.0, 10, "url");
+        Book knights = new Book("3", "Knights", "Author", "Knights fight dragons", List.of(), 4.0, 10, "url");
+
+        TFIDFSimilarityCalculator updated = new TFIDFSimilarityCalculator(Set.of(wizards, dragons, knights), tokenizer);
+        double before = updated.calculateSimilarity(wizards, dragons);
+        SimilarityCalculator snapshot = updated.snapshot();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(updated.removeBook(knights), "A book of the corpus should be removed.");
+            assertTrue(updated.addBook(knights), "A removed book should be added again.");
+        }
+        assertTrue(updated.removeBook(knights), "A book of the corpus should be removed.");
+
+        TFIDFSimilarityCalculator rebuilt = new TFIDFSimilarityCalculator(Set.of(wizards, dragons), tokenizer);
+        assertEquals(before, snapshot.calculateSimilarity(wizards, dragons),
+            "A snapshot should compare books with the document frequencies of its corpus.");
+        assertEquals(rebuilt.calculateSimilarity(wizards, dragons), updated.calculateSimilarity(wizards, dragons),
+            1e-12, "The calculator should compare books with the document frequencies of the new corpus.");
+        assertEquals(rebuilt.calculateSimilarity(knights, dragons), updated.calculateSimilarity(knights, dragons),
+            1e-12, "A removed book should be compared like a book outside the corpus.");
+    }
+
+    @Test
+    void testSnapshotAndCalculatorKeepTheirOwnWeightedVectors() {
+        TextTokenizer tokenizer = new TextTokenizer(new StringReader("and\n"));
+        Book wizards = new Book("1", "Wizards", "Author", "Young wizards learn magic", List.of(), 4.0, 10, "url");
+        Book dragons = new Book("2", "Dragons", "Author", "Dragons guard magic gold", List.of(), 4.0, 10, "url");
+        Book knights = new Book("3", "Knights", "Author", "Knights fight dragons", List.of(), 4.0, 10, "url");
+
+        TFIDFSimilarityCalculator updated = new TFIDFSimilarityCalculator(Set.of(wizards, dragons), tokenizer);
+        SimilarityCalculator snapshot = updated.snapshot();
+        assertTrue(updated.addBook(knights), "A new book should be added.");
+
+        SparseVector weighted = updated.vectorOf(wizards);
+        snapshot.calculateSimilarity(wizards, dragons);
+
+        assertSame(weighted, updated.vectorOf(wizards),
+            "Comparing with a snapshot should not evict the weighted vectors of the current model.");
+    }
+
+    @Test
+    void testAddBookThrowsForNull() {
+        assertThrows(IllegalArgumentException.class, () -> calculator.addBook(null),
+            "Adding a null book should throw an exception.");
+    }
 }
@@ -5,11 +5,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 public class GenresOverlapSimilarityCalculatorTest {
 
@@ -110,4 +116,65 @@ public class GenresOverlapSimilarityCalculatorTest {
         assertEquals(0.0, similarity, "Similarity should be 0.0 when both books have no genres.");
     }
 
-}
\ No newline at end of file
+    @Test
+    void testConstructorWithNullBooksThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new GenresOverlapSimilarityCalculator(null),
+            "Constructor should throw IllegalArgumentException when the books set is null.");
+    }
+
+    @Test
+    void testCorpusCalculatorMatchesListComparison() {
+        Random random = new Random(11);
+        List<String> genres = IntStream.range(0, 150).mapToObj(i -> "Genre " + i).toList();
+        List<Book> books = IntStream.range(0, 200)
+            .mapToObj(i -> new Book(String.valueOf(i), "Title", "Author", "",
+                random.ints(random.nextInt(6), 0, genres.size()).mapToObj(genres::get).toList(), 4.0, 10, "url"))
+            .toList();
+        GenresOverlapSimilarityCalculator corpusCalculator = new GenresOverlapSimilarityCalculator(Set.copyOf(books));
+
+        for (Book first : books) {
+            for (Book second : books) {
+                assertEquals(calculator.calculateSimilarity(first, second),
+                    corpusCalculator.calculateSimilarity(first, second),
+                    "Genre bitsets should give the same overlap, including duplicate genres and ids beyond 64.");
+            }
+        }
+    }
+
+    @Test
+    void testCorpusCalculatorComparesChangedGenresThroughTheirLists() {
+        when(book1.genres()).thenReturn(List.of("Fantasy", "Adventure"));
+        when(book2.genres()).thenReturn(List.of("Fantasy", "Horror"));
+        GenresOverlapSimilarityCalculator corpusCalculator =
+            new GenresOverlapSimilarityCalculator(Set.of(book1, book2));
+
+        when(book2.genres()).thenReturn(List.of("Fantasy", "Adventure"));
+
+        assertEquals(1.0, corpusCalculator.calculateSimilarity(book1, book2),
+            "The current genres of a book should be compared, not the ones it had when the corpus was indexed.");
+    }
+
+    @Test
+    void testCorpusCalculatorComparesBooksOutsideTheCorpus() {
+        Book corpusBook = new Book("1", "Title", "Author", "", List.of("Fantasy", "Adventure"), 4.0, 10, "url");
+        Book other = new Book("2", "Title", "Author", "", new ArrayList<>(List.of("Adventure")), 4.0, 10, "url");
+        GenresOverlapSimilarityCalculator corpusCalculator = new GenresOverlapSimilarityCalculator(Set.of(corpusBook));
+
+        assertEquals(1.0, corpusCalculator.calculateSimilarity(corpusBook, other),
+            "Books outside the corpus should be compared through their genre lists.");
+    }
+
+    @Test
+    void testAddedBookIsComparedLikeTheCorpusBooks() {
+        Book corpusBook = new Book("1", "Title", "Author", "", List.of("Fantasy", "Adventure"), 4.0, 10, "url");
+        Book added = new Book("2", "Title", "Author", "", List.of("Adventure", "Horror"), 4.0, 10, "url");
+        GenresOverlapSimilarityCalculator corpusCalculator = new GenresOverlapSimilarityCalculator(Set.of(corpusBook));
+
+        assertTrue(corpusCalculator.addBook(added), "A new book should be added.");
+        assertFalse(corpusCalculator.addBook(added), "A book of the corpus should not be added twice.");
+        assertEquals(0.5, corpusCalculator.calculateSimilarity(corpusBook, added),
+            "An added book should be compared through its genre bitset.");
+        assertTrue(corpusCalculator.removeBook(added), "A book of the corpus should be removed.");
+        assertFalse(corpusCalculator.removeBook(added), "A removed book should not be removed twice.");
+    }
+}
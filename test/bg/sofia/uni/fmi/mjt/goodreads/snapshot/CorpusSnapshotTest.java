@@ -0,0 +1,137 @@
+package bg.sofia.uni.fmi.mjt.goodreads.snapshot;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.BookFinder;
+import bg.sofia.uni.fmi.mjt.goodreads.finder.MatchOption;
+import bg.sofia.uni.fmi.mjt.goodreads.recommender.similaritycalculator.descriptions.TFIDFSimilarityCalculator;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CorpusSnapshotTest {
+
+    private TextTokenizer tokenizer;
+    private Set<Book> books;
+    private Book hobbit;
+    private Book dune;
+    private Book lotr;
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    void setUp() {
+        tokenizer = new TextTokenizer(new StringReader("the\nand\na\nof\n"));
+
+        hobbit = new Book("1", "The Hobbit", "J.R.R. Tolkien", "A hobbit, a dragon and a treasure.",
+            List.of("Fantasy", "Classics"), 4.28, 3_589_321, "url1");
+        dune = new Book("2", "Dune", "Frank Herbert", "Spice, sand worms and a desert planet.",
+            List.of("Science Fiction", "Classics"), 4.25, 1_000_000, "url2");
+        lotr = new Book("3", "The Fellowship of the Ring", "J.R.R. Tolkien", "A hobbit and a ring of power.",
+            List.of("Fantasy"), 4.38, 2_700_000, "url3");
+
+        books = Set.of(hobbit, dune, lotr);
+    }
+
+    @Test
+    void testOpenRestoresBooks() {
+        CorpusSnapshot snapshot = writeAndOpen();
+
+        assertEquals(books, snapshot.books(), "The snapshot should contain the same books.");
+    }
+
+    @Test
+    void testBookFinderFromSnapshotMatchesNewFinder() {
+        BookFinder expected = new BookFinder(books, tokenizer);
+        BookFinder actual = writeAndOpen().bookFinder(tokenizer);
+
+        assertEquals(expected.allGenres(), actual.allGenres());
+        assertEquals(Set.copyOf(expected.searchByAuthor("j.r.r. tolkien")),
+            Set.copyOf(actual.searchByAuthor("j.r.r. tolkien")));
+        assertEquals(Set.copyOf(expected.searchByGenres(Set.of("Classics"), MatchOption.MATCH_ANY)),
+            Set.copyOf(actual.searchByGenres(Set.of("Classics"), MatchOption.MATCH_ANY)));
+        assertEquals(Set.copyOf(expected.searchByKeywords(Set.of("hobbit", "ring"), MatchOption.MATCH_ALL)),
+            Set.copyOf(actual.searchByKeywords(Set.of("hobbit", "ring"), MatchOption.MATCH_ALL)));
+    }
+
+    @Test
+    void testTFIDFCalculatorFromSnapshotMatchesNewCalculator() {
+        TFIDFSimilarityCalculator expected = new TFIDFSimilarityCalculator(books, tokenizer);
+        TFIDFSimilarityCalculator actual = writeAndOpen().tfidfSimilarityCalculator(tokenizer);
+
+        assertEquals(expected.calculateSimilarity(hobbit, lotr), actual.calculateSimilarity(hobbit, lotr), 1e-12);
+        assertEquals(expected.calculateSimilarity(hobbit, dune), actual.calculateSimilarity(hobbit, dune), 1e-12);
+        assertEquals(expected.computeIDF(lotr), actual.computeIDF(lotr));
+    }
+
+    @Test
+    void testBookFinderFromSnapshotAppendsToPostingsInTheSnapshot() {
+        Book king = new Book("4", "The Return of the King", "J.R.R. Tolkien", "A hobbit and a king.",
+            List.of("Fantasy"), 4.5, 1_000, "url4");
+        BookFinder finder = writeAndOpen().bookFinder(tokenizer);
+
+        finder.addBook(king);
+
+        assertEquals(Set.of(hobbit, lotr, king),
+            Set.copyOf(finder.searchByKeywords(Set.of("hobbit"), MatchOption.MATCH_ANY)),
+            "A book should be appended to a posting list read from the snapshot.");
+        assertEquals(List.of(king), finder.searchByKeywords(Set.of("hobbit", "king"), MatchOption.MATCH_ALL),
+            "A book should be added to the posting list of a new term.");
+        assertEquals(List.of(lotr), finder.searchByKeywords(Set.of("hobbit", "ring"), MatchOption.MATCH_ALL),
+            "Posting lists which were not appended to should be read from the snapshot.");
+    }
+
+    @Test
+    void testTFIDFCalculatorFromSnapshotIsUpdatedLikeNewCalculator() {
+        Book king = new Book("4", "The Return of the King", "J.R.R. Tolkien", "A hobbit and a king.",
+            List.of("Fantasy"), 4.5, 1_000, "url4");
+        TFIDFSimilarityCalculator expected = new TFIDFSimilarityCalculator(books, tokenizer);
+        TFIDFSimilarityCalculator actual = writeAndOpen().tfidfSimilarityCalculator(tokenizer);
+
+        for (TFIDFSimilarityCalculator calculator : List.of(expected, actual)) {
+            calculator.removeBook(dune);
+            calculator.addBook(king);
+        }
+
+        assertEquals(expected.calculateSimilarity(hobbit, king), actual.calculateSimilarity(hobbit, king), 1e-12);
+        assertEquals(expected.calculateSimilarity(hobbit, lotr), actual.calculateSimilarity(hobbit, lotr), 1e-12);
+    }
+
+    @Test
+    void testOpenWithOtherFileThrowsException() throws IOException {
+        Path file = Files.writeString(directory.resolve("books.csv"), "N,Book,Author\n0,The Hobbit,Tolkien\n");
+
+        assertThrows(IllegalArgumentException.class, () -> CorpusSnapshot.open(file),
+            "A file which is not a snapshot should be rejected.");
+    }
+
+    @Test
+    void testOpenWithOtherVersionThrowsException() throws IOException {
+        Path file = directory.resolve("corpus.snapshot");
+        CorpusSnapshot.write(file, books, tokenizer);
+
+        byte[] content = Files.readAllBytes(file);
+        content[Integer.BYTES + Integer.BYTES - 1]++;
+        Files.write(file, content);
+
+        assertThrows(IllegalArgumentException.class, () -> CorpusSnapshot.open(file),
+            "A snapshot with another version should be rejected.");
+    }
+
+    private CorpusSnapshot writeAndOpen() {
+        Path file = directory.resolve("corpus.snapshot");
+        CorpusSnapshot.write(file, books, tokenizer);
+        return CorpusSnapshot.open(file);
+    }
+}
@@ -0,0 +1,121 @@
+package bg.sofia.uni.fmi.mjt.goodreads.tokenizer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TermDictionaryTest {
+
+    @Test
+    void testAddAssignsDenseIds() {
+        TermDictionary dictionary = new TermDictionary();
+
+        assertEquals(0, dictionary.add("magic"), "The first term should get id 0.");
+        assertEquals(1, dictionary.add("wizard"), "The second term should get id 1.");
+        assertEquals(0, dictionary.add(new StringBuilder("magic")), "A known term should keep its id.");
+        assertEquals(2, dictionary.size(), "The dictionary should contain two terms.");
+    }
+
+    @Test
+    void testIdOfLooksUpAnyCharSequence() {
+        TermDictionary dictionary = new TermDictionary();
+        dictionary.add("magic");
+
+        assertEquals(0, dictionary.idOf(new StringBuilder("magic")), "A term should be found by its characters.");
+        assertEquals(TermDictionary.NOT_FOUND, dictionary.idOf("castle"), "An unknown term should not be found.");
+        assertEquals(TermDictionary.NOT_FOUND, dictionary.idOf(null), "Null should not be found.");
+    }
+
+    @Test
+    void testDictionaryGrows() {
+        TermDictionary dictionary = new TermDictionary();
+        for (int i = 0; i < 10_000; i++) {
+            dictionary.add("term" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, dictionary.idOf("term" + i), "Every term should keep its id.");
+            assertEquals("term" + i, dictionary.term(i), "Every id should map back to its term.");
+        }
+    }
+
+    @Test
+    void testTermThrowsForUnknownId() {
+        TermDictionary dictionary = new TermDictionary();
+
+        assertThrows(IndexOutOfBoundsException.class, () -> dictionary.term(0),
+            "Term should throw an exception for an unknown id.");
+    }
+
+    @Test
+    void testAddThrowsForNull() {
+        assertThrows(IllegalArgumentException.class, () -> new TermDictionary().add(null),
+            "Add should throw an exception for a null term.");
+    }
+
+    @Test
+    void testFrozenDictionaryRejectsNewTerms() {
+        TermDictionary dictionary = new TermDictionary();
+        dictionary.add("magic");
+        dictionary.freeze();
+
+        assertEquals(0, dictionary.add("magic"), "A known term should still be found.");
+        assertThrows(IllegalStateException.class, () -> dictionary.add("castle"),
+            "A frozen dictionary should reject new terms.");
+    }
+
+    @Test
+    void testDerivedDictionaryKeepsIdsAndAcceptsNewTerms() {
+        TermDictionary dictionary = new TermDictionary();
+        dictionary.add("magic");
+        dictionary.add("dragon");
+        dictionary.freeze();
+
+        TermDictionary derived = dictionary.derive();
+
+        assertEquals(1, derived.idOf("dragon"), "A derived dictionary should keep the ids of the terms.");
+        assertEquals(2, derived.add("castle"), "A derived dictionary should not be frozen.");
+        assertEquals(TermDictionary.NOT_FOUND, dictionary.idOf("castle"),
+            "Adding to a derived dictionary should not change the original dictionary.");
+        assertEquals(2, dictionary.size(), "The original dictionary should keep its size.");
+    }
+
+    @Test
+    void testDerivedDictionaryAppendsWithoutCopyingTerms() {
+        TermDictionary dictionary = new TermDictionary();
+        dictionary.add("magic");
+        dictionary.freeze();
+
+        TermDictionary first = dictionary.derive();
+        first.add("castle");
+        TermDictionary second = first.derive();
+        second.add("wizard");
+
+        assertTrue(second.sharesTermsWith(dictionary), "Each version should append to the shared terms.");
+        assertEquals(TermDictionary.NOT_FOUND, first.idOf("wizard"), "A version should not see later terms.");
+        assertEquals(2, second.idOf("wizard"), "The latest version should see all terms.");
+    }
+
+    @Test
+    void testDictionariesDerivedFromTheSameOneKeepTheirOwnTerms() {
+        TermDictionary dictionary = new TermDictionary();
+        dictionary.add("magic");
+        dictionary.freeze();
+
+        TermDictionary first = dictionary.derive();
+        TermDictionary second = dictionary.derive();
+        first.add("castle");
+        second.add("wizard");
+
+        assertEquals(1, first.idOf("castle"));
+        assertEquals(1, second.idOf("wizard"), "The other derived dictionary should assign the same next id.");
+        assertEquals(TermDictionary.NOT_FOUND, first.idOf("wizard"));
+        assertEquals(TermDictionary.NOT_FOUND, second.idOf("castle"));
+        assertEquals("castle", first.term(1));
+        assertEquals("wizard", second.term(1));
+        assertFalse(second.sharesTermsWith(first), "The second dictionary should copy the terms it sees.");
+    }
+}
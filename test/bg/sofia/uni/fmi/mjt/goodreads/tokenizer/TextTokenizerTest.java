@@ -6,10 +6,16 @@ import org.junit.jupiter.api.Test;
 import java.io.Reader;
 import java.io.StringReader;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Random;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -90,4 +96,82 @@ public class TextTokenizerTest {
         assertEquals(expectedTokens, tokens,
             "Tokenize should handle and normalize multiple spaces.");
     }
+
+    @Test
+    void testTokenizeHandlesOtherWhitespace() {
+        List<String> tokens = tokenizer.tokenize("tab\tseparated\nlines \u2003 em\u2003space");
+
+        assertEquals(List.of("tab", "separated", "lines", "em\u2003space"), tokens,
+            "Tokenize should split on ASCII whitespace and ignore words of other whitespace.");
+    }
+
+    @Test
+    void testTokenizeMatchesRegularExpressionsInDifferentLocales() {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            for (Locale locale : List.of(Locale.ROOT, Locale.ENGLISH, Locale.forLanguageTag("tr"),
+                Locale.forLanguageTag("lt"), Locale.forLanguageTag("el"))) {
+                Locale.setDefault(locale);
+                Random random = new Random(42);
+                for (int i = 0; i < 2_000; i++) {
+                    String input = randomText(random);
+                    assertEquals(tokenizeWithRegularExpressions(input), tokenizer.tokenize(input),
+                        "Tokenize should match the regular expression tokenizer for \"" + input + "\" in " + locale);
+                }
+            }
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void testTokenizeToSinkPassesTheSameTokens() {
+        String input = "The Wizard, the WITCH and the Wardrobe \u00C9TOILE";
+        List<String> tokens = new ArrayList<>();
+
+        tokenizer.tokenize(input, token -> tokens.add(token.toString()));
+
+        assertEquals(tokenizer.tokenize(input), tokens, "The sink should receive the same tokens.");
+    }
+
+    @Test
+    void testTokenizeToSinkReusesTheTokenView() {
+        List<CharSequence> views = new ArrayList<>();
+
+        tokenizer.tokenize(new StringBuilder("magic wizard castle"), views::add);
+
+        assertEquals(3, views.size(), "The sink should receive three tokens.");
+        assertSame(views.get(0), views.get(2), "The same view should be passed for every token.");
+    }
+
+    @Test
+    void testTokenizeToSinkThrowsForNullSink() {
+        assertThrows(IllegalArgumentException.class, () -> tokenizer.tokenize("magic", null),
+            "Tokenize should throw an exception for a null sink.");
+    }
+
+    private List<String> tokenizeWithRegularExpressions(String input) {
+        if (input == null || input.isBlank()) {
+            return List.of();
+        }
+
+        return Arrays.stream(input.replaceAll("\\p{Punct}", "")
+                .replaceAll("\\s+", " ")
+                .toLowerCase()
+                .split(" "))
+            .filter(word -> !word.isBlank())
+            .filter(word -> !tokenizer.stopwords().contains(word))
+            .collect(Collectors.toList());
+    }
+
+    private static String randomText(Random random) {
+        String alphabet = "abcXYZ IiJ The AND,.;'!?-_()\"\t\n\r\u000B\f\u001C\u00A0\u2003\u00E9\u00C9"
+            + "\u0130\u0131\u03A3\u03C3\u0300\u0307\u00DF\uD835\uDC00";
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(30);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
 }
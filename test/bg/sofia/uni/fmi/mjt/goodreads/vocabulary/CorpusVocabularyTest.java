@@ -0,0 +1,115 @@
+package bg.sofia.uni.fmi.mjt.goodreads.vocabulary;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TextTokenizer;
+import bg.sofia.uni.fmi.mjt.goodreads.tokenizer.TokenSink;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CorpusVocabularyTest {
+
+    private final Book wizards = book("1", "Wizards", "Young wizards learn magic magic");
+    private final Book dragons = book("2", "Dragons", "Dragons guard magic gold");
+    private final Book knights = book("3", "Knights", "Knights fight dragons");
+
+    private TextTokenizer tokenizer;
+
+    @BeforeEach
+    void setUp() {
+        tokenizer = spy(new TextTokenizer(new StringReader("the\nand\na\n")));
+    }
+
+    @Test
+    void testBuildTokenizesEveryTextOnce() {
+        CorpusVocabulary.build(List.of(wizards, dragons, knights), tokenizer);
+
+        verify(tokenizer, times(6)).tokenize(any(CharSequence.class), any(TokenSink.class));
+        verify(tokenizer, never()).tokenize(anyString());
+    }
+
+    @Test
+    void testDescriptionTermIdsFollowTokenOrder() {
+        CorpusVocabulary vocabulary = CorpusVocabulary.build(List.of(wizards, dragons, knights), tokenizer);
+
+        int magic = vocabulary.terms().idOf("magic");
+        int[] expected = {
+            vocabulary.terms().idOf("young"), vocabulary.terms().idOf("wizards"),
+            vocabulary.terms().idOf("learn"), magic, magic
+        };
+        assertArrayEquals(expected, vocabulary.descriptionTermIds(0),
+            "The description term ids should follow the order of the tokens.");
+    }
+
+    @Test
+    void testDocumentFrequenciesCountDescriptions() {
+        CorpusVocabulary vocabulary = CorpusVocabulary.build(List.of(wizards, dragons, knights), tokenizer);
+
+        assertEquals(2, vocabulary.documentFrequency(vocabulary.terms().idOf("magic")),
+            "A term repeated in a description should be counted once for it.");
+        assertEquals(2, vocabulary.documentFrequency(vocabulary.terms().idOf("dragons")),
+            "A term should be counted for every description which contains it.");
+    }
+
+    @Test
+    void testTitleTermsAreInTheVocabulary() {
+        CorpusVocabulary vocabulary = CorpusVocabulary.build(List.of(wizards, dragons, knights), tokenizer);
+
+        assertArrayEquals(new int[] {vocabulary.terms().idOf("wizards")}, vocabulary.titleTermIds(0),
+            "The title terms should share the term ids of the descriptions.");
+    }
+
+    @Test
+    void testRareTermsArePruned() {
+        CorpusVocabulary vocabulary =
+            CorpusVocabulary.build(List.of(wizards, dragons, knights), tokenizer, 2, 1.0);
+
+        assertTrue(vocabulary.isPruned(vocabulary.terms().idOf("young")), "A rare term should be pruned.");
+        assertFalse(vocabulary.isPruned(vocabulary.terms().idOf("magic")), "Other terms should be kept.");
+        assertTrue(vocabulary.terms().idOf("young") != CorpusVocabulary.NOT_FOUND,
+            "A pruned term should stay in the vocabulary.");
+    }
+
+    @Test
+    void testCommonTermsArePruned() {
+        CorpusVocabulary vocabulary =
+            CorpusVocabulary.build(List.of(wizards, dragons, knights), tokenizer, 1, 0.5);
+
+        assertTrue(vocabulary.isPruned(vocabulary.terms().idOf("magic")),
+            "A term in more than half of the descriptions should be pruned.");
+        assertFalse(vocabulary.isPruned(vocabulary.terms().idOf("young")), "Other terms should be kept.");
+    }
+
+    @Test
+    void testOrdinalOfFollowsTheCollectionOrder() {
+        CorpusVocabulary vocabulary = CorpusVocabulary.build(List.of(wizards, dragons, knights), tokenizer);
+
+        assertEquals(2, vocabulary.ordinalOf(knights), "Ordinals should follow the collection order.");
+        assertEquals(CorpusVocabulary.NOT_FOUND, vocabulary.ordinalOf(book("4", "Other", "")),
+            "A book outside of the corpus should not be found.");
+    }
+
+    @Test
+    void testBuildThrowsWhenTokenizerIsNull() {
+        assertThrows(IllegalArgumentException.class, () -> CorpusVocabulary.build(List.of(wizards), null),
+            "Build should throw an exception when the tokenizer is null.");
+    }
+
+    private static Book book(String id, String title, String description) {
+        return new Book(id, title, "Author", description, List.of(), 4.0, 10, "url");
+    }
+}